@@ -0,0 +1,98 @@
+package com.example.challenge_service.dto;
+
+import com.example.challenge_service.model.Challenge;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Serialização de N desafios (padrão 1000) pelos três caminhos: toMap() (HashMap por desafio),
+// lista de ChallengeResponse e ChallengeResponseList (streaming). Saída descartada, para medir só
+// a serialização. Rodar com:
+//   mvn -pl challenge-service -Pjmh test-compile exec:java
+// gc.alloc.rate.norm = bytes alocados por operação (N desafios); Score = tempo por operação.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChallengeSerializationBenchmark {
+
+    @Param("1000")
+    private int challenges;
+
+    // o sink é reaproveitado: o ObjectMapper não pode fechá-lo
+    private final ObjectMapper mapper = new ObjectMapper().configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+    private final OutputStream sink = OutputStream.nullOutputStream();
+    private List<Challenge> data;
+
+    @Setup
+    public void setUp() {
+        data = new ArrayList<>(challenges);
+        for (int i = 0; i < challenges; i++) {
+            Challenge c = new Challenge();
+            c.setId((long) i);
+            c.setDescription("Correr 5 km por dia #" + i);
+            c.setAmount(50.0);
+            c.setType("corrida");
+            c.setStatus(i % 3 == 0 ? "IN_PROGRESS" : "NOT_STARTED");
+            c.setCreatedAt(1_700_000_000_000L + i);
+            c.setCreatorId("creator-" + i);
+            c.setAcceptorId("acceptor-" + i);
+            c.setDuration(30);
+            List<String> participants = new ArrayList<>();
+            for (int p = 0; p < 5; p++) {
+                participants.add("user-" + i + "-" + p);
+            }
+            c.setParticipants(participants);
+            c.setPaidUserIds(new ArrayList<>(participants.subList(0, 3)));
+            // bannedUserIds, customProofTypes e finishAcceptedUserIds ficam nulos (caso comum)
+            data.add(c);
+        }
+    }
+
+    @Benchmark
+    public void toMap() throws IOException {
+        List<Map<String, Object>> body = data.stream().map(Challenge::toMap).collect(Collectors.toList());
+        mapper.writeValue(sink, body);
+    }
+
+    @Benchmark
+    public void responseList() throws IOException {
+        List<ChallengeResponse> body = data.stream().map(ChallengeResponse::of).collect(Collectors.toList());
+        mapper.writeValue(sink, body);
+    }
+
+    @Benchmark
+    public void streamingList() throws IOException {
+        mapper.writeValue(sink, ChallengeResponseList.of(data));
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ChallengeSerializationBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
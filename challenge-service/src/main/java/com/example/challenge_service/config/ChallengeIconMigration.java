@@ -0,0 +1,62 @@
+package com.example.challenge_service.config;
+
+import com.example.challenge_service.service.ChallengeIconService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+// Move os ícones antigos (data URL base64 em challenges.icon) para challenge_icons,
+// deixando na coluna apenas a URL curta. Percorre em lotes por id; linhas com imagem
+// inválida ficam como estão e são apenas registradas no log.
+@Slf4j
+@Component
+public class ChallengeIconMigration {
+
+    private static final int BATCH_SIZE = 50;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ChallengeIconService iconService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        long lastId = 0;
+        int converted = 0;
+        int failed = 0;
+        try {
+            while (true) {
+                List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                        "SELECT id, icon FROM challenges WHERE id > ? AND icon LIKE 'data:%' ORDER BY id LIMIT " + BATCH_SIZE,
+                        lastId);
+                if (rows.isEmpty()) {
+                    break;
+                }
+                for (Map<String, Object> row : rows) {
+                    Long id = ((Number) row.get("ID")).longValue();
+                    lastId = id;
+                    try {
+                        String url = iconService.toIconUrl((String) row.get("ICON"));
+                        jdbcTemplate.update("UPDATE challenges SET icon = ? WHERE id = ? AND icon LIKE 'data:%'", url, id);
+                        converted++;
+                    } catch (Exception e) {
+                        failed++;
+                        log.warn("Ícone do desafio {} não convertido: {}", id, e.getMessage());
+                    }
+                }
+            }
+            if (converted + failed > 0) {
+                log.info("Ícones migrados para challenge_icons: {} convertidos, {} mantidos como data URL", converted, failed);
+            }
+        } catch (Exception e) {
+            log.error("Erro ao migrar ícones de desafios: " + e.getMessage(), e);
+        }
+    }
+}
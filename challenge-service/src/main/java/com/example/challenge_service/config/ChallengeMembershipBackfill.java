@@ -0,0 +1,74 @@
+package com.example.challenge_service.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Popula challenge_membership a partir das colunas/coleções de challenges (bancos já existentes).
+// Roda antes do servidor web aceitar requisições, uma única vez: a conclusão fica registrada em
+// data_migration (linha MARKER) na mesma transação da carga. Sem o marcador a carga é refeita,
+// e cada INSERT só acrescenta quem ainda não está na tabela.
+@Slf4j
+@Component
+public class ChallengeMembershipBackfill implements SmartInitializingSingleton {
+
+    static final String MARKER = "challenge_membership_backfill_v1";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS data_migration (" +
+                    "name VARCHAR(100) PRIMARY KEY, applied_at BIGINT NOT NULL)");
+            // falha no meio desfaz a carga parcial e o marcador: a próxima subida tenta de novo
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> backfill());
+        } catch (Exception e) {
+            log.error("Erro ao popular challenge_membership: " + e.getMessage(), e);
+        }
+    }
+
+    private void backfill() {
+        Long applied = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM data_migration WHERE name = ?", Long.class, MARKER);
+        if (applied != null && applied > 0) {
+            return;
+        }
+        int creators = jdbcTemplate.update(
+                "INSERT INTO challenge_membership (user_id, challenge_id, role, state, joined_at) " +
+                "SELECT c.creator_id, c.id, 'CREATOR', " +
+                "CASE WHEN c.creator_participates THEN 'ACTIVE' ELSE 'NOT_PARTICIPATING' END, c.created_at " +
+                "FROM challenges c WHERE c.creator_id IS NOT NULL AND NOT EXISTS (SELECT 1 FROM challenge_membership m " +
+                "WHERE m.challenge_id = c.id AND m.user_id = c.creator_id)");
+        int acceptors = jdbcTemplate.update(
+                "INSERT INTO challenge_membership (user_id, challenge_id, role, state, joined_at) " +
+                "SELECT c.acceptor_id, c.id, 'ACCEPTOR', 'ACTIVE', COALESCE(c.start_date, c.created_at) " +
+                "FROM challenges c WHERE c.acceptor_id IS NOT NULL AND c.acceptor_id <> c.creator_id " +
+                "AND NOT EXISTS (SELECT 1 FROM challenge_membership m " +
+                "WHERE m.challenge_id = c.id AND m.user_id = c.acceptor_id)");
+        int participants = jdbcTemplate.update(
+                "INSERT INTO challenge_membership (user_id, challenge_id, role, state, joined_at) " +
+                "SELECT DISTINCT p.participant_id, p.challenge_id, 'PARTICIPANT', 'ACTIVE', c.created_at " +
+                "FROM challenge_participants p JOIN challenges c ON c.id = p.challenge_id " +
+                "WHERE p.participant_id IS NOT NULL AND NOT EXISTS (SELECT 1 FROM challenge_membership m " +
+                "WHERE m.challenge_id = p.challenge_id AND m.user_id = p.participant_id)");
+        int banned = jdbcTemplate.update(
+                "INSERT INTO challenge_membership (user_id, challenge_id, role, state, joined_at) " +
+                "SELECT DISTINCT b.banned_user_id, b.challenge_id, 'PARTICIPANT', 'BANNED', c.created_at " +
+                "FROM challenge_banned_users b JOIN challenges c ON c.id = b.challenge_id " +
+                "WHERE b.banned_user_id IS NOT NULL AND NOT EXISTS (SELECT 1 FROM challenge_membership m " +
+                "WHERE m.challenge_id = b.challenge_id AND m.user_id = b.banned_user_id)");
+        jdbcTemplate.update("INSERT INTO data_migration (name, applied_at) VALUES (?, ?)", MARKER, System.currentTimeMillis());
+        if (creators + acceptors + participants + banned > 0) {
+            log.info("challenge_membership populada: {} criadores, {} aceitadores, {} participantes, {} banidos",
+                    creators, acceptors, participants, banned);
+        }
+    }
+}
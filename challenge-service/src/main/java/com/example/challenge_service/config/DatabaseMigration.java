@@ -9,6 +9,7 @@ import org.springframework.stereotype.Component;
 
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
+import java.util.List;
 
 @Slf4j
 @Component
@@ -44,6 +45,33 @@ public class DatabaseMigration {
                 jdbcTemplate.execute("ALTER TABLE challenges ADD COLUMN proofs_per_day INTEGER");
                 log.info("Coluna proofs_per_day adicionada com sucesso");
             }
+
+            // NOVO: coluna version (lock otimista); linhas antigas começam na versão 0
+            if (columnExists("challenges", "version")) {
+                int updated = jdbcTemplate.update("UPDATE challenges SET version = 0 WHERE version IS NULL");
+                if (updated > 0) {
+                    log.info("Coluna version inicializada em {} desafios", updated);
+                }
+            }
+
+            // NOVO: scheduled_tasks.kind criada como ENUM/CHECK com os tipos da época; libera tipos novos (SETTLEMENT)
+            if (columnExists("scheduled_tasks", "kind")) {
+                List<String> checks = jdbcTemplate.queryForList(
+                        "SELECT tc.CONSTRAINT_NAME FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS tc " +
+                        "JOIN INFORMATION_SCHEMA.CHECK_CONSTRAINTS cc ON cc.CONSTRAINT_NAME = tc.CONSTRAINT_NAME " +
+                        "WHERE tc.TABLE_NAME = 'SCHEDULED_TASKS' AND tc.CONSTRAINT_TYPE = 'CHECK' " +
+                        "AND UPPER(cc.CHECK_CLAUSE) LIKE '%CHALLENGE_END%'", String.class);
+                for (String constraint : checks) {
+                    jdbcTemplate.execute("ALTER TABLE scheduled_tasks DROP CONSTRAINT \"" + constraint + "\"");
+                }
+                List<String> kindType = jdbcTemplate.queryForList(
+                        "SELECT DATA_TYPE FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'SCHEDULED_TASKS' AND COLUMN_NAME = 'KIND'",
+                        String.class);
+                if (!kindType.isEmpty() && "ENUM".equalsIgnoreCase(kindType.get(0))) {
+                    jdbcTemplate.execute("ALTER TABLE scheduled_tasks ALTER COLUMN kind SET DATA TYPE VARCHAR(30)");
+                    log.info("Coluna scheduled_tasks.kind convertida para VARCHAR");
+                }
+            }
         } catch (Exception e) {
             log.error("Erro ao executar migração do banco de dados: " + e.getMessage(), e);
         }
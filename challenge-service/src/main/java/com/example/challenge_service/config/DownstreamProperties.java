@@ -0,0 +1,34 @@
+package com.example.challenge_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Serviços chamados pelo challenge-service (downstream.services.<nome>.*).
+// Cada um tem pool de conexões, timeouts, bulkhead e circuit breaker próprios.
+@Data
+@Component
+@ConfigurationProperties(prefix = "downstream")
+public class DownstreamProperties {
+
+    private Map<String, Target> services = new LinkedHashMap<>();
+
+    @Data
+    public static class Target {
+        private String baseUrl;
+        private Duration connectTimeout = Duration.ofSeconds(2);
+        private Duration readTimeout = Duration.ofSeconds(5);
+        // conexões no pool = chamadas simultâneas permitidas (bulkhead)
+        private int maxConcurrent = 20;
+        // quanto uma requisição espera por uma vaga antes de falhar rápido
+        private Duration bulkheadWait = Duration.ofMillis(200);
+        private Duration keepAlive = Duration.ofSeconds(30);
+        // falhas consecutivas (5xx, timeout, conexão recusada) que abrem o circuito
+        private int failureThreshold = 5;
+        private Duration openDuration = Duration.ofSeconds(30);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.challenge_service.config;
+
+import com.example.challenge_service.service.ChallengeLifecycleService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+
+// Garante um prazo em scheduled_tasks para todo desafio em andamento com duração, convite pendente
+// e pedido de encerramento ativo (bancos anteriores ao agendador). Idempotente: só insere o que falta.
+@Slf4j
+@Component
+public class ScheduledTaskBackfill {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ChallengeLifecycleService lifecycleService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @Transactional
+    public void backfill() {
+        try {
+            long now = System.currentTimeMillis();
+            int endDates = jdbcTemplate.update(
+                    "UPDATE challenges SET end_date = start_date + CAST(duration AS BIGINT) * ? " +
+                    "WHERE status = 'IN_PROGRESS' AND end_date IS NULL AND start_date IS NOT NULL " +
+                    "AND duration IS NOT NULL AND duration > 0",
+                    ChallengeLifecycleService.DAY_MILLIS);
+            int ends = jdbcTemplate.update(
+                    "INSERT INTO scheduled_tasks (kind, target_id, due_at, created_at) " +
+                    "SELECT 'CHALLENGE_END', CAST(c.id AS VARCHAR), c.end_date, ? FROM challenges c " +
+                    "WHERE c.status = 'IN_PROGRESS' AND c.end_date IS NOT NULL AND NOT EXISTS (" +
+                    "SELECT 1 FROM scheduled_tasks t WHERE t.kind = 'CHALLENGE_END' AND t.target_id = CAST(c.id AS VARCHAR))",
+                    now);
+            int invites = jdbcTemplate.update(
+                    "INSERT INTO scheduled_tasks (kind, target_id, due_at, created_at) " +
+                    "SELECT 'INVITE_EXPIRY', CAST(i.id AS VARCHAR), i.created_at + ?, ? FROM challenge_invite i " +
+                    "WHERE i.status = 'PENDING' AND NOT EXISTS (" +
+                    "SELECT 1 FROM scheduled_tasks t WHERE t.kind = 'INVITE_EXPIRY' AND t.target_id = CAST(i.id AS VARCHAR))",
+                    lifecycleService.inviteTtlMillis(), now);
+            int finishRequests = jdbcTemplate.update(
+                    "INSERT INTO scheduled_tasks (kind, target_id, due_at, created_at) " +
+                    "SELECT 'FINISH_REQUEST_EXPIRY', CAST(c.id AS VARCHAR), c.finish_request_at + ?, ? FROM challenges c " +
+                    "WHERE c.finish_request_active = TRUE AND c.finish_request_at IS NOT NULL AND NOT EXISTS (" +
+                    "SELECT 1 FROM scheduled_tasks t WHERE t.kind = 'FINISH_REQUEST_EXPIRY' AND t.target_id = CAST(c.id AS VARCHAR))",
+                    ChallengeLifecycleService.FINISH_REQUEST_WINDOW_MILLIS, now);
+            if (endDates + ends + invites + finishRequests > 0) {
+                log.info("scheduled_tasks populada: {} endDate(s) calculado(s), {} fim(ns) de desafio, {} convite(s), {} pedido(s) de encerramento",
+                        endDates, ends, invites, finishRequests);
+            }
+        } catch (Exception e) {
+            // desfaz a carga parcial para que a próxima subida tente de novo
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            log.error("Erro ao popular scheduled_tasks: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.challenge_service.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Habilita os @Scheduled do serviço (tick do DeadlineScheduler)
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
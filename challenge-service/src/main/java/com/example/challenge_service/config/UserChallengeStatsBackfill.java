@@ -0,0 +1,115 @@
+package com.example.challenge_service.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Reconstrói user_challenge_stats a partir de challenges (criador, aceitador e participantes): roda
+// quando a tabela está vazia (primeira subida), quando challenge.stats.rebuild-on-startup=true ou
+// quando a versão atual da carga (MARKER em data_migration) ainda não foi aplicada.
+// Os usuários são divididos em lotes agregados em paralelo, cada lote com um INSERT ... SELECT.
+// Executa antes do servidor web começar a aceitar requisições, para não disputar com os deltas.
+@Slf4j
+@Component
+public class UserChallengeStatsBackfill implements SmartInitializingSingleton {
+
+    static final String MARKER = "user_challenge_stats_participants_v1";
+
+    private static final int USERS_PER_BATCH = 500;
+
+    private static final String AGGREGATE_SQL =
+            "INSERT INTO user_challenge_stats (user_id, participated, active, completed, won, total_spent, updated_at) " +
+            "SELECT u.uid, COUNT(*), " +
+            "SUM(CASE WHEN u.status IN ('IN_PROGRESS', 'ACCEPTED') THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN u.status = 'COMPLETED' THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN u.winner_id = u.uid THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN u.status IN ('AWAITING_PAYMENT', 'PENDING') THEN 0 ELSE COALESCE(u.amount, 0) END), " +
+            ":now " +
+            "FROM (SELECT creator_id AS uid, status, amount, winner_id FROM challenges WHERE creator_id IN (:users) " +
+            "UNION ALL " +
+            "SELECT acceptor_id AS uid, status, amount, winner_id FROM challenges " +
+            "WHERE acceptor_id IN (:users) AND acceptor_id <> creator_id " +
+            "UNION ALL " +
+            "SELECT p.participant_id AS uid, c.status, c.amount, c.winner_id " +
+            "FROM (SELECT DISTINCT challenge_id, participant_id FROM challenge_participants " +
+            "WHERE participant_id IN (:users)) p JOIN challenges c ON c.id = p.challenge_id " +
+            "WHERE p.participant_id <> COALESCE(c.creator_id, '') AND p.participant_id <> COALESCE(c.acceptor_id, '')) u " +
+            "GROUP BY u.uid";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Value("${challenge.stats.rebuild-on-startup:false}")
+    private boolean rebuildOnStartup;
+
+    @Value("${challenge.stats.backfill-threads:4}")
+    private int threads;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS data_migration (" +
+                    "name VARCHAR(100) PRIMARY KEY, applied_at BIGINT NOT NULL)");
+            Long existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_challenge_stats", Long.class);
+            Long applied = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM data_migration WHERE name = ?", Long.class, MARKER);
+            if (existing != null && existing > 0 && applied != null && applied > 0 && !rebuildOnStartup) {
+                return;
+            }
+            rebuild();
+            if (applied == null || applied == 0) {
+                jdbcTemplate.update("INSERT INTO data_migration (name, applied_at) VALUES (?, ?)", MARKER, System.currentTimeMillis());
+            }
+        } catch (Exception e) {
+            log.error("Erro ao popular user_challenge_stats: " + e.getMessage(), e);
+        }
+    }
+
+    public void rebuild() throws Exception {
+        long start = System.currentTimeMillis();
+        jdbcTemplate.update("DELETE FROM user_challenge_stats");
+        List<String> users = jdbcTemplate.queryForList(
+                "SELECT creator_id FROM challenges WHERE creator_id IS NOT NULL " +
+                "UNION SELECT acceptor_id FROM challenges WHERE acceptor_id IS NOT NULL " +
+                "UNION SELECT participant_id FROM challenge_participants WHERE participant_id IS NOT NULL", String.class);
+        if (users.isEmpty()) {
+            return;
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            List<Future<Integer>> parts = new ArrayList<>();
+            for (int i = 0; i < users.size(); i += USERS_PER_BATCH) {
+                List<String> batch = users.subList(i, Math.min(i + USERS_PER_BATCH, users.size()));
+                MapSqlParameterSource params = new MapSqlParameterSource()
+                        .addValue("users", batch)
+                        .addValue("now", start);
+                parts.add(pool.submit(() -> namedJdbcTemplate.update(AGGREGATE_SQL, params)));
+            }
+            int rows = 0;
+            for (Future<Integer> part : parts) {
+                rows += part.get();
+            }
+            log.info("user_challenge_stats reconstruída: {} usuários em {} ms", rows, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            // não deixa a tabela pela metade: vazia, ela é reconstruída na próxima subida
+            jdbcTemplate.update("DELETE FROM user_challenge_stats");
+            throw e;
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -2,28 +2,40 @@ package com.example.challenge_service.controller;
 
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.interfaces.DecodedJWT;
+import com.example.challenge_service.dto.ChallengeResponse;
+import com.example.challenge_service.dto.ChallengeResponseList;
 import com.example.challenge_service.model.Challenge;
+import com.example.challenge_service.model.ChallengeIcon;
+import com.example.challenge_service.model.ChallengeMembership;
 import com.example.challenge_service.model.WinnerVote;
 import com.example.challenge_service.model.ChallengeInvite;
 import com.example.challenge_service.model.ChallengeInvite.InviteStatus;
+import com.example.challenge_service.model.ScheduledTask;
 import com.example.challenge_service.repository.ChallengeRepository;
 import com.example.challenge_service.repository.WinnerVoteRepository;
 import com.example.challenge_service.repository.ChallengeInviteRepository;
+import com.example.challenge_service.service.ChallengeCursor;
+import com.example.challenge_service.service.ChallengeListingService;
+import com.example.challenge_service.service.ChallengeIconService;
+import com.example.challenge_service.service.ChallengeInviteService;
+import com.example.challenge_service.service.ChallengeLifecycleService;
+import com.example.challenge_service.service.ChallengeMembershipService;
+import com.example.challenge_service.service.ChallengeParticipationService;
+import com.example.challenge_service.service.DashboardCache;
+import com.example.challenge_service.service.DeadlineScheduler;
+import com.example.challenge_service.service.DownstreamClients;
+import com.example.challenge_service.service.UserChallengeStatsService;
+import com.example.challenge_service.service.WalletHolds;
+import com.example.challenge_service.model.UserChallengeStats;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.client.RestTemplate;
-
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
-import java.net.Socket;
-import java.nio.charset.StandardCharsets;
+
 import java.util.*;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -43,114 +55,191 @@ public class ChallengeController {
     
     @Autowired
     private ChallengeInviteRepository challengeInviteRepository;
+
+    @Autowired
+    private ChallengeMembershipService membershipService;
+
+    @Autowired
+    private ChallengeListingService listingService;
+
+    @Autowired
+    private UserChallengeStatsService statsService;
+
+    @Autowired
+    private DashboardCache dashboardCache;
+
+    @Autowired
+    private ChallengeIconService iconService;
+
+    @Autowired
+    private ChallengeParticipationService participationService;
+
+    @Autowired
+    private ChallengeLifecycleService lifecycleService;
+
+    @Autowired
+    private DeadlineScheduler deadlineScheduler;
+
+    @Autowired
+    private ChallengeInviteService inviteService;
     
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    private DownstreamClients downstreamClients;
+
+    @Autowired
+    private WalletHolds walletHolds;
 
     @GetMapping("/dashboard")
-    public ResponseEntity<?> getDashboard(@RequestHeader(value = "Authorization", required = false) String authHeader) {
+    public ResponseEntity<?> getDashboard(@RequestHeader(value = "Authorization", required = false) String authHeader,
+                                          @RequestParam(required = false) Integer limit,
+                                          @RequestParam(required = false) String cursor) {
         String userId = extractUserId(authHeader);
-        
-        // Filtrar TODOS os desafios do usuário atual (criados ou aceitos)
-        // Uma vez criado, o desafio fica vinculado ao usuário para sempre
-        List<Challenge> userChallengesList = challengeRepository.findByCreatorIdOrAcceptorId(userId, userId);
-        List<Map<String, Object>> userChallenges = userChallengesList.stream()
-            .map(Challenge::toMap)
+        // Com limit/cursor: página ordenada no banco. Sem eles: formato antigo (lista completa)
+        if (limit != null || cursor != null) {
+            return getDashboardPage(userId, limit, cursor);
+        }
+        if (userId == null) {
+            return ResponseEntity.ok(buildDashboard(null));
+        }
+        return ResponseEntity.ok(dashboardCache.get(userId, this::buildDashboard));
+    }
+
+    private Map<String, Object> buildDashboard(String userId) {
+        // Desafios do usuário pelo índice challenge_membership (criados, aceitos e os que participa),
+        // mesmo conjunto da listagem paginada e dos contadores de user_challenge_stats
+        Set<Long> memberIds = new HashSet<>();
+        for (ChallengeMembership membership : membershipService.findVisibleMemberships(userId)) {
+            memberIds.add(membership.getChallengeId());
+        }
+        List<Challenge> userChallengesList = memberIds.isEmpty()
+            ? List.of()
+            : challengeRepository.findWithCollectionsByIdIn(memberIds);
+        // payload guardado no DashboardCache: respostas desligadas das coleções do Hibernate
+        List<ChallengeResponse> userChallenges = userChallengesList.stream()
+            .map(ChallengeResponse::detached)
             .collect(Collectors.toList());
         
-        long active = userChallenges.stream()
-            .filter(c -> "IN_PROGRESS".equals(c.get("status")) || "ACCEPTED".equals(c.get("status")))
-            .count();
-        long completed = userChallenges.stream()
-            .filter(c -> "COMPLETED".equals(c.get("status")))
-            .count();
-        
-        double totalSpent = userChallenges.stream()
-            .filter(c -> {
-                String status = (String) c.getOrDefault("status", "");
-                // Contar apenas desafios pagos (não aguardando pagamento)
-                return !"AWAITING_PAYMENT".equals(status) && !"PENDING".equals(status);
-            })
-            .mapToDouble(c -> ((Number) c.getOrDefault("amount", 0)).doubleValue())
-            .sum();
+        // Contadores materializados em user_challenge_stats (uma linha por usuário)
+        UserChallengeStats stats = statsService.get(userId);
         
-        return ResponseEntity.ok(Map.of(
-            "activeChallenges", active,
-            "completedChallenges", completed,
+        return Map.of(
+            "activeChallenges", stats.getActive(),
+            "completedChallenges", stats.getCompleted(),
             "totalEarned", 0.0,
-            "totalSpent", totalSpent,
+            "totalSpent", stats.getTotalSpent(),
             "challenges", userChallenges
-        ));
+        );
+    }
+
+    private ResponseEntity<?> getDashboardPage(String userId, Integer limit, String cursor) {
+        if (userId == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Token não fornecido ou inválido"));
+        }
+        ChallengeCursor position;
+        try {
+            position = cursor != null && !cursor.isBlank() ? ChallengeCursor.decode(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        UserChallengeStats stats = statsService.get(userId);
+
+        ChallengeListingService.Page page = listingService.page(userId, ChallengeListingService.RoleFilter.ALL,
+                null, position, ChallengeListingService.clampLimit(limit));
+        Map<String, Object> body = new HashMap<>();
+        body.put("activeChallenges", stats.getActive());
+        body.put("completedChallenges", stats.getCompleted());
+        body.put("totalEarned", 0.0);
+        body.put("totalSpent", stats.getTotalSpent());
+        body.put("challenges", ChallengeResponseList.of(page.items()));
+        body.put("nextCursor", page.nextCursor());
+        body.put("hasMore", page.hasMore());
+        return ResponseEntity.ok(body);
     }
 
     @GetMapping("/challenges")
-    public ResponseEntity<?> getAllChallenges(@RequestHeader(value = "Authorization", required = false) String authHeader) {
+    public ResponseEntity<?> getAllChallenges(@RequestHeader(value = "Authorization", required = false) String authHeader,
+                                              @RequestParam(required = false) Integer limit,
+                                              @RequestParam(required = false) String cursor,
+                                              @RequestParam(required = false) String status,
+                                              @RequestParam(required = false) String role) {
         String userId = extractUserId(authHeader);
         
         if (userId == null) {
             return ResponseEntity.status(401).body(Map.of("error", "Token não fornecido ou inválido"));
         }
+
+        // Qualquer parâmetro de paginação/filtro ativa o modo paginado; sem nenhum, mantém o formato antigo
+        if (limit != null || cursor != null || status != null || role != null) {
+            return getChallengesPage(userId, limit, cursor, status, role);
+        }
         
-        // Buscar desafios criados pelo usuário
-        List<Challenge> createdChallenges = challengeRepository.findByCreatorId(userId);
-        
-        // Buscar desafios onde o usuário é aceitador
-        List<Challenge> acceptedChallenges = challengeRepository.findByAcceptorId(userId);
-        
-        // Buscar desafios onde o usuário é participante (na lista de participants)
-        List<Challenge> participantChallenges = challengeRepository.findByParticipantsContaining(userId);
-        
-        // Combinar desafios onde o usuário foi convidado (aceitador + participantes)
-        Set<Long> createdIds = createdChallenges.stream().map(Challenge::getId).collect(Collectors.toSet());
-        List<Challenge> invitedChallenges = new ArrayList<>();
-        
-        // Adicionar desafios aceitos que não foram criados pelo usuário
-        for (Challenge challenge : acceptedChallenges) {
-            if (!createdIds.contains(challenge.getId())) {
-                invitedChallenges.add(challenge);
+        // Uma leitura no índice challenge_membership diz em quais desafios o usuário está e com qual papel
+        Set<Long> createdIds = new HashSet<>();
+        Set<Long> memberIds = new HashSet<>();
+        for (ChallengeMembership membership : membershipService.findVisibleMemberships(userId)) {
+            memberIds.add(membership.getChallengeId());
+            if (membership.getRole() == ChallengeMembership.Role.CREATOR) {
+                createdIds.add(membership.getChallengeId());
             }
         }
+        List<Challenge> memberChallenges = memberIds.isEmpty()
+            ? List.of()
+            : challengeRepository.findWithCollectionsByIdIn(memberIds);
         
-        // Adicionar desafios onde é participante que não foram criados pelo usuário
-        for (Challenge challenge : participantChallenges) {
-            if (!createdIds.contains(challenge.getId()) && 
-                (challenge.getAcceptorId() == null || !challenge.getAcceptorId().equals(userId))) {
+        // Separar criados x convidados (aceitador + participantes)
+        List<Challenge> createdChallenges = new ArrayList<>();
+        List<Challenge> invitedChallenges = new ArrayList<>();
+        for (Challenge challenge : memberChallenges) {
+            if (createdIds.contains(challenge.getId())) {
+                createdChallenges.add(challenge);
+            } else {
                 invitedChallenges.add(challenge);
             }
         }
         
-        // Converter para Map e separar
-        List<Map<String, Object>> created = createdChallenges.stream()
-            .map(ch -> {
-                Map<String, Object> m = ch.toMap();
-                m.put("winnerId", ch.getWinnerId());
-                return m;
-            })
-            .sorted((a, b) -> {
-                Long dateA = (Long) a.getOrDefault("createdAt", 0L);
-                Long dateB = (Long) b.getOrDefault("createdAt", 0L);
-                return dateB.compareTo(dateA);
-            })
-            .collect(Collectors.toList());
-        
-        List<Map<String, Object>> invited = invitedChallenges.stream()
-            .map(ch -> {
-                Map<String, Object> m = ch.toMap();
-                m.put("winnerId", ch.getWinnerId());
-                return m;
-            })
-            .sorted((a, b) -> {
-                Long dateA = (Long) a.getOrDefault("createdAt", 0L);
-                Long dateB = (Long) b.getOrDefault("createdAt", 0L);
-                return dateB.compareTo(dateA);
-            })
-            .collect(Collectors.toList());
+        // Ordenar (mais recentes primeiro); o DTO de cada um é escrito em streaming na resposta
+        Comparator<Challenge> newestFirst = Comparator.comparingLong(
+            (Challenge ch) -> ch.getCreatedAt() != null ? ch.getCreatedAt() : 0L).reversed();
+        createdChallenges.sort(newestFirst);
+        invitedChallenges.sort(newestFirst);
         
         return ResponseEntity.ok(Map.of(
-            "created", created,
-            "invited", invited
+            "created", ChallengeResponseList.of(createdChallenges),
+            "invited", ChallengeResponseList.of(invitedChallenges)
         ));
     }
 
+    private ResponseEntity<?> getChallengesPage(String userId, Integer limit, String cursor, String status, String role) {
+        ChallengeListingService.RoleFilter roleFilter;
+        ChallengeCursor position;
+        try {
+            roleFilter = ChallengeListingService.RoleFilter.parse(role);
+            position = cursor != null && !cursor.isBlank() ? ChallengeCursor.decode(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        String statusFilter = status != null && !status.isBlank() ? status.trim().toUpperCase(Locale.ROOT) : null;
+
+        ChallengeListingService.Page page = listingService.page(userId, roleFilter, statusFilter, position,
+                ChallengeListingService.clampLimit(limit));
+        ChallengeListingService.Totals totals = listingService.totals(userId, statusFilter);
+
+        ChallengeResponseList items = ChallengeResponseList.withRole(page.items(),
+            ch -> page.roles().get(ch.getId()) == ChallengeMembership.Role.CREATOR ? "created" : "invited");
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("items", items);
+        body.put("nextCursor", page.nextCursor());
+        body.put("hasMore", page.hasMore());
+        body.put("totals", Map.of(
+            "created", totals.created(),
+            "invited", totals.invited(),
+            "total", totals.total()
+        ));
+        return ResponseEntity.ok(body);
+    }
+
     @GetMapping("/challenges/{id}")
     public ResponseEntity<?> getChallengeById(@PathVariable String id) {
         try {
@@ -162,10 +251,8 @@ public class ChallengeController {
                 return ResponseEntity.status(404).body(Map.of("error", "Desafio não encontrado", "id", id));
             }
             Challenge challenge = challengeOpt.get();
-            Map<String, Object> map = challenge.toMap();
-            map.put("winnerId", challenge.getWinnerId());
             System.out.println("Desafio encontrado: ID=" + challenge.getId() + ", Status=" + challenge.getStatus());
-            return ResponseEntity.ok(map);
+            return ResponseEntity.ok(ChallengeResponse.of(challenge));
         } catch (NumberFormatException e) {
             System.err.println("Erro ao parsear ID do desafio: " + id + " - " + e.getMessage());
             return ResponseEntity.badRequest().body(Map.of("error", "ID inválido: " + id));
@@ -253,50 +340,27 @@ public class ChallengeController {
 
             Double amount = ((Number) challengeData.get("amount")).doubleValue();
 
-            if (creatorParticipates) {
-                // Verificar se o pagamento foi feito (chamando wallet-service)
-                try {
-                    String url = "http://localhost:8083/api/wallet/debit";
-                    Map<String, Object> debitRequest = new HashMap<>();
-                    debitRequest.put("amount", amount);
-                    debitRequest.put("description", "Pagamento para criar desafio: " + challengeData.get("description"));
-                    HttpHeaders headers = new HttpHeaders();
-                    headers.setContentType(MediaType.APPLICATION_JSON);
-                    headers.set("Authorization", authHeader);
-                    HttpEntity<Map<String, Object>> requestEntity = new HttpEntity<>(debitRequest, headers);
-                    ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
-                        url, HttpMethod.POST, requestEntity, 
-                        new org.springframework.core.ParameterizedTypeReference<Map<String, Object>>() {});
-                    if (!response.getStatusCode().is2xxSuccessful()) {
-                        return ResponseEntity.badRequest().body(Map.of("error", "Não foi possível debitar o saldo. Verifique se você tem saldo suficiente."));
-                    }
-                } catch (org.springframework.web.client.HttpClientErrorException e) {
-                    try {
-                        com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
-                        Map<String, Object> errorResponse = mapper.readValue(e.getResponseBodyAsString(), Map.class);
-                        return ResponseEntity.status(e.getStatusCode()).body(errorResponse);
-                    } catch (Exception ex) {
-                        return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", e.getResponseBodyAsString()));
-                    }
-                } catch (Exception e) {
-                    return ResponseEntity.status(500).body(Map.of("error", "Erro ao processar pagamento: " + e.getMessage()));
-                }
+            // Ícone convertido antes do débito: imagem inválida não pode custar o pagamento
+            String iconUrl;
+            try {
+                iconUrl = iconService.toIconUrl((String) challengeData.get("icon"));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
             }
 
-            // Criar desafio
+            // Criar desafio (a custódia precisa do id: com criador participante, nasce AWAITING_PAYMENT
+            // e vira NOT_STARTED quando o valor entra em custódia, como no pagamento posterior)
             Challenge challenge = Challenge.fromMap(challengeData);
+            challenge.setIcon(iconUrl);
             challenge.setCreatorParticipates(creatorParticipates);
-            challenge.setStatus(creatorParticipates ? "NOT_STARTED" : "NOT_STARTED"); // inicia como NOT_STARTED
+            challenge.setStatus(creatorParticipates ? "AWAITING_PAYMENT" : "NOT_STARTED");
             challenge.setCreatedAt(System.currentTimeMillis());
             challenge.setCreatorId(userId);
             challenge.setAcceptorId(null);
-            challenge.setPaid(Boolean.TRUE.equals(creatorParticipates)); // pago apenas se o criador pagou neste fluxo
+            challenge.setPaid(false); // pago apenas quando a custódia do criador for confirmada
             challenge.setStartDate(null);
             challenge.setEndDate(null);
             challenge.setPaidUserIds(new ArrayList<>());
-            if (creatorParticipates) {
-                challenge.getPaidUserIds().add(userId);
-            }
             if (challenge.getParticipationFeePercent() == null) {
                 challenge.setParticipationFeePercent(15.0);
             }
@@ -310,13 +374,40 @@ public class ChallengeController {
             if (challenge.getParticipants() == null) {
                 challenge.setParticipants(new ArrayList<>());
             }
-            Challenge savedChallenge = challengeRepository.save(challenge);
-            return ResponseEntity.ok(new HashMap<String, Object>() {{
-                putAll(savedChallenge.toMap());
-                put("participationFeePercent", savedChallenge.getParticipationFeePercent());
-                put("participationFee", participationFee);
-                put("netStakePerUser", netStakePerUser);
-            }});
+            Challenge savedChallenge = participationService.create(challenge);
+
+            if (creatorParticipates) {
+                // Valor do criador em custódia (wallet-service); sem saldo, o desafio recém-criado é desfeito
+                Long challengeId = savedChallenge.getId();
+                ResponseEntity<?> failure = null;
+                try {
+                    ResponseEntity<Map<String, Object>> response = walletHolds.hold(challengeId, amount,
+                            "Pagamento para criar desafio: " + challengeData.get("description"), authHeader);
+                    if (!response.getStatusCode().is2xxSuccessful()) {
+                        failure = ResponseEntity.badRequest().body(Map.of("error", "Não foi possível debitar o saldo. Verifique se você tem saldo suficiente."));
+                    }
+                } catch (org.springframework.web.client.HttpClientErrorException e) {
+                    try {
+                        com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
+                        Map<String, Object> errorResponse = mapper.readValue(e.getResponseBodyAsString(), Map.class);
+                        failure = ResponseEntity.status(e.getStatusCode()).body(errorResponse);
+                    } catch (Exception ex) {
+                        failure = ResponseEntity.status(e.getStatusCode()).body(Map.of("error", e.getResponseBodyAsString()));
+                    }
+                } catch (Exception e) {
+                    // resposta perdida (timeout): a custódia pode ter sido criada, então é devolvida
+                    walletHolds.rollback(challengeId, userId,
+                            "Estorno: falha ao criar desafio #" + challengeId);
+                    failure = ResponseEntity.status(500).body(Map.of("error", "Erro ao processar pagamento: " + e.getMessage()));
+                }
+                if (failure != null) {
+                    participationService.discard(challengeId, UserChallengeStatsService.Snapshot.of(savedChallenge));
+                    return failure;
+                }
+                savedChallenge = participationService.withRetry(() -> participationService.markPaid(challengeId, userId));
+            }
+            dashboardCache.invalidateMembers(savedChallenge);
+            return ResponseEntity.ok(ChallengeResponse.withFees(savedChallenge, participationFee, netStakePerUser));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(Map.of("error", "Erro ao criar desafio: " + e.getMessage()));
         }
@@ -333,6 +424,11 @@ public class ChallengeController {
                 return ResponseEntity.status(401).body(Map.of("error", "Token não fornecido ou inválido"));
             }
             Challenge challenge = Challenge.fromMap(challengeData);
+            try {
+                challenge.setIcon(iconService.toIconUrl(challenge.getIcon()));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
             // NOVO: criador pode escolher participar
             boolean creatorParticipates = true;
             Object cpObj = challengeData.get("creatorParticipates");
@@ -355,8 +451,9 @@ public class ChallengeController {
                 challenge.setParticipants(new ArrayList<>());
             }
             challenge.setPaidUserIds(new ArrayList<>());
-            Challenge savedChallenge = challengeRepository.save(challenge);
-            return ResponseEntity.ok(savedChallenge.toMap());
+            Challenge savedChallenge = participationService.create(challenge);
+            dashboardCache.invalidateMembers(savedChallenge);
+            return ResponseEntity.ok(ChallengeResponse.of(savedChallenge));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(Map.of("error", "Erro ao criar desafio: " + e.getMessage()));
         }
@@ -385,17 +482,14 @@ public class ChallengeController {
             if (challengeOpt.isEmpty()) {
                 return ResponseEntity.notFound().build();
             }
-            Challenge challenge = challengeOpt.get();
 
-            // Não iniciar ainda: todos devem pagar
-            challenge.setAcceptorId(userId);
-            if (challenge.getPaidUserIds() == null) {
-                challenge.setPaidUserIds(new ArrayList<>());
-            }
-            challenge.setStatus("NOT_STARTED"); // aguarda início manual do criador
+            // Não iniciar ainda: todos devem pagar (aceite com lock otimista e novas tentativas em conflito)
             // REMOVIDO: bloco que iniciava se allParticipantsHavePaid
-            Challenge savedChallenge = challengeRepository.save(challenge);
-            return ResponseEntity.ok(Map.of("message", "Aceitador adicionado. Pagamento necessário. Apenas o criador pode iniciar.", "challenge", savedChallenge.toMap()));
+            ChallengeParticipationService.AcceptResult result =
+                participationService.withRetry(() -> participationService.accept(challengeId, userId));
+            Challenge savedChallenge = result.challenge();
+            dashboardCache.invalidateMembers(savedChallenge, result.previousAcceptor());
+            return ResponseEntity.ok(Map.of("message", "Aceitador adicionado. Pagamento necessário. Apenas o criador pode iniciar.", "challenge", ChallengeResponse.of(savedChallenge)));
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().body(Map.of("error", "ID inválido"));
         }
@@ -434,7 +528,7 @@ public class ChallengeController {
             // - status AWAITING_PAYMENT (criador) OU
             // - status NOT_STARTED e usuário participante ainda não pago
             String status = challenge.getStatus();
-            boolean isParticipant = challenge.isUserParticipant(userId);
+            boolean isParticipant = membershipService.isActiveMember(challengeId, userId);
             if (!"AWAITING_PAYMENT".equals(status) && !("NOT_STARTED".equals(status) && isParticipant)) {
                 return ResponseEntity.badRequest().body(Map.of("error", "Pagamento não permitido neste status"));
             }
@@ -448,40 +542,35 @@ public class ChallengeController {
 
             Double amount = challenge.getAmount();
             try {
-                String url = "http://localhost:8083/api/wallet/debit";
-                Map<String, Object> debitRequest = new HashMap<>();
-                debitRequest.put("amount", amount);
-                debitRequest.put("challengeId", challengeId);
-                debitRequest.put("description", "Pagamento de desafio (participante)");
-
-                HttpHeaders headers = new HttpHeaders();
-                headers.setContentType(MediaType.APPLICATION_JSON);
-                headers.set("Authorization", authHeader);
-
-                HttpEntity<Map<String, Object>> requestEntity = new HttpEntity<>(debitRequest, headers);
-                ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
-                        url, HttpMethod.POST, requestEntity,
-                        new org.springframework.core.ParameterizedTypeReference<Map<String, Object>>() {});
+                // Valor em custódia até o fim do desafio (uma custódia por desafio/usuário no wallet-service)
+                ResponseEntity<Map<String, Object>> response = walletHolds.hold(challengeId, amount,
+                        "Pagamento de desafio (participante)", authHeader);
                 Map<String, Object> walletResponse = response.getBody();
                 if (response.getStatusCode().is2xxSuccessful() && walletResponse != null) {
                     Double newBalance = ((Number) walletResponse.get("balance")).doubleValue();
-                    // Marcar pagamento
-                    challenge.getPaidUserIds().add(userId);
-                    // Se era AWAITING_PAYMENT (criador pagando), marcar paid
-                    if ("AWAITING_PAYMENT".equals(status)) {
-                        challenge.setPaid(true);
-                        challenge.setStatus("NOT_STARTED");
-                    }
+                    boolean alreadyHeld = Boolean.TRUE.equals(walletResponse.get("alreadyHeld"));
+                    // Marcar pagamento (inserção pontual em paidUserIds; AWAITING_PAYMENT passa a NOT_STARTED)
                     // REMOVIDO: início automático aqui
-                    if (challenge.getParticipationFeePercent() == null) {
-                        challenge.setParticipationFeePercent(15.0);
+                    Challenge savedChallenge;
+                    try {
+                        savedChallenge = participationService.withRetry(() -> participationService.markPaid(challengeId, userId));
+                    } catch (RuntimeException ex) {
+                        if (!alreadyHeld) {
+                            walletHolds.rollback(challengeId, userId,
+                                    "Estorno: falha ao registrar pagamento do desafio #" + challengeId);
+                        }
+                        throw ex;
                     }
-                    double participationFee = (challenge.getAmount() * (challenge.getParticipationFeePercent() / 100.0));
-                    double netStakePerUser = challenge.getAmount() - participationFee;
-                    Challenge savedChallenge = challengeRepository.save(challenge);
+                    if (savedChallenge == null) {
+                        // pagamento concorrente já registrado: a custódia é a mesma, nada a devolver
+                        return ResponseEntity.badRequest().body(Map.of("error", "Usuário já pagou este desafio"));
+                    }
+                    double participationFee = (savedChallenge.getAmount() * (savedChallenge.getParticipationFeePercent() / 100.0));
+                    double netStakePerUser = savedChallenge.getAmount() - participationFee;
+                    dashboardCache.invalidateMembers(savedChallenge);
                     return ResponseEntity.ok(Map.of(
                             "message", "Pagamento realizado",
-                            "challenge", savedChallenge.toMap(),
+                            "challenge", ChallengeResponse.of(savedChallenge),
                             "walletBalance", newBalance,
                             "participationFeePercent", savedChallenge.getParticipationFeePercent(),
                             "participationFee", participationFee,
@@ -525,14 +614,41 @@ public class ChallengeController {
             if (!Objects.equals(challenge.getCreatorId(), userId)) {
                 return ResponseEntity.status(403).body(Map.of("error", "Apenas o criador pode alterar o ícone do desafio"));
             }
-            challenge.setIcon((String) data.get("icon"));
+            // Guarda apenas a URL do ícone reduzido; a imagem fica em challenge_icons
+            try {
+                challenge.setIcon(iconService.toIconUrl((String) data.get("icon")));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
             Challenge savedChallenge = challengeRepository.save(challenge);
-            return ResponseEntity.ok(savedChallenge.toMap());
+            dashboardCache.invalidateMembers(savedChallenge);
+            return ResponseEntity.ok(ChallengeResponse.of(savedChallenge));
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().body(Map.of("error", "ID inválido"));
         }
     }
 
+    // Conteúdo endereçado pelo hash: nunca muda, pode ficar em cache indefinidamente
+    @GetMapping("/challenges/icons/{hash}")
+    public ResponseEntity<?> getIcon(@PathVariable String hash,
+                                     @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        String etag = "\"" + hash + "\"";
+        CacheControl cacheControl = CacheControl.maxAge(365, java.util.concurrent.TimeUnit.DAYS).cachePublic().immutable();
+        if (ChallengeIconService.isValidHash(hash) && ifNoneMatch != null && ifNoneMatch.contains(etag)) {
+            return ResponseEntity.status(304).eTag(etag).cacheControl(cacheControl).build();
+        }
+        Optional<ChallengeIcon> icon = iconService.find(hash);
+        if (icon.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .contentType(MediaType.parseMediaType(icon.get().getContentType()))
+                .header("X-Content-Type-Options", "nosniff")
+                .body(icon.get().getData());
+    }
+
     @GetMapping("/challenges/stats")
     public ResponseEntity<?> getUserStats(@RequestHeader(value = "Authorization", required = false) String authHeader) {
         try {
@@ -548,10 +664,8 @@ public class ChallengeController {
             } else {
                 return ResponseEntity.ok(Map.of("participated", 0, "won", 0));
             }
-            List<Challenge> userChallenges = challengeRepository.findByCreatorIdOrAcceptorId(userId, userId);
-            long participated = userChallenges.size();
-            long won = userChallenges.stream().filter(c -> "COMPLETED".equals(c.getStatus())).count();
-            return ResponseEntity.ok(Map.of("participated", participated, "won", won));
+            UserChallengeStats stats = statsService.get(userId);
+            return ResponseEntity.ok(Map.of("participated", stats.getParticipated(), "won", stats.getWon()));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", "Erro ao buscar estatísticas: " + e.getMessage()));
         }
@@ -577,8 +691,7 @@ public class ChallengeController {
             
             // Verificar se o usuário é participante (criador, aceitador ou participante)
             boolean isParticipant = challenge.getCreatorId().equals(userId) ||
-                    (challenge.getAcceptorId() != null && challenge.getAcceptorId().equals(userId)) ||
-                    (challenge.getParticipants() != null && challenge.getParticipants().contains(userId));
+                    membershipService.isActiveMember(challengeId, userId);
             
             if (!isParticipant) {
                 return ResponseEntity.status(403).body(Map.of("error", "Você não tem permissão para ver este link"));
@@ -626,8 +739,8 @@ public class ChallengeController {
             }
             
             // Verificar se o usuário pode convidar (baseado em permissão e limite)
-            if (!challenge.canUserInvite(userId)) {
-                if (challenge.isInviteLimitReached()) {
+            if (!membershipService.canInvite(challenge, userId)) {
+                if (membershipService.isInviteLimitReached(challenge)) {
                     return ResponseEntity.badRequest().body(Map.of("error", "O limite de participantes foi atingido"));
                 } else {
                     return ResponseEntity.status(403).body(Map.of("error", "Você não tem permissão para convidar amigos"));
@@ -651,41 +764,19 @@ public class ChallengeController {
             }
             
             // Verificar se o amigo já é participante
-            if (challenge.isUserParticipant(friendId)) {
+            if (membershipService.isActiveMember(challengeId, friendId)) {
                 return ResponseEntity.badRequest().body(Map.of("error", "Este usuário já é participante do desafio"));
             }
             if (challengeInviteRepository.findByChallengeIdAndInviteeIdAndStatus(challengeId, friendId, InviteStatus.PENDING).isPresent()) {
                 return ResponseEntity.badRequest().body(Map.of("error", "Já existe um convite pendente para este usuário"));
             }
-            ChallengeInvite invite = new ChallengeInvite();
-            invite.setChallengeId(challengeId);
-            invite.setInviteeId(friendId);
-            invite.setInviterId(userId);
-            invite.setStatus(InviteStatus.PENDING);
-            invite.setCreatedAt(System.currentTimeMillis());
-            challengeInviteRepository.save(invite);
-
-            // NOVO: envio de e-mail ao convidado
-            boolean emailSent = false;
-            Optional<String> inviteeEmail = fetchUserEmail(friendId, authHeader);
-            Optional<String> inviterEmail = fetchUserEmail(userId, authHeader);
-            if (inviteeEmail.isPresent()) {
-                String subj = "Você foi convidado para um desafio no Eu-Duvido";
-                String desc = challenge.getDescription() != null ? challenge.getDescription() : "(sem descrição)";
-                String body =
-                        "Olá!\n\n" +
-                        "Você recebeu um convite para participar do desafio:\n" +
-                        desc + "\n\n" +
-                        "Valor da aposta: R$ " + String.format(Locale.US, "%.2f", challenge.getAmount()) + "\n" +
-                        "Convidado por: " + inviterEmail.orElse("Usuário") + "\n\n" +
-                        "Acesse sua área de convites para aceitar.\n\n" +
-                        "Sistema Eu-Duvido";
-                emailSent = sendEmail(inviteeEmail.get(), subj, body);
-            }
+            // NOVO: convite + e-mail (outbox) + prazo de expiração numa transação; o envio é assíncrono
+            inviteService.invite(challenge, userId, friendId);
+            dashboardCache.invalidateMembers(challenge, friendId);
 
             return ResponseEntity.ok(Map.of(
                     "message", "Convite enviado. O amigo precisa aceitar antes de participar.",
-                    "emailSent", emailSent
+                    "emailQueued", true
             ));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(Map.of("error", "Erro ao convidar amigo: " + e.getMessage()));
@@ -714,10 +805,17 @@ public class ChallengeController {
             boolean allPaid = paid.containsAll(required);
             if (!allPaid)
                 return ResponseEntity.badRequest().body(Map.of("error","Ainda há participantes sem pagamento"));
+            UserChallengeStatsService.Snapshot before = UserChallengeStatsService.Snapshot.of(c);
             c.setStatus("IN_PROGRESS");
             c.setStartDate(System.currentTimeMillis());
-            challengeRepository.save(c);
-            return ResponseEntity.ok(Map.of("message","Desafio iniciado","challenge", c.toMap()));
+            c.setEndDate(lifecycleService.endDateFor(c));
+            statsService.save(c, before);
+            // NOVO: encerramento automático no endDate
+            if (c.getEndDate() != null) {
+                deadlineScheduler.schedule(ScheduledTask.Kind.CHALLENGE_END, String.valueOf(challengeId), c.getEndDate());
+            }
+            dashboardCache.invalidateMembers(c);
+            return ResponseEntity.ok(Map.of("message","Desafio iniciado","challenge", ChallengeResponse.of(c)));
         } catch(Exception e){
             return ResponseEntity.status(500).body(Map.of("error","Falha ao iniciar: "+e.getMessage()));
         }
@@ -882,6 +980,8 @@ public class ChallengeController {
             ChallengeInvite inv = opt.get();
             if (!Objects.equals(inv.getInviteeId(), userId))
                 return ResponseEntity.status(403).body(Map.of("error","Este convite não é para você"));
+            if (inv.getStatus() == InviteStatus.EXPIRED)
+                return ResponseEntity.badRequest().body(Map.of("error","Convite expirado"));
             
             String action = body.get("action");
             if (!"accept".equals(action) && !"decline".equals(action))
@@ -907,20 +1007,21 @@ public class ChallengeController {
                     return ResponseEntity.badRequest().body(Map.of("error","Você está banido deste desafio"));
                 }
                 
-                // Adicionar como participante
-                if (c.getParticipants() == null) c.setParticipants(new ArrayList<>());
-                if (!c.getParticipants().contains(userId)) {
-                    c.getParticipants().add(userId);
-                    challengeRepository.save(c);
-                }
+                // Adicionar como participante (inserção pontual, sem regravar a lista)
+                Long challengeId = c.getId();
+                Challenge updated = participationService.withRetry(() -> participationService.join(challengeId, userId));
                 
                 inv.setStatus(InviteStatus.ACCEPTED);
                 challengeInviteRepository.save(inv);
+                deadlineScheduler.cancel(ScheduledTask.Kind.INVITE_EXPIRY, inviteUuid.toString());
+                dashboardCache.invalidateMembers(updated, userId);
                 
                 return ResponseEntity.ok(Map.of("message","Convite aceito com sucesso"));
             } else {
                 inv.setStatus(InviteStatus.DECLINED);
                 challengeInviteRepository.save(inv);
+                deadlineScheduler.cancel(ScheduledTask.Kind.INVITE_EXPIRY, inviteUuid.toString());
+                dashboardCache.invalidate(userId);
                 return ResponseEntity.ok(Map.of("message","Convite recusado"));
             }
         } catch(Exception e){
@@ -946,6 +1047,8 @@ public class ChallengeController {
             if (!Objects.equals(inv.getInviterId(), userId))
                 return ResponseEntity.status(403).body(Map.of("error","Somente quem convidou pode cancelar"));
             challengeInviteRepository.delete(inv);
+            deadlineScheduler.cancel(ScheduledTask.Kind.INVITE_EXPIRY, inviteUuid.toString());
+            dashboardCache.invalidate(inv.getInviteeId());
             return ResponseEntity.ok(Map.of("message","Convite cancelado"));
         } catch(Exception e){
             return ResponseEntity.status(500).body(Map.of("error","Falha ao cancelar: "+e.getMessage()));
@@ -966,18 +1069,25 @@ public class ChallengeController {
                 return ResponseEntity.status(403).body(Map.of("error","Somente criador"));
             if (!"NOT_STARTED".equals(c.getStatus()))
                 return ResponseEntity.badRequest().body(Map.of("error","Só antes de iniciar"));
-            boolean hadPaid = c.getPaidUserIds()!=null && c.getPaidUserIds().contains(userId);
-            if (c.getParticipants()!=null) c.getParticipants().remove(userId);
-            if (Objects.equals(c.getAcceptorId(), userId)) c.setAcceptorId(null);
-            if (c.getPaidUserIds()!=null) c.getPaidUserIds().remove(userId);
-            challengeRepository.save(c);
+            // remoção com lock na linha do desafio e recarga (novas tentativas em conflito)
+            ChallengeParticipationService.ExitResult result =
+                participationService.withRetry(() -> participationService.kick(challengeId, userId));
+            Challenge saved = result.challenge();
+            boolean hadPaid = result.hadPaid();
+            dashboardCache.invalidateMembers(saved, userId);
             double refund = 0.0;
+            boolean refunded = false;
             if (hadPaid) {
-                double feePct = c.getParticipationFeePercent()!=null? c.getParticipationFeePercent():15.0;
-                double fee = c.getAmount() * (feePct/100.0);
-                refund = c.getAmount() - fee; // simples
-            }
-            return ResponseEntity.ok(Map.of("message","Participante removido","hadPaid",hadPaid,"refundAmount",refund));
+                double feePct = saved.getParticipationFeePercent()!=null? saved.getParticipationFeePercent():15.0;
+                double fee = saved.getAmount() * (feePct/100.0);
+                refund = saved.getAmount() - fee; // simples
+                // removido pode voltar e pagar de novo: a versão do desafio diferencia cada remoção
+                refunded = refund <= 0 || !walletHolds.release(challengeId, List.of(userId), saved.getAmount(), feePct,
+                        "kick", ":v" + saved.getVersion(), "Reembolso: removido do desafio #" + challengeId).isEmpty();
+            }
+            return ResponseEntity.ok(Map.of("message","Participante removido","hadPaid",hadPaid,"refundAmount",refund,"refunded",refunded));
+        } catch(IllegalStateException e){
+            return ResponseEntity.badRequest().body(Map.of("error",e.getMessage()));
         } catch(Exception e){
             return ResponseEntity.status(500).body(Map.of("error","Falha ao remover: "+e.getMessage()));
         }
@@ -995,20 +1105,24 @@ public class ChallengeController {
             if (c == null) return ResponseEntity.status(404).body(Map.of("error","Desafio não encontrado"));
             if (!Objects.equals(c.getCreatorId(), requester))
                 return ResponseEntity.status(403).body(Map.of("error","Somente criador"));
-            if (c.getBannedUserIds()==null) c.setBannedUserIds(new ArrayList<>());
-            if (!c.getBannedUserIds().contains(userId)) c.getBannedUserIds().add(userId);
-            boolean hadPaid = c.getPaidUserIds()!=null && c.getPaidUserIds().contains(userId);
-            if (c.getParticipants()!=null) c.getParticipants().remove(userId);
-            if (Objects.equals(c.getAcceptorId(), userId)) c.setAcceptorId(null);
-            if (c.getPaidUserIds()!=null) c.getPaidUserIds().remove(userId);
-            challengeRepository.save(c);
+            ChallengeParticipationService.ExitResult result =
+                participationService.withRetry(() -> participationService.ban(challengeId, userId));
+            Challenge saved = result.challenge();
+            boolean hadPaid = result.hadPaid();
+            dashboardCache.invalidateMembers(saved, userId);
             double refund = 0.0;
+            boolean refunded = false;
             if (hadPaid) {
-                double feePct = c.getParticipationFeePercent()!=null? c.getParticipationFeePercent():15.0;
-                double fee = c.getAmount() * (feePct/100.0);
-                refund = c.getAmount() - fee;
-            }
-            return ResponseEntity.ok(Map.of("message","Participante banido","hadPaid",hadPaid,"refundAmount",refund));
+                double feePct = saved.getParticipationFeePercent()!=null? saved.getParticipationFeePercent():15.0;
+                double fee = saved.getAmount() * (feePct/100.0);
+                refund = saved.getAmount() - fee;
+                // banido não volta ao desafio: uma chave por usuário basta
+                refunded = refund <= 0 || !walletHolds.release(challengeId, List.of(userId), saved.getAmount(), feePct,
+                        "ban", "", "Reembolso: banido do desafio #" + challengeId).isEmpty();
+            }
+            return ResponseEntity.ok(Map.of("message","Participante banido","hadPaid",hadPaid,"refundAmount",refund,"refunded",refunded));
+        } catch(IllegalStateException e){
+            return ResponseEntity.badRequest().body(Map.of("error",e.getMessage()));
         } catch(Exception e){
             return ResponseEntity.status(500).body(Map.of("error","Falha ao banir: "+e.getMessage()));
         }
@@ -1027,44 +1141,49 @@ public class ChallengeController {
                 return ResponseEntity.badRequest().body(Map.of("error","Status não permite desistir"));
             
             boolean creatorResigned = userId.equals(c.getCreatorId());
-            boolean wasPaid = c.getPaidUserIds()!=null && c.getPaidUserIds().contains(userId);
+            // saída com lock na linha do desafio e recarga (novas tentativas em conflito);
+            // o desafio é cancelado na mesma transação se não restarem participantes ativos
+            ChallengeParticipationService.ExitResult result =
+                participationService.withRetry(() -> participationService.resign(challengeId, userId));
+            Challenge saved = result.challenge();
+            boolean wasPaid = result.hadPaid();
+            boolean globalCancelled = result.cancelled();
             double fee = 0.0;
             double refund = 0.0;
+            boolean refunded = false;
             if (wasPaid) {
                 double feePct = 75.0; // taxa fixa sobre valor líquido
-                double participationFeePct = c.getParticipationFeePercent()!=null? c.getParticipationFeePercent():15.0;
-                double net = c.getAmount() - (c.getAmount() * participationFeePct/100.0);
+                double participationFeePct = saved.getParticipationFeePercent()!=null? saved.getParticipationFeePercent():15.0;
+                double net = saved.getAmount() - (saved.getAmount() * participationFeePct/100.0);
                 fee = net * (feePct/100.0);
                 refund = net - fee;
+                // custódia sai numa chamada: taxa de participação + 75% do líquido ficam como taxa, o resto volta.
+                // quem desiste pode voltar e pagar de novo: a versão do desafio diferencia cada desistência
+                double retainedPct = 100.0 - (100.0 - participationFeePct) * (1 - feePct/100.0);
+                refunded = !walletHolds.release(challengeId, List.of(userId), saved.getAmount(), retainedPct,
+                        "resign", ":v" + saved.getVersion(), "Reembolso: desistência do desafio #" + challengeId).isEmpty();
+            }
+            // último participante saiu: desafio cancelado, custódias que restarem voltam integralmente
+            if (globalCancelled) {
+                List<String> remaining = challengeRepository.findPaidUserIds(challengeId);
+                if (!remaining.isEmpty() && saved.getAmount() != null && saved.getAmount() > 0) {
+                    walletHolds.release(challengeId, remaining, saved.getAmount(), 0.0, "cancel", "",
+                            "Reembolso: cancelamento do desafio #" + challengeId);
+                }
             }
             
-            // Remover usuário das coleções (mas manter creatorId para propriedade do desafio)
-            if (c.getPaidUserIds()!=null) c.getPaidUserIds().remove(userId);
-            if (c.getParticipants()!=null) c.getParticipants().remove(userId);
-            if (Objects.equals(c.getAcceptorId(), userId)) c.setAcceptorId(null);
-            
-            // Se criador desistiu, marcar que não participa mais
-            if (creatorResigned && Boolean.TRUE.equals(c.getCreatorParticipates())) {
-                c.setCreatorParticipates(false);
-            }
-            
-            // Verificar se restaram participantes ativos
-            List<String> still = new ArrayList<>();
-            if (Boolean.TRUE.equals(c.getCreatorParticipates()) && c.getCreatorId()!=null) still.add(c.getCreatorId());
-            if (c.getAcceptorId()!=null) still.add(c.getAcceptorId());
-            if (c.getParticipants()!=null) still.addAll(c.getParticipants());
-            boolean globalCancelled = still.isEmpty();
-            if (globalCancelled) c.setStatus("CANCELLED");
-            
-            challengeRepository.save(c);
+            dashboardCache.invalidateMembers(saved, userId);
             return ResponseEntity.ok(Map.of(
                     "message","Desistência processada",
                     "wasPaid", wasPaid,
                     "feeApplied", fee,
                     "refundAmount", refund,
+                    "refunded", refunded,
                     "globalCancelled", globalCancelled,
                     "creatorResigned", creatorResigned
             ));
+        } catch(IllegalStateException e){
+            return ResponseEntity.badRequest().body(Map.of("error",e.getMessage()));
         } catch(Exception e){
             return ResponseEntity.status(500).body(Map.of("error","Falha ao desistir: "+e.getMessage()));
         }
@@ -1076,7 +1195,7 @@ public class ChallengeController {
         if (c == null) return ResponseEntity.status(404).body(Map.of("error","Convite inválido"));
         if ("COMPLETED".equals(c.getStatus()) || "CANCELLED".equals(c.getStatus()))
             return ResponseEntity.badRequest().body(Map.of("error","Desafio indisponível"));
-        return ResponseEntity.ok(Map.of("challenge", c.toMap()));
+        return ResponseEntity.ok(Map.of("challenge", ChallengeResponse.of(c)));
     }
 
     @PostMapping("/challenges/invite/{code}/join")
@@ -1090,11 +1209,11 @@ public class ChallengeController {
             return ResponseEntity.badRequest().body(Map.of("error","Desafio indisponível"));
         if ("IN_PROGRESS".equals(c.getStatus()) && Boolean.FALSE.equals(c.getAllowGuests()))
             return ResponseEntity.badRequest().body(Map.of("error","Entradas bloqueadas"));
-        // adicionar participante
-        if (c.getParticipants()==null) c.setParticipants(new ArrayList<>());
-        if (!c.getParticipants().contains(userId)) c.getParticipants().add(userId);
-        challengeRepository.save(c);
-        return ResponseEntity.ok(Map.of("message","Participante adicionado","challenge", c.toMap()));
+        // adicionar participante (inserção pontual: entradas simultâneas não se sobrescrevem)
+        Long challengeId = c.getId();
+        Challenge updated = participationService.withRetry(() -> participationService.join(challengeId, userId));
+        dashboardCache.invalidateMembers(updated, userId);
+        return ResponseEntity.ok(Map.of("message","Participante adicionado","challenge", ChallengeResponse.of(updated)));
     }
 
     @GetMapping("/challenges/{id}/available-friends")
@@ -1123,12 +1242,11 @@ public class ChallengeController {
             }
 
             // Buscar amigos do usuário (user-service)
-            String url = "http://localhost:8081/api/friends";
             HttpHeaders headers = new HttpHeaders();
             if (authHeader != null) headers.set("Authorization", authHeader);
             HttpEntity<Void> req = new HttpEntity<>(headers);
-            ResponseEntity<List<Map<String,Object>>> resp = restTemplate.exchange(
-                    url, HttpMethod.GET, req,
+            ResponseEntity<List<Map<String,Object>>> resp = downstreamClients.client(DownstreamClients.FRIENDS).exchange(
+                    "list-friends", "/api/friends", HttpMethod.GET, req,
                     new org.springframework.core.ParameterizedTypeReference<List<Map<String,Object>>>() {}
             );
 
@@ -1152,83 +1270,6 @@ public class ChallengeController {
         }
     }
 
-    private String getenvOrProp(String env, String prop, String def) {
-        String v = System.getenv(env);
-        if (v != null && !v.isBlank()) return v;
-        v = System.getProperty(prop);
-        if (v != null && !v.isBlank()) return v;
-        return def;
-    }
-    private int parseInt(String v, int def) {
-        try { return Integer.parseInt(v.trim()); } catch (Exception e) { return def; }
-    }
-
-    private Optional<String> fetchUserEmail(String userId, String authHeader) {
-        try {
-            String url = "http://localhost:8081/api/users/" + userId;
-            HttpHeaders headers = new HttpHeaders();
-            if (authHeader != null) {
-                headers.set("Authorization", authHeader);
-            }
-            HttpEntity<Void> requestEntity = new HttpEntity<>(headers);
-            ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
-                url, HttpMethod.GET, requestEntity,
-                new org.springframework.core.ParameterizedTypeReference<Map<String, Object>>() {});
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                String email = (String) response.getBody().get("email");
-                return Optional.ofNullable(email);
-            }
-        } catch (Exception e) {
-            System.err.println("Erro ao buscar email do usuário: " + e.getMessage());
-        }
-        return Optional.empty();
-    }
-
-    private boolean sendEmail(String to, String subject, String body) {
-        try {
-            String smtpHost = getenvOrProp("SMTP_HOST", "smtp.host", "localhost");
-            int smtpPort = parseInt(getenvOrProp("SMTP_PORT", "smtp.port", "25"), 25);
-            try (Socket socket = new Socket(smtpHost, smtpPort);
-                 BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
-                 Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
-                
-                reader.readLine();
-                writer.write("HELO localhost\r\n");
-                writer.flush();
-                reader.readLine();
-                
-                writer.write("MAIL FROM:<noreply@euduvido.com>\r\n");
-                writer.flush();
-                reader.readLine();
-                
-                writer.write("RCPT TO:<" + to + ">\r\n");
-                writer.flush();
-                reader.readLine();
-                
-                writer.write("DATA\r\n");
-                writer.flush();
-                reader.readLine();
-                
-                writer.write("Subject: " + subject + "\r\n");
-                writer.write("From: noreply@euduvido.com\r\n");
-                writer.write("To: " + to + "\r\n");
-                writer.write("\r\n");
-                writer.write(body + "\r\n");
-                writer.write(".\r\n");
-                writer.flush();
-                reader.readLine();
-                
-                writer.write("QUIT\r\n");
-                writer.flush();
-                
-                return true;
-            }
-        } catch (Exception e) {
-            System.err.println("Erro ao enviar email: " + e.getMessage());
-            return false;
-        }
-    }
-
     @PostMapping("/challenges/{id}/cancel-challenge")
     public ResponseEntity<?> cancelChallengeByCreator(@PathVariable String id,
                                                       @RequestHeader(value="Authorization",required=false) String authHeader) {
@@ -1251,29 +1292,44 @@ public class ChallengeController {
             Double amount = c.getAmount() != null ? c.getAmount() : 0.0;
             String description = "Reembolso: cancelamento do desafio #" + c.getId();
 
+            // Uma única chamada devolve todas as custódias (integralmente); repetir é seguro
+            Set<String> released = amount > 0
+                    ? new HashSet<>(walletHolds.release(challengeId, paidUsers, amount, 0.0, "cancel", "", description))
+                    : new HashSet<>(paidUsers);
             List<String> refunded = new ArrayList<>();
             List<String> failed = new ArrayList<>();
-
             for (String uid : paidUsers) {
-                try {
-                    boolean ok = creditUser(uid, amount, description, authHeader);
-                    if (ok) refunded.add(uid);
-                    else failed.add(uid);
-                } catch (Exception ex) {
-                    failed.add(uid);
-                }
+                if (released.contains(uid)) refunded.add(uid);
+                else failed.add(uid);
+            }
+            if (!failed.isEmpty()) {
+                // desafio mantido: o criador pode repetir o cancelamento e só os pendentes são creditados
+                return ResponseEntity.status(502).body(Map.of(
+                        "error", "Falha ao reembolsar participantes; tente cancelar novamente",
+                        "challengeId", challengeId,
+                        "refundedUserIds", refunded,
+                        "failedRefundUserIds", failed,
+                        "refundAmountPerUser", amount
+                ));
             }
 
+            // Membros e convidados cujo dashboard precisa ser recalculado após a exclusão
+            Set<String> affectedUsers = dashboardCache.membersOf(c, paidUsers.toArray(new String[0]));
+
             // Remover convites associados
             try {
                 List<ChallengeInvite> invites = challengeInviteRepository.findByChallengeId(challengeId);
+                if (invites != null) {
+                    invites.forEach(invite -> affectedUsers.add(invite.getInviteeId()));
+                }
                 if (invites != null && !invites.isEmpty()) {
                     challengeInviteRepository.deleteAll(invites);
                 }
             } catch (Exception ignore) {}
 
             // Excluir desafio
-            challengeRepository.deleteById(challengeId);
+            participationService.discard(challengeId, UserChallengeStatsService.Snapshot.of(c));
+            dashboardCache.invalidateAll(affectedUsers);
 
             return ResponseEntity.ok(Map.of(
                     "message", "Desafio cancelado e removido",
@@ -1289,48 +1345,6 @@ public class ChallengeController {
         }
     }
 
-    // Tenta creditar o usuário alvo. Estratégia:
-    // 1) POST /api/wallet/credit { amount, description, userId }
-    // 2) fallback: POST /api/wallet/deposit { amount, description } com X-Impersonate-User
-    private boolean creditUser(String targetUserId, Double amount, String description, String authHeader) {
-        try {
-            String urlCredit = "http://localhost:8083/api/wallet/credit";
-            Map<String, Object> body = new HashMap<>();
-            body.put("amount", amount);
-            body.put("description", description);
-            body.put("userId", targetUserId);
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            if (authHeader != null) headers.set("Authorization", authHeader);
-            HttpEntity<Map<String, Object>> requestEntity = new HttpEntity<>(body, headers);
-            ResponseEntity<Map<String, Object>> resp = restTemplate.exchange(
-                    urlCredit, HttpMethod.POST, requestEntity,
-                    new org.springframework.core.ParameterizedTypeReference<Map<String, Object>>() {});
-            if (resp.getStatusCode().is2xxSuccessful()) return true;
-        } catch (Exception ignore) {
-            // tenta fallback
-        }
-
-        try {
-            String urlDeposit = "http://localhost:8083/api/wallet/deposit";
-            Map<String, Object> body = new HashMap<>();
-            body.put("amount", amount);
-            body.put("description", description + " (fallback)");
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            if (authHeader != null) headers.set("Authorization", authHeader);
-            // tentativa de impersonação (se suportado pelo wallet-service)
-            headers.set("X-Impersonate-User", targetUserId);
-            HttpEntity<Map<String, Object>> requestEntity = new HttpEntity<>(body, headers);
-            ResponseEntity<Map<String, Object>> resp = restTemplate.exchange(
-                    urlDeposit, HttpMethod.POST, requestEntity,
-                    new org.springframework.core.ParameterizedTypeReference<Map<String, Object>>() {});
-            return resp.getStatusCode().is2xxSuccessful();
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
     @PostMapping("/challenges/{id}/finish-request")
     public ResponseEntity<?> requestFinish(@PathVariable String id,
                                            @RequestHeader(value="Authorization",required=false) String authHeader) {
@@ -1377,16 +1391,17 @@ public class ChallengeController {
                 }
             }
 
-            // iniciar novo pedido
-            c.setFinishRequestAt(now);
-            c.setFinishRequestBy(requesterId);
-            c.setFinishRequestActive(true);
-            c.setFinishAcceptedUserIds(new ArrayList<>(List.of(requesterId))); // criador já aceita por padrão
-            challengeRepository.save(c);
+            // iniciar novo pedido (criador já aceita por padrão)
+            Challenge updated = participationService.withRetry(
+                    () -> participationService.openFinishRequest(challengeId, requesterId, now));
+            // NOVO: sem aprovação de todos em 24h o pedido expira sozinho
+            deadlineScheduler.schedule(ScheduledTask.Kind.FINISH_REQUEST_EXPIRY, String.valueOf(challengeId),
+                    lifecycleService.finishRequestExpiresAt(now));
+            dashboardCache.invalidateMembers(updated);
 
             return ResponseEntity.ok(Map.of(
                     "message","Pedido de encerramento criado. Aguardando aprovação de todos os participantes.",
-                    "challenge", c.toMap()
+                    "challenge", ChallengeResponse.of(updated)
             ));
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().body(Map.of("error","ID inválido"));
@@ -1420,7 +1435,7 @@ public class ChallengeController {
             payload.put("totalRequired", activeParticipants.size());
             payload.put("acceptedUserIds", accepted);
             payload.put("userHasAccepted", accepted.contains(userId));
-            payload.put("userIsParticipant", c.isUserParticipant(userId) || Objects.equals(c.getCreatorId(), userId));
+            payload.put("userIsParticipant", membershipService.isActiveMember(challengeId, userId) || Objects.equals(c.getCreatorId(), userId));
             return ResponseEntity.ok(payload);
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().body(Map.of("error","ID inválido"));
@@ -1446,7 +1461,7 @@ public class ChallengeController {
             if (!Boolean.TRUE.equals(c.getFinishRequestActive()) || c.getFinishRequestAt() == null)
                 return ResponseEntity.badRequest().body(Map.of("error","Nenhum pedido de encerramento ativo"));
 
-            if (!c.isUserParticipant(userId) && !Objects.equals(c.getCreatorId(), userId))
+            if (!membershipService.isActiveMember(challengeId, userId) && !Objects.equals(c.getCreatorId(), userId))
                 return ResponseEntity.status(403).body(Map.of("error","Somente participantes podem responder"));
 
             String action = Optional.ofNullable(body.get("action")).orElse("").toLowerCase(Locale.ROOT);
@@ -1455,80 +1470,54 @@ public class ChallengeController {
 
             if (action.equals("reject")) {
                 // qualquer rejeição cancela o pedido, mantém status IN_PROGRESS
-                c.setFinishRequestActive(false);
-                c.setFinishAcceptedUserIds(new ArrayList<>());
-                challengeRepository.save(c);
+                Challenge updated = participationService.withRetry(() -> participationService.rejectFinish(challengeId));
+                deadlineScheduler.cancel(ScheduledTask.Kind.FINISH_REQUEST_EXPIRY, String.valueOf(challengeId));
+                dashboardCache.invalidateMembers(updated);
                 return ResponseEntity.ok(Map.of(
                         "message","Pedido de encerramento rejeitado. O desafio continua em andamento.",
                         "rejectedBy", userId
                 ));
             }
 
-            // accept
-            if (c.getFinishAcceptedUserIds() == null)
-                c.setFinishAcceptedUserIds(new ArrayList<>());
-            if (!c.getFinishAcceptedUserIds().contains(userId)) {
-                c.getFinishAcceptedUserIds().add(userId);
-            }
+            // accept (inserção pontual em finishAcceptedUserIds)
+            Challenge updated = participationService.withRetry(() -> participationService.acceptFinish(challengeId, userId));
 
             // verificar se todos ativos aceitaram
-            List<String> activeParticipants = c.getActiveParticipantIds()
+            List<String> activeParticipants = updated.getActiveParticipantIds()
                 .stream()
                 .filter(Objects::nonNull)
                 .map(String::trim)
                 .filter(s -> !s.isEmpty())
                 .distinct()
                 .collect(Collectors.toList());
-            List<String> accepted = c.getFinishAcceptedUserIds() != null ? c.getFinishAcceptedUserIds() : List.of();
+            List<String> accepted = updated.getFinishAcceptedUserIds() != null ? updated.getFinishAcceptedUserIds() : List.of();
             boolean allAccepted = activeParticipants.stream().allMatch(accepted::contains);
 
             if (allAccepted) {
-                // Todos aceitaram: concluir desafio e calcular vencedor
-                c.setFinishRequestActive(false);
-                c.setStatus("COMPLETED"); // GARANTE status COMPLETED
-                // Calcular vencedor via proof-service
-                String winnerId = null;
-                try {
-                    String proofServiceUrl = "http://localhost:8085/api/proofs/challenge/" + challengeId + "/winner";
-                    HttpHeaders headers = new HttpHeaders();
-                    if (authHeader != null) headers.set("Authorization", authHeader);
-                    HttpEntity<Void> req = new HttpEntity<>(headers);
-                    ResponseEntity<Map> resp = restTemplate.exchange(
-                        proofServiceUrl, HttpMethod.GET, req,
-                        new org.springframework.core.ParameterizedTypeReference<Map>() {});
-                    if (resp.getStatusCode().is2xxSuccessful() && resp.getBody() != null) {
-                        Object winnerObj = resp.getBody().get("winnerId");
-                        if (winnerObj != null) {
-                            winnerId = String.valueOf(winnerObj);
-                            c.setWinnerId(winnerId);
-                        } else {
-                            c.setWinnerId(null);
-                        }
-                    } else {
-                        c.setWinnerId(null);
-                    }
-                } catch (Exception ex) {
-                    // Se falhar, apenas loga e segue sem vencedor
-                    System.err.println("[ENCERRAMENTO] Falha ao calcular vencedor: " + ex.getMessage());
-                    c.setWinnerId(null);
-                }
-                challengeRepository.save(c);
-                // Nunca retorna erro 500 aqui
-                return ResponseEntity.ok(Map.of(
-                        "message","Todos aceitaram. Desafio concluído.",
-                        "challenge", c.toMap(),
-                        "allAccepted", true,
-                        "winnerId", winnerId,
-                        "status", c.getStatus() // ADICIONADO: retorna status para verificação
-                ));
+                // Todos aceitaram: calcular vencedor (fora da transação) e concluir desafio
+                String winnerId = lifecycleService.fetchWinner(challengeId, authHeader);
+                Challenge completed = participationService.withRetry(() -> participationService.complete(challengeId, winnerId));
+                lifecycleService.settleOrRetry(completed, completed.getWinnerId());
+                lifecycleService.closeLeaderboard(challengeId);
+                deadlineScheduler.cancel(ScheduledTask.Kind.FINISH_REQUEST_EXPIRY, String.valueOf(challengeId));
+                deadlineScheduler.cancel(ScheduledTask.Kind.CHALLENGE_END, String.valueOf(challengeId));
+                dashboardCache.invalidateMembers(completed);
+                // Nunca retorna erro 500 aqui (winnerId pode ser null, por isso HashMap)
+                Map<String, Object> response = new HashMap<>();
+                response.put("message", "Todos aceitaram. Desafio concluído.");
+                response.put("challenge", ChallengeResponse.of(completed));
+                response.put("allAccepted", true);
+                response.put("winnerId", completed.getWinnerId());
+                response.put("status", completed.getStatus()); // ADICIONADO: retorna status para verificação
+                return ResponseEntity.ok(response);
             } else {
-                challengeRepository.save(c);
+                dashboardCache.invalidateMembers(updated);
                 return ResponseEntity.ok(Map.of(
                         "message","Voto registrado. Aguardando os demais participantes.",
                         "acceptedCount", accepted.size(),
                         "totalRequired", activeParticipants.size(),
                         "allAccepted", false,
-                        "status", c.getStatus() // ADICIONADO: retorna status para verificação
+                        "status", updated.getStatus() // ADICIONADO: retorna status para verificação
                 ));
             }
         } catch (NumberFormatException e) {
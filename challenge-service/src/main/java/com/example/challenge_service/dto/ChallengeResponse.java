@@ -0,0 +1,137 @@
+package com.example.challenge_service.dto;
+
+import com.example.challenge_service.model.Challenge;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Resposta de desafio com os mesmos nomes de campo de Challenge.toMap(), mais os campos
+// opcionais role (listagens) e participationFee/netStakePerUser (criação), omitidos quando nulos.
+// Serializado por ChallengeResponseSerializer direto no JsonGenerator, sem Map intermediário.
+// As listas apontam para as coleções do próprio desafio (serialização na mesma requisição);
+// detached() copia para quem guarda a resposta depois da sessão (cache do dashboard).
+@JsonSerialize(using = ChallengeResponseSerializer.class)
+public record ChallengeResponse(
+        Long id,
+        String description,
+        Double amount,
+        String type,
+        String icon,
+        Integer minWorkoutMinutes,
+        List<String> customProofTypes,
+        Integer duration,
+        Boolean allowGuests,
+        String status,
+        Long createdAt,
+        String creatorId,
+        String acceptorId,
+        Boolean paid,
+        Long startDate,
+        Long endDate,
+        String invitedUserId,
+        String shareLink,
+        List<String> participants,
+        String invitePermission,
+        Integer maxParticipants,
+        String winnerId,
+        Integer mealsPerDay,
+        Integer mealCountPerDay,
+        Integer proofsPerDay,
+        Double customMinKm,
+        Integer customMinTimeMinutes,
+        Integer customMinCount,
+        Integer minMealIntervalMinutes,
+        List<String> paidUserIds,
+        Double participationFeePercent,
+        Boolean creatorParticipates,
+        List<String> bannedUserIds,
+        Long finishRequestAt,
+        String finishRequestBy,
+        List<String> finishAcceptedUserIds,
+        Boolean finishRequestActive,
+        String role,
+        Double participationFee,
+        Double netStakePerUser
+) {
+
+    public static ChallengeResponse of(Challenge c) {
+        return of(c, null, null, null);
+    }
+
+    // Cópia independente do Hibernate, para guardar em cache
+    public static ChallengeResponse detached(Challenge c) {
+        ChallengeResponse r = of(c);
+        return new ChallengeResponse(r.id, r.description, r.amount, r.type, r.icon, r.minWorkoutMinutes,
+                copy(r.customProofTypes), r.duration, r.allowGuests, r.status, r.createdAt, r.creatorId, r.acceptorId,
+                r.paid, r.startDate, r.endDate, r.invitedUserId, r.shareLink, copy(r.participants), r.invitePermission,
+                r.maxParticipants, r.winnerId, r.mealsPerDay, r.mealCountPerDay, r.proofsPerDay, r.customMinKm,
+                r.customMinTimeMinutes, r.customMinCount, r.minMealIntervalMinutes, copy(r.paidUserIds),
+                r.participationFeePercent, r.creatorParticipates, copy(r.bannedUserIds), r.finishRequestAt,
+                r.finishRequestBy, copy(r.finishAcceptedUserIds), r.finishRequestActive, r.role, r.participationFee,
+                r.netStakePerUser);
+    }
+
+    // Resposta da criação: inclui taxa de participação e valor líquido por usuário
+    public static ChallengeResponse withFees(Challenge c, double participationFee, double netStakePerUser) {
+        return of(c, null, participationFee, netStakePerUser);
+    }
+
+    // Mesmos defaults de Challenge.toMap(); role = "created"/"invited" nas listagens (ChallengeResponseList)
+    static ChallengeResponse of(Challenge c, String role, Double participationFee, Double netStakePerUser) {
+        return new ChallengeResponse(
+                c.getId(),
+                c.getDescription(),
+                c.getAmount(),
+                c.getType(),
+                c.getIcon(),
+                c.getMinWorkoutMinutes(),
+                orEmpty(c.getCustomProofTypes()),
+                c.getDuration(),
+                c.getAllowGuests(),
+                c.getStatus(),
+                c.getCreatedAt(),
+                c.getCreatorId(),
+                c.getAcceptorId(),
+                c.getPaid(),
+                c.getStartDate(),
+                c.getEndDate(),
+                c.getInvitedUserId(),
+                c.getShareLink(),
+                orEmpty(c.getParticipants()),
+                c.getInvitePermission() != null ? c.getInvitePermission() : "CREATOR_ONLY",
+                c.getMaxParticipants(),
+                c.getWinnerId(),
+                c.getMealsPerDay(),
+                c.getMealCountPerDay() != null ? c.getMealCountPerDay() : c.getMealsPerDay(),
+                c.getProofsPerDay(),
+                c.getCustomMinKm(),
+                c.getCustomMinTimeMinutes(),
+                c.getCustomMinCount(),
+                c.getMinMealIntervalMinutes(),
+                orEmpty(c.getPaidUserIds()),
+                c.getParticipationFeePercent() != null ? c.getParticipationFeePercent() : 15.0,
+                c.getCreatorParticipates() != null ? c.getCreatorParticipates() : Boolean.TRUE,
+                orEmpty(c.getBannedUserIds()),
+                c.getFinishRequestAt(),
+                c.getFinishRequestBy(),
+                orEmpty(c.getFinishAcceptedUserIds()),
+                c.getFinishRequestActive() != null ? c.getFinishRequestActive() : Boolean.FALSE,
+                role,
+                participationFee,
+                netStakePerUser
+        );
+    }
+
+    // Coleção nula vira a lista vazia compartilhada, sem alocação
+    private static List<String> orEmpty(List<String> values) {
+        return values != null ? values : List.of();
+    }
+
+    private static List<String> copy(List<String> values) {
+        if (values == null || values.isEmpty()) {
+            return List.of();
+        }
+        return new ArrayList<>(values);
+    }
+}
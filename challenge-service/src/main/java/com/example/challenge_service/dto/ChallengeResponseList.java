@@ -0,0 +1,21 @@
+package com.example.challenge_service.dto;
+
+import com.example.challenge_service.model.Challenge;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.util.List;
+import java.util.function.Function;
+
+// Lista de desafios escrita em streaming: cada desafio vira ChallengeResponse só no momento de ir
+// para o JsonGenerator, sem montar antes a lista inteira de respostas. role = null nas listagens sem papel.
+@JsonSerialize(using = ChallengeResponseListSerializer.class)
+public record ChallengeResponseList(List<Challenge> challenges, Function<Challenge, String> role) {
+
+    public static ChallengeResponseList of(List<Challenge> challenges) {
+        return new ChallengeResponseList(challenges, null);
+    }
+
+    public static ChallengeResponseList withRole(List<Challenge> challenges, Function<Challenge, String> role) {
+        return new ChallengeResponseList(challenges, role);
+    }
+}
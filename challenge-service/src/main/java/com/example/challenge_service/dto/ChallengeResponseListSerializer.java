@@ -0,0 +1,28 @@
+package com.example.challenge_service.dto;
+
+import com.example.challenge_service.model.Challenge;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+// Escreve o array de ChallengeResponseList elemento a elemento com ChallengeResponseSerializer
+public class ChallengeResponseListSerializer extends StdSerializer<ChallengeResponseList> {
+
+    private final ChallengeResponseSerializer element = new ChallengeResponseSerializer();
+
+    public ChallengeResponseListSerializer() {
+        super(ChallengeResponseList.class);
+    }
+
+    @Override
+    public void serialize(ChallengeResponseList list, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartArray(list, list.challenges().size());
+        for (Challenge challenge : list.challenges()) {
+            String role = list.role() != null ? list.role().apply(challenge) : null;
+            element.serialize(ChallengeResponse.of(challenge, role, null, null), gen, provider);
+        }
+        gen.writeEndArray();
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.challenge_service.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.List;
+
+// Escreve ChallengeResponse campo a campo no JsonGenerator (sem reflexão nem Map intermediário).
+// A ordem e os nomes dos campos seguem Challenge.toMap(), que é o contrato usado pelo frontend.
+public class ChallengeResponseSerializer extends StdSerializer<ChallengeResponse> {
+
+    public ChallengeResponseSerializer() {
+        super(ChallengeResponse.class);
+    }
+
+    @Override
+    public void serialize(ChallengeResponse c, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject();
+        writeNumber(gen, "id", c.id());
+        gen.writeStringField("description", c.description());
+        writeNumber(gen, "amount", c.amount());
+        gen.writeStringField("type", c.type());
+        gen.writeStringField("icon", c.icon());
+        writeNumber(gen, "minWorkoutMinutes", c.minWorkoutMinutes());
+        writeStrings(gen, "customProofTypes", c.customProofTypes());
+        writeNumber(gen, "duration", c.duration());
+        writeBoolean(gen, "allowGuests", c.allowGuests());
+        gen.writeStringField("status", c.status());
+        writeNumber(gen, "createdAt", c.createdAt());
+        gen.writeStringField("creatorId", c.creatorId());
+        gen.writeStringField("acceptorId", c.acceptorId());
+        writeBoolean(gen, "paid", c.paid());
+        writeNumber(gen, "startDate", c.startDate());
+        writeNumber(gen, "endDate", c.endDate());
+        gen.writeStringField("invitedUserId", c.invitedUserId());
+        gen.writeStringField("shareLink", c.shareLink());
+        writeStrings(gen, "participants", c.participants());
+        gen.writeStringField("invitePermission", c.invitePermission());
+        writeNumber(gen, "maxParticipants", c.maxParticipants());
+        gen.writeStringField("winnerId", c.winnerId());
+        writeNumber(gen, "mealsPerDay", c.mealsPerDay());
+        writeNumber(gen, "mealCountPerDay", c.mealCountPerDay());
+        writeNumber(gen, "proofsPerDay", c.proofsPerDay());
+        writeNumber(gen, "customMinKm", c.customMinKm());
+        writeNumber(gen, "customMinTimeMinutes", c.customMinTimeMinutes());
+        writeNumber(gen, "customMinCount", c.customMinCount());
+        writeNumber(gen, "minMealIntervalMinutes", c.minMealIntervalMinutes());
+        writeStrings(gen, "paidUserIds", c.paidUserIds());
+        writeNumber(gen, "participationFeePercent", c.participationFeePercent());
+        writeBoolean(gen, "creatorParticipates", c.creatorParticipates());
+        writeStrings(gen, "bannedUserIds", c.bannedUserIds());
+        writeNumber(gen, "finishRequestAt", c.finishRequestAt());
+        gen.writeStringField("finishRequestBy", c.finishRequestBy());
+        writeStrings(gen, "finishAcceptedUserIds", c.finishAcceptedUserIds());
+        writeBoolean(gen, "finishRequestActive", c.finishRequestActive());
+        // campos opcionais: só aparecem quando preenchidos
+        if (c.role() != null) gen.writeStringField("role", c.role());
+        if (c.participationFee() != null) gen.writeNumberField("participationFee", c.participationFee());
+        if (c.netStakePerUser() != null) gen.writeNumberField("netStakePerUser", c.netStakePerUser());
+        gen.writeEndObject();
+    }
+
+    private static void writeNumber(JsonGenerator gen, String name, Long value) throws IOException {
+        if (value == null) gen.writeNullField(name);
+        else gen.writeNumberField(name, value.longValue());
+    }
+
+    private static void writeNumber(JsonGenerator gen, String name, Integer value) throws IOException {
+        if (value == null) gen.writeNullField(name);
+        else gen.writeNumberField(name, value.intValue());
+    }
+
+    private static void writeNumber(JsonGenerator gen, String name, Double value) throws IOException {
+        if (value == null) gen.writeNullField(name);
+        else gen.writeNumberField(name, value.doubleValue());
+    }
+
+    private static void writeBoolean(JsonGenerator gen, String name, Boolean value) throws IOException {
+        if (value == null) gen.writeNullField(name);
+        else gen.writeBooleanField(name, value);
+    }
+
+    private static void writeStrings(JsonGenerator gen, String name, List<String> values) throws IOException {
+        gen.writeArrayFieldStart(name);
+        for (String value : values) {
+            gen.writeString(value);
+        }
+        gen.writeEndArray();
+    }
+}
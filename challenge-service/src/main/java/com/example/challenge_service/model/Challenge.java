@@ -4,20 +4,34 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "challenges")
+@Table(name = "challenges", indexes = {
+    @Index(name = "idx_challenges_created_id", columnList = "created_at, id"),
+    @Index(name = "idx_challenges_status", columnList = "status")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Challenge {
+
+    // Quantas coleções lazy o Hibernate inicializa por SELECT (ver ChallengeRepository.findWithCollections*)
+    public static final int COLLECTION_BATCH_SIZE = 256;
     
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
+
+    // NOVO: lock otimista. Também é incrementada pelas escritas pontuais nas coleções
+    // (ChallengeParticipationService), então uma cópia antiga do desafio não consegue
+    // regravar participants/paidUserIds por cima de uma entrada concorrente.
+    @Version
+    @Column(nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long version;
     
     @Column(nullable = false)
     private String description;
@@ -34,6 +48,7 @@ public class Challenge {
     private Integer minWorkoutMinutes; // para tipo academia
     
     @ElementCollection
+    @BatchSize(size = Challenge.COLLECTION_BATCH_SIZE)
     @CollectionTable(name = "challenge_custom_proof_types", joinColumns = @JoinColumn(name = "challenge_id"))
     @Column(name = "proof_type")
     private List<String> customProofTypes; // para tipo custom
@@ -67,6 +82,7 @@ public class Challenge {
     private String shareLink; // Link único para compartilhar/apostar no desafio
     
     @ElementCollection
+    @BatchSize(size = Challenge.COLLECTION_BATCH_SIZE)
     @CollectionTable(name = "challenge_participants", joinColumns = @JoinColumn(name = "challenge_id"))
     @Column(name = "participant_id")
     private List<String> participants; // Lista de IDs dos participantes (além de creatorId e acceptorId)
@@ -88,6 +104,7 @@ public class Challenge {
     private Integer minMealIntervalMinutes; // NOVO: intervalo mínimo entre refeições (minutos)
     
     @ElementCollection
+    @BatchSize(size = Challenge.COLLECTION_BATCH_SIZE)
     @CollectionTable(name = "challenge_paid_users", joinColumns = @JoinColumn(name = "challenge_id"))
     @Column(name = "paid_user_id")
     private List<String> paidUserIds; // NOVO: usuários que já pagaram
@@ -101,6 +118,7 @@ public class Challenge {
 
     // NOVO: lista de usuarios banidos (nao podem ser convidados ou entrar novamente)
     @ElementCollection
+    @BatchSize(size = Challenge.COLLECTION_BATCH_SIZE)
     @CollectionTable(name = "challenge_banned_users", joinColumns = @JoinColumn(name = "challenge_id"))
     @Column(name = "banned_user_id")
     private List<String> bannedUserIds;
@@ -113,6 +131,7 @@ public class Challenge {
     private String finishRequestBy; // quem pediu (criador)
 
     @ElementCollection
+    @BatchSize(size = Challenge.COLLECTION_BATCH_SIZE)
     @CollectionTable(name = "challenge_finish_accepts", joinColumns = @JoinColumn(name = "challenge_id"))
     @Column(name = "user_id")
     private List<String> finishAcceptedUserIds; // quem já aceitou o encerramento
@@ -0,0 +1,32 @@
+package com.example.challenge_service.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Ícone de desafio já reduzido, endereçado pelo SHA-256 do conteúdo.
+// Vários desafios com a mesma imagem apontam para a mesma linha.
+@Entity
+@Table(name = "challenge_icons")
+@Data
+@NoArgsConstructor
+public class ChallengeIcon {
+
+    @Id
+    @Column(length = 64)
+    private String hash; // SHA-256 em hexadecimal
+
+    @Column(name = "content_type", nullable = false, length = 50)
+    private String contentType;
+
+    @Lob
+    @Column(nullable = false)
+    private byte[] data;
+
+    private Integer width;
+
+    private Integer height;
+
+    @Column(name = "created_at", nullable = false)
+    private Long createdAt;
+}
@@ -0,0 +1,64 @@
+package com.example.challenge_service.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Uma linha por (desafio, usuário): papel e situação do usuário no desafio.
+// Mantida pelo ChallengeMembershipService a cada criação, aceite, entrada, remoção e desistência.
+@Entity
+@Table(name = "challenge_membership",
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_membership_challenge_user", columnNames = {"challenge_id", "user_id"})
+    },
+    indexes = {
+        @Index(name = "idx_membership_user_state", columnList = "user_id, state, challenge_id"),
+        @Index(name = "idx_membership_challenge_state", columnList = "challenge_id, state")
+    })
+@Data
+@NoArgsConstructor
+public class ChallengeMembership {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Column(name = "challenge_id", nullable = false)
+    private Long challengeId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Role role;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private State state;
+
+    @Column(name = "joined_at", nullable = false)
+    private Long joinedAt;
+
+    public ChallengeMembership(Long challengeId, String userId, Role role, State state) {
+        this.challengeId = challengeId;
+        this.userId = userId;
+        this.role = role;
+        this.state = state;
+        this.joinedAt = System.currentTimeMillis();
+    }
+
+    public enum Role {
+        CREATOR,
+        ACCEPTOR,
+        PARTICIPANT
+    }
+
+    public enum State {
+        ACTIVE,
+        NOT_PARTICIPATING, // criador que não aposta no próprio desafio
+        RESIGNED,
+        KICKED,
+        BANNED
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.challenge_service.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// E-mail a enviar, gravado na mesma transação da alteração que o originou.
+// O EmailOutboxDispatcher envia em segundo plano; falhas são repetidas com backoff até DEAD.
+@Entity
+@Table(name = "email_outbox",
+    indexes = {
+        @Index(name = "idx_email_outbox_status_next", columnList = "status, next_attempt_at, id")
+    })
+@Data
+@NoArgsConstructor
+public class EmailOutbox {
+
+    // Substituído pelo e-mail de quem originou a mensagem no momento do envio
+    public static final String SENDER_PLACEHOLDER = "{{remetente}}";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 40)
+    private String type; // ex.: CHALLENGE_INVITE
+
+    @Column(length = 64)
+    private String reference; // id do convite, desafio etc.
+
+    @Column(name = "recipient_user_id", nullable = false)
+    private String recipientUserId;
+
+    // resolvido pelo dispatcher no primeiro envio (consulta ao auth-service)
+    @Column(name = "recipient_email")
+    private String recipientEmail;
+
+    @Column(name = "sender_user_id")
+    private String senderUserId;
+
+    @Column(nullable = false)
+    private String subject;
+
+    @Column(nullable = false, length = 4000)
+    private String body;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status = Status.PENDING;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private Long nextAttemptAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private Long createdAt;
+
+    @Column(name = "sent_at")
+    private Long sentAt;
+
+    public enum Status {
+        PENDING,
+        SENT,
+        DEAD // tentativas esgotadas ou recusa permanente do servidor
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.challenge_service.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Prazo persistido: uma linha por (tipo, alvo). Reagendar o mesmo alvo só move o due_at.
+// A linha é apagada depois que o prazo é tratado; o que sobrar vencido é retomado após reinício.
+@Entity
+@Table(name = "scheduled_tasks",
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_scheduled_tasks_kind_target", columnNames = {"kind", "target_id"})
+    },
+    indexes = {
+        @Index(name = "idx_scheduled_tasks_due", columnList = "due_at")
+    })
+@Data
+@NoArgsConstructor
+public class ScheduledTask {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private Kind kind;
+
+    // id do desafio ou UUID do convite
+    @Column(name = "target_id", nullable = false, length = 64)
+    private String targetId;
+
+    @Column(name = "due_at", nullable = false)
+    private Long dueAt;
+
+    @Column(name = "created_at", nullable = false)
+    private Long createdAt;
+
+    public enum Kind {
+        CHALLENGE_END,          // desafio em andamento chegou ao endDate
+        INVITE_EXPIRY,          // convite pendente sem resposta
+        FINISH_REQUEST_EXPIRY,  // pedido de encerramento sem aprovação de todos em 24h
+        SETTLEMENT              // liquidação no wallet-service que falhou ao concluir o desafio
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.challenge_service.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Contadores por usuário (desafios criados ou aceitos), mantidos incrementalmente
+// pelo UserChallengeStatsService na mesma transação de cada mudança de estado.
+@Entity
+@Table(name = "user_challenge_stats")
+@Data
+@NoArgsConstructor
+public class UserChallengeStats {
+
+    @Id
+    @Column(name = "user_id")
+    private String userId;
+
+    @Column(nullable = false)
+    private long participated;
+
+    @Column(nullable = false)
+    private long active; // IN_PROGRESS ou ACCEPTED
+
+    @Column(nullable = false)
+    private long completed;
+
+    @Column(nullable = false)
+    private long won; // desafios em que winnerId == userId
+
+    @Column(name = "total_spent", nullable = false)
+    private double totalSpent; // soma de amount fora de AWAITING_PAYMENT/PENDING
+
+    @Column(name = "updated_at")
+    private Long updatedAt;
+
+    public UserChallengeStats(String userId) {
+        this.userId = userId;
+    }
+}
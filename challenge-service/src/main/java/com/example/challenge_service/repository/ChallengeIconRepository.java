@@ -0,0 +1,9 @@
+package com.example.challenge_service.repository;
+
+import com.example.challenge_service.model.ChallengeIcon;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ChallengeIconRepository extends JpaRepository<ChallengeIcon, String> {
+}
@@ -3,7 +3,12 @@ package com.example.challenge_service.repository;
 import com.example.challenge_service.model.ChallengeInvite;
 import com.example.challenge_service.model.ChallengeInvite.InviteStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -17,4 +22,14 @@ public interface ChallengeInviteRepository extends JpaRepository<ChallengeInvite
     List<ChallengeInvite> findByChallengeIdAndStatus(Long challengeId, InviteStatus status);
 
     List<ChallengeInvite> findByChallengeId(Long challengeId);
+
+    // Expira em lote só os convites que continuam pendentes (respondidos no meio do caminho ficam como estão)
+    @Modifying
+    @Transactional
+    @Query("UPDATE ChallengeInvite i SET i.status = :expired, i.respondedAt = :now " +
+            "WHERE i.id IN :ids AND i.status = :pending")
+    int expirePending(@Param("ids") Collection<UUID> ids,
+                      @Param("now") Long now,
+                      @Param("expired") InviteStatus expired,
+                      @Param("pending") InviteStatus pending);
 }
@@ -0,0 +1,39 @@
+package com.example.challenge_service.repository;
+
+import com.example.challenge_service.model.ChallengeMembership;
+import com.example.challenge_service.model.ChallengeMembership.Role;
+import com.example.challenge_service.model.ChallengeMembership.State;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ChallengeMembershipRepository extends JpaRepository<ChallengeMembership, Long> {
+
+    Optional<ChallengeMembership> findByChallengeIdAndUserId(Long challengeId, String userId);
+
+    boolean existsByChallengeIdAndUserIdAndState(Long challengeId, String userId, State state);
+
+    long countByChallengeIdAndState(Long challengeId, State state);
+
+    List<ChallengeMembership> findByChallengeId(Long challengeId);
+
+    // "Desafios em que estou": o criador sempre vê o próprio desafio, os demais apenas enquanto ativos
+    @Query("SELECT m FROM ChallengeMembership m WHERE m.userId = :userId AND (m.role = :creator OR m.state = :active)")
+    List<ChallengeMembership> findVisibleByUserId(@Param("userId") String userId,
+                                                  @Param("creator") Role creator,
+                                                  @Param("active") State active);
+
+    default List<ChallengeMembership> findVisibleByUserId(String userId) {
+        return findVisibleByUserId(userId, Role.CREATOR, State.ACTIVE);
+    }
+
+    @Modifying
+    @Query("DELETE FROM ChallengeMembership m WHERE m.challengeId = :challengeId")
+    int deleteAllByChallengeId(@Param("challengeId") Long challengeId);
+}
@@ -1,9 +1,14 @@
 package com.example.challenge_service.repository;
 
 import com.example.challenge_service.model.Challenge;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -32,5 +37,62 @@ public interface ChallengeRepository extends JpaRepository<Challenge, Long> {
         nativeQuery = true
     )
     List<Challenge> findByParticipantsContaining(@org.springframework.data.repository.query.Param("userId") String userId);
-}
 
+    // Caminho de leitura para listagens: participants vem no mesmo SELECT (fetch join)
+    // e as demais coleções são carregadas em lote via @BatchSize, então o número de
+    // comandos não cresce com a quantidade de desafios do usuário.
+    @EntityGraph(attributePaths = "participants")
+    @Query("SELECT c FROM Challenge c WHERE c.creatorId = :userId OR c.acceptorId = :userId")
+    List<Challenge> findWithCollectionsByCreatorOrAcceptor(@Param("userId") String userId);
+
+    @EntityGraph(attributePaths = "participants")
+    @Query("SELECT c FROM Challenge c WHERE c.creatorId = :userId")
+    List<Challenge> findWithCollectionsByCreatorId(@Param("userId") String userId);
+
+    @EntityGraph(attributePaths = "participants")
+    @Query("SELECT c FROM Challenge c WHERE c.acceptorId = :userId")
+    List<Challenge> findWithCollectionsByAcceptorId(@Param("userId") String userId);
+
+    @EntityGraph(attributePaths = "participants")
+    @Query("SELECT c FROM Challenge c WHERE :userId MEMBER OF c.participants")
+    List<Challenge> findWithCollectionsByParticipant(@Param("userId") String userId);
+
+    @EntityGraph(attributePaths = "participants")
+    @Query("SELECT c FROM Challenge c WHERE c.id IN :ids")
+    List<Challenge> findWithCollectionsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Escritas pontuais nas coleções (uma linha por vez, sem apagar e regravar a coleção inteira).
+    // bumpVersion trava a linha do desafio até o fim da transação e invalida cópias carregadas antes.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE challenges SET version = version + 1 WHERE id = :id", nativeQuery = true)
+    int bumpVersion(@Param("id") Long id);
+
+    @Modifying(clearAutomatically = true)
+    @Query(value = "INSERT INTO challenge_participants (challenge_id, participant_id) " +
+            "SELECT c.id, :userId FROM challenges c WHERE c.id = :id AND NOT EXISTS " +
+            "(SELECT 1 FROM challenge_participants p WHERE p.challenge_id = :id AND p.participant_id = :userId)",
+            nativeQuery = true)
+    int addParticipant(@Param("id") Long id, @Param("userId") String userId);
+
+    @Modifying
+    @Query(value = "INSERT INTO challenge_paid_users (challenge_id, paid_user_id) " +
+            "SELECT c.id, :userId FROM challenges c WHERE c.id = :id AND NOT EXISTS " +
+            "(SELECT 1 FROM challenge_paid_users p WHERE p.challenge_id = :id AND p.paid_user_id = :userId)",
+            nativeQuery = true)
+    int addPaidUser(@Param("id") Long id, @Param("userId") String userId);
+
+    // Leitura direta da coleção, sem depender de sessão aberta (agendador, liquidação)
+    @Query(value = "SELECT paid_user_id FROM challenge_paid_users WHERE challenge_id = :id", nativeQuery = true)
+    List<String> findPaidUserIds(@Param("id") Long id);
+
+    @Modifying
+    @Query(value = "INSERT INTO challenge_finish_accepts (challenge_id, user_id) " +
+            "SELECT c.id, :userId FROM challenges c WHERE c.id = :id AND NOT EXISTS " +
+            "(SELECT 1 FROM challenge_finish_accepts f WHERE f.challenge_id = :id AND f.user_id = :userId)",
+            nativeQuery = true)
+    int addFinishAccept(@Param("id") Long id, @Param("userId") String userId);
+
+    @Modifying
+    @Query(value = "DELETE FROM challenge_finish_accepts WHERE challenge_id = :id", nativeQuery = true)
+    int clearFinishAccepts(@Param("id") Long id);
+}
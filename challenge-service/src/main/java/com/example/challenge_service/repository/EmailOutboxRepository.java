@@ -0,0 +1,20 @@
+package com.example.challenge_service.repository;
+
+import com.example.challenge_service.model.EmailOutbox;
+import com.example.challenge_service.model.EmailOutbox.Status;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    @Query("SELECT e FROM EmailOutbox e WHERE e.status = :status AND e.nextAttemptAt <= :now ORDER BY e.nextAttemptAt, e.id")
+    List<EmailOutbox> findDue(@Param("status") Status status, @Param("now") long now, Pageable pageable);
+
+    long countByStatus(Status status);
+}
@@ -0,0 +1,56 @@
+package com.example.challenge_service.repository;
+
+import com.example.challenge_service.model.ScheduledTask;
+import com.example.challenge_service.model.ScheduledTask.Kind;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ScheduledTaskRepository extends JpaRepository<ScheduledTask, Long> {
+
+    // Cria o prazo ou move o due_at do prazo já existente para o mesmo alvo
+    @Modifying
+    @Transactional
+    @Query(value = "MERGE INTO scheduled_tasks t " +
+            "USING (VALUES (:kind, :targetId, :dueAt, :now)) AS d(kind, target_id, due_at, created_at) " +
+            "ON t.kind = d.kind AND t.target_id = d.target_id " +
+            "WHEN MATCHED THEN UPDATE SET t.due_at = d.due_at " +
+            "WHEN NOT MATCHED THEN INSERT (kind, target_id, due_at, created_at) " +
+            "VALUES (d.kind, d.target_id, d.due_at, d.created_at)",
+            nativeQuery = true)
+    int upsert(@Param("kind") String kind,
+               @Param("targetId") String targetId,
+               @Param("dueAt") long dueAt,
+               @Param("now") long now);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ScheduledTask t WHERE t.kind = :kind AND t.targetId = :targetId")
+    int deleteByKindAndTargetId(@Param("kind") Kind kind, @Param("targetId") String targetId);
+
+    // Só apaga se o prazo não foi movido enquanto era tratado
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ScheduledTask t WHERE t.id = :id AND t.dueAt = :dueAt")
+    int deleteHandled(@Param("id") Long id, @Param("dueAt") Long dueAt);
+
+    // Prazos de fato vencidos entre os que a roda disparou (os reagendados para depois ficam de fora)
+    List<ScheduledTask> findByKindAndTargetIdInAndDueAtLessThanEqual(Kind kind, Collection<String> targetIds, Long now);
+
+    // Nova fatia da janela carregada em memória + vencidos antigos que não foram concluídos
+    @Query("SELECT t FROM ScheduledTask t WHERE t.dueAt <= :until " +
+            "AND (t.dueAt > :loadedUntil OR t.dueAt <= :staleBefore) ORDER BY t.dueAt")
+    List<ScheduledTask> findWindow(@Param("loadedUntil") long loadedUntil,
+                                   @Param("until") long until,
+                                   @Param("staleBefore") long staleBefore);
+
+    @Query("SELECT MIN(t.dueAt) FROM ScheduledTask t")
+    Long findOldestDueAt();
+}
@@ -0,0 +1,36 @@
+package com.example.challenge_service.repository;
+
+import com.example.challenge_service.model.UserChallengeStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UserChallengeStatsRepository extends JpaRepository<UserChallengeStats, String> {
+
+    // Soma o delta na linha do usuário (cria a linha se ainda não existir) em um único comando
+    @Modifying
+    @Query(value = "MERGE INTO user_challenge_stats s " +
+            "USING (VALUES (:userId, :participated, :active, :completed, :won, :totalSpent, :now)) " +
+            "AS d(user_id, participated, active, completed, won, total_spent, updated_at) " +
+            "ON s.user_id = d.user_id " +
+            "WHEN MATCHED THEN UPDATE SET " +
+            "s.participated = s.participated + d.participated, " +
+            "s.active = s.active + d.active, " +
+            "s.completed = s.completed + d.completed, " +
+            "s.won = s.won + d.won, " +
+            "s.total_spent = s.total_spent + d.total_spent, " +
+            "s.updated_at = d.updated_at " +
+            "WHEN NOT MATCHED THEN INSERT (user_id, participated, active, completed, won, total_spent, updated_at) " +
+            "VALUES (d.user_id, d.participated, d.active, d.completed, d.won, d.total_spent, d.updated_at)",
+            nativeQuery = true)
+    int applyDelta(@Param("userId") String userId,
+                   @Param("participated") long participated,
+                   @Param("active") long active,
+                   @Param("completed") long completed,
+                   @Param("won") long won,
+                   @Param("totalSpent") double totalSpent,
+                   @Param("now") long now);
+}
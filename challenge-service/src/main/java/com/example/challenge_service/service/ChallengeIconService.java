@@ -0,0 +1,207 @@
+package com.example.challenge_service.service;
+
+import com.example.challenge_service.model.ChallengeIcon;
+import com.example.challenge_service.repository.ChallengeIconRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+// Converte o ícone enviado como data URL (base64) em imagem reduzida, grava uma única vez
+// por conteúdo (SHA-256) e devolve a URL curta que vai no payload do desafio.
+@Service
+public class ChallengeIconService {
+
+    public static final String ICON_URL_PREFIX = "/api/challenges/icons/";
+    public static final int MAX_DIMENSION = 256;
+    public static final int MAX_UPLOAD_BYTES = 1024 * 1024; // o front limita em 700KB
+    // largura x altura declaradas no cabeçalho: 1MB comprimido pode declarar dezenas de milhares de pixels por lado
+    public static final long MAX_SOURCE_PIXELS = 4096L * 4096L;
+
+    private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+    private static final float JPEG_QUALITY = 0.85f;
+
+    private final ChallengeIconRepository iconRepository;
+
+    public ChallengeIconService(ChallengeIconRepository iconRepository) {
+        this.iconRepository = iconRepository;
+    }
+
+    // null/vazio remove o ícone; URL já convertida é mantida; data URL é convertida e gravada
+    public String toIconUrl(String icon) {
+        if (icon == null || icon.isBlank()) {
+            return null;
+        }
+        String value = icon.trim();
+        if (value.startsWith(ICON_URL_PREFIX) && isValidHash(value.substring(ICON_URL_PREFIX.length()))) {
+            return value;
+        }
+        return ICON_URL_PREFIX + store(value);
+    }
+
+    public Optional<ChallengeIcon> find(String hash) {
+        if (!isValidHash(hash)) {
+            return Optional.empty();
+        }
+        return iconRepository.findById(hash);
+    }
+
+    public static boolean isValidHash(String hash) {
+        return hash != null && HASH_PATTERN.matcher(hash).matches();
+    }
+
+    private String store(String dataUrl) {
+        byte[] original = decodeDataUrl(dataUrl);
+        BufferedImage image;
+        try {
+            image = decode(original);
+        } catch (IOException e) {
+            image = null;
+        }
+        if (image == null) {
+            throw new IllegalArgumentException("Ícone deve ser uma imagem PNG ou JPEG válida");
+        }
+
+        BufferedImage scaled = downscale(image);
+        boolean alpha = scaled.getColorModel().hasAlpha();
+        byte[] encoded = alpha ? encodePng(scaled) : encodeJpeg(scaled);
+        String hash = sha256(encoded);
+
+        if (!iconRepository.existsById(hash)) {
+            ChallengeIcon entity = new ChallengeIcon();
+            entity.setHash(hash);
+            entity.setContentType(alpha ? "image/png" : "image/jpeg");
+            entity.setData(encoded);
+            entity.setWidth(scaled.getWidth());
+            entity.setHeight(scaled.getHeight());
+            entity.setCreatedAt(System.currentTimeMillis());
+            try {
+                iconRepository.save(entity);
+            } catch (DataIntegrityViolationException e) {
+                // outro pedido gravou o mesmo conteúdo ao mesmo tempo: mesmo hash, mesmo resultado
+            }
+        }
+        return hash;
+    }
+
+    private byte[] decodeDataUrl(String dataUrl) {
+        if (!dataUrl.startsWith("data:image/")) {
+            throw new IllegalArgumentException("Ícone deve ser uma imagem válida");
+        }
+        int comma = dataUrl.indexOf(',');
+        if (comma < 0 || !dataUrl.substring(0, comma).endsWith(";base64")) {
+            throw new IllegalArgumentException("Ícone deve estar em base64");
+        }
+        // estimativa antes de decodificar para não alocar imagens gigantes
+        if ((long) (dataUrl.length() - comma - 1) * 3 / 4 > MAX_UPLOAD_BYTES) {
+            throw new IllegalArgumentException("Ícone deve ter no máximo " + (MAX_UPLOAD_BYTES / 1024) + "KB");
+        }
+        try {
+            return Base64.getMimeDecoder().decode(dataUrl.substring(comma + 1));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Ícone com base64 inválido");
+        }
+    }
+
+    // Lê as dimensões antes de decodificar: imagem acima de MAX_SOURCE_PIXELS é recusada sem alocar
+    // os pixels; as demais já saem subamostradas para perto do tamanho final
+    private static BufferedImage decode(byte[] data) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(data))) {
+            if (input == null) return null;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > MAX_SOURCE_PIXELS) {
+                    throw new IllegalArgumentException("Ícone deve ter no máximo 4096x4096 pixels");
+                }
+                int step = Math.max(1, Math.min(width, height) / (MAX_DIMENSION * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage downscale(BufferedImage source) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double ratio = Math.min(1.0, (double) MAX_DIMENSION / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(height * ratio));
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage target = new BufferedImage(targetWidth, targetHeight, type);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.drawImage(source, 0, 0, targetWidth, targetHeight, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encodePng(BufferedImage image) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao gerar ícone: " + e.getMessage(), e);
+        }
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream();
+             ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.write(null, new IIOImage(image, null, null), param);
+            ios.flush();
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Falha ao gerar ícone: " + e.getMessage(), e);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.challenge_service.service;
+
+import com.example.challenge_service.model.Challenge;
+import com.example.challenge_service.model.ChallengeInvite;
+import com.example.challenge_service.model.ChallengeInvite.InviteStatus;
+import com.example.challenge_service.model.EmailOutbox;
+import com.example.challenge_service.model.ScheduledTask;
+import com.example.challenge_service.repository.ChallengeInviteRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Locale;
+
+// Criação de convite: o convite, o e-mail na outbox e o prazo de expiração são gravados
+// na mesma transação; nenhuma chamada externa acontece durante a requisição.
+@Service
+public class ChallengeInviteService {
+
+    private final ChallengeInviteRepository inviteRepository;
+    private final EmailOutboxService outboxService;
+    private final DeadlineScheduler deadlineScheduler;
+    private final ChallengeLifecycleService lifecycleService;
+
+    public ChallengeInviteService(ChallengeInviteRepository inviteRepository,
+                                  EmailOutboxService outboxService,
+                                  DeadlineScheduler deadlineScheduler,
+                                  ChallengeLifecycleService lifecycleService) {
+        this.inviteRepository = inviteRepository;
+        this.outboxService = outboxService;
+        this.deadlineScheduler = deadlineScheduler;
+        this.lifecycleService = lifecycleService;
+    }
+
+    @Transactional
+    public ChallengeInvite invite(Challenge challenge, String inviterId, String inviteeId) {
+        ChallengeInvite invite = new ChallengeInvite();
+        invite.setChallengeId(challenge.getId());
+        invite.setInviteeId(inviteeId);
+        invite.setInviterId(inviterId);
+        invite.setStatus(InviteStatus.PENDING);
+        invite.setCreatedAt(System.currentTimeMillis());
+        inviteRepository.save(invite);
+
+        String desc = challenge.getDescription() != null ? challenge.getDescription() : "(sem descrição)";
+        double amount = challenge.getAmount() != null ? challenge.getAmount() : 0.0;
+        String body =
+                "Olá!\n\n" +
+                "Você recebeu um convite para participar do desafio:\n" +
+                desc + "\n\n" +
+                "Valor da aposta: R$ " + String.format(Locale.US, "%.2f", amount) + "\n" +
+                "Convidado por: " + EmailOutbox.SENDER_PLACEHOLDER + "\n\n" +
+                "Acesse sua área de convites para aceitar.\n\n" +
+                "Sistema Eu-Duvido";
+        outboxService.enqueue(EmailOutboxService.TYPE_CHALLENGE_INVITE, invite.getId().toString(),
+                inviteeId, inviterId, "Você foi convidado para um desafio no Eu-Duvido", body);
+
+        deadlineScheduler.schedule(ScheduledTask.Kind.INVITE_EXPIRY, invite.getId().toString(),
+                lifecycleService.inviteExpiresAt(invite.getCreatedAt()));
+        return invite;
+    }
+}
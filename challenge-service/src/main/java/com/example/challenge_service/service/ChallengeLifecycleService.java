@@ -0,0 +1,260 @@
+package com.example.challenge_service.service;
+
+import com.example.challenge_service.model.Challenge;
+import com.example.challenge_service.model.ChallengeInvite;
+import com.example.challenge_service.model.ChallengeInvite.InviteStatus;
+import com.example.challenge_service.model.ScheduledTask.Kind;
+import com.example.challenge_service.repository.ChallengeInviteRepository;
+import com.example.challenge_service.repository.ChallengeRepository;
+import com.example.challenge_service.repository.ScheduledTaskRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+// Transições disparadas por prazo (DeadlineScheduler): fim do desafio, expiração de convite,
+// expiração do pedido de encerramento e nova tentativa de liquidação. Cada tratamento confere
+// de novo o estado atual, então disparos repetidos ou atrasados não têm efeito.
+@Slf4j
+@Service
+public class ChallengeLifecycleService {
+
+    public static final long DAY_MILLIS = 24L * 60L * 60L * 1000L;
+    public static final long FINISH_REQUEST_WINDOW_MILLIS = DAY_MILLIS;
+    public static final long SETTLEMENT_RETRY_MILLIS = 60_000L;
+
+    private final ChallengeRepository challengeRepository;
+    private final ChallengeInviteRepository inviteRepository;
+    private final ChallengeParticipationService participationService;
+    private final DashboardCache dashboardCache;
+    private final long inviteTtlMillis;
+    private final DownstreamClients downstreamClients;
+    private final WalletHolds walletHolds;
+    private final ScheduledTaskRepository taskRepository;
+    private final String proofInternalApiKey;
+
+    public ChallengeLifecycleService(ChallengeRepository challengeRepository,
+                                     ChallengeInviteRepository inviteRepository,
+                                     ChallengeParticipationService participationService,
+                                     DashboardCache dashboardCache,
+                                     DownstreamClients downstreamClients,
+                                     WalletHolds walletHolds,
+                                     ScheduledTaskRepository taskRepository,
+                                     @Value("${challenge.invites.ttl:7d}") Duration inviteTtl,
+                                     @Value("${proof.internal.api-key}") String proofInternalApiKey) {
+        this.challengeRepository = challengeRepository;
+        this.inviteRepository = inviteRepository;
+        this.participationService = participationService;
+        this.dashboardCache = dashboardCache;
+        this.downstreamClients = downstreamClients;
+        this.walletHolds = walletHolds;
+        this.taskRepository = taskRepository;
+        this.inviteTtlMillis = inviteTtl.toMillis();
+        this.proofInternalApiKey = proofInternalApiKey;
+    }
+
+    // endDate = início + duração em dias (null se o desafio não tem duração definida)
+    public Long endDateFor(Challenge challenge) {
+        if (challenge.getStartDate() == null || challenge.getDuration() == null || challenge.getDuration() <= 0) {
+            return null;
+        }
+        return challenge.getStartDate() + challenge.getDuration() * DAY_MILLIS;
+    }
+
+    public long inviteExpiresAt(long createdAt) {
+        return createdAt + inviteTtlMillis;
+    }
+
+    public long inviteTtlMillis() {
+        return inviteTtlMillis;
+    }
+
+    public long finishRequestExpiresAt(long requestedAt) {
+        return requestedAt + FINISH_REQUEST_WINDOW_MILLIS;
+    }
+
+    // Devolve os alvos tratados (inclusive os que não precisavam de nada); falhas ficam de fora para nova tentativa
+    public Set<String> handle(Kind kind, List<String> targetIds, long now) {
+        return switch (kind) {
+            case CHALLENGE_END -> completeEnded(targetIds, now);
+            case INVITE_EXPIRY -> expireInvites(targetIds, now);
+            case FINISH_REQUEST_EXPIRY -> expireFinishRequests(targetIds, now);
+            case SETTLEMENT -> retrySettlements(targetIds);
+        };
+    }
+
+    // Liquidação (prêmio, custódias, taxa) numa única chamada ao wallet-service logo após concluir.
+    // Se falhar, fica um prazo SETTLEMENT e o agendador repete (a liquidação é idempotente).
+    // Os pagantes são lidos do banco: funciona também fora de requisição (agendador).
+    public void settleOrRetry(Challenge challenge, String winnerId) {
+        if (!settle(challenge, winnerId)) {
+            long now = System.currentTimeMillis();
+            taskRepository.upsert(Kind.SETTLEMENT.name(), String.valueOf(challenge.getId()), now + SETTLEMENT_RETRY_MILLIS, now);
+        }
+    }
+
+    // false = não liquidado (wallet-service fora ou erro local): fica para nova tentativa
+    private boolean settle(Challenge challenge, String winnerId) {
+        try {
+            double feePercent = challenge.getParticipationFeePercent() != null ? challenge.getParticipationFeePercent() : 15.0;
+            double stake = challenge.getAmount() != null ? challenge.getAmount() : 0.0;
+            List<String> paid = new ArrayList<>(challengeRepository.findPaidUserIds(challenge.getId()));
+            return walletHolds.settle(challenge.getId(), winnerId, feePercent, stake, paid);
+        } catch (Exception e) {
+            log.warn("Falha ao preparar liquidação do desafio {}: {}", challenge.getId(), e.getMessage());
+            return false;
+        }
+    }
+
+    // Vencedor = quem tem mais provas válidas (proof-service); null se o cálculo falhar
+    public String fetchWinner(Long challengeId, String authHeader) {
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            if (authHeader != null) headers.set("Authorization", authHeader);
+            HttpEntity<Void> req = new HttpEntity<>(headers);
+            ResponseEntity<Map<String, Object>> resp = downstreamClients.client(DownstreamClients.PROOF).exchange(
+                    "winner", "/api/proofs/challenge/{challengeId}/winner", HttpMethod.GET, req,
+                    new ParameterizedTypeReference<Map<String, Object>>() {}, challengeId);
+            if (resp.getStatusCode().is2xxSuccessful() && resp.getBody() != null) {
+                Object winnerObj = resp.getBody().get("winnerId");
+                if (winnerObj != null) {
+                    return String.valueOf(winnerObj);
+                }
+            }
+        } catch (Exception ex) {
+            // Se falhar, apenas loga e segue sem vencedor
+            log.warn("[ENCERRAMENTO] Falha ao calcular vencedor do desafio {}: {}", challengeId, ex.getMessage());
+        }
+        return null;
+    }
+
+    // Desafio concluído: proof-service tira o ranking ao vivo da memória. Falha só deixa o placar
+    // ocupando memória até sair pelo limite de placares de lá.
+    public void closeLeaderboard(Long challengeId) {
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set("X-Internal-Api-Key", proofInternalApiKey);
+            downstreamClients.client(DownstreamClients.PROOF).exchange(
+                    "leaderboard-close", "/api/proofs/challenge/{challengeId}/leaderboard", HttpMethod.DELETE,
+                    new HttpEntity<>(headers), new ParameterizedTypeReference<Void>() {}, challengeId);
+        } catch (Exception ex) {
+            log.warn("[ENCERRAMENTO] Falha ao liberar ranking do desafio {}: {}", challengeId, ex.getMessage());
+        }
+    }
+
+    private Set<String> completeEnded(List<String> targetIds, long now) {
+        Set<String> handled = new HashSet<>();
+        for (Challenge challenge : loadChallenges(targetIds, handled)) {
+            String target = String.valueOf(challenge.getId());
+            try {
+                if ("IN_PROGRESS".equals(challenge.getStatus())
+                        && challenge.getEndDate() != null && challenge.getEndDate() <= now) {
+                    Long challengeId = challenge.getId();
+                    Set<String> members = dashboardCache.membersOf(challenge);
+                    String winnerId = fetchWinner(challengeId, null);
+                    Challenge completed = participationService.withRetry(() -> participationService.complete(challengeId, winnerId));
+                    settleOrRetry(completed, completed.getWinnerId());
+                    closeLeaderboard(challengeId);
+                    dashboardCache.invalidateAll(members);
+                    log.info("Desafio {} encerrado automaticamente (vencedor: {})", challengeId, completed.getWinnerId());
+                }
+                handled.add(target);
+            } catch (Exception e) {
+                log.warn("Falha ao encerrar desafio {} no prazo: {}", target, e.getMessage());
+            }
+        }
+        return handled;
+    }
+
+    // Um único UPDATE para o lote inteiro
+    private Set<String> expireInvites(List<String> targetIds, long now) {
+        List<UUID> ids = new ArrayList<>(targetIds.size());
+        for (String target : targetIds) {
+            try {
+                ids.add(UUID.fromString(target));
+            } catch (IllegalArgumentException ignored) {
+                // alvo inválido: nada a expirar
+            }
+        }
+        Set<String> invitees = new HashSet<>();
+        for (ChallengeInvite invite : inviteRepository.findAllById(ids)) {
+            if (invite.getStatus() == InviteStatus.PENDING) invitees.add(invite.getInviteeId());
+        }
+        int expired = ids.isEmpty() ? 0 : inviteRepository.expirePending(ids, now, InviteStatus.EXPIRED, InviteStatus.PENDING);
+        dashboardCache.invalidateAll(invitees);
+        if (expired > 0) {
+            log.info("{} convite(s) expirado(s)", expired);
+        }
+        return new HashSet<>(targetIds);
+    }
+
+    private Set<String> expireFinishRequests(List<String> targetIds, long now) {
+        Set<String> handled = new HashSet<>();
+        for (Challenge challenge : loadChallenges(targetIds, handled)) {
+            String target = String.valueOf(challenge.getId());
+            try {
+                if (Boolean.TRUE.equals(challenge.getFinishRequestActive()) && challenge.getFinishRequestAt() != null
+                        && finishRequestExpiresAt(challenge.getFinishRequestAt()) <= now) {
+                    Long challengeId = challenge.getId();
+                    Set<String> members = dashboardCache.membersOf(challenge);
+                    participationService.withRetry(() -> participationService.rejectFinish(challengeId));
+                    dashboardCache.invalidateAll(members);
+                }
+                handled.add(target);
+            } catch (Exception e) {
+                log.warn("Falha ao expirar pedido de encerramento do desafio {}: {}", target, e.getMessage());
+            }
+        }
+        return handled;
+    }
+
+    private Set<String> retrySettlements(List<String> targetIds) {
+        Set<String> handled = new HashSet<>();
+        for (Challenge challenge : loadChallenges(targetIds, handled)) {
+            String target = String.valueOf(challenge.getId());
+            try {
+                if (!"COMPLETED".equals(challenge.getStatus()) || settle(challenge, challenge.getWinnerId())) {
+                    handled.add(target);
+                }
+            } catch (Exception e) {
+                // um desafio com erro não derruba o lote: os demais seguem, ele volta no próximo disparo
+                log.warn("Falha ao repetir liquidação do desafio {}: {}", target, e.getMessage());
+            }
+        }
+        return handled;
+    }
+
+    // Carrega os desafios do lote; ids inválidos ou de desafios já apagados não têm o que tratar
+    private List<Challenge> loadChallenges(List<String> targetIds, Set<String> handled) {
+        List<Long> ids = new ArrayList<>(targetIds.size());
+        for (String target : targetIds) {
+            try {
+                ids.add(Long.parseLong(target));
+            } catch (NumberFormatException e) {
+                handled.add(target);
+            }
+        }
+        // participantes já carregados: o scheduler roda fora de requisição (sem open-in-view)
+        List<Challenge> challenges = ids.isEmpty() ? List.of() : challengeRepository.findWithCollectionsByIdIn(ids);
+        Set<Long> found = new HashSet<>();
+        for (Challenge challenge : challenges) {
+            found.add(challenge.getId());
+        }
+        for (Long id : ids) {
+            if (!found.contains(id)) handled.add(String.valueOf(id));
+        }
+        return challenges;
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.challenge_service.service;
+
+import com.example.challenge_service.model.Challenge;
+import com.example.challenge_service.model.ChallengeMembership.Role;
+import com.example.challenge_service.model.ChallengeMembership.State;
+import com.example.challenge_service.repository.ChallengeRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Listagem paginada por cursor (keyset) sobre (createdAt DESC, id DESC), com createdAt nulo
+// (desafios antigos) tratado como 0. A ordenação e o corte acontecem no banco; só a página
+// pedida é carregada como entidade.
+@Service
+public class ChallengeListingService {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ChallengeRepository challengeRepository;
+
+    public ChallengeListingService(ChallengeRepository challengeRepository) {
+        this.challengeRepository = challengeRepository;
+    }
+
+    public enum RoleFilter {
+        ALL,
+        CREATED,
+        INVITED;
+
+        public static RoleFilter parse(String value) {
+            if (value == null || value.isBlank()) return ALL;
+            try {
+                return RoleFilter.valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Filtro de papel inválido: " + value + " (use created ou invited)");
+            }
+        }
+    }
+
+    public record Page(List<Challenge> items, Map<Long, Role> roles, String nextCursor, boolean hasMore) {}
+
+    public record Totals(long created, long invited) {
+        public long total() {
+            return created + invited;
+        }
+    }
+
+    public static int clampLimit(Integer limit) {
+        if (limit == null || limit <= 0) return DEFAULT_PAGE_SIZE;
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    @Transactional(readOnly = true)
+    public Page page(String userId, RoleFilter role, String status, ChallengeCursor cursor, int limit) {
+        StringBuilder jpql = new StringBuilder(
+                "SELECT c.id, COALESCE(c.createdAt, 0), m.role FROM ChallengeMembership m JOIN Challenge c ON c.id = m.challengeId " +
+                "WHERE m.userId = :userId AND (m.role = :creator OR m.state = :active)");
+        appendFilters(jpql, role, status);
+        if (cursor != null) {
+            jpql.append(" AND (COALESCE(c.createdAt, 0) < :cursorCreatedAt " +
+                    "OR (COALESCE(c.createdAt, 0) = :cursorCreatedAt AND c.id < :cursorId))");
+        }
+        jpql.append(" ORDER BY COALESCE(c.createdAt, 0) DESC, c.id DESC");
+
+        TypedQuery<Object[]> query = entityManager.createQuery(jpql.toString(), Object[].class);
+        bindFilters(query, userId, status);
+        if (cursor != null) {
+            query.setParameter("cursorCreatedAt", cursor.createdAt());
+            query.setParameter("cursorId", cursor.id());
+        }
+        // um a mais para saber se existe próxima página sem precisar de COUNT
+        List<Object[]> rows = query.setMaxResults(limit + 1).getResultList();
+
+        boolean hasMore = rows.size() > limit;
+        if (hasMore) {
+            rows = rows.subList(0, limit);
+        }
+        if (rows.isEmpty()) {
+            return new Page(List.of(), Map.of(), null, false);
+        }
+
+        List<Long> ids = new ArrayList<>(rows.size());
+        Map<Long, Role> roles = new HashMap<>();
+        for (Object[] row : rows) {
+            Long id = (Long) row[0];
+            ids.add(id);
+            roles.put(id, (Role) row[2]);
+        }
+        Map<Long, Challenge> byId = new HashMap<>();
+        for (Challenge challenge : challengeRepository.findWithCollectionsByIdIn(ids)) {
+            byId.put(challenge.getId(), challenge);
+        }
+        List<Challenge> items = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Challenge challenge = byId.get(id);
+            if (challenge != null) items.add(challenge);
+        }
+
+        Object[] last = rows.get(rows.size() - 1);
+        String nextCursor = hasMore ? new ChallengeCursor(((Number) last[1]).longValue(), (Long) last[0]).encode() : null;
+        return new Page(items, roles, nextCursor, hasMore);
+    }
+
+    // Contagens por papel direto do índice de participação (join em challenges só se houver filtro de status)
+    @Transactional(readOnly = true)
+    public Totals totals(String userId, String status) {
+        StringBuilder jpql = new StringBuilder("SELECT m.role, COUNT(m) FROM ChallengeMembership m");
+        if (status != null) {
+            jpql.append(" JOIN Challenge c ON c.id = m.challengeId");
+        }
+        jpql.append(" WHERE m.userId = :userId AND (m.role = :creator OR m.state = :active)");
+        appendFilters(jpql, RoleFilter.ALL, status);
+        jpql.append(" GROUP BY m.role");
+
+        TypedQuery<Object[]> query = entityManager.createQuery(jpql.toString(), Object[].class);
+        bindFilters(query, userId, status);
+        long created = 0;
+        long invited = 0;
+        for (Object[] row : query.getResultList()) {
+            long count = ((Number) row[1]).longValue();
+            if (row[0] == Role.CREATOR) created += count;
+            else invited += count;
+        }
+        return new Totals(created, invited);
+    }
+
+    private void appendFilters(StringBuilder jpql, RoleFilter role, String status) {
+        if (role == RoleFilter.CREATED) {
+            jpql.append(" AND m.role = :creator");
+        } else if (role == RoleFilter.INVITED) {
+            jpql.append(" AND m.role <> :creator");
+        }
+        if (status != null) {
+            jpql.append(" AND c.status = :status");
+        }
+    }
+
+    private void bindFilters(TypedQuery<Object[]> query, String userId, String status) {
+        query.setParameter("userId", userId);
+        query.setParameter("creator", Role.CREATOR);
+        query.setParameter("active", State.ACTIVE);
+        if (status != null) {
+            query.setParameter("status", status);
+        }
+    }
+}
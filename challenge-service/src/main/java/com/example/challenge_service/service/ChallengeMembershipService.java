@@ -0,0 +1,104 @@
+package com.example.challenge_service.service;
+
+import com.example.challenge_service.model.Challenge;
+import com.example.challenge_service.model.ChallengeMembership;
+import com.example.challenge_service.model.ChallengeMembership.Role;
+import com.example.challenge_service.model.ChallengeMembership.State;
+import com.example.challenge_service.repository.ChallengeMembershipRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Objects;
+
+// Índice de participação (challenge_membership): evita varrer as listas de participantes
+// do desafio para responder "em quais desafios estou" e "este usuário participa?".
+@Service
+public class ChallengeMembershipService {
+
+    private final ChallengeMembershipRepository membershipRepository;
+
+    public ChallengeMembershipService(ChallengeMembershipRepository membershipRepository) {
+        this.membershipRepository = membershipRepository;
+    }
+
+    @Transactional
+    public void recordCreator(Challenge challenge) {
+        State state = Boolean.TRUE.equals(challenge.getCreatorParticipates()) ? State.ACTIVE : State.NOT_PARTICIPATING;
+        ChallengeMembership membership = membershipRepository
+                .findByChallengeIdAndUserId(challenge.getId(), challenge.getCreatorId())
+                .orElseGet(() -> new ChallengeMembership(challenge.getId(), challenge.getCreatorId(), Role.CREATOR, state));
+        membership.setRole(Role.CREATOR);
+        membership.setState(state);
+        membershipRepository.save(membership);
+    }
+
+    @Transactional
+    public void recordJoin(Long challengeId, String userId, Role role) {
+        ChallengeMembership membership = membershipRepository.findByChallengeIdAndUserId(challengeId, userId).orElse(null);
+        if (membership == null) {
+            membershipRepository.save(new ChallengeMembership(challengeId, userId, role, State.ACTIVE));
+            return;
+        }
+        // criador que entra pelo link continua como criador, apenas volta a participar
+        if (membership.getRole() != Role.CREATOR) {
+            membership.setRole(role);
+        }
+        if (membership.getState() != State.ACTIVE) {
+            membership.setState(State.ACTIVE);
+            membership.setJoinedAt(System.currentTimeMillis());
+        }
+        membershipRepository.save(membership);
+    }
+
+    @Transactional
+    public void recordExit(Long challengeId, String userId, State state) {
+        membershipRepository.findByChallengeIdAndUserId(challengeId, userId).ifPresent(membership -> {
+            membership.setState(state);
+            membershipRepository.save(membership);
+        });
+    }
+
+    @Transactional
+    public void removeChallenge(Long challengeId) {
+        membershipRepository.deleteAllByChallengeId(challengeId);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ChallengeMembership> findVisibleMemberships(String userId) {
+        return membershipRepository.findVisibleByUserId(userId);
+    }
+
+    @Transactional(readOnly = true)
+    public boolean isActiveMember(Long challengeId, String userId) {
+        if (challengeId == null || userId == null) return false;
+        return membershipRepository.existsByChallengeIdAndUserIdAndState(challengeId, userId, State.ACTIVE);
+    }
+
+    @Transactional(readOnly = true)
+    public long countActiveMembers(Long challengeId) {
+        return membershipRepository.countByChallengeIdAndState(challengeId, State.ACTIVE);
+    }
+
+    // Mesmas regras de Challenge.isInviteLimitReached, sem carregar a lista de participantes
+    public boolean isInviteLimitReached(Challenge challenge) {
+        if (challenge.getMaxParticipants() == null) {
+            return false;
+        }
+        return countActiveMembers(challenge.getId()) >= challenge.getMaxParticipants();
+    }
+
+    // Mesmas regras de Challenge.canUserInvite, sem carregar a lista de participantes
+    public boolean canInvite(Challenge challenge, String userId) {
+        if (isInviteLimitReached(challenge)) {
+            return false;
+        }
+        boolean isCreator = Objects.equals(challenge.getCreatorId(), userId);
+        if ("CREATOR_ONLY".equals(challenge.getInvitePermission())) {
+            return isCreator;
+        } else if ("ALL_PARTICIPANTS".equals(challenge.getInvitePermission())) {
+            return isCreator || isActiveMember(challenge.getId(), userId);
+        }
+        return false;
+    }
+}
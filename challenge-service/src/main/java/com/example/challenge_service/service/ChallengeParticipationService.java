@@ -0,0 +1,241 @@
+package com.example.challenge_service.service;
+
+import com.example.challenge_service.model.Challenge;
+import com.example.challenge_service.model.ChallengeMembership.Role;
+import com.example.challenge_service.model.ChallengeMembership.State;
+import com.example.challenge_service.repository.ChallengeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+// Caminho de escrita concorrente de entrada/aceite/pagamento/saída/encerramento.
+// Cada operação começa incrementando a versão do desafio (trava a linha até o commit),
+// grava só as linhas alteradas nas coleções e recarrega o desafio atualizado.
+// Quem salvar uma cópia antiga do desafio recebe conflito de versão em vez de apagar as entradas novas.
+@Slf4j
+@Service
+public class ChallengeParticipationService {
+
+    public static final int MAX_ATTEMPTS = 5;
+    private static final long BASE_BACKOFF_MILLIS = 10;
+
+    private final ChallengeRepository challengeRepository;
+    private final ChallengeMembershipService membershipService;
+    private final UserChallengeStatsService statsService;
+
+    public ChallengeParticipationService(ChallengeRepository challengeRepository,
+                                         ChallengeMembershipService membershipService,
+                                         UserChallengeStatsService statsService) {
+        this.challengeRepository = challengeRepository;
+        this.membershipService = membershipService;
+        this.statsService = statsService;
+    }
+
+    public record AcceptResult(Challenge challenge, String previousAcceptor) {}
+
+    // hadPaid = usuário constava como pago antes de sair; cancelled = saída deixou o desafio sem participantes
+    public record ExitResult(Challenge challenge, boolean hadPaid, boolean cancelled) {}
+
+    // Repete a operação (cada tentativa em transação própria) em caso de conflito de versão
+    // ou espera de lock esgotada, com backoff exponencial e jitter. Desiste após MAX_ATTEMPTS.
+    public <T> T withRetry(Supplier<T> operation) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return operation.get();
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+                log.debug("Conflito de concorrência (tentativa {}/{}): {}", attempt, MAX_ATTEMPTS, e.getMessage());
+                long backoff = BASE_BACKOFF_MILLIS << (attempt - 1);
+                try {
+                    Thread.sleep(backoff + ThreadLocalRandom.current().nextLong(backoff));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // Desafio novo e a linha do criador em challenge_membership: ou os dois ou nenhum
+    @Transactional
+    public Challenge create(Challenge challenge) {
+        Challenge saved = statsService.save(challenge, null);
+        membershipService.recordCreator(saved);
+        return saved;
+    }
+
+    @Transactional
+    public void discard(Long challengeId, UserChallengeStatsService.Snapshot before) {
+        statsService.delete(challengeId, before);
+        membershipService.removeChallenge(challengeId);
+    }
+
+
+    @Transactional
+    public Challenge join(Long challengeId, String userId) {
+        lock(challengeId);
+        UserChallengeStatsService.Snapshot before = UserChallengeStatsService.Snapshot.of(reload(challengeId));
+        challengeRepository.addParticipant(challengeId, userId);
+        membershipService.recordJoin(challengeId, userId, Role.PARTICIPANT);
+        Challenge joined = reload(challengeId);
+        statsService.record(before, UserChallengeStatsService.Snapshot.of(joined));
+        return joined;
+    }
+
+    @Transactional
+    public AcceptResult accept(Long challengeId, String userId) {
+        lock(challengeId);
+        Challenge challenge = reload(challengeId);
+        UserChallengeStatsService.Snapshot before = UserChallengeStatsService.Snapshot.of(challenge);
+        String previousAcceptor = challenge.getAcceptorId();
+        challenge.setAcceptorId(userId);
+        challenge.setStatus("NOT_STARTED"); // aguarda início manual do criador
+        Challenge saved = statsService.save(challenge, before);
+        if (previousAcceptor != null && !previousAcceptor.equals(userId)) {
+            membershipService.recordExit(challengeId, previousAcceptor, State.RESIGNED);
+        }
+        membershipService.recordJoin(challengeId, userId, Role.ACCEPTOR);
+        return new AcceptResult(saved, previousAcceptor);
+    }
+
+    // Retorna null se o usuário já constava como pago (pagamento concorrente duplicado)
+    @Transactional
+    public Challenge markPaid(Long challengeId, String userId) {
+        lock(challengeId);
+        if (challengeRepository.addPaidUser(challengeId, userId) == 0) {
+            return null;
+        }
+        Challenge challenge = reload(challengeId);
+        UserChallengeStatsService.Snapshot before = UserChallengeStatsService.Snapshot.of(challenge);
+        // criador pagando o próprio desafio
+        if ("AWAITING_PAYMENT".equals(challenge.getStatus())) {
+            challenge.setPaid(true);
+            challenge.setStatus("NOT_STARTED");
+        }
+        if (challenge.getParticipationFeePercent() == null) {
+            challenge.setParticipationFeePercent(15.0);
+        }
+        return statsService.save(challenge, before);
+    }
+
+    // Remoção pelo criador: só antes de iniciar
+    @Transactional
+    public ExitResult kick(Long challengeId, String userId) {
+        lock(challengeId);
+        Challenge challenge = reload(challengeId);
+        if (!"NOT_STARTED".equals(challenge.getStatus())) {
+            throw new IllegalStateException("Só antes de iniciar");
+        }
+        UserChallengeStatsService.Snapshot before = UserChallengeStatsService.Snapshot.of(challenge);
+        boolean hadPaid = removeUser(challenge, userId);
+        Challenge saved = statsService.save(challenge, before);
+        membershipService.recordExit(challengeId, userId, State.KICKED);
+        return new ExitResult(saved, hadPaid, false);
+    }
+
+    @Transactional
+    public ExitResult ban(Long challengeId, String userId) {
+        lock(challengeId);
+        Challenge challenge = reload(challengeId);
+        UserChallengeStatsService.Snapshot before = UserChallengeStatsService.Snapshot.of(challenge);
+        if (challenge.getBannedUserIds() == null) challenge.setBannedUserIds(new ArrayList<>());
+        if (!challenge.getBannedUserIds().contains(userId)) challenge.getBannedUserIds().add(userId);
+        boolean hadPaid = removeUser(challenge, userId);
+        Challenge saved = statsService.save(challenge, before);
+        membershipService.recordExit(challengeId, userId, State.BANNED);
+        return new ExitResult(saved, hadPaid, false);
+    }
+
+    // Desistência: criador mantém a propriedade do desafio, mas deixa de participar.
+    // Sem participantes restantes, o desafio é cancelado
+    @Transactional
+    public ExitResult resign(Long challengeId, String userId) {
+        lock(challengeId);
+        Challenge challenge = reload(challengeId);
+        if ("COMPLETED".equals(challenge.getStatus()) || "CANCELLED".equals(challenge.getStatus())) {
+            throw new IllegalStateException("Status não permite desistir");
+        }
+        UserChallengeStatsService.Snapshot before = UserChallengeStatsService.Snapshot.of(challenge);
+        boolean hadPaid = removeUser(challenge, userId);
+        if (userId.equals(challenge.getCreatorId()) && Boolean.TRUE.equals(challenge.getCreatorParticipates())) {
+            challenge.setCreatorParticipates(false);
+        }
+        boolean cancelled = challenge.getActiveParticipantIds().isEmpty();
+        if (cancelled) {
+            challenge.setStatus("CANCELLED");
+        }
+        Challenge saved = statsService.save(challenge, before);
+        membershipService.recordExit(challengeId, userId, State.RESIGNED);
+        return new ExitResult(saved, hadPaid, cancelled);
+    }
+
+    @Transactional
+    public Challenge openFinishRequest(Long challengeId, String requesterId, long now) {
+        lock(challengeId);
+        challengeRepository.clearFinishAccepts(challengeId);
+        challengeRepository.addFinishAccept(challengeId, requesterId); // criador já aceita por padrão
+        Challenge challenge = reload(challengeId);
+        challenge.setFinishRequestAt(now);
+        challenge.setFinishRequestBy(requesterId);
+        challenge.setFinishRequestActive(true);
+        return challengeRepository.save(challenge);
+    }
+
+    @Transactional
+    public Challenge acceptFinish(Long challengeId, String userId) {
+        lock(challengeId);
+        challengeRepository.addFinishAccept(challengeId, userId);
+        return reload(challengeId);
+    }
+
+    @Transactional
+    public Challenge rejectFinish(Long challengeId) {
+        lock(challengeId);
+        challengeRepository.clearFinishAccepts(challengeId);
+        Challenge challenge = reload(challengeId);
+        challenge.setFinishRequestActive(false);
+        return challengeRepository.save(challenge);
+    }
+
+    // Idempotente: se outro aceite concorrente já concluiu, devolve o desafio como está
+    @Transactional
+    public Challenge complete(Long challengeId, String winnerId) {
+        lock(challengeId);
+        Challenge challenge = reload(challengeId);
+        if ("COMPLETED".equals(challenge.getStatus())) {
+            return challenge;
+        }
+        UserChallengeStatsService.Snapshot before = UserChallengeStatsService.Snapshot.of(challenge);
+        challenge.setFinishRequestActive(false);
+        challenge.setStatus("COMPLETED");
+        challenge.setWinnerId(winnerId);
+        return statsService.save(challenge, before);
+    }
+
+    // Tira o usuário das coleções e do papel de aceitador; devolve se ele constava como pago
+    private boolean removeUser(Challenge challenge, String userId) {
+        boolean hadPaid = challenge.getPaidUserIds() != null && challenge.getPaidUserIds().remove(userId);
+        if (challenge.getParticipants() != null) challenge.getParticipants().remove(userId);
+        if (Objects.equals(challenge.getAcceptorId(), userId)) challenge.setAcceptorId(null);
+        return hadPaid;
+    }
+
+    private void lock(Long challengeId) {
+        if (challengeRepository.bumpVersion(challengeId) == 0) {
+            throw new IllegalArgumentException("Desafio não encontrado");
+        }
+    }
+
+    private Challenge reload(Long challengeId) {
+        return challengeRepository.findById(challengeId)
+                .orElseThrow(() -> new IllegalArgumentException("Desafio não encontrado"));
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.challenge_service.service;
+
+import com.example.challenge_service.model.Challenge;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+// Cache em memória do payload de /api/dashboard, por usuário, limitado em tamanho e TTL.
+// O controller invalida os membros afetados depois de cada alteração gravada.
+@Service
+public class DashboardCache {
+
+    public static final String CACHE_NAME = "dashboard";
+
+    private final Cache<String, Map<String, Object>> cache;
+
+    public DashboardCache(MeterRegistry meterRegistry,
+                          @Value("${challenge.dashboard-cache.max-size:10000}") long maxSize,
+                          @Value("${challenge.dashboard-cache.ttl:60s}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        // cache.gets (hit/miss), cache.evictions, cache.load.duration etc. com a tag cache=dashboard
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public Map<String, Object> get(String userId, Function<String, Map<String, Object>> loader) {
+        return cache.get(userId, loader);
+    }
+
+    public void invalidate(String userId) {
+        if (userId != null) cache.invalidate(userId);
+    }
+
+    public void invalidateAll(Collection<String> userIds) {
+        for (String userId : userIds) {
+            invalidate(userId);
+        }
+    }
+
+    public void invalidateMembers(Challenge challenge, String... extraUserIds) {
+        invalidateAll(membersOf(challenge, extraUserIds));
+    }
+
+    // Criador, aceitador, participantes e usuários extras (convidado, removido, aceitador anterior...)
+    public Set<String> membersOf(Challenge challenge, String... extraUserIds) {
+        Set<String> users = new LinkedHashSet<>();
+        if (challenge != null) {
+            if (challenge.getCreatorId() != null) users.add(challenge.getCreatorId());
+            if (challenge.getAcceptorId() != null) users.add(challenge.getAcceptorId());
+            if (challenge.getParticipants() != null) users.addAll(challenge.getParticipants());
+        }
+        for (String userId : extraUserIds) {
+            if (userId != null) users.add(userId);
+        }
+        return users;
+    }
+}
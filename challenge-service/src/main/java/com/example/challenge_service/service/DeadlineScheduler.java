@@ -0,0 +1,190 @@
+package com.example.challenge_service.service;
+
+import com.example.challenge_service.model.ScheduledTask;
+import com.example.challenge_service.model.ScheduledTask.Kind;
+import com.example.challenge_service.repository.ScheduledTaskRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+// Motor de prazos: scheduled_tasks (indexada por due_at) é a fonte da verdade; só os prazos
+// que vencem dentro do horizonte ficam numa roda de tempo hierárquica em memória.
+// A cada tick a roda devolve o que venceu; os prazos são confirmados no banco (due_at <= agora),
+// tratados em lotes por tipo e apagados. Falhas ficam na tabela e voltam na próxima recarga,
+// assim como tudo que venceu com o serviço parado.
+@Slf4j
+@Service
+public class DeadlineScheduler {
+
+    private static final int WHEEL_SIZE = 60;
+
+    private final ScheduledTaskRepository taskRepository;
+    private final ChallengeLifecycleService lifecycleService;
+    private final MeterRegistry meterRegistry;
+    private final long horizonMillis;
+    private final long refillMillis;
+    private final int batchSize;
+    private final HierarchicalTimingWheel<Due> wheel;
+    // prazos que já chegaram vencidos ao agendar; entram no próximo tick
+    private final Queue<Due> ready = new ConcurrentLinkedQueue<>();
+    private final Timer fireDelay;
+
+    private volatile boolean started;
+    private volatile long loadedUntil = Long.MIN_VALUE;
+    private volatile long lagMillis;
+    private long nextRefillAt;
+
+    private record Due(Kind kind, String targetId, long dueAt) {}
+
+    public DeadlineScheduler(ScheduledTaskRepository taskRepository,
+                             ChallengeLifecycleService lifecycleService,
+                             MeterRegistry meterRegistry,
+                             @Value("${challenge.scheduler.tick-millis:1000}") long tickMillis,
+                             @Value("${challenge.scheduler.horizon:10m}") Duration horizon,
+                             @Value("${challenge.scheduler.batch-size:200}") int batchSize) {
+        this.taskRepository = taskRepository;
+        this.lifecycleService = lifecycleService;
+        this.meterRegistry = meterRegistry;
+        this.horizonMillis = horizon.toMillis();
+        this.refillMillis = Math.max(tickMillis, horizonMillis / 2);
+        this.batchSize = batchSize;
+        this.wheel = new HierarchicalTimingWheel<>(tickMillis, WHEEL_SIZE, System.currentTimeMillis());
+
+        // atraso do prazo mais antigo ainda não tratado (0 = em dia)
+        Gauge.builder("challenge.scheduler.lag", this, s -> s.lagMillis / 1000.0)
+                .baseUnit("seconds")
+                .description("Atraso do prazo vencido mais antigo ainda pendente")
+                .register(meterRegistry);
+        Gauge.builder("challenge.scheduler.wheel.size", wheel, HierarchicalTimingWheel::size)
+                .description("Prazos carregados na roda de tempo")
+                .register(meterRegistry);
+        this.fireDelay = Timer.builder("challenge.scheduler.fire.delay")
+                .description("Diferença entre o due_at e o tratamento efetivo do prazo")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    // Cria ou move o prazo do alvo; se cair dentro da janela já carregada, entra na roda na hora
+    public void schedule(Kind kind, String targetId, long dueAt) {
+        taskRepository.upsert(kind.name(), targetId, dueAt, System.currentTimeMillis());
+        if (started && dueAt <= loadedUntil) {
+            enqueue(new Due(kind, targetId, dueAt));
+        }
+    }
+
+    // A entrada que já estiver na roda dispara sem efeito: a linha não existe mais
+    public void cancel(Kind kind, String targetId) {
+        taskRepository.deleteByKindAndTargetId(kind, targetId);
+    }
+
+    // Depois do ScheduledTaskBackfill, para a primeira carga já enxergar os prazos semeados
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void start() {
+        started = true;
+    }
+
+    @Scheduled(fixedDelayString = "${challenge.scheduler.tick-millis:1000}")
+    public void tick() {
+        if (!started) return;
+        try {
+            long now = System.currentTimeMillis();
+            if (now >= nextRefillAt) {
+                loadWindow(now);
+            }
+            List<Due> due = wheel.advance(now);
+            for (Due item; (item = ready.poll()) != null; ) {
+                due.add(item);
+            }
+            if (!due.isEmpty()) {
+                fire(due, now);
+            }
+            Long oldest = taskRepository.findOldestDueAt();
+            lagMillis = oldest == null ? 0 : Math.max(0, System.currentTimeMillis() - oldest);
+        } catch (Exception e) {
+            log.error("Falha no tick do agendador de prazos: " + e.getMessage(), e);
+        }
+    }
+
+    // Carrega a próxima fatia do horizonte e devolve à roda os vencidos antigos que não foram concluídos
+    // (na primeira carga, tudo que venceu enquanto o serviço estava parado)
+    private void loadWindow(long now) {
+        long until = now + horizonMillis;
+        List<ScheduledTask> tasks = taskRepository.findWindow(loadedUntil, until, now - refillMillis);
+        for (ScheduledTask task : tasks) {
+            enqueue(new Due(task.getKind(), task.getTargetId(), task.getDueAt()));
+        }
+        if (loadedUntil == Long.MIN_VALUE && !tasks.isEmpty()) {
+            log.info("Agendador de prazos: {} prazo(s) carregado(s) até {}", tasks.size(), until);
+        }
+        loadedUntil = until;
+        nextRefillAt = now + refillMillis;
+    }
+
+    private void enqueue(Due item) {
+        ready.addAll(wheel.add(item.dueAt(), item));
+    }
+
+    private void fire(List<Due> due, long now) {
+        Map<Kind, Map<String, Due>> byKind = new EnumMap<>(Kind.class);
+        for (Due item : due) {
+            byKind.computeIfAbsent(item.kind(), k -> new LinkedHashMap<>()).putIfAbsent(item.targetId(), item);
+        }
+        for (Map.Entry<Kind, Map<String, Due>> entry : byKind.entrySet()) {
+            List<String> targets = new ArrayList<>(entry.getValue().keySet());
+            for (int from = 0; from < targets.size(); from += batchSize) {
+                fireBatch(entry.getKey(), targets.subList(from, Math.min(targets.size(), from + batchSize)), now);
+            }
+        }
+    }
+
+    private void fireBatch(Kind kind, List<String> targets, long now) {
+        // confirma no banco: cancelados ou reagendados para depois não disparam
+        List<ScheduledTask> claimed = taskRepository.findByKindAndTargetIdInAndDueAtLessThanEqual(kind, targets, now);
+        if (claimed.isEmpty()) return;
+
+        List<String> claimedTargets = new ArrayList<>(claimed.size());
+        for (ScheduledTask task : claimed) {
+            claimedTargets.add(task.getTargetId());
+        }
+        Set<String> handled;
+        try {
+            handled = lifecycleService.handle(kind, claimedTargets, now);
+        } catch (Exception e) {
+            log.warn("Falha ao tratar {} prazo(s) {}: {}", claimed.size(), kind, e.getMessage());
+            return;
+        }
+        long finishedAt = System.currentTimeMillis();
+        int done = 0;
+        for (ScheduledTask task : claimed) {
+            if (!handled.contains(task.getTargetId())) continue;
+            taskRepository.deleteHandled(task.getId(), task.getDueAt());
+            fireDelay.record(finishedAt - task.getDueAt(), TimeUnit.MILLISECONDS);
+            done++;
+        }
+        Counter.builder("challenge.scheduler.fired")
+                .tag("kind", kind.name())
+                .register(meterRegistry)
+                .increment(done);
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.challenge_service.service;
+
+import com.example.challenge_service.config.DownstreamProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Cliente de um serviço downstream: RestTemplate sobre pool próprio (HttpComponents),
+// bulkhead por semáforo (no máximo maxConcurrent chamadas; as demais esperam bulkheadWait e falham)
+// e circuit breaker por falhas consecutivas. Um serviço lento ocupa só as vagas dele,
+// não as threads do Tomcat inteiras.
+// Métrica: downstream.client.requests{service, operation, outcome} com histograma de latência.
+public class DownstreamClient {
+
+    public static final String METRIC_NAME = "downstream.client.requests";
+
+    private final String name;
+    private final String baseUrl;
+    private final RestTemplate restTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Semaphore bulkhead;
+    private final long bulkheadWaitMillis;
+    private final CircuitBreaker circuitBreaker;
+
+    // Falha rápida sem chamar o serviço (circuito aberto ou bulkhead cheio)
+    public static class DownstreamUnavailableException extends RestClientException {
+        public DownstreamUnavailableException(String message) {
+            super(message);
+        }
+    }
+
+    public DownstreamClient(String name, DownstreamProperties.Target target, RestTemplate restTemplate, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.baseUrl = stripTrailingSlash(target.getBaseUrl());
+        this.restTemplate = restTemplate;
+        this.meterRegistry = meterRegistry;
+        this.bulkhead = new Semaphore(target.getMaxConcurrent());
+        this.bulkheadWaitMillis = target.getBulkheadWait().toMillis();
+        this.circuitBreaker = new CircuitBreaker(target.getFailureThreshold(), target.getOpenDuration().toMillis());
+
+        Gauge.builder("downstream.client.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                .tag("service", name)
+                .description("Vagas livres no bulkhead do serviço")
+                .register(meterRegistry);
+        Gauge.builder("downstream.client.circuit.open", circuitBreaker, cb -> cb.isOpen() ? 1 : 0)
+                .tag("service", name)
+                .description("1 enquanto o circuito do serviço está aberto")
+                .register(meterRegistry);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String url(String path) {
+        return baseUrl + path;
+    }
+
+    // operation identifica a chamada na métrica (ex.: "debit", "winner"); path é relativo ao base-url
+    public <T> ResponseEntity<T> exchange(String operation, String path, HttpMethod method, HttpEntity<?> entity,
+                                          ParameterizedTypeReference<T> responseType, Object... uriVariables) {
+        if (!circuitBreaker.tryAcquire()) {
+            record(operation, "CIRCUIT_OPEN", 0);
+            throw new DownstreamUnavailableException("Serviço " + name + " indisponível (circuito aberto)");
+        }
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire(bulkheadWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            circuitBreaker.release();
+            record(operation, "REJECTED", 0);
+            throw new DownstreamUnavailableException("Serviço " + name + " sobrecarregado (limite de chamadas simultâneas)");
+        }
+
+        long start = System.nanoTime();
+        try {
+            ResponseEntity<T> response = restTemplate.exchange(url(path), method, entity, responseType, uriVariables);
+            circuitBreaker.onSuccess();
+            record(operation, "SUCCESS", System.nanoTime() - start);
+            return response;
+        } catch (HttpClientErrorException e) {
+            // 4xx é resposta válida do serviço (saldo insuficiente, não encontrado...): não conta como falha
+            circuitBreaker.onSuccess();
+            record(operation, "CLIENT_ERROR", System.nanoTime() - start);
+            throw e;
+        } catch (RuntimeException e) {
+            circuitBreaker.onFailure();
+            record(operation, e instanceof HttpServerErrorException ? "SERVER_ERROR" : "ERROR",
+                    System.nanoTime() - start);
+            throw e;
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private void record(String operation, String outcome, long nanos) {
+        Timer.builder(METRIC_NAME)
+                .tag("service", name)
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static String stripTrailingSlash(String url) {
+        if (url == null) {
+            throw new IllegalArgumentException("base-url não configurada");
+        }
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    // CLOSED -> OPEN após failureThreshold falhas seguidas; depois de openMillis deixa passar
+    // uma chamada de teste (HALF_OPEN): sucesso fecha, falha reabre.
+    static class CircuitBreaker {
+
+        private enum State { CLOSED, OPEN, HALF_OPEN }
+
+        private final int failureThreshold;
+        private final long openMillis;
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        private long openedAt;
+        private boolean trialInFlight;
+
+        CircuitBreaker(int failureThreshold, long openMillis) {
+            this.failureThreshold = Math.max(1, failureThreshold);
+            this.openMillis = openMillis;
+        }
+
+        synchronized boolean tryAcquire() {
+            if (state == State.OPEN) {
+                if (System.currentTimeMillis() - openedAt < openMillis) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trialInFlight = false;
+            }
+            if (state == State.HALF_OPEN) {
+                if (trialInFlight) return false;
+                trialInFlight = true;
+            }
+            return true;
+        }
+
+        // chamada que nem chegou a sair (bulkhead cheio): devolve a vaga de teste
+        synchronized void release() {
+            trialInFlight = false;
+        }
+
+        synchronized void onSuccess() {
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+            trialInFlight = false;
+        }
+
+        synchronized void onFailure() {
+            trialInFlight = false;
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+                state = State.OPEN;
+                openedAt = System.currentTimeMillis();
+            }
+        }
+
+        synchronized boolean isOpen() {
+            return state == State.OPEN && System.currentTimeMillis() - openedAt < openMillis;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.challenge_service.service;
+
+import com.example.challenge_service.config.DownstreamProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Um DownstreamClient por entrada de downstream.services, cada um com seu pool de conexões persistentes
+@Slf4j
+@Service
+public class DownstreamClients implements DisposableBean {
+
+    public static final String WALLET = "wallet";
+    public static final String PROOF = "proof";
+    public static final String USERS = "users";
+    public static final String FRIENDS = "friends";
+
+    private final Map<String, DownstreamClient> clients = new HashMap<>();
+    private final List<CloseableHttpClient> httpClients = new ArrayList<>();
+
+    public DownstreamClients(DownstreamProperties properties, MeterRegistry meterRegistry) {
+        properties.getServices().forEach((name, target) -> {
+            CloseableHttpClient httpClient = buildHttpClient(target);
+            httpClients.add(httpClient);
+            RestTemplate restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+            clients.put(name, new DownstreamClient(name, target, restTemplate, meterRegistry));
+        });
+    }
+
+    public DownstreamClient client(String name) {
+        DownstreamClient client = clients.get(name);
+        if (client == null) {
+            throw new IllegalStateException("Serviço downstream não configurado: downstream.services." + name);
+        }
+        return client;
+    }
+
+    private static CloseableHttpClient buildHttpClient(DownstreamProperties.Target target) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(target.getConnectTimeout().toMillis()))
+                        .setSocketTimeout(Timeout.ofMilliseconds(target.getReadTimeout().toMillis()))
+                        // conexões ociosas são revalidadas antes de reutilizar
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .setMaxConnTotal(target.getMaxConcurrent())
+                .setMaxConnPerRoute(target.getMaxConcurrent())
+                .build();
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(target.getBulkheadWait().toMillis()))
+                        .setResponseTimeout(Timeout.ofMilliseconds(target.getReadTimeout().toMillis()))
+                        .setConnectionKeepAlive(TimeValue.ofMilliseconds(target.getKeepAlive().toMillis()))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(target.getKeepAlive().toMillis()))
+                .build();
+    }
+
+    @Override
+    public void destroy() {
+        for (CloseableHttpClient httpClient : httpClients) {
+            try {
+                httpClient.close();
+            } catch (IOException e) {
+                log.warn("Erro ao fechar cliente HTTP: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.challenge_service.service;
+
+import com.example.challenge_service.model.EmailOutbox;
+import com.example.challenge_service.model.EmailOutbox.Status;
+import com.example.challenge_service.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Esvazia a email_outbox em lotes, fora das requisições, usando uma única conexão SMTP por rodada.
+// Falha temporária: nova tentativa com backoff exponencial (com jitter) até max-attempts; depois DEAD.
+// Recusa permanente do servidor (5xx) ou destinatário sem e-mail vai direto para DEAD.
+@Slf4j
+@Service
+public class EmailOutboxDispatcher {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final EmailOutboxRepository outboxRepository;
+    private final MeterRegistry meterRegistry;
+    private final DownstreamClients downstreamClients;
+
+    private final String smtpHost;
+    private final int smtpPort;
+    private final String from;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+
+    public EmailOutboxDispatcher(EmailOutboxRepository outboxRepository,
+                                 MeterRegistry meterRegistry,
+                                 DownstreamClients downstreamClients,
+                                 @Value("${smtp.host:localhost}") String smtpHost,
+                                 @Value("${smtp.port:25}") int smtpPort,
+                                 @Value("${smtp.from:noreply@euduvido.com}") String from,
+                                 @Value("${smtp.connect-timeout:5s}") Duration connectTimeout,
+                                 @Value("${smtp.read-timeout:10s}") Duration readTimeout,
+                                 @Value("${challenge.mail.outbox.batch-size:50}") int batchSize,
+                                 @Value("${challenge.mail.outbox.max-attempts:8}") int maxAttempts,
+                                 @Value("${challenge.mail.outbox.backoff:30s}") Duration baseBackoff,
+                                 @Value("${challenge.mail.outbox.max-backoff:1h}") Duration maxBackoff) {
+        this.outboxRepository = outboxRepository;
+        this.meterRegistry = meterRegistry;
+        this.downstreamClients = downstreamClients;
+        this.smtpHost = smtpHost;
+        this.smtpPort = smtpPort;
+        this.from = from;
+        this.connectTimeoutMillis = (int) connectTimeout.toMillis();
+        this.readTimeoutMillis = (int) readTimeout.toMillis();
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMillis = baseBackoff.toMillis();
+        this.maxBackoffMillis = maxBackoff.toMillis();
+
+        Gauge.builder("challenge.mail.outbox.depth", outboxRepository, r -> r.countByStatus(Status.PENDING))
+                .description("E-mails aguardando envio")
+                .register(meterRegistry);
+        Gauge.builder("challenge.mail.outbox.dead", outboxRepository, r -> r.countByStatus(Status.DEAD))
+                .description("E-mails descartados após esgotar as tentativas")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${challenge.mail.outbox.poll-millis:2000}")
+    public void dispatch() {
+        SmtpClient smtp = null;
+        try {
+            List<EmailOutbox> batch;
+            do {
+                long now = System.currentTimeMillis();
+                batch = outboxRepository.findDue(Status.PENDING, now, PageRequest.of(0, batchSize));
+                for (EmailOutbox email : batch) {
+                    if (smtp == null) {
+                        smtp = new SmtpClient(smtpHost, smtpPort, "localhost", connectTimeoutMillis, readTimeoutMillis);
+                    }
+                    deliver(email, smtp);
+                }
+            } while (batch.size() == batchSize);
+        } catch (IOException e) {
+            // servidor indisponível ou conexão perdida: o restante fica para a próxima rodada
+            log.warn("SMTP indisponível ({}:{}): {}", smtpHost, smtpPort, e.getMessage());
+        } catch (Exception e) {
+            log.error("Falha ao processar a outbox de e-mails: " + e.getMessage(), e);
+        } finally {
+            if (smtp != null) smtp.close();
+        }
+    }
+
+    // IOException = conexão inutilizável (o e-mail corrente já foi reagendado)
+    private void deliver(EmailOutbox email, SmtpClient smtp) throws IOException {
+        if (email.getRecipientEmail() == null) {
+            Optional<String> recipient;
+            try {
+                recipient = fetchUserEmail(email.getRecipientUserId());
+            } catch (RestClientException e) {
+                fail(email, "Falha ao buscar e-mail do destinatário: " + e.getMessage(), true);
+                return;
+            }
+            if (recipient.isEmpty()) {
+                fail(email, "E-mail do destinatário não encontrado", false);
+                return;
+            }
+            email.setRecipientEmail(recipient.get());
+        }
+        String body = email.getBody().replace(EmailOutbox.SENDER_PLACEHOLDER, senderLabel(email.getSenderUserId()));
+
+        long start = System.nanoTime();
+        try {
+            smtp.send(from, email.getRecipientEmail(), email.getSubject(), body);
+            record(start, "sent");
+            email.setStatus(Status.SENT);
+            email.setSentAt(System.currentTimeMillis());
+            email.setAttempts(email.getAttempts() + 1);
+            email.setLastError(null);
+            outboxRepository.save(email);
+        } catch (SmtpClient.SmtpRejectedException e) {
+            record(start, "rejected");
+            fail(email, e.getMessage(), !e.isPermanent());
+        } catch (IOException e) {
+            record(start, "error");
+            fail(email, e.getMessage(), true);
+            throw e;
+        }
+    }
+
+    private void fail(EmailOutbox email, String error, boolean retryable) {
+        int attempts = email.getAttempts() + 1;
+        email.setAttempts(attempts);
+        email.setLastError(error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+        if (!retryable || attempts >= maxAttempts) {
+            email.setStatus(Status.DEAD);
+            log.warn("E-mail {} ({}) descartado após {} tentativa(s): {}", email.getId(), email.getType(), attempts, error);
+        } else {
+            long backoff = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempts - 1, 20));
+            email.setNextAttemptAt(System.currentTimeMillis() + backoff + ThreadLocalRandom.current().nextLong(backoff / 2 + 1));
+        }
+        outboxRepository.save(email);
+    }
+
+    private void record(long startNanos, String result) {
+        Timer.builder("challenge.mail.send")
+                .description("Tempo de envio de cada e-mail da outbox")
+                .tag("result", result)
+                .register(meterRegistry)
+                .record(Duration.ofNanos(System.nanoTime() - startNanos));
+    }
+
+    private String senderLabel(String senderUserId) {
+        if (senderUserId == null) return "Usuário";
+        try {
+            return fetchUserEmail(senderUserId).orElse("Usuário");
+        } catch (RestClientException e) {
+            return "Usuário";
+        }
+    }
+
+    // Consulta ao auth-service; vazio se o usuário não tem e-mail, exceção se o serviço falhou
+    private Optional<String> fetchUserEmail(String userId) {
+        ResponseEntity<Map<String, Object>> response = downstreamClients.client(DownstreamClients.USERS).exchange(
+                "user-email", "/api/users/{id}", HttpMethod.GET, null,
+                new ParameterizedTypeReference<Map<String, Object>>() {}, userId);
+        if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
+            return Optional.ofNullable((String) response.getBody().get("email"));
+        }
+        return Optional.empty();
+    }
+}
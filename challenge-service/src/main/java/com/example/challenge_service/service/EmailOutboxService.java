@@ -0,0 +1,37 @@
+package com.example.challenge_service.service;
+
+import com.example.challenge_service.model.EmailOutbox;
+import com.example.challenge_service.repository.EmailOutboxRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+// Enfileira e-mails na tabela email_outbox; o envio acontece no EmailOutboxDispatcher.
+// Deve ser chamado dentro da transação da alteração que gera o e-mail.
+@Service
+public class EmailOutboxService {
+
+    public static final String TYPE_CHALLENGE_INVITE = "CHALLENGE_INVITE";
+
+    private final EmailOutboxRepository outboxRepository;
+
+    public EmailOutboxService(EmailOutboxRepository outboxRepository) {
+        this.outboxRepository = outboxRepository;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public EmailOutbox enqueue(String type, String reference, String recipientUserId, String senderUserId,
+                               String subject, String body) {
+        long now = System.currentTimeMillis();
+        EmailOutbox email = new EmailOutbox();
+        email.setType(type);
+        email.setReference(reference);
+        email.setRecipientUserId(recipientUserId);
+        email.setSenderUserId(senderUserId);
+        email.setSubject(subject);
+        email.setBody(body);
+        email.setCreatedAt(now);
+        email.setNextAttemptAt(now);
+        return outboxRepository.save(email);
+    }
+}
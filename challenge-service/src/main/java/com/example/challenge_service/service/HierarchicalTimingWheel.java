@@ -0,0 +1,112 @@
+package com.example.challenge_service.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Roda de tempo hierárquica: cada nível tem wheelSize baldes de tickMillis; o que não cabe
+// no intervalo do nível vai para o nível de cima (tick = intervalo do nível de baixo), criado sob demanda.
+// Inserir é O(1) e avançar o relógio só visita os baldes que venceram, sem ordenar os prazos.
+// Quando um balde de nível superior vence, suas entradas são redistribuídas nos níveis de baixo.
+// Não é thread-safe por nível; a instância raiz sincroniza add/advance.
+public class HierarchicalTimingWheel<T> {
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final long interval;
+    private final List<List<Entry<T>>> buckets;
+    private long currentTime;
+    private HierarchicalTimingWheel<T> overflow;
+    private int size; // mantido só na instância raiz
+
+    private record Entry<T>(long dueAt, T item) {}
+
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize <= 1) {
+            throw new IllegalArgumentException("tickMillis deve ser > 0 e wheelSize > 1");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.interval = tickMillis * wheelSize;
+        this.currentTime = startMillis - (startMillis % tickMillis);
+        this.buckets = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            buckets.add(new ArrayList<>());
+        }
+    }
+
+    // Agenda o item; se já venceu vai direto para a lista devolvida.
+    // O prazo é arredondado para cima até o tick: o item nunca sai antes do dueAt.
+    public synchronized List<T> add(long dueAt, T item) {
+        List<T> due = new ArrayList<>(0);
+        long fireAt = Math.floorDiv(dueAt + tickMillis - 1, tickMillis) * tickMillis;
+        place(new Entry<>(fireAt, item), due);
+        return due;
+    }
+
+    // Avança o relógio até now e devolve os itens vencidos, na ordem em que os baldes venceram
+    public synchronized List<T> advance(long now) {
+        List<T> due = new ArrayList<>();
+        List<Entry<T>> cascaded = new ArrayList<>();
+        advanceLevel(now, cascaded);
+        size -= cascaded.size();
+        for (Entry<T> entry : cascaded) {
+            place(entry, due);
+        }
+        return due;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized long currentTime() {
+        return currentTime;
+    }
+
+    private void place(Entry<T> entry, List<T> due) {
+        if (insert(entry)) {
+            size++;
+        } else {
+            due.add(entry.item());
+        }
+    }
+
+    // false = vencido (prazo dentro do tick corrente do nível mais baixo)
+    private boolean insert(Entry<T> entry) {
+        if (entry.dueAt() < currentTime + tickMillis) {
+            return false;
+        }
+        if (entry.dueAt() < currentTime + interval) {
+            buckets.get(slotOf(entry.dueAt())).add(entry);
+            return true;
+        }
+        if (overflow == null) {
+            overflow = new HierarchicalTimingWheel<>(interval, wheelSize, currentTime);
+        }
+        return overflow.insert(entry);
+    }
+
+    // Visita os baldes cujo início ficou para trás (no máximo uma volta completa por nível),
+    // separando as entradas para reinserção a partir do nível mais baixo.
+    private void advanceLevel(long now, List<Entry<T>> cascaded) {
+        long steps = (now - currentTime) / tickMillis;
+        if (steps <= 0) {
+            return;
+        }
+        long visit = Math.min(steps, wheelSize);
+        for (long i = 1; i <= visit; i++) {
+            List<Entry<T>> bucket = buckets.get(slotOf(currentTime + i * tickMillis));
+            if (bucket.isEmpty()) continue;
+            cascaded.addAll(bucket);
+            bucket.clear();
+        }
+        currentTime += steps * tickMillis;
+        if (overflow != null) {
+            overflow.advanceLevel(currentTime, cascaded);
+        }
+    }
+
+    private int slotOf(long time) {
+        return (int) ((time / tickMillis) % wheelSize);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.challenge_service.service;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Conexão SMTP simples (sem TLS/autenticação) reaproveitada para várias mensagens:
+// HELO uma vez, MAIL/RCPT/DATA por mensagem e RSET depois de uma recusa.
+// Timeouts de conexão e leitura evitam que um servidor lento prenda o dispatcher.
+public class SmtpClient implements Closeable {
+
+    private final Socket socket;
+    private final BufferedReader reader;
+    private final Writer writer;
+
+    public SmtpClient(String host, int port, String heloName, int connectTimeoutMillis, int readTimeoutMillis) throws IOException {
+        this.socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(host, port), connectTimeoutMillis);
+            socket.setSoTimeout(readTimeoutMillis);
+            this.reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            this.writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+            expect(220);
+            command("HELO " + heloName, 250);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    // Recusa do servidor (4xx temporária, 5xx permanente); a conexão continua utilizável
+    public static class SmtpRejectedException extends IOException {
+        private final int code;
+
+        public SmtpRejectedException(int code, String reply) {
+            super("SMTP " + code + ": " + reply);
+            this.code = code;
+        }
+
+        public boolean isPermanent() {
+            return code >= 500;
+        }
+    }
+
+    public void send(String from, String to, String subject, String body) throws IOException {
+        try {
+            command("MAIL FROM:<" + from + ">", 250);
+            command("RCPT TO:<" + to + ">", 250, 251);
+            command("DATA", 354);
+            StringBuilder data = new StringBuilder();
+            data.append("Subject: ").append(encodeHeader(subject)).append("\r\n");
+            data.append("From: ").append(from).append("\r\n");
+            data.append("To: ").append(to).append("\r\n");
+            data.append("MIME-Version: 1.0\r\n");
+            data.append("Content-Type: text/plain; charset=UTF-8\r\n");
+            data.append("Content-Transfer-Encoding: 8bit\r\n");
+            data.append("\r\n");
+            for (String line : body.split("\r?\n", -1)) {
+                // linhas começando com "." são duplicadas para não encerrar o DATA
+                if (line.startsWith(".")) data.append('.');
+                data.append(line).append("\r\n");
+            }
+            data.append(".\r\n");
+            writer.write(data.toString());
+            writer.flush();
+            expect(250);
+        } catch (SmtpRejectedException e) {
+            command("RSET", 250);
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            writer.write("QUIT\r\n");
+            writer.flush();
+        } catch (IOException ignored) {
+            // conexão já caiu
+        }
+        try {
+            socket.close();
+        } catch (IOException ignored) {}
+    }
+
+    private void command(String line, int... accepted) throws IOException {
+        writer.write(line + "\r\n");
+        writer.flush();
+        expect(accepted);
+    }
+
+    // Lê a resposta completa (linhas "250-..." até "250 ...") e confere o código
+    private void expect(int... accepted) throws IOException {
+        String line;
+        StringBuilder reply = new StringBuilder();
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                throw new IOException("Conexão SMTP encerrada pelo servidor");
+            }
+            reply.append(line).append(' ');
+        } while (line.length() > 3 && line.charAt(3) == '-');
+        int code;
+        try {
+            code = Integer.parseInt(line.substring(0, 3));
+        } catch (RuntimeException e) {
+            throw new IOException("Resposta SMTP inválida: " + line);
+        }
+        for (int ok : accepted) {
+            if (code == ok) return;
+        }
+        throw new SmtpRejectedException(code, reply.toString().trim());
+    }
+
+    private static String encodeHeader(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 127) {
+                return "=?UTF-8?B?" + Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8)) + "?=";
+            }
+        }
+        return value;
+    }
+}
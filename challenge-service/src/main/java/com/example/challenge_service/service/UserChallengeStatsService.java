@@ -0,0 +1,116 @@
+package com.example.challenge_service.service;
+
+import com.example.challenge_service.model.Challenge;
+import com.example.challenge_service.model.UserChallengeStats;
+import com.example.challenge_service.repository.ChallengeRepository;
+import com.example.challenge_service.repository.UserChallengeStatsRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+
+// Mantém user_challenge_stats: cada mudança de estado do desafio é gravada junto com o delta
+// dos contadores do criador, do aceitador e dos participantes (antes x depois), na mesma transação.
+@Service
+public class UserChallengeStatsService {
+
+    private final ChallengeRepository challengeRepository;
+    private final UserChallengeStatsRepository statsRepository;
+
+    public UserChallengeStatsService(ChallengeRepository challengeRepository,
+                                     UserChallengeStatsRepository statsRepository) {
+        this.challengeRepository = challengeRepository;
+        this.statsRepository = statsRepository;
+    }
+
+    // Campos do desafio que entram nas estatísticas, copiados antes da alteração
+    // participants = lista de participantes do desafio (as linhas PARTICIPANT/ACTIVE de challenge_membership)
+    public record Snapshot(String creatorId, String acceptorId, Set<String> participants,
+                           String status, Double amount, String winnerId) {
+
+        public static Snapshot of(Challenge c) {
+            Set<String> participants = c.getParticipants() != null
+                    ? Collections.unmodifiableSet(new HashSet<>(c.getParticipants()))
+                    : Set.of();
+            return new Snapshot(c.getCreatorId(), c.getAcceptorId(), participants,
+                    c.getStatus(), c.getAmount(), c.getWinnerId());
+        }
+
+        private boolean involves(String userId) {
+            return userId != null
+                    && (userId.equals(creatorId) || userId.equals(acceptorId) || participants.contains(userId));
+        }
+
+        private boolean isActive() {
+            return "IN_PROGRESS".equals(status) || "ACCEPTED".equals(status);
+        }
+
+        private boolean isCompleted() {
+            return "COMPLETED".equals(status);
+        }
+
+        // Mesma regra do dashboard: só conta o que já saiu da fase de pagamento
+        private double spent() {
+            if ("AWAITING_PAYMENT".equals(status) || "PENDING".equals(status)) return 0.0;
+            return amount != null ? amount : 0.0;
+        }
+    }
+
+    // Grava o desafio e atualiza os contadores. before = null para desafio novo.
+    @Transactional
+    public Challenge save(Challenge challenge, Snapshot before) {
+        Challenge saved = challengeRepository.save(challenge);
+        apply(before, Snapshot.of(saved));
+        return saved;
+    }
+
+    // Mudança gravada por outro caminho (ex.: entrada por INSERT pontual): só os contadores
+    @Transactional
+    public void record(Snapshot before, Snapshot after) {
+        apply(before, after);
+    }
+
+    @Transactional
+    public void delete(Long challengeId, Snapshot before) {
+        challengeRepository.deleteById(challengeId);
+        apply(before, null);
+    }
+
+    // Leitura de uma única linha; usuário sem histórico recebe contadores zerados
+    @Transactional(readOnly = true)
+    public UserChallengeStats get(String userId) {
+        if (userId == null) return new UserChallengeStats(null);
+        return statsRepository.findById(userId).orElseGet(() -> new UserChallengeStats(userId));
+    }
+
+    private void apply(Snapshot before, Snapshot after) {
+        Set<String> users = new LinkedHashSet<>();
+        for (Snapshot s : new Snapshot[]{before, after}) {
+            if (s == null) continue;
+            if (s.creatorId() != null) users.add(s.creatorId());
+            if (s.acceptorId() != null) users.add(s.acceptorId());
+            for (String participant : s.participants()) {
+                if (participant != null) users.add(participant);
+            }
+        }
+        long now = System.currentTimeMillis();
+        for (String userId : users) {
+            boolean was = before != null && before.involves(userId);
+            boolean is = after != null && after.involves(userId);
+            long participated = (is ? 1 : 0) - (was ? 1 : 0);
+            long active = (is && after.isActive() ? 1 : 0) - (was && before.isActive() ? 1 : 0);
+            long completed = (is && after.isCompleted() ? 1 : 0) - (was && before.isCompleted() ? 1 : 0);
+            long won = (is && Objects.equals(after.winnerId(), userId) ? 1 : 0)
+                    - (was && Objects.equals(before.winnerId(), userId) ? 1 : 0);
+            double spent = (is ? after.spent() : 0.0) - (was ? before.spent() : 0.0);
+            if (participated == 0 && active == 0 && completed == 0 && won == 0 && spent == 0.0) {
+                continue;
+            }
+            statsRepository.applyDelta(userId, participated, active, completed, won, spent, now);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.challenge_service.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Créditos (reembolsos) via POST /api/wallet/credits:batch: uma chamada para o lote inteiro,
+// com chave de idempotência por item. Reenviar o mesmo lote não credita ninguém duas vezes.
+// O lote leva também um Idempotency-Key: timeout/conexão perdida é repetido uma vez com a mesma
+// chave e a carteira devolve a resposta original se o primeiro envio já tinha sido aplicado.
+@Slf4j
+@Service
+public class WalletCredits {
+
+    public record Credit(String idempotencyKey, String userId, double amount, String description, Long challengeId) {}
+
+    private static final int MAX_ATTEMPTS = 2;
+
+    private final DownstreamClients downstreamClients;
+    private final String internalApiKey;
+
+    public WalletCredits(DownstreamClients downstreamClients,
+                         @Value("${wallet.internal.api-key}") String internalApiKey) {
+        this.downstreamClients = downstreamClients;
+        this.internalApiKey = internalApiKey;
+    }
+
+    public static String refundKey(String reason, Long challengeId, String userId) {
+        return "refund:" + reason + ":" + challengeId + ":" + userId;
+    }
+
+    // Devolve as chaves creditadas (APPLIED ou DUPLICATE = já creditado antes); falha do serviço = nenhuma
+    public List<String> credit(List<Credit> credits) {
+        List<String> credited = new ArrayList<>();
+        if (credits.isEmpty()) return credited;
+
+        List<Map<String, Object>> items = new ArrayList<>(credits.size());
+        for (Credit credit : credits) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("idempotencyKey", credit.idempotencyKey());
+            item.put("userId", credit.userId());
+            item.put("amount", credit.amount());
+            item.put("description", credit.description());
+            if (credit.challengeId() != null) item.put("challengeId", credit.challengeId());
+            items.add(item);
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("X-Internal-Api-Key", internalApiKey);
+        headers.set("Idempotency-Key", UUID.randomUUID().toString());
+        try {
+            ResponseEntity<Map<String, Object>> resp = send(new HttpEntity<>(Map.of("items", items), headers));
+            Object results = resp.getBody() != null ? resp.getBody().get("results") : null;
+            if (results instanceof List<?> list) {
+                for (Object r : list) {
+                    if (!(r instanceof Map<?, ?> result)) continue;
+                    Object status = result.get("status");
+                    if ("APPLIED".equals(status) || "DUPLICATE".equals(status)) {
+                        credited.add(String.valueOf(result.get("idempotencyKey")));
+                    } else {
+                        log.warn("Crédito {} recusado pela carteira: {}", result.get("idempotencyKey"), result.get("error"));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Falha ao creditar {} item(ns) na carteira: {}", credits.size(), e.getMessage());
+        }
+        return credited;
+    }
+
+    private ResponseEntity<Map<String, Object>> send(HttpEntity<Map<String, Object>> request) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return downstreamClients.client(DownstreamClients.WALLET).exchange(
+                        "credits-batch", "/api/wallet/credits:batch", HttpMethod.POST, request,
+                        new ParameterizedTypeReference<Map<String, Object>>() {});
+            } catch (ResourceAccessException e) {
+                if (attempt >= MAX_ATTEMPTS) throw e;
+                log.info("Créditos sem resposta da carteira ({}); reenviando com a mesma Idempotency-Key", e.getMessage());
+            }
+        }
+    }
+
+    public boolean credit(Credit credit) {
+        return credit(List.of(credit)).contains(credit.idempotencyKey());
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.challenge_service.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Custódia das apostas no wallet-service (/api/wallet/holds): reserva no pagamento,
+// devolução em cancelamento/remoção e liquidação única no encerramento.
+// Quem pagou por /debit antes da custódia existir não tem hold: a devolução cai nos créditos em lote,
+// só para quem o wallet-service confirma um /debit do desafio (legacyDebit).
+@Slf4j
+@Service
+public class WalletHolds {
+
+    private final DownstreamClients downstreamClients;
+    private final WalletCredits walletCredits;
+    private final String internalApiKey;
+
+    public WalletHolds(DownstreamClients downstreamClients,
+                       WalletCredits walletCredits,
+                       @Value("${wallet.internal.api-key}") String internalApiKey) {
+        this.downstreamClients = downstreamClients;
+        this.walletCredits = walletCredits;
+        this.internalApiKey = internalApiKey;
+    }
+
+    // Reserva com o JWT do pagador; 4xx (saldo insuficiente...) sobe como HttpClientErrorException
+    public ResponseEntity<Map<String, Object>> hold(Long challengeId, double amount, String description, String authHeader) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("challengeId", challengeId);
+        body.put("amount", amount);
+        body.put("description", description);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("Authorization", authHeader);
+        return downstreamClients.client(DownstreamClients.WALLET).exchange(
+                "hold", "/api/wallet/holds", HttpMethod.POST, new HttpEntity<>(body, headers),
+                new ParameterizedTypeReference<Map<String, Object>>() {});
+    }
+
+    // Devolve a aposta (menos feePercent) a cada usuário; devolve quem foi reembolsado.
+    // reason/legacyKeySuffix compõem a chave de idempotência do crédito de quem não tem hold.
+    public List<String> release(Long challengeId, List<String> userIds, double stake, double feePercent,
+                                String reason, String legacyKeySuffix, String description) {
+        return release(challengeId, userIds, stake, feePercent, reason, legacyKeySuffix, description, true);
+    }
+
+    // Desfaz a custódia de um pagamento que não foi registrado (criação/pagamento com falha):
+    // nunca credita, só devolve o hold se ele chegou a ser criado
+    public List<String> rollback(Long challengeId, String userId, String description) {
+        return release(challengeId, List.of(userId), 0.0, 0.0, "", "", description, false);
+    }
+
+    private List<String> release(Long challengeId, List<String> userIds, double stake, double feePercent,
+                                 String reason, String legacyKeySuffix, String description, boolean creditLegacy) {
+        List<String> refunded = new ArrayList<>();
+        if (userIds.isEmpty()) return refunded;
+        List<String> legacy = new ArrayList<>();
+        try {
+            Map<String, Object> body = new HashMap<>();
+            body.put("userIds", userIds);
+            body.put("feePercent", feePercent);
+            body.put("description", description);
+            ResponseEntity<Map<String, Object>> resp = downstreamClients.client(DownstreamClients.WALLET).exchange(
+                    "release", "/api/wallet/holds/{challengeId}/release", HttpMethod.POST,
+                    new HttpEntity<>(body, internalHeaders()),
+                    new ParameterizedTypeReference<Map<String, Object>>() {}, challengeId);
+            for (Map<?, ?> result : results(resp.getBody())) {
+                String userId = String.valueOf(result.get("userId"));
+                Object status = result.get("status");
+                if ("RELEASED".equals(status) || "ALREADY_RELEASED".equals(status)) refunded.add(userId);
+                else if ("NO_HOLD".equals(status) && Boolean.TRUE.equals(result.get("legacyDebit"))) legacy.add(userId);
+            }
+        } catch (Exception e) {
+            log.warn("Falha ao devolver custódia do desafio {}: {}", challengeId, e.getMessage());
+            return refunded;
+        }
+
+        double net = stake - Math.round(stake * feePercent) / 100.0;
+        if (creditLegacy && !legacy.isEmpty() && net > 0) {
+            List<WalletCredits.Credit> credits = new ArrayList<>();
+            for (String userId : legacy) {
+                credits.add(new WalletCredits.Credit(WalletCredits.refundKey(reason, challengeId, userId) + legacyKeySuffix,
+                        userId, net, description, challengeId));
+            }
+            List<String> credited = walletCredits.credit(credits);
+            for (WalletCredits.Credit credit : credits) {
+                if (credited.contains(credit.idempotencyKey())) refunded.add(credit.userId());
+            }
+        }
+        return refunded;
+    }
+
+    // Liquidação do desafio concluído numa única chamada (idempotente no wallet-service).
+    // false = falhou e deve ser repetida.
+    public boolean settle(Long challengeId, String winnerId, double feePercent, double stake, List<String> paidUserIds) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("winnerId", winnerId);
+        body.put("feePercent", feePercent);
+        body.put("stake", stake);
+        body.put("paidUserIds", paidUserIds);
+        try {
+            ResponseEntity<Map<String, Object>> resp = downstreamClients.client(DownstreamClients.WALLET).exchange(
+                    "settle", "/api/wallet/holds/{challengeId}/settle", HttpMethod.POST,
+                    new HttpEntity<>(body, internalHeaders()),
+                    new ParameterizedTypeReference<Map<String, Object>>() {}, challengeId);
+            if (resp.getBody() != null) {
+                log.info("Desafio {} liquidado: {} (pote {}, taxa {}, prêmio {})", challengeId,
+                        resp.getBody().get("status"), resp.getBody().get("pot"), resp.getBody().get("fee"), resp.getBody().get("prize"));
+            }
+            return resp.getStatusCode().is2xxSuccessful();
+        } catch (Exception e) {
+            log.warn("Falha ao liquidar desafio {}: {}", challengeId, e.getMessage());
+            return false;
+        }
+    }
+
+    private HttpHeaders internalHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("X-Internal-Api-Key", internalApiKey);
+        return headers;
+    }
+
+    private static List<Map<?, ?>> results(Map<String, Object> body) {
+        List<Map<?, ?>> results = new ArrayList<>();
+        if (body != null && body.get("results") instanceof List<?> list) {
+            for (Object item : list) {
+                if (item instanceof Map<?, ?> map) results.add(map);
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.challenge_service.repository;
+
+import com.example.challenge_service.model.Challenge;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class ChallengeRepositoryFetchPlanTest {
+
+    private static final List<String> COLLECTION_KEYS = List.of(
+            "customProofTypes", "participants", "paidUserIds", "bannedUserIds", "finishAcceptedUserIds");
+
+    // participants vem no SELECT principal; as outras quatro coleções, um SELECT por lote de até
+    // COLLECTION_BATCH_SIZE desafios cada
+    private static final int BATCHED_COLLECTIONS = COLLECTION_KEYS.size() - 1;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ChallengeRepository challengeRepository;
+
+    @Test
+    void dashboardReadPathLoadsCollectionsInBatches() {
+        assertEquals(expectedStatements(3), statementsToRender("user-few", 3));
+        assertEquals(expectedStatements(300), statementsToRender("user-many", 300));
+        assertEquals(expectedStatements(600), statementsToRender("user-most", 600));
+    }
+
+    @Test
+    void participantReadPathLoadsCollectionsInBatches() {
+        persistChallenges("owner-a", "guest-few", 2);
+        persistChallenges("owner-b", "guest-many", 300);
+
+        long few = countStatements(() -> challengeRepository.findWithCollectionsByParticipant("guest-few"), 2);
+        long many = countStatements(() -> challengeRepository.findWithCollectionsByParticipant("guest-many"), 300);
+
+        assertEquals(expectedStatements(2), few);
+        assertEquals(expectedStatements(300), many);
+    }
+
+    // Caminho do dashboard e da listagem paginada (ids vindos de challenge_membership)
+    @Test
+    void idReadPathLoadsCollectionsInBatches() {
+        List<Long> ids = new ArrayList<>();
+        for (Challenge challenge : persistChallenges("owner-ids", "guest-ids", 300)) {
+            ids.add(challenge.getId());
+        }
+
+        long statements = countStatements(() -> challengeRepository.findWithCollectionsByIdIn(ids), 300);
+
+        assertEquals(expectedStatements(300), statements);
+    }
+
+    private static long expectedStatements(int challenges) {
+        long batches = (challenges + Challenge.COLLECTION_BATCH_SIZE - 1) / Challenge.COLLECTION_BATCH_SIZE;
+        return 1 + BATCHED_COLLECTIONS * batches;
+    }
+
+    private long statementsToRender(String userId, int count) {
+        persistChallenges(userId, "guest-" + userId, count);
+        return countStatements(() -> challengeRepository.findWithCollectionsByCreatorOrAcceptor(userId), count);
+    }
+
+    private long countStatements(Supplier<List<Challenge>> query, int expected) {
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManager()
+                .getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+        statistics.clear();
+
+        List<Challenge> loaded = query.get();
+        assertEquals(expected, loaded.size());
+        for (Challenge challenge : loaded) {
+            Map<String, Object> map = challenge.toMap();
+            for (String key : COLLECTION_KEYS) {
+                ((List<?>) map.get(key)).size();
+            }
+        }
+        return statistics.getPrepareStatementCount();
+    }
+
+    private List<Challenge> persistChallenges(String creatorId, String participantId, int count) {
+        List<Challenge> persisted = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Challenge challenge = new Challenge();
+            challenge.setDescription("Desafio " + i);
+            challenge.setAmount(10.0);
+            challenge.setType("custom");
+            challenge.setStatus("NOT_STARTED");
+            challenge.setCreatedAt(System.currentTimeMillis() + i);
+            challenge.setCreatorId(creatorId);
+            challenge.setShareLink(creatorId + "-" + i);
+            challenge.setCustomProofTypes(new ArrayList<>(List.of("foto")));
+            challenge.setParticipants(new ArrayList<>(List.of(participantId, "other-" + i)));
+            challenge.setPaidUserIds(new ArrayList<>(List.of(creatorId)));
+            challenge.setBannedUserIds(new ArrayList<>(List.of("banned-" + i)));
+            challenge.setFinishAcceptedUserIds(new ArrayList<>(List.of(creatorId)));
+            persisted.add(entityManager.persist(challenge));
+        }
+        return persisted;
+    }
+}
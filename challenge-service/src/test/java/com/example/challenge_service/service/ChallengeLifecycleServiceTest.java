@@ -0,0 +1,86 @@
+package com.example.challenge_service.service;
+
+import com.example.challenge_service.model.Challenge;
+import com.example.challenge_service.model.ScheduledTask.Kind;
+import com.example.challenge_service.repository.ChallengeRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Disparos do agendador chamados direto, fora de requisição (sem open-in-view), com o
+// wallet-service e o proof-service fora do ar: a liquidação falha e precisa ficar agendada.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:lifecycle;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "challenge.scheduler.tick-millis=3600000",
+        "downstream.services.wallet.base-url=http://localhost:1",
+        "downstream.services.proof.base-url=http://localhost:1"
+})
+class ChallengeLifecycleServiceTest {
+
+    @Autowired
+    private ChallengeLifecycleService lifecycleService;
+
+    @Autowired
+    private ChallengeRepository challengeRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void endedChallengeIsCompletedAndQueuedForSettlement() {
+        long now = System.currentTimeMillis();
+        String target = String.valueOf(newChallenge("owner-end", "IN_PROGRESS", now - 1000).getId());
+
+        Set<String> handled = lifecycleService.handle(Kind.CHALLENGE_END, List.of(target), now);
+
+        assertEquals(Set.of(target), handled);
+        assertEquals("COMPLETED", jdbcTemplate.queryForObject(
+                "SELECT status FROM challenges WHERE id = ?", String.class, Long.parseLong(target)));
+        assertEquals(1L, settlementTasks(target));
+    }
+
+    // Cada desafio do lote é tratado à parte: falha na liquidação de um não impede os demais
+    @Test
+    void settlementRetryKeepsFailedChallengeAndHandlesTheRest() {
+        long now = System.currentTimeMillis();
+        String completed = String.valueOf(newChallenge("owner-done", "COMPLETED", now - 1000).getId());
+        String running = String.valueOf(newChallenge("owner-running", "IN_PROGRESS", now + 60_000).getId());
+
+        Set<String> handled = lifecycleService.handle(Kind.SETTLEMENT, List.of(completed, running, "999999999", "x"), now);
+
+        assertFalse(handled.contains(completed));
+        assertTrue(handled.containsAll(List.of(running, "999999999", "x")));
+    }
+
+    private long settlementTasks(String target) {
+        Long value = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM scheduled_tasks WHERE kind = 'SETTLEMENT' AND target_id = ?", Long.class, target);
+        return value != null ? value : 0;
+    }
+
+    private Challenge newChallenge(String creatorId, String status, long endDate) {
+        Challenge challenge = new Challenge();
+        challenge.setDescription("Desafio com prazo");
+        challenge.setAmount(10.0);
+        challenge.setType("custom");
+        challenge.setStatus(status);
+        challenge.setCreatedAt(System.currentTimeMillis());
+        challenge.setEndDate(endDate);
+        challenge.setCreatorId(creatorId);
+        challenge.setAcceptorId("acceptor-" + creatorId);
+        challenge.setShareLink(creatorId + "-" + System.nanoTime());
+        challenge.setParticipants(new ArrayList<>());
+        challenge.setPaidUserIds(new ArrayList<>(List.of(creatorId, "acceptor-" + creatorId)));
+        return challengeRepository.save(challenge);
+    }
+}
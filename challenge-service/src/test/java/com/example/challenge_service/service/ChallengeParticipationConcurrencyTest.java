@@ -0,0 +1,164 @@
+package com.example.challenge_service.service;
+
+import com.example.challenge_service.model.Challenge;
+import com.example.challenge_service.repository.ChallengeRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:participation;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "spring.jpa.show-sql=false"
+})
+class ChallengeParticipationConcurrencyTest {
+
+    private static final int USERS = 500;
+    private static final int THREADS = 32;
+
+    @Autowired
+    private ChallengeParticipationService participationService;
+
+    @Autowired
+    private ChallengeRepository challengeRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void fiveHundredSimultaneousJoinsAreAllKept() throws Exception {
+        Long challengeId = newChallenge("owner-viral").getId();
+
+        int failures = runConcurrently(USERS, i ->
+                participationService.withRetry(() -> participationService.join(challengeId, "user-" + i)));
+
+        assertEquals(0, failures);
+        assertEquals(USERS, count("SELECT COUNT(*) FROM challenge_participants WHERE challenge_id = ?", challengeId));
+        assertEquals(USERS, count("SELECT COUNT(DISTINCT participant_id) FROM challenge_participants WHERE challenge_id = ?", challengeId));
+        assertEquals(USERS, count("SELECT COUNT(*) FROM challenge_membership WHERE challenge_id = ? AND state = 'ACTIVE' " +
+                "AND role = 'PARTICIPANT'", challengeId));
+    }
+
+    @Test
+    void repeatedJoinOfSameUserKeepsSingleRow() throws Exception {
+        Long challengeId = newChallenge("owner-repeat").getId();
+
+        int failures = runConcurrently(50, i ->
+                participationService.withRetry(() -> participationService.join(challengeId, "same-user")));
+
+        assertEquals(0, failures);
+        assertEquals(1, count("SELECT COUNT(*) FROM challenge_participants WHERE challenge_id = ?", challengeId));
+    }
+
+    // Caminho antigo (carrega o desafio, altera a lista e salva tudo) x inserção pontual: o antigo
+    // regrava a coleção inteira a cada entrada e, com @Version, pode esgotar as novas tentativas
+    // (entrada recusada, nunca perdida em silêncio); o pontual grava todas as entradas sem falhas.
+    @Test
+    void targetedJoinLosesNoEntryWhereWholeCollectionRewriteGivesUp() throws Exception {
+        int users = 200;
+        Long legacyId = newChallenge("owner-legacy").getId();
+        Long targetedId = newChallenge("owner-targeted").getId();
+
+        int legacyFailures = runConcurrently(users, i -> participationService.withRetry(() ->
+                transactionTemplate.execute(status -> {
+                    Challenge c = challengeRepository.findById(legacyId).orElseThrow();
+                    String userId = "user-" + i;
+                    if (!c.getParticipants().contains(userId)) c.getParticipants().add(userId);
+                    return challengeRepository.save(c);
+                })));
+        int targetedFailures = runConcurrently(users, i ->
+                participationService.withRetry(() -> participationService.join(targetedId, "user-" + i)));
+
+        long legacyRows = count("SELECT COUNT(*) FROM challenge_participants WHERE challenge_id = ?", legacyId);
+        assertEquals(users - legacyFailures, legacyRows);
+        assertEquals(0, targetedFailures);
+        assertEquals(users, count("SELECT COUNT(*) FROM challenge_participants WHERE challenge_id = ?", targetedId));
+    }
+
+    // Remoções pelo criador ao mesmo tempo que novas entradas: nenhuma entrada é perdida
+    // e cada removido fica KICKED em challenge_membership
+    @Test
+    void kicksConcurrentWithJoinsKeepEveryNewEntry() throws Exception {
+        int users = 100;
+        Long challengeId = newChallenge("owner-kick").getId();
+        for (int i = 0; i < users; i++) {
+            participationService.join(challengeId, "old-" + i);
+        }
+
+        int failures = runConcurrently(users * 2, i -> participationService.withRetry(() -> i % 2 == 0
+                ? participationService.kick(challengeId, "old-" + i / 2)
+                : participationService.join(challengeId, "new-" + i / 2)));
+
+        assertEquals(0, failures);
+        assertEquals(users, count("SELECT COUNT(*) FROM challenge_participants WHERE challenge_id = ? " +
+                "AND participant_id LIKE 'new-%'", challengeId));
+        assertEquals(0, count("SELECT COUNT(*) FROM challenge_participants WHERE challenge_id = ? " +
+                "AND participant_id LIKE 'old-%'", challengeId));
+        assertEquals(users, count("SELECT COUNT(*) FROM challenge_membership WHERE challenge_id = ? " +
+                "AND state = 'KICKED'", challengeId));
+    }
+
+    // Devolve quantas tarefas falharam (exceção ou tempo esgotado)
+    private int runConcurrently(int tasks, IntConsumer task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < tasks; i++) {
+                int index = i;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    task.accept(index);
+                    return null;
+                }));
+            }
+            start.countDown();
+            int failures = 0;
+            for (Future<?> future : futures) {
+                try {
+                    future.get(2, TimeUnit.MINUTES);
+                } catch (Exception e) {
+                    failures++;
+                }
+            }
+            return failures;
+        } finally {
+            // tarefa presa (tempo esgotado) não deixa threads vivas no contexto de teste compartilhado
+            pool.shutdownNow();
+        }
+    }
+
+    private long count(String sql, Long challengeId) {
+        Long value = jdbcTemplate.queryForObject(sql, Long.class, challengeId);
+        return value != null ? value : 0;
+    }
+
+    private Challenge newChallenge(String creatorId) {
+        Challenge challenge = new Challenge();
+        challenge.setDescription("Desafio viral");
+        challenge.setAmount(10.0);
+        challenge.setType("custom");
+        challenge.setStatus("NOT_STARTED");
+        challenge.setCreatedAt(System.currentTimeMillis());
+        challenge.setCreatorId(creatorId);
+        challenge.setShareLink(creatorId + "-" + System.nanoTime());
+        challenge.setParticipants(new ArrayList<>());
+        challenge.setPaidUserIds(new ArrayList<>());
+        return challengeRepository.save(challenge);
+    }
+}
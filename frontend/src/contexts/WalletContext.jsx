@@ -9,10 +9,11 @@ export function WalletProvider({ children }) {
   const [loading, setLoading] = useState(true)
   const { token } = useAuth()
 
-  const loadWallet = async () => {
+  // provision: PUT cria a carteira se ainda não existe (idempotente); o GET só lê o saldo
+  const loadWallet = async (provision = false) => {
     try {
       setLoading(true)
-      const response = await api.get('/api/wallet')
+      const response = provision ? await api.put('/api/wallet') : await api.get('/api/wallet')
       if (response.data && response.data.balance !== undefined) {
         setWalletBalance(response.data.balance)
       } else {
@@ -46,7 +47,7 @@ export function WalletProvider({ children }) {
   useEffect(() => {
     // Evita chamadas 401 no login/register que causam redirecionamento em loop
     if (token) {
-      loadWallet()
+      loadWallet(true)
     } else {
       setLoading(false)
     }
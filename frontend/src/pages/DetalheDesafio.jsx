@@ -150,7 +150,7 @@ const DetalheDesafio = () => {
       setWinnerCheckinCount(0)
       setWinnerAmount(0)
     }
-  }, [challenge?.status, challenge?.winnerId, proofs.length])
+  }, [challenge?.status, challenge?.winnerId])
 
   useEffect(() => {
     if (challenge && challenge.status === 'CANCELLED' && user) {
@@ -361,6 +361,30 @@ const DetalheDesafio = () => {
     }
   }
 
+  const countWinnerProofs = async (winnerId) => {
+    try {
+      const res = await api.get(`/api/proofs/challenge/${id}/winner`)
+      if (res.data?.winnerId === winnerId) return Number(res.data.totalProofs) || 0
+    } catch {
+      // segue para a contagem pelas páginas
+    }
+    // vencedor definido de outra forma: soma as provas válidas dele página a página
+    let count = 0
+    let cursor = null
+    try {
+      do {
+        const r = await api.get(`/api/proofs/challenge/${id}/lite`, {
+          params: { userId: winnerId, limit: 500, cursor: cursor || undefined }
+        })
+        if (Array.isArray(r.data)) count += r.data.filter(p => proofStatus(p) === 'valid').length
+        cursor = r.headers?.['x-next-cursor'] || null
+      } while (cursor)
+    } catch {
+      // falha no meio: fica o que já foi contado
+    }
+    return count
+  }
+
   const loadWinnerData = async () => {
     try {
       try {
@@ -370,10 +394,8 @@ const DetalheDesafio = () => {
         setWinnerProfile(null)
       }
 
-      const winnerProofs = proofs.filter(
-        p => p.userId === challenge.winnerId && proofStatus(p) === 'valid'
-      )
-      setWinnerCheckinCount(winnerProofs.length)
+      // contagem no servidor (proof_counter): a lista local de provas é só a primeira página
+      setWinnerCheckinCount(await countWinnerProofs(challenge.winnerId))
 
       const netStakePerUser = (challenge?.amount || 0) -
         ((challenge?.amount || 0) * ((challenge?.participationFeePercent ?? 15) / 100))
@@ -1391,7 +1413,7 @@ const DetalheDesafio = () => {
                       </div>
                       <p className="text-sm text-gray-300">{proof.description}</p>
                       {proof.imageUrl && (
-                        <img src={proof.imageUrl} alt="Prova" className="mt-2 rounded max-w-xs" loading="lazy" />
+                        <img src={proof.imageThumbnailUrl || proof.imageUrl} alt="Prova" className="mt-2 rounded max-w-xs" loading="lazy" />
                       )}
                     </div>
                   ))}
@@ -1533,7 +1555,7 @@ const DetalheDesafio = () => {
                   <div key={getProofKey(proof, idx)} className="bg-black border border-neon-green/20 p-3 rounded-lg">
                     <p className="text-sm text-gray-400">{proof.description}</p>
                     {proof.imageUrl && (
-                      <img src={proof.imageUrl} alt="Prova" className="mt-2 rounded max-w-xs" />
+                      <img src={proof.imageThumbnailUrl || proof.imageUrl} alt="Prova" className="mt-2 rounded max-w-xs" />
                     )}
                   </div>
                 ))}
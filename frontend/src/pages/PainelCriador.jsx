@@ -9,7 +9,7 @@ export default function PainelCriador() {
   const { user } = useAuth()
   const [challenge, setChallenge] = useState(null)
   const [participants, setParticipants] = useState([])
-  const [proofs, setProofs] = useState([])
+  const [standing, setStanding] = useState(null)
   const [loading, setLoading] = useState(true)
   const [cancelling, setCancelling] = useState(false)
 
@@ -34,17 +34,11 @@ export default function PainelCriador() {
     }
     ;(async () => {
       try {
-        let data = []
-        try {
-          const r1 = await api.get(`/api/proofs/challenge/${id}`)
-          if (Array.isArray(r1.data)) data = r1.data
-        } catch {
-          const r2 = await api.get('/api/proofs', { params: { challengeId: id } })
-          data = Array.isArray(r2.data?.items) ? r2.data.items : (Array.isArray(r2.data) ? r2.data : [])
-        }
-        setProofs(data)
+        // total e top 3 vêm dos contadores por usuário (placar), sem baixar as provas
+        const r = await api.get(`/api/proofs/challenge/${id}/leaderboard`, { params: { limit: 3, type: 'count' } })
+        setStanding(r.data)
       } catch {
-        setProofs([])
+        setStanding(null)
       }
       // carregar participantes
       const ids = [
@@ -66,16 +60,7 @@ export default function PainelCriador() {
     })()
   }, [challenge, user, id, navigate])
 
-  const top3 = useMemo(() => {
-    const countBy = proofs.reduce((acc, p) => {
-      const uid = p.userId || 'desconhecido'
-      acc[uid] = (acc[uid] || 0) + 1
-      return acc
-    }, {})
-    const entries = Object.entries(countBy).map(([userId, count]) => ({ userId, count }))
-    entries.sort((a, b) => b.count - a.count)
-    return entries.slice(0, 3)
-  }, [proofs])
+  const top3 = useMemo(() => (standing?.top || []).map(p => ({ userId: p.userId, count: p.proofs })), [standing])
 
   const findUser = (userId) => participants.find(u => u.id === userId)
 
@@ -152,7 +137,7 @@ export default function PainelCriador() {
         </div>
         <div className="bg-black border border-neon-green/30 rounded p-4">
           <p className="text-xs text-gray-400">Provas enviadas</p>
-          <p className="text-2xl font-bold">{proofs.length}</p>
+          <p className="text-2xl font-bold">{standing?.totalProofs ?? 0}</p>
         </div>
       </div>
 
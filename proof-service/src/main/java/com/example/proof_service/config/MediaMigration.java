@@ -0,0 +1,116 @@
+package com.example.proof_service.config;
+
+import com.example.proof_service.service.BlobStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+// Migração das provas antigas: data URLs em base64 guardadas em proof.photos / proof.image_url
+// vão para o BlobStore e a linha passa a guardar só os hashes. Roda na subida, em lotes por id
+// (poucas linhas por vez: cada uma pode ter vários MB). Pode ser interrompida e rodada de novo:
+// o arquivo é gravado antes do UPDATE e o mesmo conteúdo gera o mesmo hash. Valor que não pode
+// ser convertido (data URL sem base64) fica na coluna como estava.
+// Desligar com proof.media.migrate-on-startup=false.
+@Component
+public class MediaMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(MediaMigration.class);
+    private static final int BATCH = 20;
+
+    private record LegacyRow(long id, String photos, String imageUrl) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BlobStore blobStore;
+    private final boolean enabled;
+
+    public MediaMigration(JdbcTemplate jdbcTemplate,
+                          BlobStore blobStore,
+                          @Value("${proof.media.migrate-on-startup:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.blobStore = blobStore;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) return;
+        try {
+            migrate();
+        } catch (Exception e) {
+            log.error("[mediaMigration] falha: {}", e.getMessage(), e);
+        }
+    }
+
+    // Devolve quantas provas foram migradas
+    public int migrate() {
+        int migrated = 0;
+        int kept = 0;
+        int failed = 0;
+        long lastId = 0;
+        while (true) {
+            List<LegacyRow> rows = jdbcTemplate.query(
+                    "SELECT id, photos, image_url FROM proof WHERE id > ? " +
+                    "AND (photos LIKE 'data:%' OR image_url LIKE 'data:%') ORDER BY id LIMIT ?",
+                    (rs, i) -> new LegacyRow(rs.getLong("id"), rs.getString("photos"), rs.getString("image_url")),
+                    lastId, BATCH);
+            if (rows.isEmpty()) break;
+            for (LegacyRow row : rows) {
+                lastId = row.id();
+                try {
+                    if (migrateRow(row)) migrated++;
+                    else kept++;
+                } catch (Exception e) {
+                    failed++;
+                    log.warn("[mediaMigration] prova {} não migrada -> {}", row.id(), e.getMessage());
+                }
+            }
+        }
+        if (migrated > 0 || kept > 0 || failed > 0) {
+            log.info("[mediaMigration] {} provas migradas para o BlobStore, {} mantidas sem conversão, {} com falha",
+                    migrated, kept, failed);
+        }
+        return migrated;
+    }
+
+    // false = nada convertido, linha mantida como estava
+    private boolean migrateRow(LegacyRow row) throws Exception {
+        String photos = row.photos();
+        if (photos != null && photos.startsWith("data:")) {
+            // alguma foto que não vira arquivo (data URL fora do formato): a coluna fica como estava
+            List<String> hashes = new ArrayList<>();
+            boolean complete = true;
+            for (String dataUrl : BlobStore.splitDataUrls(photos)) {
+                BlobStore.StoredBlob blob = blobStore.storeDataUrl(dataUrl);
+                if (blob == null) {
+                    complete = false;
+                    break;
+                }
+                hashes.add(blob.hash());
+            }
+            if (complete && !hashes.isEmpty()) photos = String.join(",", hashes);
+        }
+        String imageHash = null;
+        String imageUrl = row.imageUrl();
+        if (imageUrl != null && imageUrl.startsWith("data:")) {
+            BlobStore.StoredBlob blob = blobStore.storeDataUrl(imageUrl);
+            if (blob != null) {
+                imageHash = blob.hash();
+                imageUrl = null;
+            }
+        }
+        if (Objects.equals(photos, row.photos()) && Objects.equals(imageUrl, row.imageUrl())) {
+            return false;
+        }
+        jdbcTemplate.update("UPDATE proof SET photos = ?, image_url = ?, image_hash = COALESCE(?, image_hash) WHERE id = ?",
+                photos, imageUrl, imageHash, row.id());
+        return true;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.proof_service.config;
+
+import com.example.proof_service.service.ProofCounters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// proof_counter em bancos anteriores à tabela: reconstruída a partir das provas uma única vez,
+// antes de o servidor aceitar requisições (nenhuma prova nova é contada em dobro ou perdida).
+// A conclusão fica em data_migration (linha MARKER), gravada na mesma transação da carga.
+@Component
+public class ProofCounterBackfill implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(ProofCounterBackfill.class);
+
+    static final String MARKER = "proof_counter_backfill_v1";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProofCounters proofCounters;
+    private final TransactionTemplate transactionTemplate;
+
+    public ProofCounterBackfill(JdbcTemplate jdbcTemplate, ProofCounters proofCounters,
+                                PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.proofCounters = proofCounters;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS data_migration (" +
+                    "name VARCHAR(100) PRIMARY KEY, applied_at BIGINT NOT NULL)");
+            Integer rows = transactionTemplate.execute(status -> {
+                Long applied = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM data_migration WHERE name = ?", Long.class, MARKER);
+                if (applied != null && applied > 0) return null;
+                int rebuilt = proofCounters.rebuild(null);
+                jdbcTemplate.update("INSERT INTO data_migration (name, applied_at) VALUES (?, ?)", MARKER, System.currentTimeMillis());
+                return rebuilt;
+            });
+            if (rows != null) {
+                log.info("[proofCounters] contadores reconstruídos -> {} linhas", rows);
+            }
+        } catch (Exception e) {
+            log.error("[proofCounters] falha ao reconstruir contadores -> {}", e.getMessage(), e);
+        }
+    }
+}
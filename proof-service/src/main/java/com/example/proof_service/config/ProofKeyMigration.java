@@ -0,0 +1,85 @@
+package com.example.proof_service.config;
+
+import com.example.proof_service.service.ProofCounters;
+import com.example.proof_service.service.ProofQueries;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Chave canônica do desafio = proof.challenge_id. Provas antigas com o id só em challenge_id_string
+// ("42") passam para challenge_id; valores não numéricos não correspondem a nenhum desafio e ficam
+// onde estão (fora das listagens). created_at nulo vira timestamp (ou 0) para a paginação por cursor.
+// Idempotente: roda a cada subida e só encontra trabalho na primeira.
+@Component
+public class ProofKeyMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ProofKeyMigration.class);
+    private static final int BATCH = 500;
+
+    private record LegacyRow(long id, String challengeIdString) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProofCounters proofCounters;
+
+    public ProofKeyMigration(JdbcTemplate jdbcTemplate, ProofCounters proofCounters) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.proofCounters = proofCounters;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            int dated = jdbcTemplate.update("UPDATE proof SET created_at = COALESCE(timestamp, 0) WHERE created_at IS NULL");
+            if (dated > 0) {
+                log.info("[proofKeyMigration] created_at preenchido em {} provas", dated);
+            }
+            migrate();
+        } catch (Exception e) {
+            log.error("[proofKeyMigration] falha: {}", e.getMessage(), e);
+        }
+    }
+
+    // Devolve quantas provas passaram para challenge_id
+    public int migrate() {
+        Set<Long> touched = new TreeSet<>();
+        int folded = 0;
+        int orphaned = 0;
+        long lastId = 0;
+        while (true) {
+            List<LegacyRow> rows = jdbcTemplate.query(
+                    "SELECT id, challenge_id_string FROM proof WHERE id > ? AND challenge_id IS NULL " +
+                    "AND challenge_id_string IS NOT NULL ORDER BY id LIMIT ?",
+                    (rs, i) -> new LegacyRow(rs.getLong("id"), rs.getString("challenge_id_string")),
+                    lastId, BATCH);
+            if (rows.isEmpty()) break;
+            for (LegacyRow row : rows) {
+                lastId = row.id();
+                Long challengeId = ProofQueries.challengeKey(row.challengeIdString());
+                if (challengeId == null) {
+                    orphaned++;
+                    continue;
+                }
+                jdbcTemplate.update("UPDATE proof SET challenge_id = ?, challenge_id_string = NULL WHERE id = ?",
+                        challengeId, row.id());
+                touched.add(challengeId);
+                folded++;
+            }
+        }
+        // contadores do vencedor dos desafios que ganharam provas
+        for (Long challengeId : touched) {
+            proofCounters.rebuild(challengeId);
+        }
+        if (folded > 0 || orphaned > 0) {
+            log.info("[proofKeyMigration] {} provas movidas para challenge_id ({} desafios), {} com id não numérico ignoradas",
+                    folded, touched.size(), orphaned);
+        }
+        return folded;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.proof_service.config;
+
+import com.example.proof_service.model.Proof;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// proof.id passou de IDENTITY para a sequência proof_seq (pooled, blocos de 50). Em bancos que já
+// têm provas, a sequência nova começaria em 1 e colidiria com os ids existentes: aqui ela é
+// reposicionada acima do maior id antes de o servidor aceitar requisições. Com o otimizador pooled,
+// o valor lido da sequência é o topo do bloco, por isso a folga de um bloco inteiro.
+@Component
+public class ProofSequenceAlignment {
+
+    private static final Logger log = LoggerFactory.getLogger(ProofSequenceAlignment.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // EntityManagerFactory: só roda depois que o Hibernate criou/atualizou tabela e sequência
+    public ProofSequenceAlignment(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    void align() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM proof", Long.class);
+        if (maxId == null || maxId == 0) return;
+        long restart = maxId + Proof.ID_ALLOCATION_SIZE + 1;
+        jdbcTemplate.execute("ALTER SEQUENCE " + Proof.ID_SEQUENCE + " RESTART WITH " + restart);
+        log.info("[proofSequence] {} reposicionada em {} (maior id {})", Proof.ID_SEQUENCE, restart, maxId);
+    }
+}
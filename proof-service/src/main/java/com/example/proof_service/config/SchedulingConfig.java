@@ -0,0 +1,10 @@
+package com.example.proof_service.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Habilita os @Scheduled do serviço (limpeza de uploads vencidos)
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,172 @@
+package com.example.proof_service.controller;
+
+import com.example.proof_service.service.BlobStore;
+import com.example.proof_service.service.ThumbnailPipeline;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+// Arquivos das provas servidos direto do disco, com suporte a Range (vídeo com seek, download
+// retomado). Com o conector do Tomcat que suporta sendfile, o envio é entregue a ele (zero-copy:
+// arquivo -> socket pelo kernel, fora da thread da requisição); sem ele, cópia em blocos do
+// FileChannel para a saída da resposta, sem carregar o arquivo inteiro na heap.
+// O conteúdo de um hash nunca muda, então o cache do navegador pode guardá-lo para sempre.
+@RestController
+@RequestMapping("/api/proofs/media")
+@CrossOrigin(origins = "*", exposedHeaders = {"Content-Range", "Accept-Ranges", "ETag"})
+public class MediaController {
+
+    private static final Logger log = LoggerFactory.getLogger(MediaController.class);
+
+    // Range "bytes=início-fim" (fim inclusivo)
+    private record ByteRange(long start, long end) {
+        long length() {
+            return end - start + 1;
+        }
+    }
+
+    private static final ByteRange UNSATISFIABLE = new ByteRange(-1, -2);
+
+    // atributos de requisição do Tomcat para sendfile (os mesmos que o DefaultServlet usa)
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @GetMapping("/{hash}")
+    public void serve(@PathVariable String hash,
+                      @RequestHeader(value = HttpHeaders.RANGE, required = false) String rangeHeader,
+                      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                      HttpServletRequest request,
+                      HttpServletResponse response) throws IOException {
+        Optional<BlobStore.StoredBlob> found = blobStore.find(hash);
+        if (found.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        BlobStore.StoredBlob blob = found.get();
+        send(blob.path(), blob.contentType(), blob.size(), "\"" + blob.hash() + "\"", IMMUTABLE,
+                rangeHeader, ifNoneMatch, request, response);
+    }
+
+    // NOVO: miniatura JPEG (160 ou 640); ainda não gerada = original, sem cache longo
+    @GetMapping("/{hash}/thumb/{size}")
+    public void serveThumbnail(@PathVariable String hash,
+                               @PathVariable int size,
+                               @RequestHeader(value = HttpHeaders.RANGE, required = false) String rangeHeader,
+                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                               HttpServletRequest request,
+                               HttpServletResponse response) throws IOException {
+        Optional<BlobStore.StoredBlob> found = blobStore.find(hash);
+        if (found.isEmpty() || !ThumbnailPipeline.SIZES.contains(size)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        BlobStore.StoredBlob blob = found.get();
+        Path thumbnail = blobStore.thumbnailPath(hash, size);
+        if (Files.isRegularFile(thumbnail)) {
+            send(thumbnail, "image/jpeg", Files.size(thumbnail), "\"" + hash + "-t" + size + "\"", IMMUTABLE,
+                    rangeHeader, ifNoneMatch, request, response);
+        } else {
+            send(blob.path(), blob.contentType(), blob.size(), "\"" + hash + "\"", "public, max-age=60",
+                    rangeHeader, ifNoneMatch, request, response);
+        }
+    }
+
+    private void send(Path path, String contentType, long size, String etag, String cacheControl,
+                      String rangeHeader, String ifNoneMatch,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*"))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        ByteRange range = parseRange(rangeHeader, size);
+        if (range == UNSATISFIABLE) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+        if (range == null) {
+            range = new ByteRange(0, size - 1);
+            response.setStatus(HttpServletResponse.SC_OK);
+        } else {
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + range.start() + "-" + range.end() + "/" + size);
+        }
+        response.setContentType(contentType);
+        response.setContentLengthLong(Math.max(0, range.length()));
+        if ("HEAD".equalsIgnoreCase(request.getMethod()) || range.length() <= 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // nada é escrito na resposta: o Tomcat envia o trecho [start, end) depois que o método retorna
+            request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, range.start());
+            request.setAttribute(SENDFILE_END, range.end() + 1);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = range.start();
+            long remaining = range.length();
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) break;
+                position += sent;
+                remaining -= sent;
+            }
+        } catch (IOException e) {
+            // cliente fechou a conexão no meio (comum em vídeo com seek)
+            log.debug("[media] envio de {} interrompido -> {}", path.getFileName(), e.getMessage());
+        }
+    }
+
+    // null = sem Range (ou Range ignorado: várias faixas / unidade diferente) -> arquivo inteiro
+    private static ByteRange parseRange(String header, long size) {
+        if (header == null || !header.startsWith("bytes=")) return null;
+        String spec = header.substring("bytes=".length()).trim();
+        if (spec.contains(",")) return null;
+        int dash = spec.indexOf('-');
+        if (dash < 0) return null;
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // "bytes=-N": últimos N bytes
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || size == 0) return UNSATISFIABLE;
+                return new ByteRange(Math.max(0, size - suffix), size - 1);
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+            if (start >= size || end < start) return UNSATISFIABLE;
+            return new ByteRange(start, end);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
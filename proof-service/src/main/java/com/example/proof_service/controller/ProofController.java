@@ -7,20 +7,29 @@ import org.springframework.web.bind.annotation.*;
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 
 import java.util.*;
 import java.util.stream.Collectors;
 
+import com.example.proof_service.config.InternalApiKey;
 import com.example.proof_service.model.Proof;
 import com.example.proof_service.repository.ProofRepository;
+import com.example.proof_service.model.UploadSession;
+import com.example.proof_service.service.BlobStore;
+import com.example.proof_service.service.Leaderboards;
+import com.example.proof_service.service.ProofCounters;
+import com.example.proof_service.service.ProofCursor;
+import com.example.proof_service.service.ProofQueries;
+import com.example.proof_service.service.ResumableUploads;
 
 @RestController
 @RequestMapping("/api/proofs")
 @CrossOrigin(
     origins = "*",
     allowedHeaders = "*",
-    exposedHeaders = {"Authorization"},
-    methods = {RequestMethod.GET,RequestMethod.POST,RequestMethod.OPTIONS}
+    exposedHeaders = {"Authorization", "X-Next-Cursor"},
+    methods = {RequestMethod.GET,RequestMethod.POST,RequestMethod.DELETE,RequestMethod.OPTIONS}
 )
 public class ProofController {
 
@@ -29,6 +38,33 @@ public class ProofController {
     @Autowired
     private ProofRepository proofRepository;
 
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private ResumableUploads resumableUploads;
+
+    @Autowired
+    private ProofCounters proofCounters;
+
+    @Autowired
+    private Leaderboards leaderboards;
+
+    @Autowired
+    private ProofQueries proofQueries;
+
+    @Autowired
+    private InternalApiKey internalApiKey;
+
+    @Value("${proof.batch.max-items:500}")
+    private int batchMaxItems;
+
+    // NOVO: campos validados em cada item do lote
+    private static final List<String> BATCH_LONG_FIELDS = List.of(
+            "checkinTime", "checkoutTime", "elapsedMinutes", "studyTime", "mealCount", "requiredMeals", "timestamp");
+    private static final List<String> BATCH_TEXT_FIELDS = List.of(
+            "description", "location", "studyTimeFormatted", "meals", "date", "status");
+
     // Corrigido: removido uso de proofs Map, usar apenas banco via proofRepository
     // NOVO: responder preflight explicitamente (mantém compatibilidade)
     @RequestMapping(method = RequestMethod.OPTIONS, path = {"", "/**"})
@@ -36,57 +72,38 @@ public class ProofController {
         return ResponseEntity.ok().build();
     }
 
-    // NOVO: método utilitário robusto para buscar provas por challengeId (long) ou string
-    private List<Proof> safeFindProofsByChallenge(String challengeIdStr) {
+    // NOVO: todas as listagens usam a chave canônica (challengeId numérico) e paginação por cursor:
+    // limit (padrão 200, máx. 500), cursor = valor de X-Next-Cursor da página anterior, userId opcional.
+    // O corpo continua sendo uma lista; sem X-Next-Cursor na resposta, não há mais páginas.
+    private ResponseEntity<?> listPage(String challengeId, boolean requireChallenge, String userId,
+                                       Integer limit, String cursor, java.util.function.Function<Proof, ?> view) {
+        Long key = ProofQueries.challengeKey(challengeId);
+        if (key == null && (requireChallenge || (challengeId != null && !challengeId.isBlank()))) {
+            // id não numérico não corresponde a nenhum desafio
+            return ResponseEntity.ok(Collections.emptyList());
+        }
+        ProofCursor position;
         try {
-            if (challengeIdStr == null) return Collections.emptyList();
-            String s = challengeIdStr.trim();
-            if (s.isEmpty()) return Collections.emptyList();
-            Long lid;
-            try {
-                lid = Long.parseLong(s);
-            } catch (Exception e) {
-                lid = null;
-            }
-            if (lid != null) {
-                try {
-                    return proofRepository.findByChallengeId(lid);
-                } catch (Exception ex) {
-                    log.warn("[safeFind] findByChallengeId failed for id={} -> {}", lid, ex.getMessage());
-                }
-            }
-            try {
-                return proofRepository.findByChallengeIdString(s);
-            } catch (Exception ex) {
-                log.warn("[safeFind] findByChallengeIdString failed for code='{}' -> {}", s, ex.getMessage());
-            }
-            // fallback: fetch all and filter (safe but more expensive)
-            try {
-                List<Proof> all = proofRepository.findAll();
-                if (lid != null) {
-                    final Long finalLid = lid;
-                    return all.stream().filter(p -> Objects.equals(p.getChallengeId(), finalLid)).collect(Collectors.toList());
-                } else {
-                    return all.stream().filter(p -> s.equals(p.getChallengeIdString())).collect(Collectors.toList());
-                }
-            } catch (Exception ex) {
-                log.error("[safeFind] fallback findAll failed -> {}", ex.getMessage(), ex);
-                return Collections.emptyList();
-            }
-        } catch (Exception ex) {
-            log.error("[safeFind] unexpected error -> {}", ex.getMessage(), ex);
-            return Collections.emptyList();
+            position = cursor != null && !cursor.isBlank() ? ProofCursor.decode(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", true, "message", e.getMessage()));
         }
+        String user = userId != null && !userId.isBlank() ? userId.trim() : null;
+        ProofQueries.Page page = proofQueries.page(key, user, position, ProofQueries.clampLimit(limit));
+        List<Object> body = page.items().stream().map(view).collect(Collectors.toList());
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) response.header("X-Next-Cursor", page.nextCursor());
+        return response.body(body);
     }
 
+    // NOVO: sem challengeId lista todas as provas, mas uma página por vez (antes: a tabela inteira)
     @GetMapping
-    public ResponseEntity<List<Proof>> getProofs(@RequestParam(required = false) String challengeId) {
+    public ResponseEntity<?> getProofs(@RequestParam(required = false) String challengeId,
+                                       @RequestParam(required = false) String userId,
+                                       @RequestParam(required = false) Integer limit,
+                                       @RequestParam(required = false) String cursor) {
         try {
-            if (challengeId == null || challengeId.isBlank()) {
-                return ResponseEntity.ok(proofRepository.findAll());
-            }
-            List<Proof> results = safeFindProofsByChallenge(challengeId);
-            return ResponseEntity.ok(results);
+            return listPage(challengeId, false, userId, limit, cursor, p -> p);
         } catch (Exception e) {
             log.error("[getProofs] error for challengeId='{}' -> {}", challengeId, e.getMessage(), e);
             return ResponseEntity.ok(Collections.emptyList());
@@ -95,10 +112,12 @@ public class ProofController {
 
     // NOVO: atalho sem query string
     @GetMapping("/challenge/{challengeId}")
-    public ResponseEntity<List<Proof>> getProofsByPath(@PathVariable String challengeId) {
+    public ResponseEntity<?> getProofsByPath(@PathVariable String challengeId,
+                                             @RequestParam(required = false) String userId,
+                                             @RequestParam(required = false) Integer limit,
+                                             @RequestParam(required = false) String cursor) {
         try {
-            List<Proof> results = safeFindProofsByChallenge(challengeId);
-            return ResponseEntity.ok(results);
+            return listPage(challengeId, true, userId, limit, cursor, p -> p);
         } catch (Exception e) {
             log.error("[getProofsByPath] error for challengeId='{}' -> {}", challengeId, e.getMessage(), e);
             return ResponseEntity.ok(Collections.emptyList());
@@ -107,38 +126,64 @@ public class ProofController {
 
     // Corrigido: getProofsFull agora busca do banco, não do Map
     @GetMapping("/challenge/{challengeId}/full")
-    public ResponseEntity<List<Map<String,Object>>> getProofsFull(@PathVariable String challengeId) {
-        List<Map<String,Object>> out = new ArrayList<>();
+    public ResponseEntity<?> getProofsFull(@PathVariable String challengeId,
+                                           @RequestParam(required = false) String userId,
+                                           @RequestParam(required = false) Integer limit,
+                                           @RequestParam(required = false) String cursor) {
         try {
-            List<Proof> proofs = safeFindProofsByChallenge(challengeId);
-            for (Proof p : proofs) {
-                if (p == null) continue;
-                Map<String,Object> map = new LinkedHashMap<>();
-                map.put("id", p.getId());
-                map.put("challengeId", p.getChallengeId());
-                map.put("description", p.getDescription());
-                map.put("timestamp", p.getTimestamp());
-                map.put("createdAt", p.getCreatedAt());
-                map.put("status", p.getStatus());
-                map.put("userId", p.getUserId());
-                map.put("elapsedMinutes", p.getElapsedMinutes());
-                map.put("distance", p.getDistance());
-                map.put("studyTime", p.getStudyTime());
-                map.put("studyTimeFormatted", p.getStudyTimeFormatted());
-                map.put("meals", p.getMeals());
-                map.put("checkinTime", p.getCheckinTime());
-                map.put("checkoutTime", p.getCheckoutTime());
-                // NÃO expor base64 pesada na listagem
-                out.add(map);
-                if (out.size() >= 500) break;
-            }
-            return ResponseEntity.ok(out);
+            return listPage(challengeId, true, userId, limit, cursor, this::fullProof);
         } catch (Exception ex) {
             log.error("[getProofsFull] error for challengeId='{}' -> {}", challengeId, ex.getMessage(), ex);
             return ResponseEntity.ok(Collections.emptyList());
         }
     }
 
+    private Map<String,Object> fullProof(Proof p) {
+        Map<String,Object> map = new LinkedHashMap<>();
+        map.put("id", p.getId());
+        map.put("challengeId", p.getChallengeId());
+        map.put("description", p.getDescription());
+        map.put("timestamp", p.getTimestamp());
+        map.put("createdAt", p.getCreatedAt());
+        map.put("status", p.getStatus());
+        map.put("userId", p.getUserId());
+        map.put("elapsedMinutes", p.getElapsedMinutes());
+        map.put("distance", p.getDistance());
+        map.put("studyTime", p.getStudyTime());
+        map.put("studyTimeFormatted", p.getStudyTimeFormatted());
+        map.put("meals", p.getMeals());
+        map.put("checkinTime", p.getCheckinTime());
+        map.put("checkoutTime", p.getCheckoutTime());
+        // NOVO: só URLs de /api/proofs/media (o conteúdo não passa pela listagem)
+        map.put("imageUrl", p.getImageUrl());
+        map.put("imageThumbnailUrl", p.getImageThumbnailUrl());
+        map.put("photoUrls", p.getPhotoUrls());
+        map.put("photoThumbnailUrls", p.getPhotoThumbnailUrls());
+        map.put("videoUrls", p.getVideoUrls());
+        return map;
+    }
+
+    private static String appendHash(String hashes, String hash) {
+        return hashes == null || hashes.isBlank() ? hash : hashes + "," + hash;
+    }
+
+    // photos pode vir como lista ou string (hashes separados por vírgula ou data URLs juntadas)
+    private static List<String> mediaRefs(Object photosObj) {
+        List<String> refs = new ArrayList<>();
+        if (photosObj instanceof List) {
+            for (Object item : (List<?>) photosObj) {
+                if (item != null) refs.add(item.toString());
+            }
+        } else if (photosObj instanceof String joined && !joined.isBlank()) {
+            if (joined.trim().startsWith("data:")) {
+                refs.addAll(BlobStore.splitDataUrls(joined));
+            } else {
+                refs.addAll(Arrays.asList(joined.split(",")));
+            }
+        }
+        return refs;
+    }
+
     private String extractUserId(String authHeader) {
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             try {
@@ -152,6 +197,116 @@ public class ProofController {
         return null;
     }
 
+    // Entidade a partir do JSON de uma prova (upload único e lote): mídia vai para o BlobStore,
+    // uploads em andamento voltam em pendingUploads para anexar depois de gravar
+    private Proof buildProof(Map<String, Object> payload, String userId, Long challengeIdLong, List<UploadSession> pendingUploads) throws java.io.IOException {
+        // 3. Montar entidade Proof
+        Proof proof = new Proof();
+        proof.setCreatedAt(System.currentTimeMillis());
+        proof.setTimestamp(System.currentTimeMillis());
+        proof.setUserId(userId);
+
+        proof.setChallengeId(challengeIdLong);
+
+        proof.setDescription((String) payload.getOrDefault("description", "Check-in"));
+        proof.setLocation((String) payload.getOrDefault("location", null));
+
+        // 4. Fotos: aceita imageUrl ou photos (array ou string)
+        // NOVO: data URLs vão para o BlobStore e a prova guarda só os hashes
+        List<String> photoHashes = new ArrayList<>();
+        for (String ref : mediaRefs(payload.get("photos"))) {
+            String hash = blobStore.ingest(ref);
+            if (hash != null) {
+                photoHashes.add(hash);
+            } else {
+                log.warn("[uploadProof] foto ignorada: referência não reconhecida");
+            }
+        }
+        if (!photoHashes.isEmpty()) proof.setPhotos(String.join(",", photoHashes));
+
+        // NOVO: uploads em partes (vídeos); concluídos entram já, em andamento são anexados ao terminar
+        for (String uploadId : mediaRefs(payload.get("uploadIds"))) {
+            UploadSession upload = resumableUploads.find(uploadId.trim());
+            if (upload == null || upload.getUserId() == null || !upload.getUserId().equals(userId)) {
+                log.warn("[uploadProof] upload {} ignorado: não encontrado ou de outro usuário", uploadId);
+            } else if (upload.isComplete()) {
+                if (ResumableUploads.isImage(upload)) {
+                    proof.setPhotos(appendHash(proof.getPhotos(), upload.getBlobHash()));
+                } else {
+                    proof.setVideos(appendHash(proof.getVideos(), upload.getBlobHash()));
+                }
+            } else {
+                pendingUploads.add(upload);
+            }
+        }
+
+        if (payload.get("imageUrl") instanceof String imageRef && !imageRef.isBlank()) {
+            String imageHash = blobStore.ingest(imageRef);
+            if (imageHash != null) {
+                proof.setImageHash(imageHash);
+            } else if (!imageRef.startsWith("data:")) {
+                proof.setImageUrl(imageRef); // URL externa
+            }
+        }
+
+        // 5. proofTypes e proofValues
+        Object typesObj = payload.get("proofTypes");
+        if (typesObj instanceof List) {
+            List<?> typesList = (List<?>) typesObj;
+            proof.setProofTypes(typesList.stream().map(Object::toString).collect(java.util.stream.Collectors.toList()));
+        }
+        Object valuesObj = payload.get("proofValues");
+        if (valuesObj instanceof Map) {
+            Map<?,?> valuesMap = (Map<?,?>) valuesObj;
+            Map<String,String> proofValues = new HashMap<>();
+            for (Map.Entry<?,?> entry : valuesMap.entrySet()) {
+                proofValues.put(entry.getKey().toString(), entry.getValue() != null ? entry.getValue().toString() : "");
+            }
+            proof.setProofValues(proofValues);
+        }
+
+        // 6. Campos específicos
+        if (payload.containsKey("checkinTime")) {
+            try { proof.setCheckinTime(Long.parseLong(payload.get("checkinTime").toString())); } catch (Exception ignored) {}
+        }
+        if (payload.containsKey("checkoutTime")) {
+            try { proof.setCheckoutTime(Long.parseLong(payload.get("checkoutTime").toString())); } catch (Exception ignored) {}
+        }
+        if (payload.containsKey("elapsedMinutes")) {
+            try { proof.setElapsedMinutes(Long.parseLong(payload.get("elapsedMinutes").toString())); } catch (Exception ignored) {}
+        }
+        if (payload.containsKey("distance")) {
+            try { proof.setDistance(Double.parseDouble(payload.get("distance").toString())); } catch (Exception ignored) {}
+        }
+        if (payload.containsKey("studyTime")) {
+            try { proof.setStudyTime(Long.parseLong(payload.get("studyTime").toString())); } catch (Exception ignored) {}
+        }
+        if (payload.containsKey("studyTimeFormatted")) {
+            proof.setStudyTimeFormatted((String) payload.get("studyTimeFormatted"));
+        }
+        if (payload.containsKey("meals")) {
+            proof.setMeals((String) payload.get("meals"));
+        }
+        if (payload.containsKey("mealCount")) {
+            try { proof.setMealCount(Integer.parseInt(payload.get("mealCount").toString())); } catch (Exception ignored) {}
+        }
+        if (payload.containsKey("requiredMeals")) {
+            try { proof.setRequiredMeals(Integer.parseInt(payload.get("requiredMeals").toString())); } catch (Exception ignored) {}
+        }
+        if (payload.containsKey("date")) {
+            proof.setDate((String) payload.get("date"));
+        }
+
+        // 7. Status
+        String status = (String) payload.getOrDefault("status", null);
+        if (status == null || status.isBlank()) {
+            proof.setStatus("VALID");
+        } else {
+            proof.setStatus(status);
+        }
+        return proof;
+    }
+
     @PostMapping
     public ResponseEntity<?> uploadProof(@RequestBody Map<String, Object> payload,
                                          @RequestHeader(value = "Authorization", required = false) String authHeader,
@@ -172,107 +327,23 @@ public class ProofController {
                 log.warn("[uploadProof] userId não informado, usando 'anonymous'");
             }
 
-            // 2. Extrair challengeId (número ou string)
+            // 2. Extrair challengeId (NOVO: só a chave canônica numérica)
             Object challengeIdObj = payload.get("challengeId");
-            Long challengeIdLong = null;
-            String challengeIdStr = null;
-            if (challengeIdObj != null) {
-                try {
-                    challengeIdLong = Long.parseLong(challengeIdObj.toString());
-                } catch (Exception e) {
-                    challengeIdStr = challengeIdObj.toString();
-                }
-            }
-            if (challengeIdLong == null && (challengeIdStr == null || challengeIdStr.isBlank())) {
-                log.error("[uploadProof] challengeId ausente ou inválido");
+            Long challengeIdLong = challengeIdObj != null ? ProofQueries.challengeKey(challengeIdObj.toString()) : null;
+            if (challengeIdLong == null) {
+                log.error("[uploadProof] challengeId ausente ou inválido: {}", challengeIdObj);
                 return ResponseEntity.badRequest().body(Map.of("error", true, "message", "challengeId obrigatório"));
             }
 
-            // 3. Montar entidade Proof
-            Proof proof = new Proof();
-            proof.setCreatedAt(System.currentTimeMillis());
-            proof.setTimestamp(System.currentTimeMillis());
-            proof.setUserId(userId);
+            // 3-7. Montar entidade Proof (NOVO: compartilhado com POST /api/proofs/batch)
+            List<UploadSession> pendingUploads = new ArrayList<>();
+            Proof proof = buildProof(payload, userId, challengeIdLong, pendingUploads);
 
-            if (challengeIdLong != null) proof.setChallengeId(challengeIdLong);
-            if (challengeIdStr != null) proof.setChallengeIdString(challengeIdStr);
-
-            proof.setDescription((String) payload.getOrDefault("description", "Check-in"));
-            proof.setLocation((String) payload.getOrDefault("location", null));
-
-            // 4. Fotos: aceita imageUrl ou photos (array ou string)
-            Object photosObj = payload.get("photos");
-            String photosStr = null;
-            if (photosObj instanceof List) {
-                List<?> photosList = (List<?>) photosObj;
-                photosStr = String.join(",", photosList.stream().map(Object::toString).toArray(String[]::new));
-            } else if (photosObj instanceof String) {
-                photosStr = (String) photosObj;
-            }
-            if (photosStr != null) proof.setPhotos(photosStr);
-
-            if (payload.containsKey("imageUrl")) {
-                proof.setImageUrl((String) payload.get("imageUrl"));
-            }
-
-            // 5. proofTypes e proofValues
-            Object typesObj = payload.get("proofTypes");
-            if (typesObj instanceof List) {
-                List<?> typesList = (List<?>) typesObj;
-                proof.setProofTypes(typesList.stream().map(Object::toString).collect(java.util.stream.Collectors.toList()));
-            }
-            Object valuesObj = payload.get("proofValues");
-            if (valuesObj instanceof Map) {
-                Map<?,?> valuesMap = (Map<?,?>) valuesObj;
-                Map<String,String> proofValues = new HashMap<>();
-                for (Map.Entry<?,?> entry : valuesMap.entrySet()) {
-                    proofValues.put(entry.getKey().toString(), entry.getValue() != null ? entry.getValue().toString() : "");
-                }
-                proof.setProofValues(proofValues);
-            }
-
-            // 6. Campos específicos
-            if (payload.containsKey("checkinTime")) {
-                try { proof.setCheckinTime(Long.parseLong(payload.get("checkinTime").toString())); } catch (Exception ignored) {}
-            }
-            if (payload.containsKey("checkoutTime")) {
-                try { proof.setCheckoutTime(Long.parseLong(payload.get("checkoutTime").toString())); } catch (Exception ignored) {}
-            }
-            if (payload.containsKey("elapsedMinutes")) {
-                try { proof.setElapsedMinutes(Long.parseLong(payload.get("elapsedMinutes").toString())); } catch (Exception ignored) {}
-            }
-            if (payload.containsKey("distance")) {
-                try { proof.setDistance(Double.parseDouble(payload.get("distance").toString())); } catch (Exception ignored) {}
-            }
-            if (payload.containsKey("studyTime")) {
-                try { proof.setStudyTime(Long.parseLong(payload.get("studyTime").toString())); } catch (Exception ignored) {}
-            }
-            if (payload.containsKey("studyTimeFormatted")) {
-                proof.setStudyTimeFormatted((String) payload.get("studyTimeFormatted"));
-            }
-            if (payload.containsKey("meals")) {
-                proof.setMeals((String) payload.get("meals"));
-            }
-            if (payload.containsKey("mealCount")) {
-                try { proof.setMealCount(Integer.parseInt(payload.get("mealCount").toString())); } catch (Exception ignored) {}
-            }
-            if (payload.containsKey("requiredMeals")) {
-                try { proof.setRequiredMeals(Integer.parseInt(payload.get("requiredMeals").toString())); } catch (Exception ignored) {}
-            }
-            if (payload.containsKey("date")) {
-                proof.setDate((String) payload.get("date"));
+            // 8. Salvar no banco (NOVO: junto com o contador de provas do vencedor)
+            Proof saved = proofCounters.save(proof);
+            for (UploadSession upload : pendingUploads) {
+                resumableUploads.attachWhenComplete(upload, saved.getId());
             }
-
-            // 7. Status
-            String status = (String) payload.getOrDefault("status", null);
-            if (status == null || status.isBlank()) {
-                proof.setStatus("VALID");
-            } else {
-                proof.setStatus(status);
-            }
-
-            // 8. Salvar no banco
-            Proof saved = proofRepository.save(proof);
             return ResponseEntity.ok(Map.of(
                 "error", false,
                 "id", saved.getId(),
@@ -289,6 +360,124 @@ public class ProofController {
         }
     }
 
+    // NOVO: lote de provas (check-ins registrados offline e sincronizados de uma vez): {"proofs": [{...}, ...]},
+    // cada item no formato do POST /api/proofs. Itens inválidos são recusados um a um; os válidos são
+    // gravados numa única transação, com INSERTs em batch JDBC. "results" traz um resultado por item,
+    // na ordem recebida: {index, ok: true, id, status} ou {index, ok: false, message}.
+    @PostMapping("/batch")
+    public ResponseEntity<?> uploadBatch(@RequestBody Map<String, Object> body,
+                                         @RequestHeader(value = "Authorization", required = false) String authHeader,
+                                         @RequestHeader(value = "X-Impersonate-User", required = false) String impersonateHeader) {
+        if (!(body.get("proofs") instanceof List<?> items) || items.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", true, "message", "proofs obrigatório (lista de provas)"));
+        }
+        if (items.size() > batchMaxItems) {
+            return ResponseEntity.status(413).body(Map.of("error", true, "message", "Máximo de " + batchMaxItems + " provas por lote"));
+        }
+        String requester = extractUserId(authHeader);
+        if ((requester == null || requester.isBlank()) && impersonateHeader != null && !impersonateHeader.isBlank()) {
+            requester = impersonateHeader;
+        }
+
+        List<Map<String, Object>> results = new ArrayList<>(items.size());
+        List<Proof> accepted = new ArrayList<>();
+        List<Map<String, Object>> acceptedResults = new ArrayList<>();
+        List<List<UploadSession>> acceptedUploads = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("index", i);
+            results.add(result);
+            String invalid = validateBatchItem(items.get(i));
+            if (invalid != null) {
+                result.put("ok", false);
+                result.put("message", invalid);
+                continue;
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> payload = (Map<String, Object>) items.get(i);
+            String userId = requester;
+            if ((userId == null || userId.isBlank()) && payload.get("userId") != null) {
+                userId = String.valueOf(payload.get("userId"));
+            }
+            if (userId == null || userId.isBlank()) userId = "anonymous";
+            try {
+                List<UploadSession> pendingUploads = new ArrayList<>();
+                Proof proof = buildProof(payload, userId, ProofQueries.challengeKey(payload.get("challengeId").toString()), pendingUploads);
+                // horário do check-in offline; createdAt continua sendo o do recebimento
+                if (payload.get("timestamp") != null) {
+                    proof.setTimestamp(Long.parseLong(payload.get("timestamp").toString()));
+                }
+                accepted.add(proof);
+                acceptedResults.add(result);
+                acceptedUploads.add(pendingUploads);
+            } catch (Exception e) {
+                log.warn("[uploadBatch] item {} recusado -> {}", i, e.getMessage());
+                result.put("ok", false);
+                result.put("message", "Prova inválida");
+            }
+        }
+
+        if (!accepted.isEmpty()) {
+            try {
+                List<Proof> saved = proofCounters.saveAll(accepted);
+                for (int j = 0; j < saved.size(); j++) {
+                    Proof proof = saved.get(j);
+                    acceptedResults.get(j).put("ok", true);
+                    acceptedResults.get(j).put("id", proof.getId());
+                    acceptedResults.get(j).put("status", proof.getStatus());
+                    for (UploadSession upload : acceptedUploads.get(j)) {
+                        resumableUploads.attachWhenComplete(upload, proof.getId());
+                    }
+                }
+            } catch (Exception e) {
+                // transação única: nenhum item do lote foi gravado, o cliente pode reenviar tudo
+                log.error("[uploadBatch] falha ao gravar lote de {} provas -> {}", accepted.size(), e.getMessage(), e);
+                for (Map<String, Object> result : acceptedResults) {
+                    result.put("ok", false);
+                    result.put("message", "Falha ao gravar o lote");
+                }
+                return ResponseEntity.status(500).body(Map.of("error", true, "message", "Falha ao gravar o lote",
+                        "saved", 0, "failed", items.size(), "results", results));
+            }
+        }
+        log.info("[uploadBatch] {} de {} provas gravadas", accepted.size(), items.size());
+        return ResponseEntity.ok(Map.of("error", false, "saved", accepted.size(),
+                "failed", items.size() - accepted.size(), "results", results));
+    }
+
+    // null = item válido; senão, o motivo
+    private static String validateBatchItem(Object item) {
+        if (!(item instanceof Map<?, ?> payload)) return "Item deve ser um objeto";
+        Object challengeId = payload.get("challengeId");
+        if (challengeId == null || ProofQueries.challengeKey(challengeId.toString()) == null) {
+            return "challengeId obrigatório";
+        }
+        for (String field : BATCH_LONG_FIELDS) {
+            Object value = payload.get(field);
+            if (value == null) continue;
+            try {
+                if (Long.parseLong(value.toString()) < 0) return field + " não pode ser negativo";
+            } catch (NumberFormatException e) {
+                return field + " deve ser um número inteiro";
+            }
+        }
+        Object distance = payload.get("distance");
+        if (distance != null) {
+            try {
+                double km = Double.parseDouble(distance.toString());
+                if (!Double.isFinite(km) || km < 0) return "distance inválida";
+            } catch (NumberFormatException e) {
+                return "distance deve ser um número";
+            }
+        }
+        for (String field : BATCH_TEXT_FIELDS) {
+            Object value = payload.get(field);
+            if (value != null && !(value instanceof String)) return field + " deve ser texto";
+        }
+        if (payload.get("imageUrl") != null && !(payload.get("imageUrl") instanceof String)) return "imageUrl deve ser texto";
+        return null;
+    }
+
     // Novo endpoint: aceita multipart/form-data posts to /api/proofs (file uploads)
     @PostMapping(consumes = "multipart/form-data")
     public ResponseEntity<?> uploadProofMultipart(@RequestParam Map<String, String> params,
@@ -313,18 +502,21 @@ public class ProofController {
             proof.setUserId(userId);
 
             // Map params if present (string values from form)
-            if (params.containsKey("challengeId")) {
-                try { proof.setChallengeId(Long.parseLong(params.get("challengeId"))); } catch(Exception ignore) { proof.setChallengeIdString(params.get("challengeId")); }
+            // NOVO: só a chave canônica numérica
+            Long challengeId = ProofQueries.challengeKey(params.get("challengeId"));
+            if (challengeId == null) {
+                return ResponseEntity.badRequest().body(Map.of("error", true, "message", "challengeId obrigatório"));
             }
+            proof.setChallengeId(challengeId);
             proof.setDescription(params.getOrDefault("description", "Check-in"));
             proof.setLocation(params.getOrDefault("location", null));
 
-            // Attach the uploaded file as base64 if present
+            // NOVO: arquivo copiado em streaming para o BlobStore (sem base64 nem byte[] em memória)
             if (file != null && !file.isEmpty()) {
                 try (java.io.InputStream in = file.getInputStream()) {
-                    byte[] bytes = in.readAllBytes();
-                    String b64 = "data:" + file.getContentType() + ";base64," + java.util.Base64.getEncoder().encodeToString(bytes);
-                    proof.setPhotos(b64); // existing field
+                    BlobStore.StoredBlob blob = blobStore.store(in, file.getContentType());
+                    proof.setPhotos(blob.hash());
+                    proof.setImageHash(blob.hash());
                 } catch (Exception e) {
                     log.warn("[uploadProofMultipart] failed to read uploaded file -> {}", e.getMessage());
                 }
@@ -352,7 +544,7 @@ public class ProofController {
                 proof.setStatus(status);
             }
 
-            Proof saved = proofRepository.save(proof);
+            Proof saved = proofCounters.save(proof);
             return ResponseEntity.ok(Map.of(
                 "error", false,
                 "id", saved.getId(),
@@ -394,7 +586,7 @@ public class ProofController {
     @GetMapping("/internal/state")
     public ResponseEntity<?> internalState() {
         long count = proofRepository.count();
-        List<Long> ids = proofRepository.findAll().stream().map(Proof::getId).collect(Collectors.toList());
+        List<Long> ids = proofRepository.findAllIds(); // NOVO: só os ids, sem carregar as provas
         return ResponseEntity.ok(Map.of(
                 "count", count,
                 "ids", ids,
@@ -419,54 +611,97 @@ public class ProofController {
         out.put("meals", p.getMeals());
         out.put("checkinTime", p.getCheckinTime());
         out.put("checkoutTime", p.getCheckoutTime());
+        out.put("imageUrl", p.getImageUrl());
+        out.put("imageThumbnailUrl", p.getImageThumbnailUrl());
+        out.put("photoUrls", p.getPhotoUrls());
+        out.put("photoThumbnailUrls", p.getPhotoThumbnailUrls());
+        out.put("videoUrls", p.getVideoUrls());
         return out;
     }
 
     @GetMapping("/challenge/{challengeId}/lite")
-    public ResponseEntity<List<Map<String,Object>>> getProofsLite(@PathVariable String challengeId) {
+    public ResponseEntity<?> getProofsLite(@PathVariable String challengeId,
+                                           @RequestParam(required = false) String userId,
+                                           @RequestParam(required = false) Integer limit,
+                                           @RequestParam(required = false) String cursor) {
         try {
-            List<Proof> proofs = safeFindProofsByChallenge(challengeId);
-            List<Map<String,Object>> lite = proofs.stream().map(this::sanitizeProof).collect(Collectors.toList());
-            return ResponseEntity.ok(lite);
+            return listPage(challengeId, true, userId, limit, cursor, this::sanitizeProof);
         } catch (Exception ex) {
             log.error("[getProofsLite] error for challengeId='{}' -> {}", challengeId, ex.getMessage(), ex);
             return ResponseEntity.ok(Collections.emptyList());
         }
     }
 
+    // NOVO: vencedor pelos contadores de proof_counter (uma linha por participante, sem carregar provas).
+    // Desempate: mais provas VALID, depois quem chegou primeiro a esse total, depois menor userId.
     @GetMapping("/challenge/{challengeId}/winner")
     public ResponseEntity<Map<String, Object>> getChallengeWinner(@PathVariable String challengeId) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("winnerId", null);
+        body.put("totalProofs", 0L);
         try {
-            Long wantedLong = null;
-            String wantedStr = challengeId == null ? "" : challengeId.trim();
-            try { wantedLong = Long.parseLong(wantedStr); } catch (NumberFormatException ignored) {}
-            List<Proof> proofs;
-            if (wantedLong != null) {
-                proofs = proofRepository.findByChallengeId(wantedLong);
-            } else {
-                proofs = proofRepository.findByChallengeIdString(wantedStr);
+            // NOVO: só a chave canônica; id não numérico não tem vencedor
+            Long wanted = ProofQueries.challengeKey(challengeId);
+            ProofCounters.Winner winner = wanted != null ? proofCounters.winner(wanted) : null;
+            if (winner != null) {
+                body.put("winnerId", winner.userId());
+                body.put("totalProofs", winner.validCount());
             }
-            Map<String, Integer> countByUser = new HashMap<>();
-            for (Proof p : proofs) {
-                if (p == null) continue;
-                String status = String.valueOf(p.getStatus()).toUpperCase();
-                if (!"VALID".equals(status)) continue;
-                String userId = String.valueOf(p.getUserId());
-                if (userId.isBlank()) continue;
-                countByUser.put(userId, countByUser.getOrDefault(userId, 0) + 1);
-            }
-            String winnerId = null;
-            int maxCount = 0;
-            for (Map.Entry<String, Integer> entry : countByUser.entrySet()) {
-                if (entry.getValue() > maxCount) {
-                    maxCount = entry.getValue();
-                    winnerId = entry.getKey();
-                }
-            }
-            return ResponseEntity.ok(Map.of("winnerId", winnerId, "totalProofs", maxCount));
         } catch (Exception e) {
-            return ResponseEntity.ok(Map.of("winnerId", null, "totalProofs", 0));
+            log.error("[getChallengeWinner] error for challengeId='{}' -> {}", challengeId, e.getMessage(), e);
+        }
+        return ResponseEntity.ok(body);
+    }
+
+    // NOVO: ranking ao vivo (top K + posição de quem pergunta). type = tipo do desafio (corrida, estudo,
+    // academia, dieta, custom) ou a métrica; sem ele a métrica é deduzida das provas.
+    @GetMapping("/challenge/{challengeId}/leaderboard")
+    public ResponseEntity<?> getLeaderboard(@PathVariable String challengeId,
+                                            @RequestParam(required = false) String type,
+                                            @RequestParam(defaultValue = "10") int limit,
+                                            @RequestParam(required = false) String userId,
+                                            @RequestHeader(value = "Authorization", required = false) String authHeader) {
+        Long id;
+        try {
+            id = Long.parseLong(challengeId.trim());
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", true, "message", "challengeId inválido"));
+        }
+        String caller = extractUserId(authHeader);
+        if (caller == null || caller.isBlank()) caller = userId;
+        Leaderboards.Standing standing = leaderboards.standing(id, type, Math.max(1, Math.min(limit, 100)), caller);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("error", false);
+        body.put("challengeId", standing.challengeId());
+        body.put("metric", standing.metric());
+        body.put("participants", standing.participants());
+        body.put("totalProofs", standing.totalProofs());
+        body.put("top", standing.top());
+        body.put("me", standing.me());
+        return ResponseEntity.ok(body);
+    }
+
+    // NOVO: desafio concluído (chamado pelo challenge-service, com a chave interna): placar sai da memória
+    @DeleteMapping("/challenge/{challengeId}/leaderboard")
+    public ResponseEntity<?> evictLeaderboard(@PathVariable Long challengeId,
+                                              @RequestHeader(value = InternalApiKey.HEADER, required = false) String apiKey) {
+        if (!internalApiKey.matches(apiKey)) {
+            return ResponseEntity.status(401).body(Map.of("error", true, "message", "Chave interna ausente ou inválida"));
+        }
+        leaderboards.evict(challengeId);
+        return ResponseEntity.noContent().build();
+    }
+
+    // NOVO: recalcula os contadores a partir das provas (GROUP BY); sem challengeId, todos. Exige a chave interna
+    @PostMapping("/internal/counters/rebuild")
+    public ResponseEntity<?> rebuildCounters(@RequestParam(required = false) Long challengeId,
+                                             @RequestHeader(value = InternalApiKey.HEADER, required = false) String apiKey) {
+        if (!internalApiKey.matches(apiKey)) {
+            return ResponseEntity.status(401).body(Map.of("error", true, "message", "Chave interna ausente ou inválida"));
         }
+        int rows = proofCounters.rebuild(challengeId);
+        log.info("[rebuildCounters] challengeId={} -> {} linhas", challengeId, rows);
+        return ResponseEntity.ok(Map.of("error", false, "rows", rows));
     }
 
     @ExceptionHandler(Exception.class)
@@ -0,0 +1,242 @@
+package com.example.proof_service.controller;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.example.proof_service.model.UploadSession;
+import com.example.proof_service.service.BlobStore;
+import com.example.proof_service.service.ResumableUploads;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+// Upload retomável no estilo tus 1.0 (extensões creation e termination):
+//   POST   /api/proofs/uploads        Upload-Length + Upload-Metadata (filename, filetype, proofId) -> 201 Location
+//   HEAD   /api/proofs/uploads/{id}   -> Upload-Offset atual (para retomar)
+//   PATCH  /api/proofs/uploads/{id}   Upload-Offset + corpo application/offset+octet-stream -> 204 Upload-Offset
+//   DELETE /api/proofs/uploads/{id}   -> cancela e apaga o parcial
+// Concluído, o arquivo vira mídia em /api/proofs/media/{hash} (cabeçalho X-Media-Url) e é anexado
+// à prova de proofId (do mesmo usuário); sem proofId, o id do upload pode ir em "uploadIds" no POST /api/proofs.
+// Todas as operações que alteram o upload exigem o token de quem o criou.
+@RestController
+@RequestMapping("/api/proofs/uploads")
+@CrossOrigin(
+    origins = "*",
+    allowedHeaders = "*",
+    exposedHeaders = {"Location", "Upload-Offset", "Upload-Length", "Tus-Resumable", "Tus-Version",
+            "Tus-Extension", "Tus-Max-Size", "X-Media-Url"},
+    methods = {RequestMethod.GET, RequestMethod.POST, RequestMethod.HEAD, RequestMethod.PATCH,
+            RequestMethod.DELETE, RequestMethod.OPTIONS}
+)
+public class UploadController {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadController.class);
+
+    private static final String TUS_VERSION = "1.0.0";
+    private static final String OFFSET_CONTENT_TYPE = "application/offset+octet-stream";
+
+    @Autowired
+    private ResumableUploads uploads;
+
+    @RequestMapping(method = RequestMethod.OPTIONS, path = {"", "/{id}"})
+    public ResponseEntity<?> options() {
+        return ResponseEntity.status(204)
+                .header("Tus-Resumable", TUS_VERSION)
+                .header("Tus-Version", TUS_VERSION)
+                .header("Tus-Extension", "creation,termination")
+                .header("Tus-Max-Size", String.valueOf(uploads.getMaxBytes()))
+                .build();
+    }
+
+    @PostMapping
+    public ResponseEntity<?> create(@RequestHeader(value = "Upload-Length", required = false) String uploadLength,
+                                    @RequestHeader(value = "Upload-Metadata", required = false) String uploadMetadata,
+                                    @RequestHeader(value = "Authorization", required = false) String authHeader) {
+        long length;
+        try {
+            length = Long.parseLong(Objects.requireNonNull(uploadLength).trim());
+        } catch (Exception e) {
+            return tus(ResponseEntity.badRequest()).body(Map.of("error", true, "message", "Upload-Length obrigatório"));
+        }
+        String userId = extractUserId(authHeader);
+        if (userId == null) {
+            return tus(ResponseEntity.status(401)).body(Map.of("error", true, "message", "Token não fornecido ou inválido"));
+        }
+        Map<String, String> metadata = parseMetadata(uploadMetadata);
+        Long proofId = null;
+        if (metadata.containsKey("proofId")) {
+            try { proofId = Long.parseLong(metadata.get("proofId")); } catch (NumberFormatException ignored) {}
+        }
+        if (proofId != null && !uploads.ownsProof(proofId, userId)) {
+            return tus(ResponseEntity.status(403)).body(Map.of("error", true, "message", "Prova não encontrada ou de outro usuário"));
+        }
+        try {
+            UploadSession session = uploads.create(userId, length,
+                    metadata.get("filetype"), metadata.get("filename"), proofId);
+            ResponseEntity.BodyBuilder response = tus(ResponseEntity.status(201))
+                    .header(HttpHeaders.LOCATION, "/api/proofs/uploads/" + session.getId())
+                    .header("Upload-Offset", String.valueOf(session.getUploadOffset()));
+            if (session.isComplete()) response.header("X-Media-Url", BlobStore.url(session.getBlobHash()));
+            return response.build();
+        } catch (IllegalArgumentException e) {
+            return tus(ResponseEntity.status(413)).body(Map.of("error", true, "message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return tus(ResponseEntity.status(507)).body(Map.of("error", true, "message", e.getMessage()));
+        } catch (Exception e) {
+            log.error("[uploads] falha ao criar upload -> {}", e.getMessage(), e);
+            return tus(ResponseEntity.status(500)).body(Map.of("error", true, "message", "Falha ao criar upload"));
+        }
+    }
+
+    @RequestMapping(method = RequestMethod.HEAD, path = "/{id}")
+    public ResponseEntity<?> head(@PathVariable String id) {
+        UploadSession session = uploads.find(id);
+        if (session == null) {
+            return tus(ResponseEntity.status(404)).build();
+        }
+        return tus(ResponseEntity.ok())
+                .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                .header("Upload-Offset", String.valueOf(session.getUploadOffset()))
+                .header("Upload-Length", String.valueOf(session.getUploadLength()))
+                .build();
+    }
+
+    // Estado em JSON (para telas de progresso)
+    @GetMapping("/{id}")
+    public ResponseEntity<?> status(@PathVariable String id) {
+        UploadSession session = uploads.find(id);
+        if (session == null) {
+            return ResponseEntity.status(404).body(Map.of("error", true, "message", "Upload não encontrado"));
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("id", session.getId());
+        body.put("status", session.getStatus());
+        body.put("offset", session.getUploadOffset());
+        body.put("length", session.getUploadLength());
+        body.put("proofId", session.getProofId());
+        body.put("mediaUrl", BlobStore.url(session.getBlobHash()));
+        return ResponseEntity.ok(body);
+    }
+
+    @PatchMapping("/{id}")
+    public ResponseEntity<?> patch(@PathVariable String id,
+                                   @RequestHeader(value = "Upload-Offset", required = false) String uploadOffset,
+                                   @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+                                   @RequestHeader(value = "Authorization", required = false) String authHeader,
+                                   HttpServletRequest request) {
+        if (contentType == null || !contentType.startsWith(OFFSET_CONTENT_TYPE)) {
+            return tus(ResponseEntity.status(415)).body(Map.of("error", true, "message", "Content-Type deve ser " + OFFSET_CONTENT_TYPE));
+        }
+        UploadSession session = uploads.find(id);
+        if (session == null) {
+            return tus(ResponseEntity.status(404)).build();
+        }
+        if (!ownedBy(session, extractUserId(authHeader))) {
+            return tus(ResponseEntity.status(403)).build();
+        }
+        long offset;
+        try {
+            offset = Long.parseLong(Objects.requireNonNull(uploadOffset).trim());
+        } catch (Exception e) {
+            return tus(ResponseEntity.badRequest()).body(Map.of("error", true, "message", "Upload-Offset obrigatório"));
+        }
+        if (!uploads.tryLock(id)) {
+            return tus(ResponseEntity.status(409)).body(Map.of("error", true, "message", "Outro envio deste upload em andamento"));
+        }
+        try {
+            // relido sob o lock: o offset pode ter avançado no PATCH anterior
+            session = uploads.find(id);
+            if (session == null) {
+                return tus(ResponseEntity.status(404)).build();
+            }
+            if (offset != session.getUploadOffset()) {
+                return tus(ResponseEntity.status(409))
+                        .header("Upload-Offset", String.valueOf(session.getUploadOffset()))
+                        .body(Map.of("error", true, "message", "Upload-Offset diferente do atual"));
+            }
+            session = uploads.append(session, request.getInputStream());
+            ResponseEntity.BodyBuilder response = tus(ResponseEntity.status(204))
+                    .header("Upload-Offset", String.valueOf(session.getUploadOffset()));
+            if (session.isComplete()) response.header("X-Media-Url", BlobStore.url(session.getBlobHash()));
+            return response.build();
+        } catch (Exception e) {
+            log.error("[uploads] falha ao gravar {} -> {}", id, e.getMessage(), e);
+            return tus(ResponseEntity.status(500)).body(Map.of("error", true, "message", "Falha ao gravar parte do upload"));
+        } finally {
+            uploads.unlock(id);
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> terminate(@PathVariable String id,
+                                       @RequestHeader(value = "Authorization", required = false) String authHeader) {
+        UploadSession session = uploads.find(id);
+        if (session == null || session.isComplete()) {
+            return tus(ResponseEntity.status(404)).build();
+        }
+        if (!ownedBy(session, extractUserId(authHeader))) {
+            return tus(ResponseEntity.status(403)).build();
+        }
+        if (!uploads.tryLock(id)) {
+            return tus(ResponseEntity.status(409)).build();
+        }
+        try {
+            uploads.terminate(session);
+            return tus(ResponseEntity.status(204)).build();
+        } catch (Exception e) {
+            log.error("[uploads] falha ao cancelar {} -> {}", id, e.getMessage(), e);
+            return tus(ResponseEntity.status(500)).build();
+        } finally {
+            uploads.unlock(id);
+        }
+    }
+
+    private static ResponseEntity.BodyBuilder tus(ResponseEntity.BodyBuilder builder) {
+        return builder.header("Tus-Resumable", TUS_VERSION);
+    }
+
+    // só o usuário que criou o upload; sessão sem dono (anterior à exigência de token) não é aceita
+    private static boolean ownedBy(UploadSession session, String userId) {
+        return userId != null && session.getUserId() != null && session.getUserId().equals(userId);
+    }
+
+    // "filename ZGVtby5tcDQ=,filetype dmlkZW8vbXA0" -> {filename=demo.mp4, filetype=video/mp4}
+    private static Map<String, String> parseMetadata(String header) {
+        Map<String, String> metadata = new HashMap<>();
+        if (header == null || header.isBlank()) return metadata;
+        for (String pair : header.split(",")) {
+            String[] parts = pair.trim().split(" ", 2);
+            if (parts[0].isEmpty()) continue;
+            try {
+                metadata.put(parts[0], parts.length > 1
+                        ? new String(Base64.getDecoder().decode(parts[1].trim()), StandardCharsets.UTF_8) : "");
+            } catch (IllegalArgumentException ignored) {
+                // valor fora de base64: ignorado
+            }
+        }
+        return metadata;
+    }
+
+    private String extractUserId(String authHeader) {
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            try {
+                String token = authHeader.substring(7);
+                DecodedJWT jwt = JWT.decode(token);
+                return jwt.getSubject();
+            } catch (Exception e) {
+                return null;
+            }
+        }
+        return null;
+    }
+}
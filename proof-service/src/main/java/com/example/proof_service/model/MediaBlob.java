@@ -0,0 +1,46 @@
+package com.example.proof_service.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+// Metadados de um arquivo do BlobStore; o conteúdo fica em disco, nomeado pelo próprio SHA-256
+@Entity
+@Table(name = "media_blob")
+public class MediaBlob {
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    private String contentType;
+    private Long sizeBytes;
+    private Long createdAt;
+    // miniaturas: null = pendente, READY, FAILED ou SKIPPED (não é imagem)
+    @Column(length = 16)
+    private String thumbnails;
+
+    public MediaBlob() {}
+
+    public MediaBlob(String hash, String contentType, Long sizeBytes, Long createdAt) {
+        this.hash = hash;
+        this.contentType = contentType;
+        this.sizeBytes = sizeBytes;
+        this.createdAt = createdAt;
+    }
+
+    public String getHash() { return hash; }
+    public void setHash(String hash) { this.hash = hash; }
+
+    public String getContentType() { return contentType; }
+    public void setContentType(String contentType) { this.contentType = contentType; }
+
+    public Long getSizeBytes() { return sizeBytes; }
+    public void setSizeBytes(Long sizeBytes) { this.sizeBytes = sizeBytes; }
+
+    public Long getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Long createdAt) { this.createdAt = createdAt; }
+
+    public String getThumbnails() { return thumbnails; }
+    public void setThumbnails(String thumbnails) { this.thumbnails = thumbnails; }
+}
@@ -1,28 +1,50 @@
 package com.example.proof_service.model;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import jakarta.persistence.Id;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Column;
 import jakarta.persistence.ElementCollection;
 import jakarta.persistence.CollectionTable;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.MapKeyColumn;
+import org.hibernate.annotations.BatchSize;
+import com.example.proof_service.service.BlobStore;
+import com.example.proof_service.service.ThumbnailPipeline;
 import java.util.*;
 
 @Entity
-@Table(name = "proof") // Adiciona a anotação Table para garantir que JPA reconheça
+// NOVO: índices das listagens por cursor, do vencedor e do ranking (chave canônica = challenge_id)
+@Table(name = "proof", indexes = {
+        @Index(name = "idx_proof_challenge_user_created", columnList = "challenge_id, user_id, created_at"),
+        @Index(name = "idx_proof_challenge_created", columnList = "challenge_id, created_at, id"),
+        @Index(name = "idx_proof_created", columnList = "created_at, id")
+})
 public class Proof {
+    // NOVO: coleções de uma página inteira carregadas em poucos SELECTs
+    public static final int COLLECTION_BATCH_SIZE = 100;
+
+    // NOVO: sequência com alocação em blocos (pooled) em vez de IDENTITY, que impede o batch de INSERTs;
+    // ProofSequenceAlignment posiciona a sequência acima do maior id já gravado
+    public static final String ID_SEQUENCE = "proof_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "proof_id")
+    @SequenceGenerator(name = "proof_id", sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     private Long challengeId;
-    private String challengeIdString;
+    private String challengeIdString; // NOVO: legado; ids numéricos migrados para challengeId (ProofKeyMigration)
     private String description;
-    private String imageUrl;
+    private String imageUrl; // NOVO: só URL externa; imagem enviada vai para o BlobStore (imageHash)
+    // NOVO: SHA-256 da imagem principal no BlobStore
+    @Column(length = 64)
+    private String imageHash;
     private String userId;
     private String status;
     private Long timestamp;
@@ -30,7 +52,10 @@ public class Proof {
 
     // Campos extras (opcional, adicione conforme necessário)
     @Column(columnDefinition = "TEXT")
-    private String photos; // JSON/base64 array (para múltiplas fotos)
+    private String photos; // NOVO: hashes do BlobStore separados por vírgula (antes: data URLs em base64)
+    // NOVO: vídeos (uploads em partes concluídos), hashes do BlobStore separados por vírgula
+    @Column(columnDefinition = "TEXT")
+    private String videos;
     @Column(columnDefinition = "TEXT")
     private String meals; // JSON string de refeições
     private Double distance;
@@ -43,11 +68,13 @@ public class Proof {
 
     // NOVO: campos para custom proof types
     @ElementCollection
+    @BatchSize(size = COLLECTION_BATCH_SIZE)
     @CollectionTable(name = "proof_custom_types", joinColumns = @JoinColumn(name = "proof_id"))
     @Column(name = "type")
     private List<String> proofTypes = new ArrayList<>();
 
     @ElementCollection
+    @BatchSize(size = COLLECTION_BATCH_SIZE)
     @CollectionTable(name = "proof_custom_values", joinColumns = @JoinColumn(name = "proof_id"))
     @MapKeyColumn(name = "key")
     @Column(name = "value")
@@ -71,9 +98,16 @@ public class Proof {
     public String getDescription() { return description; }
     public void setDescription(String description) { this.description = description; }
 
-    public String getImageUrl() { return imageUrl; }
+    // NOVO: com imagem no BlobStore, devolve a URL de /api/proofs/media/{hash}
+    public String getImageUrl() { return imageHash != null ? BlobStore.url(imageHash) : imageUrl; }
     public void setImageUrl(String imageUrl) { this.imageUrl = imageUrl; }
 
+    // NOVO: miniatura de 640px para timelines (cai no original enquanto não é gerada)
+    public String getImageThumbnailUrl() { return BlobStore.thumbnailUrl(imageHash, ThumbnailPipeline.MEDIUM); }
+
+    public String getImageHash() { return imageHash; }
+    public void setImageHash(String imageHash) { this.imageHash = imageHash; }
+
     public String getUserId() { return userId; }
     public void setUserId(String userId) { this.userId = userId; }
 
@@ -89,6 +123,33 @@ public class Proof {
     public String getPhotos() { return photos; }
     public void setPhotos(String photos) { this.photos = photos; }
 
+    // NOVO: URLs das fotos para o cliente (o campo guarda só os hashes)
+    public List<String> getPhotoUrls() { return mediaUrls(photos); }
+
+    // NOVO: miniaturas de 160px das fotos, na mesma ordem de photoUrls
+    public List<String> getPhotoThumbnailUrls() {
+        List<String> urls = new ArrayList<>();
+        if (photos == null || photos.isBlank()) return urls;
+        for (String hash : photos.split(",")) {
+            if (BlobStore.isHash(hash.trim())) urls.add(BlobStore.thumbnailUrl(hash.trim(), ThumbnailPipeline.SMALL));
+        }
+        return urls;
+    }
+
+    public String getVideos() { return videos; }
+    public void setVideos(String videos) { this.videos = videos; }
+
+    public List<String> getVideoUrls() { return mediaUrls(videos); }
+
+    private static List<String> mediaUrls(String hashes) {
+        List<String> urls = new ArrayList<>();
+        if (hashes == null || hashes.isBlank()) return urls;
+        for (String hash : hashes.split(",")) {
+            if (BlobStore.isHash(hash.trim())) urls.add(BlobStore.url(hash.trim()));
+        }
+        return urls;
+    }
+
     public String getMeals() { return meals; }
     public void setMeals(String meals) { this.meals = meals; }
 
@@ -0,0 +1,66 @@
+package com.example.proof_service.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+// Provas VALID por usuário em cada desafio, mantido junto com o INSERT da prova (ProofCounters).
+// lastValidAt = quando o usuário chegou ao validCount atual (desempate do vencedor).
+@Entity
+@Table(name = "proof_counter")
+@IdClass(ProofCounter.Key.class)
+public class ProofCounter {
+
+    @Id
+    private Long challengeId;
+
+    @Id
+    private String userId;
+
+    @Column(nullable = false)
+    private Long validCount;
+    private Long lastValidAt;
+
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private Long challengeId;
+        private String userId;
+
+        public Key() {}
+
+        public Key(Long challengeId, String userId) {
+            this.challengeId = challengeId;
+            this.userId = userId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key other)) return false;
+            return Objects.equals(challengeId, other.challengeId) && Objects.equals(userId, other.userId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(challengeId, userId);
+        }
+    }
+
+    public Long getChallengeId() { return challengeId; }
+    public void setChallengeId(Long challengeId) { this.challengeId = challengeId; }
+
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+
+    public Long getValidCount() { return validCount; }
+    public void setValidCount(Long validCount) { this.validCount = validCount; }
+
+    public Long getLastValidAt() { return lastValidAt; }
+    public void setLastValidAt(Long lastValidAt) { this.lastValidAt = lastValidAt; }
+}
@@ -0,0 +1,68 @@
+package com.example.proof_service.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+// Upload em partes (protocolo no estilo tus): o arquivo cresce em tmp/ até uploadOffset == uploadLength,
+// depois vai para o BlobStore e blobHash é preenchido
+@Entity
+@Table(name = "upload_session", indexes = @Index(name = "idx_upload_session_expires", columnList = "expires_at"))
+public class UploadSession {
+
+    public static final String IN_PROGRESS = "IN_PROGRESS";
+    public static final String COMPLETE = "COMPLETE";
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    private String userId;
+    private Long uploadLength;
+    private Long uploadOffset;
+    private String contentType;
+    private String fileName;
+    private String status;
+    @Column(length = 64)
+    private String blobHash;
+    private Long proofId; // prova que recebe o arquivo quando o upload termina (opcional)
+    private Long createdAt;
+    private Long expiresAt;
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+
+    public Long getUploadLength() { return uploadLength; }
+    public void setUploadLength(Long uploadLength) { this.uploadLength = uploadLength; }
+
+    public Long getUploadOffset() { return uploadOffset; }
+    public void setUploadOffset(Long uploadOffset) { this.uploadOffset = uploadOffset; }
+
+    public String getContentType() { return contentType; }
+    public void setContentType(String contentType) { this.contentType = contentType; }
+
+    public String getFileName() { return fileName; }
+    public void setFileName(String fileName) { this.fileName = fileName; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getBlobHash() { return blobHash; }
+    public void setBlobHash(String blobHash) { this.blobHash = blobHash; }
+
+    public Long getProofId() { return proofId; }
+    public void setProofId(Long proofId) { this.proofId = proofId; }
+
+    public Long getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Long createdAt) { this.createdAt = createdAt; }
+
+    public Long getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Long expiresAt) { this.expiresAt = expiresAt; }
+
+    public boolean isComplete() { return COMPLETE.equals(status); }
+}
@@ -0,0 +1,7 @@
+package com.example.proof_service.repository;
+
+import com.example.proof_service.model.MediaBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface MediaBlobRepository extends JpaRepository<MediaBlob, String> {
+}
@@ -2,9 +2,11 @@ package com.example.proof_service.repository;
 
 import com.example.proof_service.model.Proof;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import java.util.List;
 
 public interface ProofRepository extends JpaRepository<Proof, Long> {
-    List<Proof> findByChallengeId(Long challengeId);
-    List<Proof> findByChallengeIdString(String challengeIdString);
+
+    @Query("SELECT p.id FROM Proof p ORDER BY p.id")
+    List<Long> findAllIds();
 }
@@ -0,0 +1,10 @@
+package com.example.proof_service.repository;
+
+import com.example.proof_service.model.UploadSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+    List<UploadSession> findTop100ByStatusAndExpiresAtLessThan(String status, Long expiresAt);
+}
@@ -0,0 +1,215 @@
+package com.example.proof_service.service;
+
+import com.example.proof_service.model.MediaBlob;
+import com.example.proof_service.repository.MediaBlobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+// Arquivos das provas (fotos, vídeos) em disco, endereçados pelo conteúdo:
+// <proof.media.dir>/ab/cd/abcd...(SHA-256 em hex). O upload é copiado em streaming para um
+// arquivo temporário enquanto o hash é calculado e depois movido para o nome final; o mesmo
+// arquivo enviado duas vezes ocupa espaço uma vez só. O banco guarda só o hash (e o tipo em media_blob).
+// Miniaturas ficam ao lado do original (<hash>.t160.jpg); um arquivo novo publica BlobStored.
+@Service
+public class BlobStore {
+
+    private static final Logger log = LoggerFactory.getLogger(BlobStore.class);
+
+    public static final String MEDIA_PATH = "/api/proofs/media/";
+    public static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    // só imagem e vídeo são servidos com o tipo original (svg pode carregar script)
+    private static final Pattern SERVABLE_TYPE = Pattern.compile("(image|video)/[a-z0-9.+-]+");
+    // separa "data:...,AAA,data:...,BBB" (o campo photos antigo juntava as data URLs com vírgula)
+    private static final Pattern DATA_URL_SEPARATOR = Pattern.compile(",(?=data:)");
+
+    public record StoredBlob(String hash, String contentType, long size, Path path) {
+        public String url() {
+            return MEDIA_PATH + hash;
+        }
+    }
+
+    // Arquivo gravado pela primeira vez (o mesmo conteúdo enviado de novo não publica)
+    public record BlobStored(String hash, String contentType) {}
+
+    private final Path root;
+    private final Path tmp;
+    private final MediaBlobRepository mediaBlobRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public BlobStore(@Value("${proof.media.dir:./data/media}") String dir,
+                     MediaBlobRepository mediaBlobRepository,
+                     ApplicationEventPublisher eventPublisher) throws IOException {
+        this.root = Paths.get(dir).toAbsolutePath().normalize();
+        this.tmp = root.resolve("tmp");
+        this.mediaBlobRepository = mediaBlobRepository;
+        this.eventPublisher = eventPublisher;
+        Files.createDirectories(tmp);
+    }
+
+    public static boolean isHash(String value) {
+        return value != null && HASH.matcher(value).matches();
+    }
+
+    public static String url(String hash) {
+        return hash == null ? null : MEDIA_PATH + hash;
+    }
+
+    // null para hash nulo
+    public static String thumbnailUrl(String hash, int size) {
+        return hash == null ? null : MEDIA_PATH + hash + "/thumb/" + size;
+    }
+
+    public Path pathOf(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    public Path thumbnailPath(String hash, int size) {
+        return pathOf(hash).resolveSibling(hash + ".t" + size + ".jpg");
+    }
+
+    // Copia o stream para o disco sem carregar o arquivo em memória
+    public StoredBlob store(InputStream in, String contentType) throws IOException {
+        Path part = Files.createTempFile(tmp, "upload-", ".part");
+        try {
+            MessageDigest digest = sha256();
+            long size;
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(part), digest)) {
+                size = in.transferTo(out);
+            }
+            return commit(part, HexFormat.of().formatHex(digest.digest()), size, contentType);
+        } finally {
+            Files.deleteIfExists(part);
+        }
+    }
+
+    // Diretório de trabalho (uploads em andamento); no mesmo volume, para o move ser atômico
+    public Path tmpDir() {
+        return tmp;
+    }
+
+    // Arquivo já completo em tmpDir() (upload em partes): hash calculado lendo o arquivo, depois move
+    public StoredBlob storeFile(Path part, String contentType) throws IOException {
+        try {
+            MessageDigest digest = sha256();
+            try (InputStream in = Files.newInputStream(part);
+                 OutputStream out = new DigestOutputStream(OutputStream.nullOutputStream(), digest)) {
+                in.transferTo(out);
+            }
+            return commit(part, HexFormat.of().formatHex(digest.digest()), Files.size(part), contentType);
+        } finally {
+            Files.deleteIfExists(part);
+        }
+    }
+
+    public Optional<StoredBlob> find(String hash) {
+        if (!isHash(hash)) return Optional.empty();
+        Path path = pathOf(hash);
+        if (!Files.isRegularFile(path)) return Optional.empty();
+        String contentType = mediaBlobRepository.findById(hash).map(MediaBlob::getContentType).orElse(DEFAULT_CONTENT_TYPE);
+        try {
+            return Optional.of(new StoredBlob(hash, contentType, Files.size(path), path));
+        } catch (IOException e) {
+            log.warn("[blobStore] falha ao ler tamanho de {} -> {}", hash, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    // "data:image/jpeg;base64,..." -> blob; null se o valor não for uma data URL em base64
+    public StoredBlob storeDataUrl(String dataUrl) throws IOException {
+        if (dataUrl == null || !dataUrl.startsWith("data:")) return null;
+        int comma = dataUrl.indexOf(',');
+        if (comma < 0) return null;
+        String meta = dataUrl.substring(5, comma);
+        if (!meta.endsWith(";base64")) return null;
+        String contentType = meta.substring(0, meta.length() - ";base64".length());
+        InputStream decoded = Base64.getMimeDecoder().wrap(new ByteArrayInputStream(
+                dataUrl.substring(comma + 1).getBytes(StandardCharsets.US_ASCII)));
+        return store(decoded, contentType);
+    }
+
+    // Referência de mídia vinda do cliente -> hash: aceita data URL (gravada aqui), hash ou URL de /media.
+    // null = referência não reconhecida
+    public String ingest(String ref) throws IOException {
+        if (ref == null || ref.isBlank()) return null;
+        String value = ref.trim();
+        if (value.startsWith("data:")) {
+            StoredBlob blob = storeDataUrl(value);
+            return blob != null ? blob.hash() : null;
+        }
+        String candidate = value.startsWith(MEDIA_PATH) ? value.substring(MEDIA_PATH.length()) : value;
+        return isHash(candidate) ? candidate : null;
+    }
+
+    public static List<String> splitDataUrls(String joined) {
+        List<String> parts = new ArrayList<>();
+        if (joined == null || joined.isBlank()) return parts;
+        for (String part : DATA_URL_SEPARATOR.split(joined)) {
+            if (!part.isBlank()) parts.add(part.trim());
+        }
+        return parts;
+    }
+
+    public static String servableType(String contentType) {
+        if (contentType == null) return DEFAULT_CONTENT_TYPE;
+        String type = contentType.trim().toLowerCase();
+        int params = type.indexOf(';');
+        if (params >= 0) type = type.substring(0, params).trim();
+        return SERVABLE_TYPE.matcher(type).matches() && !type.equals("image/svg+xml") ? type : DEFAULT_CONTENT_TYPE;
+    }
+
+    private StoredBlob commit(Path part, String hash, long size, String contentType) throws IOException {
+        Path target = pathOf(hash);
+        String type = servableType(contentType);
+        if (!Files.exists(target)) {
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(part, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // mesmo conteúdo gravado por outro upload ao mesmo tempo
+            }
+        }
+        if (!mediaBlobRepository.existsById(hash)) {
+            try {
+                mediaBlobRepository.save(new MediaBlob(hash, type, size, System.currentTimeMillis()));
+                eventPublisher.publishEvent(new BlobStored(hash, type));
+            } catch (DataIntegrityViolationException e) {
+                // registrado por outro upload concorrente
+            }
+        }
+        return new StoredBlob(hash, type, size, target);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.example.proof_service.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Ranking ao vivo por desafio, em memória: um placar por desafio ativo, atualizado a cada prova
+// aceita (depois do commit) e montado do banco na primeira consulta ou na subida (desafios com
+// provas recentes). Posição de um participante e top K em O(log n) (RankTree).
+// Pontuação conforme o tipo do desafio: corrida = soma de distance, estudo = soma de studyTime,
+// academia = soma de elapsedMinutes, demais = número de provas VALID. Sem o tipo, é deduzida
+// das provas (primeira métrica preenchida). Uma árvore por métrica consultada, todas sobre as
+// mesmas somas: o ?type= de um cliente não muda o ranking dos outros. Desempate igual ao do
+// vencedor (ProofCounters). Prova que chega com id abaixo do maior id carregado pode ou não estar
+// na carga (commit fora de ordem): o placar é remontado do banco em vez de arriscar contar duas vezes.
+// Desafio concluído: o placar sai da memória (evict) e as consultas seguintes leem do banco.
+@Service
+public class Leaderboards {
+
+    private static final Logger log = LoggerFactory.getLogger(Leaderboards.class);
+
+    public enum Metric {
+        COUNT, DISTANCE, STUDY_TIME, ELAPSED_MINUTES;
+
+        // tipo do desafio (corrida, estudo...) ou nome da métrica; null = não reconhecido
+        public static Metric fromType(String type) {
+            if (type == null || type.isBlank()) return null;
+            switch (type.trim().toLowerCase()) {
+                case "corrida": case "distance": return DISTANCE;
+                case "estudo": case "studytime": case "study_time": return STUDY_TIME;
+                case "academia": case "elapsedminutes": case "elapsed_minutes": return ELAPSED_MINUTES;
+                case "dieta": case "custom": case "count": return COUNT;
+                default: return null;
+            }
+        }
+
+        double score(Totals t) {
+            return switch (this) {
+                case COUNT -> t.proofs;
+                case DISTANCE -> t.distance;
+                case STUDY_TIME -> t.studyTime;
+                case ELAPSED_MINUTES -> t.elapsedMinutes;
+            };
+        }
+
+        static Metric infer(Totals t) {
+            if (t.distance > 0) return DISTANCE;
+            if (t.studyTime > 0) return STUDY_TIME;
+            if (t.elapsedMinutes > 0) return ELAPSED_MINUTES;
+            return COUNT;
+        }
+    }
+
+    public record Position(int rank, String userId, double score, long proofs, long lastProofAt) {}
+
+    // totalProofs = provas VALID do desafio, somadas de todos os participantes
+    public record Standing(Long challengeId, Metric metric, int participants, long totalProofs, List<Position> top, Position me) {}
+
+    // soma das provas VALID de um usuário; lastAt = prova mais recente (momento em que chegou à pontuação atual)
+    static final class Totals {
+        final String userId;
+        long proofs;
+        double distance;
+        long studyTime;
+        long elapsedMinutes;
+        long lastAt;
+        // posição atual em cada árvore (índice = Metric.ordinal())
+        final Entry[] entries = new Entry[Metric.values().length];
+
+        Totals(String userId) {
+            this.userId = userId;
+        }
+    }
+
+    private record Entry(double score, long lastAt, String userId) {}
+
+    private static final Comparator<Entry> RANKING = Comparator
+            .comparingDouble(Entry::score).reversed()
+            .thenComparingLong(Entry::lastAt)
+            .thenComparing(Entry::userId);
+
+    private static final String PROJECTION =
+            "SELECT user_id, COUNT(*), COALESCE(SUM(distance), 0), COALESCE(SUM(study_time), 0), " +
+            "COALESCE(SUM(elapsed_minutes), 0), MAX(created_at), MAX(id) FROM proof " +
+            "WHERE challenge_id = ? AND UPPER(status) = 'VALID' AND user_id IS NOT NULL AND user_id <> '' GROUP BY user_id";
+
+    private final class Board {
+        final Long challengeId;
+        final Map<String, Totals> totals = new HashMap<>();
+        // montadas sob demanda, na primeira consulta de cada métrica
+        final Map<Metric, RankTree<Entry>> rankings = new EnumMap<>(Metric.class);
+        Metric inferred = Metric.COUNT;
+        long totalProofs;
+        boolean loaded;
+        // maior id de prova incluído na carga: eventos até ele podem já estar nas somas
+        long loadedUpTo;
+        volatile long touchedAt = System.currentTimeMillis();
+
+        Board(Long challengeId) {
+            this.challengeId = challengeId;
+        }
+
+        synchronized void ensureLoaded() {
+            if (loaded) return;
+            totals.clear();
+            rankings.clear();
+            inferred = Metric.COUNT;
+            totalProofs = 0;
+            loadedUpTo = 0;
+            jdbcTemplate.query(PROJECTION, rs -> {
+                Totals t = new Totals(rs.getString(1));
+                t.proofs = rs.getLong(2);
+                t.distance = rs.getDouble(3);
+                t.studyTime = rs.getLong(4);
+                t.elapsedMinutes = rs.getLong(5);
+                t.lastAt = rs.getLong(6);
+                loadedUpTo = Math.max(loadedUpTo, rs.getLong(7));
+                totalProofs += t.proofs;
+                totals.put(t.userId, t);
+            }, challengeId);
+            for (Totals t : totals.values()) {
+                Metric metric = Metric.infer(t);
+                if (metric != Metric.COUNT) {
+                    inferred = metric;
+                    break;
+                }
+            }
+            loaded = true;
+        }
+
+        synchronized void apply(ProofCounters.ProofAccepted proof) {
+            if (!loaded) {
+                // carga feita agora, depois do commit: a prova já está nas somas
+                ensureLoaded();
+                return;
+            }
+            if (proof.proofId() <= loadedUpTo) {
+                // commit atrasado: não dá para saber se a carga já incluiu a prova; o banco já a tem
+                loaded = false;
+                ensureLoaded();
+                return;
+            }
+            Totals t = totals.computeIfAbsent(proof.userId(), Totals::new);
+            t.proofs++;
+            totalProofs++;
+            t.distance += proof.distance();
+            t.studyTime += proof.studyTime();
+            t.elapsedMinutes += proof.elapsedMinutes();
+            t.lastAt = Math.max(t.lastAt, proof.createdAt());
+            if (inferred == Metric.COUNT) inferred = Metric.infer(t);
+            for (Map.Entry<Metric, RankTree<Entry>> ranking : rankings.entrySet()) {
+                place(ranking.getValue(), ranking.getKey(), t);
+            }
+        }
+
+        // wanted = null: métrica deduzida das provas
+        synchronized Standing standing(Metric wanted, int limit, String userId) {
+            ensureLoaded();
+            touchedAt = System.currentTimeMillis();
+            Metric metric = wanted != null ? wanted : inferred;
+            RankTree<Entry> ranking = ranking(metric);
+            List<Position> top = new ArrayList<>();
+            int rank = 0;
+            for (Entry e : ranking.first(limit)) {
+                top.add(position(metric, ++rank, totals.get(e.userId())));
+            }
+            Position me = null;
+            Totals mine = userId != null ? totals.get(userId) : null;
+            if (mine != null) {
+                me = position(metric, ranking.rank(mine.entries[metric.ordinal()]), mine);
+            }
+            return new Standing(challengeId, metric, ranking.size(), totalProofs, top, me);
+        }
+
+        private RankTree<Entry> ranking(Metric metric) {
+            RankTree<Entry> ranking = rankings.get(metric);
+            if (ranking == null) {
+                ranking = new RankTree<>(RANKING);
+                for (Totals t : totals.values()) {
+                    t.entries[metric.ordinal()] = null;
+                    place(ranking, metric, t);
+                }
+                rankings.put(metric, ranking);
+            }
+            return ranking;
+        }
+
+        private Position position(Metric metric, int rank, Totals t) {
+            return new Position(rank, t.userId, metric.score(t), t.proofs, t.lastAt);
+        }
+
+        private void place(RankTree<Entry> ranking, Metric metric, Totals t) {
+            Entry previous = t.entries[metric.ordinal()];
+            if (previous != null) ranking.remove(previous);
+            Entry entry = new Entry(metric.score(t), t.lastAt, t.userId);
+            t.entries[metric.ordinal()] = entry;
+            ranking.insert(entry);
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxBoards;
+    private final Duration activeWindow;
+    private final Map<Long, Board> boards = new ConcurrentHashMap<>();
+    // concluídos recentemente: consultados do banco, sem voltar para a memória. Limitado aos
+    // maxClosed mais recentes; um concluído esquecido só volta a ocupar um placar (também limitado)
+    private final Set<Long> closed;
+
+    public Leaderboards(JdbcTemplate jdbcTemplate,
+                        @Value("${proof.leaderboard.max-boards:2000}") int maxBoards,
+                        @Value("${proof.leaderboard.max-closed:10000}") int maxClosed,
+                        @Value("${proof.leaderboard.active-window:30d}") Duration activeWindow) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxBoards = Math.max(1, maxBoards);
+        this.activeWindow = activeWindow;
+        int closedLimit = Math.max(1, maxClosed);
+        this.closed = Collections.synchronizedSet(Collections.newSetFromMap(new LinkedHashMap<Long, Boolean>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                return size() > closedLimit;
+            }
+        }));
+    }
+
+    // limit = K primeiros; userId = quem pergunta (posição própria em "me", mesmo fora do top)
+    public Standing standing(Long challengeId, String type, int limit, String userId) {
+        Board board = closed.contains(challengeId) ? new Board(challengeId) : board(challengeId);
+        return board.standing(Metric.fromType(type), limit, userId);
+    }
+
+    // Chamado depois do commit: placar que não está em memória é montado do banco na próxima consulta
+    @TransactionalEventListener
+    public void onProofAccepted(ProofCounters.ProofAccepted proof) {
+        Board board = boards.get(proof.challengeId());
+        if (board == null) return;
+        try {
+            board.apply(proof);
+        } catch (Exception e) {
+            // placar inconsistente é descartado e remontado na próxima consulta
+            boards.remove(proof.challengeId(), board);
+            log.warn("[leaderboard] falha ao atualizar desafio {} -> {}", proof.challengeId(), e.getMessage());
+        }
+    }
+
+    public void evict(Long challengeId) {
+        closed.add(challengeId);
+        if (boards.remove(challengeId) != null) {
+            log.info("[leaderboard] desafio {} concluído, placar removido da memória", challengeId);
+        }
+    }
+
+    public int size() {
+        return boards.size();
+    }
+
+    // Subida: placares dos desafios com provas recentes (os que provavelmente estão em andamento)
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            List<Long> active = jdbcTemplate.queryForList(
+                    "SELECT challenge_id FROM proof WHERE challenge_id IS NOT NULL AND created_at >= ? " +
+                    "GROUP BY challenge_id ORDER BY MAX(created_at) DESC LIMIT ?",
+                    Long.class, System.currentTimeMillis() - activeWindow.toMillis(), maxBoards);
+            for (Long challengeId : active) {
+                board(challengeId).ensureLoaded();
+            }
+            if (!active.isEmpty()) {
+                log.info("[leaderboard] {} placares montados na subida", active.size());
+            }
+        } catch (Exception e) {
+            log.error("[leaderboard] falha ao montar placares -> {}", e.getMessage(), e);
+        }
+    }
+
+    private Board board(Long challengeId) {
+        Board board = boards.get(challengeId);
+        if (board != null) return board;
+        if (boards.size() >= maxBoards) evictLeastRecent();
+        return boards.computeIfAbsent(challengeId, Board::new);
+    }
+
+    // limite de memória: sai o placar consultado há mais tempo (volta do banco se pedirem de novo)
+    private void evictLeastRecent() {
+        Board oldest = null;
+        for (Board board : boards.values()) {
+            if (oldest == null || board.touchedAt < oldest.touchedAt) oldest = board;
+        }
+        if (oldest != null) boards.remove(oldest.challengeId, oldest);
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.proof_service.service;
+
+import com.example.proof_service.model.Proof;
+import com.example.proof_service.repository.ProofRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Contador de provas VALID por (desafio, usuário) em proof_counter, incrementado na mesma transação
+// que grava a prova. O vencedor sai de uma linha por participante, sem carregar as provas (photos,
+// proofTypes, proofValues). Desempate determinístico: mais provas; empate -> quem chegou primeiro
+// a esse número (menor last_valid_at); persistindo, menor userId.
+@Service
+public class ProofCounters {
+
+    public static final String VALID = "VALID";
+
+    public record Winner(String userId, long validCount) {}
+
+    // Publicado ao gravar uma prova que conta; ouvintes transacionais recebem só depois do commit
+    public record ProofAccepted(long proofId, Long challengeId, String userId, long createdAt,
+                                double distance, long studyTime, long elapsedMinutes) {}
+
+    private static final String INCREMENT =
+            "MERGE INTO proof_counter c USING (SELECT CAST(? AS BIGINT) AS challenge_id, CAST(? AS VARCHAR) AS user_id, " +
+            "CAST(? AS BIGINT) AS n, CAST(? AS BIGINT) AS at) v ON c.challenge_id = v.challenge_id AND c.user_id = v.user_id " +
+            "WHEN MATCHED THEN UPDATE SET valid_count = c.valid_count + v.n, last_valid_at = GREATEST(COALESCE(c.last_valid_at, 0), v.at) " +
+            "WHEN NOT MATCHED THEN INSERT (challenge_id, user_id, valid_count, last_valid_at) VALUES (v.challenge_id, v.user_id, v.n, v.at)";
+
+    // projeção usada na reconstrução: mesma regra de contagem do INCREMENT
+    private static final String PROJECTION =
+            "SELECT challenge_id, user_id, COUNT(*), MAX(created_at) FROM proof " +
+            "WHERE UPPER(status) = 'VALID' AND challenge_id IS NOT NULL AND user_id IS NOT NULL AND user_id <> '' ";
+
+    private final ProofRepository proofRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public ProofCounters(ProofRepository proofRepository, JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher) {
+        this.proofRepository = proofRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+    }
+
+    public static boolean counts(Proof proof) {
+        return proof.getChallengeId() != null
+                && proof.getUserId() != null && !proof.getUserId().isBlank()
+                && VALID.equalsIgnoreCase(proof.getStatus());
+    }
+
+    // Grava a prova e incrementa o contador juntos: ou os dois ou nenhum
+    @Transactional
+    public Proof save(Proof proof) {
+        Proof saved = proofRepository.saveAndFlush(proof);
+        if (counts(saved)) {
+            increment(saved.getChallengeId(), saved.getUserId(), 1, saved.getCreatedAt());
+            publishAccepted(saved);
+        }
+        return saved;
+    }
+
+    // Lote (sincronização offline): um INSERT em batch JDBC por tabela (ids por sequência) e um
+    // MERGE por (desafio, usuário), tudo na mesma transação
+    @Transactional
+    public List<Proof> saveAll(List<Proof> proofs) {
+        List<Proof> saved = proofRepository.saveAllAndFlush(proofs);
+        Map<List<Object>, long[]> increments = new LinkedHashMap<>();
+        for (Proof proof : saved) {
+            if (!counts(proof)) continue;
+            long[] totals = increments.computeIfAbsent(List.of(proof.getChallengeId(), proof.getUserId()), k -> new long[2]);
+            totals[0]++;
+            totals[1] = Math.max(totals[1], proof.getCreatedAt() != null ? proof.getCreatedAt() : 0L);
+        }
+        increments.forEach((key, totals) -> increment((Long) key.get(0), (String) key.get(1), totals[0], totals[1]));
+        for (Proof proof : saved) {
+            if (counts(proof)) publishAccepted(proof);
+        }
+        return saved;
+    }
+
+    private void publishAccepted(Proof saved) {
+        eventPublisher.publishEvent(new ProofAccepted(saved.getId(), saved.getChallengeId(), saved.getUserId(),
+                saved.getCreatedAt() != null ? saved.getCreatedAt() : 0L,
+                saved.getDistance() != null ? saved.getDistance() : 0.0,
+                saved.getStudyTime() != null ? saved.getStudyTime() : 0L,
+                saved.getElapsedMinutes() != null ? saved.getElapsedMinutes() : 0L));
+    }
+
+    private void increment(Long challengeId, String userId, long count, Long at) {
+        try {
+            jdbcTemplate.update(INCREMENT, challengeId, userId, count, at);
+        } catch (DataIntegrityViolationException e) {
+            // primeira prova do usuário gravada ao mesmo tempo em outra transação: a linha já existe agora
+            jdbcTemplate.update(INCREMENT, challengeId, userId, count, at);
+        }
+    }
+
+    // Vencedor em O(participantes): null = nenhuma prova VALID
+    public Winner winner(Long challengeId) {
+        List<Winner> top = jdbcTemplate.query(
+                "SELECT user_id, valid_count FROM proof_counter WHERE challenge_id = ? " +
+                "ORDER BY valid_count DESC, last_valid_at ASC, user_id ASC LIMIT 1",
+                (rs, i) -> new Winner(rs.getString(1), rs.getLong(2)), challengeId);
+        return top.isEmpty() ? null : top.get(0);
+    }
+
+    // Recalcula os contadores a partir das provas (um desafio ou, com null, todos).
+    // Bancos anteriores à tabela: carga inicial em ProofCounterBackfill
+    @Transactional
+    public int rebuild(Long challengeId) {
+        if (challengeId == null) {
+            jdbcTemplate.update("DELETE FROM proof_counter");
+            return jdbcTemplate.update("INSERT INTO proof_counter (challenge_id, user_id, valid_count, last_valid_at) " +
+                    PROJECTION + "GROUP BY challenge_id, user_id");
+        }
+        jdbcTemplate.update("DELETE FROM proof_counter WHERE challenge_id = ?", challengeId);
+        return jdbcTemplate.update("INSERT INTO proof_counter (challenge_id, user_id, valid_count, last_valid_at) " +
+                PROJECTION + "AND challenge_id = ? GROUP BY challenge_id, user_id", challengeId);
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.proof_service.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Posição na listagem ordenada por (createdAt DESC, id DESC), trafegada como token opaco (X-Next-Cursor).
+public record ProofCursor(long createdAt, long id) {
+
+    public String encode() {
+        String raw = createdAt + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ProofCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.indexOf(':');
+            return new ProofCursor(Long.parseLong(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+    }
+}
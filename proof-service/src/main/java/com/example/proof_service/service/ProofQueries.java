@@ -0,0 +1,69 @@
+package com.example.proof_service.service;
+
+import com.example.proof_service.model.Proof;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Listagens de provas paginadas por cursor (keyset) sobre (createdAt DESC, id DESC), sempre pela
+// chave canônica challengeId: com o desafio (e opcionalmente o usuário) o banco usa o índice
+// (challenge_id, user_id, created_at) ou (challenge_id, created_at, id) e carrega só a página pedida.
+@Service
+public class ProofQueries {
+
+    public static final int DEFAULT_PAGE_SIZE = 200;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    public record Page(List<Proof> items, String nextCursor) {}
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public static int clampLimit(Integer limit) {
+        if (limit == null || limit <= 0) return DEFAULT_PAGE_SIZE;
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    // "42" -> 42; qualquer outra coisa -> null (não existe desafio com id não numérico)
+    public static Long challengeKey(String value) {
+        if (value == null) return null;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // challengeId null = todas as provas (ainda assim uma página por vez)
+    @Transactional(readOnly = true)
+    public Page page(Long challengeId, String userId, ProofCursor cursor, int limit) {
+        StringBuilder jpql = new StringBuilder("SELECT p FROM Proof p WHERE 1 = 1");
+        if (challengeId != null) jpql.append(" AND p.challengeId = :challengeId");
+        if (userId != null) jpql.append(" AND p.userId = :userId");
+        if (cursor != null) {
+            jpql.append(" AND (p.createdAt < :cursorCreatedAt OR (p.createdAt = :cursorCreatedAt AND p.id < :cursorId))");
+        }
+        jpql.append(" ORDER BY p.createdAt DESC, p.id DESC");
+
+        TypedQuery<Proof> query = entityManager.createQuery(jpql.toString(), Proof.class);
+        if (challengeId != null) query.setParameter("challengeId", challengeId);
+        if (userId != null) query.setParameter("userId", userId);
+        if (cursor != null) {
+            query.setParameter("cursorCreatedAt", cursor.createdAt());
+            query.setParameter("cursorId", cursor.id());
+        }
+        // uma linha a mais só para saber se há próxima página
+        List<Proof> rows = query.setMaxResults(limit + 1).getResultList();
+        if (rows.size() <= limit) {
+            return new Page(rows, null);
+        }
+        List<Proof> items = new ArrayList<>(rows.subList(0, limit));
+        Proof last = items.get(items.size() - 1);
+        return new Page(items, new ProofCursor(last.getCreatedAt(), last.getId()).encode());
+    }
+}
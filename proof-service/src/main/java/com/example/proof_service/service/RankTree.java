@@ -0,0 +1,144 @@
+package com.example.proof_service.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Treap com tamanho de subárvore: inserir, remover e posição de um item em O(log n) esperado;
+// os K primeiros em O(K + log n). Sem sincronização (quem usa protege).
+class RankTree<T> {
+
+    private static final class Node<T> {
+        final T value;
+        final int priority = ThreadLocalRandom.current().nextInt();
+        Node<T> left;
+        Node<T> right;
+        int size = 1;
+
+        Node(T value) {
+            this.value = value;
+        }
+    }
+
+    private final Comparator<? super T> order;
+    private Node<T> root;
+
+    RankTree(Comparator<? super T> order) {
+        this.order = order;
+    }
+
+    int size() {
+        return size(root);
+    }
+
+    void clear() {
+        root = null;
+    }
+
+    void insert(T value) {
+        root = insert(root, new Node<>(value));
+    }
+
+    void remove(T value) {
+        root = remove(root, value);
+    }
+
+    // posição 1-based; 0 = não está na árvore
+    int rank(T value) {
+        int before = 0;
+        Node<T> node = root;
+        while (node != null) {
+            int cmp = order.compare(value, node.value);
+            if (cmp < 0) {
+                node = node.left;
+            } else if (cmp > 0) {
+                before += size(node.left) + 1;
+                node = node.right;
+            } else {
+                return before + size(node.left) + 1;
+            }
+        }
+        return 0;
+    }
+
+    List<T> first(int k) {
+        List<T> out = new ArrayList<>(Math.min(k, size()));
+        collect(root, k, out);
+        return out;
+    }
+
+    private void collect(Node<T> node, int k, List<T> out) {
+        if (node == null || out.size() >= k) return;
+        collect(node.left, k, out);
+        if (out.size() < k) out.add(node.value);
+        collect(node.right, k, out);
+    }
+
+    private Node<T> insert(Node<T> node, Node<T> added) {
+        if (node == null) return added;
+        if (order.compare(added.value, node.value) < 0) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) node = rotateRight(node);
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) node = rotateLeft(node);
+        }
+        update(node);
+        return node;
+    }
+
+    private Node<T> remove(Node<T> node, T value) {
+        if (node == null) return null;
+        int cmp = order.compare(value, node.value);
+        if (cmp < 0) {
+            node.left = remove(node.left, value);
+        } else if (cmp > 0) {
+            node.right = remove(node.right, value);
+        } else {
+            return merge(node.left, node.right);
+        }
+        update(node);
+        return node;
+    }
+
+    // todos de a vêm antes de todos de b
+    private Node<T> merge(Node<T> a, Node<T> b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            update(a);
+            return a;
+        }
+        b.left = merge(a, b.left);
+        update(b);
+        return b;
+    }
+
+    private Node<T> rotateRight(Node<T> node) {
+        Node<T> pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private Node<T> rotateLeft(Node<T> node) {
+        Node<T> pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static <T> void update(Node<T> node) {
+        node.size = size(node.left) + size(node.right) + 1;
+    }
+
+    private static <T> int size(Node<T> node) {
+        return node == null ? 0 : node.size;
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.proof_service.service;
+
+import com.example.proof_service.model.UploadSession;
+import com.example.proof_service.repository.UploadSessionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Uploads retomáveis (vídeos grandes em rede móvel): o arquivo é pré-alocado com o tamanho
+// final e cada PATCH grava a partir do offset com escrita posicional no FileChannel, passando
+// por um buffer fixo; a memória usada não depende do tamanho do arquivo. O offset confirmado
+// fica no banco, então o cliente retoma (HEAD) mesmo depois de um restart. Completo, o arquivo
+// vai para o BlobStore e, se o upload nomeou uma prova, é anexado a ela.
+@Service
+public class ResumableUploads {
+
+    private static final Logger log = LoggerFactory.getLogger(ResumableUploads.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final BlobStore blobStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final long maxBytes;
+    private final Duration ttl;
+    // um PATCH por upload de cada vez
+    private final Set<String> writing = ConcurrentHashMap.newKeySet();
+
+    public ResumableUploads(UploadSessionRepository uploadSessionRepository,
+                            BlobStore blobStore,
+                            JdbcTemplate jdbcTemplate,
+                            @Value("${proof.uploads.max-bytes:524288000}") long maxBytes,
+                            @Value("${proof.uploads.ttl:24h}") Duration ttl) {
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.blobStore = blobStore;
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxBytes = maxBytes;
+        this.ttl = ttl;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public UploadSession create(String userId, long length, String contentType, String fileName, Long proofId) throws IOException {
+        if (length < 0 || length > maxBytes) {
+            throw new IllegalArgumentException("Upload-Length deve estar entre 0 e " + maxBytes);
+        }
+        if (Files.getFileStore(blobStore.tmpDir()).getUsableSpace() < length) {
+            throw new IllegalStateException("Sem espaço em disco para o upload");
+        }
+        long now = System.currentTimeMillis();
+        UploadSession session = new UploadSession();
+        session.setId(UUID.randomUUID().toString());
+        session.setUserId(userId);
+        session.setUploadLength(length);
+        session.setUploadOffset(0L);
+        session.setContentType(BlobStore.servableType(contentType));
+        session.setFileName(fileName);
+        session.setProofId(proofId);
+        session.setStatus(UploadSession.IN_PROGRESS);
+        session.setCreatedAt(now);
+        session.setExpiresAt(now + ttl.toMillis());
+        try (RandomAccessFile file = new RandomAccessFile(partPath(session.getId()).toFile(), "rw")) {
+            file.setLength(length);
+        }
+        UploadSession saved = uploadSessionRepository.save(session);
+        if (length == 0) {
+            complete(saved);
+        }
+        return saved;
+    }
+
+    // null = não existe ou venceu
+    public UploadSession find(String id) {
+        UploadSession session = uploadSessionRepository.findById(id).orElse(null);
+        if (session == null) return null;
+        if (!session.isComplete() && session.getExpiresAt() < System.currentTimeMillis()) return null;
+        return session;
+    }
+
+    // false = outro PATCH do mesmo upload em andamento
+    public boolean tryLock(String id) {
+        return writing.add(id);
+    }
+
+    public void unlock(String id) {
+        writing.remove(id);
+    }
+
+    // Grava o corpo a partir do offset atual (no máximo até uploadLength). Conexão caída no meio
+    // não perde o que já foi gravado: o offset avança até o último byte escrito.
+    public UploadSession append(UploadSession session, InputStream body) throws IOException {
+        long position = session.getUploadOffset();
+        long limit = session.getUploadLength();
+        try (FileChannel channel = FileChannel.open(partPath(session.getId()), StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            try {
+                int read;
+                while (position < limit
+                        && (read = body.read(buffer.array(), 0, (int) Math.min(BUFFER_SIZE, limit - position))) > 0) {
+                    buffer.clear().limit(read);
+                    while (buffer.hasRemaining()) {
+                        position += channel.write(buffer, position);
+                    }
+                }
+            } catch (IOException e) {
+                log.info("[uploads] {} interrompido em {} de {} bytes -> {}", session.getId(), position, limit, e.getMessage());
+            }
+            // offset só é confirmado depois que os bytes estão no disco
+            channel.force(false);
+        }
+        // UPDATE só das colunas do offset: não sobrescreve proof_id gravado por attachWhenComplete
+        session.setUploadOffset(position);
+        session.setExpiresAt(System.currentTimeMillis() + ttl.toMillis());
+        jdbcTemplate.update("UPDATE upload_session SET upload_offset = ?, expires_at = ? WHERE id = ?",
+                position, session.getExpiresAt(), session.getId());
+        if (position == limit) {
+            complete(session);
+        }
+        return session;
+    }
+
+    public void terminate(UploadSession session) throws IOException {
+        Files.deleteIfExists(partPath(session.getId()));
+        uploadSessionRepository.delete(session);
+    }
+
+    public static boolean isImage(UploadSession session) {
+        return session.getContentType() != null && session.getContentType().startsWith("image/");
+    }
+
+    public boolean ownsProof(Long proofId, String userId) {
+        Integer found = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM proof WHERE id = ? AND user_id = ?",
+                Integer.class, proofId, userId);
+        return found != null && found > 0;
+    }
+
+    // Upload concluído vai para a prova do mesmo usuário: imagem em photos, o resto em videos
+    public void attach(UploadSession session, Long proofId) {
+        if (!session.isComplete() || session.getBlobHash() == null || proofId == null || session.getUserId() == null) return;
+        String column = isImage(session) ? "photos" : "videos";
+        int updated = jdbcTemplate.update("UPDATE proof SET " + column + " = CASE WHEN " + column + " IS NULL OR " + column + " = '' " +
+                        "THEN ? ELSE " + column + " || ',' || ? END WHERE id = ? AND user_id = ?",
+                session.getBlobHash(), session.getBlobHash(), proofId, session.getUserId());
+        if (updated == 0) {
+            log.warn("[uploads] prova {} não encontrada (ou de outro usuário) para o upload {}", proofId, session.getId());
+        }
+    }
+
+    // Upload ainda em andamento: anexa à prova quando terminar. Se terminou entre a consulta e aqui,
+    // o UPDATE condicional não pega a linha e o anexo é feito agora.
+    public void attachWhenComplete(UploadSession session, Long proofId) {
+        int pending = jdbcTemplate.update("UPDATE upload_session SET proof_id = ? WHERE id = ? AND status = ?",
+                proofId, session.getId(), UploadSession.IN_PROGRESS);
+        if (pending == 0) {
+            UploadSession current = find(session.getId());
+            if (current != null) attach(current, proofId);
+        }
+    }
+
+    // status e proof_id pelo banco (não pela entidade em memória) para não perder um attachWhenComplete concorrente
+    private void complete(UploadSession session) throws IOException {
+        BlobStore.StoredBlob blob = blobStore.storeFile(partPath(session.getId()), session.getContentType());
+        session.setBlobHash(blob.hash());
+        session.setStatus(UploadSession.COMPLETE);
+        jdbcTemplate.update("UPDATE upload_session SET status = ?, blob_hash = ? WHERE id = ?",
+                UploadSession.COMPLETE, blob.hash(), session.getId());
+        Long proofId = jdbcTemplate.queryForObject("SELECT proof_id FROM upload_session WHERE id = ?", Long.class, session.getId());
+        session.setProofId(proofId);
+        if (proofId != null) {
+            attach(session, proofId);
+        }
+    }
+
+    // Remove uploads abandonados (arquivo parcial e linha)
+    @Scheduled(fixedDelayString = "${proof.uploads.purge-millis:3600000}")
+    public void purgeExpired() {
+        try {
+            List<UploadSession> expired;
+            int total = 0;
+            do {
+                expired = uploadSessionRepository.findTop100ByStatusAndExpiresAtLessThan(
+                        UploadSession.IN_PROGRESS, System.currentTimeMillis());
+                for (UploadSession session : expired) {
+                    if (writing.contains(session.getId())) continue;
+                    terminate(session);
+                    total++;
+                }
+            } while (expired.size() == 100 && total > 0);
+            if (total > 0) {
+                log.info("[uploads] {} uploads vencidos removidos", total);
+            }
+        } catch (Exception e) {
+            log.error("[uploads] falha ao limpar uploads vencidos -> {}", e.getMessage(), e);
+        }
+    }
+
+    private Path partPath(String id) {
+        return blobStore.tmpDir().resolve(id + ".upload");
+    }
+}
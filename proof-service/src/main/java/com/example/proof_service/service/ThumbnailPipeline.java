@@ -0,0 +1,256 @@
+package com.example.proof_service.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Miniaturas JPEG (160px e 640px no maior lado) geradas depois do upload, fora da requisição:
+// pool fixo de workers com fila limitada. Fila cheia não segura o upload: a imagem fica pendente
+// (media_blob.thumbnails = null) e a varredura periódica a enfileira quando houver vaga.
+// Enquanto a miniatura não existe, /media/{hash}/thumb/{size} devolve o original.
+// Métricas: proof.thumbnails.queue.lag, proof.thumbnails.processing, proof.thumbnails.failures,
+// proof.thumbnails.rejected e proof.thumbnails.queue.size.
+@Service
+public class ThumbnailPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(ThumbnailPipeline.class);
+
+    public static final int SMALL = 160;
+    public static final int MEDIUM = 640;
+    public static final List<Integer> SIZES = List.of(SMALL, MEDIUM);
+
+    public static final String READY = "READY";
+    public static final String FAILED = "FAILED";
+    public static final String SKIPPED = "SKIPPED";
+
+    private static final float JPEG_QUALITY = 0.82f;
+    // maior imagem aceita (pixels decodificados depois da subamostragem)
+    private static final long MAX_DECODED_PIXELS = 40_000_000L;
+
+    private final BlobStore blobStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final ThreadPoolExecutor executor;
+    private final ArrayBlockingQueue<Runnable> queue;
+    // hashes na fila ou em processamento: evita enfileirar o mesmo duas vezes
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private final Timer queueLag;
+    private final Timer processing;
+    private final Counter failures;
+    private final Counter rejected;
+
+    public ThumbnailPipeline(BlobStore blobStore,
+                             JdbcTemplate jdbcTemplate,
+                             MeterRegistry meterRegistry,
+                             @Value("${proof.thumbnails.workers:2}") int workers,
+                             @Value("${proof.thumbnails.queue-capacity:200}") int queueCapacity) {
+        this.blobStore = blobStore;
+        this.jdbcTemplate = jdbcTemplate;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(Math.max(1, workers), Math.max(1, workers), 0L, TimeUnit.MILLISECONDS, queue,
+                runnable -> {
+                    Thread thread = new Thread(runnable, "thumbnails-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.queueLag = Timer.builder("proof.thumbnails.queue.lag")
+                .description("Tempo entre o upload e o início da geração das miniaturas")
+                .register(meterRegistry);
+        this.processing = Timer.builder("proof.thumbnails.processing")
+                .description("Tempo para gerar as miniaturas de uma imagem")
+                .register(meterRegistry);
+        this.failures = Counter.builder("proof.thumbnails.failures")
+                .description("Imagens cujas miniaturas não puderam ser geradas")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("proof.thumbnails.rejected")
+                .description("Imagens deixadas para a varredura porque a fila estava cheia")
+                .register(meterRegistry);
+        Gauge.builder("proof.thumbnails.queue.size", queue, ArrayBlockingQueue::size)
+                .description("Imagens aguardando miniatura na fila")
+                .register(meterRegistry);
+    }
+
+    @EventListener
+    public void onBlobStored(BlobStore.BlobStored event) {
+        if (event.contentType() == null || !event.contentType().startsWith("image/")) {
+            jdbcTemplate.update("UPDATE media_blob SET thumbnails = ? WHERE hash = ?", SKIPPED, event.hash());
+            return;
+        }
+        submit(event.hash());
+    }
+
+    // false = fila cheia (fica pendente para a varredura)
+    public boolean submit(String hash) {
+        if (!inFlight.add(hash)) return true;
+        long enqueuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                queueLag.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+                try {
+                    processing.record(() -> generate(hash));
+                } finally {
+                    inFlight.remove(hash);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(hash);
+            rejected.increment();
+            return false;
+        }
+    }
+
+    // Pendentes (fila cheia no upload, restart no meio): enfileira só o que cabe na fila
+    @Scheduled(fixedDelayString = "${proof.thumbnails.sweep-millis:60000}")
+    public void sweep() {
+        try {
+            int room = queue.remainingCapacity();
+            if (room <= 0) return;
+            List<String> pending = jdbcTemplate.queryForList(
+                    "SELECT hash FROM media_blob WHERE thumbnails IS NULL AND content_type LIKE 'image/%' " +
+                    "ORDER BY created_at LIMIT ?", String.class, room);
+            for (String hash : pending) {
+                if (!submit(hash)) break;
+            }
+        } catch (Exception e) {
+            log.error("[thumbnails] falha na varredura -> {}", e.getMessage(), e);
+        }
+    }
+
+    private void generate(String hash) {
+        String status;
+        try {
+            BufferedImage source = decode(blobStore.pathOf(hash));
+            if (source == null) {
+                status = FAILED;
+            } else {
+                for (int size : SIZES) {
+                    writeJpeg(scale(source, size), blobStore.thumbnailPath(hash, size));
+                }
+                status = READY;
+            }
+        } catch (Exception | OutOfMemoryError e) {
+            log.warn("[thumbnails] falha em {} -> {}", hash, e.toString());
+            status = FAILED;
+        }
+        if (FAILED.equals(status)) failures.increment();
+        jdbcTemplate.update("UPDATE media_blob SET thumbnails = ? WHERE hash = ?", status, hash);
+    }
+
+    // Decodifica já subamostrado: uma foto de 4000px não precisa virar 64 MB na heap para gerar 640px
+    private static BufferedImage decode(Path path) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(path.toFile())) {
+            if (input == null) return null;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                int step = Math.max(1, Math.min(width, height) / (MEDIUM * 2));
+                while ((long) (width / step) * (height / step) > MAX_DECODED_PIXELS) step++;
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Maior lado = size (sem ampliar); reduz pela metade até perto do tamanho final para não serrilhar
+    private static BufferedImage scale(BufferedImage source, int size) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double ratio = Math.min(1.0, (double) size / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(height * ratio));
+        BufferedImage current = source;
+        int currentWidth = width;
+        int currentHeight = height;
+        do {
+            currentWidth = Math.max(targetWidth, currentWidth / 2);
+            currentHeight = Math.max(targetHeight, currentHeight / 2);
+            if (currentWidth < targetWidth * 2 || currentHeight < targetHeight * 2) {
+                currentWidth = targetWidth;
+                currentHeight = targetHeight;
+            }
+            BufferedImage next = new BufferedImage(currentWidth, currentHeight, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setColor(Color.WHITE); // JPEG não tem transparência
+                g.fillRect(0, 0, currentWidth, currentHeight);
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (currentWidth != targetWidth || currentHeight != targetHeight);
+        return current;
+    }
+
+    // Grava em arquivo temporário e move: quem lê nunca vê miniatura pela metade
+    private static void writeJpeg(BufferedImage image, Path target) throws IOException {
+        Path part = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".part");
+        try {
+            ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+            try (ImageOutputStream output = ImageIO.createImageOutputStream(part.toFile())) {
+                writer.setOutput(output);
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(part, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(part);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
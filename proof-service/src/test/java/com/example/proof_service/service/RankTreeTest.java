@@ -0,0 +1,113 @@
+package com.example.proof_service.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RankTreeTest {
+
+    private record Score(double points, long lastAt, String userId) {}
+
+    // mesma ordem do placar: mais pontos, depois quem chegou antes, depois menor userId
+    private static final Comparator<Score> ORDER = Comparator
+            .comparingDouble(Score::points).reversed()
+            .thenComparingLong(Score::lastAt)
+            .thenComparing(Score::userId);
+
+    @Test
+    void rankIsOneBasedAndZeroWhenAbsent() {
+        RankTree<Score> tree = new RankTree<>(ORDER);
+        Score a = new Score(10, 100, "a");
+        Score b = new Score(30, 100, "b");
+        Score c = new Score(20, 100, "c");
+        tree.insert(a);
+        tree.insert(b);
+        tree.insert(c);
+
+        assertEquals(3, tree.size());
+        assertEquals(1, tree.rank(b));
+        assertEquals(2, tree.rank(c));
+        assertEquals(3, tree.rank(a));
+        assertEquals(0, tree.rank(new Score(15, 100, "x")));
+    }
+
+    @Test
+    void topKFollowsTieBreakers() {
+        RankTree<Score> tree = new RankTree<>(ORDER);
+        tree.insert(new Score(5, 300, "late"));
+        tree.insert(new Score(5, 100, "early"));
+        tree.insert(new Score(5, 100, "alpha"));
+        tree.insert(new Score(9, 900, "leader"));
+
+        assertEquals(List.of("leader", "alpha", "early"), users(tree.first(3)));
+        assertEquals(List.of("leader", "alpha", "early", "late"), users(tree.first(10)));
+        assertTrue(tree.first(0).isEmpty());
+    }
+
+    // Atualização = remove a entrada antiga e insere a nova (como Leaderboards.place)
+    @Test
+    void updateMovesEntryToNewPosition() {
+        RankTree<Score> tree = new RankTree<>(ORDER);
+        Score a = new Score(1, 100, "a");
+        Score b = new Score(2, 100, "b");
+        Score c = new Score(3, 100, "c");
+        tree.insert(a);
+        tree.insert(b);
+        tree.insert(c);
+        assertEquals(3, tree.rank(a));
+
+        tree.remove(a);
+        Score updated = new Score(4, 200, "a");
+        tree.insert(updated);
+
+        assertEquals(3, tree.size());
+        assertEquals(1, tree.rank(updated));
+        assertEquals(0, tree.rank(a));
+        assertEquals(List.of("a", "c", "b"), users(tree.first(3)));
+    }
+
+    // Sequência aleatória de inserções, atualizações e remoções comparada com um TreeSet
+    @Test
+    void matchesTreeSetUnderRandomUpdates() {
+        Random random = new Random(42);
+        RankTree<Score> tree = new RankTree<>(ORDER);
+        TreeSet<Score> expected = new TreeSet<>(ORDER);
+        Score[] current = new Score[200];
+        for (int step = 0; step < 5000; step++) {
+            int user = random.nextInt(current.length);
+            if (current[user] != null) {
+                tree.remove(current[user]);
+                expected.remove(current[user]);
+                current[user] = null;
+            }
+            if (random.nextInt(10) > 0) {
+                current[user] = new Score(random.nextInt(50), random.nextInt(1000), "u" + user);
+                tree.insert(current[user]);
+                expected.add(current[user]);
+            }
+            assertEquals(expected.size(), tree.size());
+        }
+
+        List<Score> ordered = new ArrayList<>(expected);
+        assertEquals(ordered.subList(0, Math.min(10, ordered.size())), tree.first(10));
+        assertEquals(ordered, tree.first(ordered.size()));
+        for (int i = 0; i < ordered.size(); i++) {
+            assertEquals(i + 1, tree.rank(ordered.get(i)));
+        }
+    }
+
+    private static List<String> users(List<Score> scores) {
+        List<String> out = new ArrayList<>();
+        for (Score score : scores) {
+            out.add(score.userId());
+        }
+        return out;
+    }
+}
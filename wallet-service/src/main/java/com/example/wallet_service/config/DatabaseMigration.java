@@ -0,0 +1,137 @@
+package com.example.wallet_service.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Ajustes de esquema que o ddl-auto=update não faz sozinho.
+// Roda antes do EntityManagerFactory: o update do Hibernate já encontra as colunas no formato novo.
+@Slf4j
+@Component
+public class DatabaseMigration {
+
+    // tabela, coluna antiga (reais em DOUBLE), coluna nova (centavos em BIGINT)
+    private static final String[][] CENTS_COLUMNS = {
+            { "WALLETS", "BALANCE", "BALANCE_CENTS" },
+            { "TRANSACTIONS", "AMOUNT", "AMOUNT_CENTS" },
+            { "TRANSACTIONS", "BALANCE_AFTER", "BALANCE_AFTER_CENTS" },
+            { "HOLDS", "AMOUNT", "AMOUNT_CENTS" }
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DatabaseMigration(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Bean
+    static EntityManagerFactoryDependsOnPostProcessor entityManagerFactoryDependsOnDatabaseMigration() {
+        return new EntityManagerFactoryDependsOnPostProcessor(DatabaseMigration.class);
+    }
+
+    @PostConstruct
+    public void migrate() {
+        try {
+            widenTransactionType();
+            for (String[] column : CENTS_COLUMNS) {
+                convertToCents(column[0], column[1], column[2]);
+            }
+            addLedgerSequence();
+            backfillMonthlySummaries();
+        } catch (Exception e) {
+            log.error("Erro ao executar migração do banco de dados: " + e.getMessage(), e);
+        }
+    }
+
+    // transactions.type foi criada como ENUM/CHECK com os valores da época; o update não inclui
+    // tipos novos (CREDIT), então a coluna vira VARCHAR e a validação fica com o enum da entidade
+    private void widenTransactionType() {
+        List<String> dataType = jdbcTemplate.queryForList(
+                "SELECT DATA_TYPE FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'TRANSACTIONS' AND COLUMN_NAME = 'TYPE'",
+                String.class);
+        if (dataType.isEmpty()) {
+            return; // tabela ainda não criada: o Hibernate cria com todos os valores
+        }
+        List<String> checks = jdbcTemplate.queryForList(
+                "SELECT tc.CONSTRAINT_NAME FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS tc " +
+                "JOIN INFORMATION_SCHEMA.CHECK_CONSTRAINTS cc ON cc.CONSTRAINT_NAME = tc.CONSTRAINT_NAME " +
+                "WHERE tc.TABLE_NAME = 'TRANSACTIONS' AND tc.CONSTRAINT_TYPE = 'CHECK' AND UPPER(cc.CHECK_CLAUSE) LIKE '%WALLET_DEPOSIT%'",
+                String.class);
+        for (String constraint : checks) {
+            jdbcTemplate.execute("ALTER TABLE transactions DROP CONSTRAINT \"" + constraint + "\"");
+            log.info("Restrição {} de transactions.type removida", constraint);
+        }
+        if ("ENUM".equalsIgnoreCase(dataType.get(0))) {
+            jdbcTemplate.execute("ALTER TABLE transactions ALTER COLUMN type SET DATA TYPE VARCHAR(32)");
+            log.info("Coluna transactions.type convertida para VARCHAR");
+        }
+    }
+
+    // Valores em reais (DOUBLE) passam a centavos (BIGINT): copia arredondando e remove a coluna antiga
+    private void convertToCents(String table, String oldColumn, String newColumn) {
+        if (!columnExists(table, oldColumn)) {
+            return;
+        }
+        jdbcTemplate.execute("ALTER TABLE " + table + " ADD COLUMN IF NOT EXISTS " + newColumn + " BIGINT DEFAULT 0 NOT NULL");
+        jdbcTemplate.update("UPDATE " + table + " SET " + newColumn + " = CAST(ROUND(COALESCE(" + oldColumn + ", 0) * 100, 0) AS BIGINT)");
+        jdbcTemplate.execute("ALTER TABLE " + table + " DROP COLUMN " + oldColumn);
+        log.info("Coluna {}.{} convertida para {} (centavos)", table.toLowerCase(), oldColumn.toLowerCase(), newColumn.toLowerCase());
+    }
+
+    // Lançamentos gravados antes da sequência por carteira: numerados na ordem (created_at, id)
+    // e wallets.last_seq_no passa a ser a maior sequência da carteira
+    private void addLedgerSequence() {
+        if (columnExists("TRANSACTIONS", "ID") && !columnExists("TRANSACTIONS", "SEQ_NO")) {
+            jdbcTemplate.execute("ALTER TABLE transactions ADD COLUMN seq_no BIGINT");
+            int numbered = jdbcTemplate.update("MERGE INTO transactions t USING (" +
+                    "SELECT id, ROW_NUMBER() OVER (PARTITION BY wallet_id ORDER BY created_at, id) AS rn FROM transactions) s " +
+                    "ON t.id = s.id WHEN MATCHED THEN UPDATE SET t.seq_no = s.rn");
+            jdbcTemplate.execute("ALTER TABLE transactions ALTER COLUMN seq_no SET NOT NULL");
+            log.info("Sequência do ledger atribuída a {} lançamentos existentes", numbered);
+        }
+        if (columnExists("WALLETS", "ID") && !columnExists("WALLETS", "LAST_SEQ_NO")) {
+            jdbcTemplate.execute("ALTER TABLE wallets ADD COLUMN last_seq_no BIGINT DEFAULT 0 NOT NULL");
+            if (columnExists("TRANSACTIONS", "SEQ_NO")) {
+                jdbcTemplate.update("UPDATE wallets w SET last_seq_no = " +
+                        "COALESCE((SELECT MAX(t.seq_no) FROM transactions t WHERE t.wallet_id = w.id), 0)");
+            }
+            log.info("Coluna wallets.last_seq_no criada");
+        }
+    }
+
+    // Totais mensais de bancos anteriores à tabela: criada aqui (mesmo formato do Hibernate) e
+    // preenchida a partir dos lançamentos; depois disso é mantida pelo WalletStore
+    private void backfillMonthlySummaries() {
+        if (!columnExists("TRANSACTIONS", "ID") || columnExists("WALLET_MONTHLY_SUMMARIES", "ID")) {
+            return;
+        }
+        jdbcTemplate.execute("CREATE TABLE wallet_monthly_summaries (" +
+                "id UUID NOT NULL PRIMARY KEY, wallet_id UUID NOT NULL, user_id VARCHAR(255) NOT NULL, " +
+                "ref_month VARCHAR(7) NOT NULL, deposits_cents BIGINT NOT NULL, debits_cents BIGINT NOT NULL, " +
+                "credits_cents BIGINT NOT NULL, fees_cents BIGINT NOT NULL, entries BIGINT NOT NULL, " +
+                "updated_at TIMESTAMP(6) NOT NULL, " +
+                "CONSTRAINT uk_monthly_summaries_wallet_month UNIQUE (wallet_id, ref_month))");
+        int months = jdbcTemplate.update("INSERT INTO wallet_monthly_summaries " +
+                "(id, wallet_id, user_id, ref_month, deposits_cents, debits_cents, credits_cents, fees_cents, entries, updated_at) " +
+                "SELECT RANDOM_UUID(), wallet_id, MAX(user_id), FORMATDATETIME(created_at, 'yyyy-MM'), " +
+                "SUM(CASE WHEN type = 'WALLET_DEPOSIT' THEN amount_cents ELSE 0 END), " +
+                "SUM(CASE WHEN type IN ('DEBIT', 'HOLD') THEN amount_cents ELSE 0 END), " +
+                "SUM(CASE WHEN type IN ('CREDIT', 'RELEASE', 'PAYOUT') THEN amount_cents ELSE 0 END), " +
+                "SUM(CASE WHEN type = 'FEE' THEN amount_cents ELSE 0 END), " +
+                "COUNT(*), MAX(created_at) " +
+                "FROM transactions GROUP BY wallet_id, FORMATDATETIME(created_at, 'yyyy-MM')");
+        log.info("Totais mensais calculados para {} meses de carteira", months);
+    }
+
+    private boolean columnExists(String table, String column) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = ? AND COLUMN_NAME = ?",
+                Integer.class, table, column);
+        return count != null && count > 0;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.wallet_service.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+// Chave compartilhada das chamadas entre serviços (header X-Internal-Api-Key):
+// exigida nos endpoints que movimentam carteiras de terceiros
+@Component
+public class InternalApiKey {
+
+    public static final String HEADER = "X-Internal-Api-Key";
+
+    private final byte[] key;
+
+    public InternalApiKey(@Value("${wallet.internal.api-key}") String key) {
+        this.key = key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public boolean matches(String header) {
+        return header != null && MessageDigest.isEqual(header.getBytes(StandardCharsets.UTF_8), key);
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.wallet_service.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Habilita os @Scheduled do serviço (reconciliação do ledger)
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
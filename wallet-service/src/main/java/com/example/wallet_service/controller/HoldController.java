@@ -0,0 +1,200 @@
+package com.example.wallet_service.controller;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.example.wallet_service.config.InternalApiKey;
+import com.example.wallet_service.entity.Hold;
+import com.example.wallet_service.repository.HoldRepository;
+import com.example.wallet_service.service.HoldService;
+import com.example.wallet_service.service.InsufficientBalanceException;
+import com.example.wallet_service.service.Money;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.*;
+
+// Custódia das apostas dos desafios.
+// POST /holds é chamado com o JWT do próprio usuário (no lugar do /debit);
+// release, capture e settle movimentam carteiras de terceiros e exigem a chave interna.
+@RestController
+@RequestMapping("/api/wallet/holds")
+@CrossOrigin(origins = "*")
+public class HoldController {
+
+    private final HoldService holdService;
+    private final HoldRepository holdRepository;
+    private final InternalApiKey internalApiKey;
+
+    public HoldController(HoldService holdService, HoldRepository holdRepository, InternalApiKey internalApiKey) {
+        this.holdService = holdService;
+        this.holdRepository = holdRepository;
+        this.internalApiKey = internalApiKey;
+    }
+
+    private String extractUserId(String authHeader) {
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            try {
+                DecodedJWT jwt = JWT.decode(authHeader.substring(7));
+                return jwt.getSubject();
+            } catch (Exception e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    // Corpo: { "challengeId", "amount", "description"? }
+    @PostMapping
+    public ResponseEntity<?> hold(
+            @RequestBody Map<String, Object> request,
+            @RequestHeader(value = "Authorization", required = false) String authHeader) {
+        String userId = extractUserId(authHeader);
+        if (userId == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Token não fornecido ou inválido"));
+        }
+        Long challengeId = parseLong(request.get("challengeId"));
+        if (challengeId == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "challengeId obrigatório"));
+        }
+        Long amountCents = Money.toCents(request.get("amount"));
+        if (amountCents == null || amountCents <= 0) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Valor deve ser maior que zero"));
+        }
+        try {
+            HoldService.HoldResult result = holdService.hold(userId, challengeId, amountCents,
+                    (String) request.get("description"));
+            return ResponseEntity.ok(Map.of(
+                "message", result.alreadyHeld() ? "Valor já estava em custódia" : "Valor reservado em custódia",
+                "holdId", result.holdId().toString(),
+                "amount", Money.toReais(result.amountCents()),
+                "balance", Money.toReais(result.balanceCents()),
+                "alreadyHeld", result.alreadyHeld()
+            ));
+        } catch (InsufficientBalanceException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Saldo insuficiente",
+                "currentBalance", Money.toReais(e.getCurrentBalanceCents()),
+                "requiredAmount", Money.toReais(e.getRequiredCents())
+            ));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Valores do usuário atualmente em custódia
+    @GetMapping
+    public ResponseEntity<?> myHolds(@RequestHeader(value = "Authorization", required = false) String authHeader) {
+        String userId = extractUserId(authHeader);
+        if (userId == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Token não fornecido ou inválido"));
+        }
+        List<Map<String, Object>> result = new ArrayList<>();
+        long totalCents = 0;
+        for (Hold hold : holdRepository.findByUserIdAndStatusOrderByCreatedAtDesc(userId, Hold.HoldStatus.HELD)) {
+            result.add(Map.of(
+                "id", hold.getId().toString(),
+                "challengeId", hold.getChallengeId(),
+                "amount", Money.toReais(hold.getAmountCents())
+            ));
+            totalCents += hold.getAmountCents();
+        }
+        return ResponseEntity.ok(Map.of("holds", result, "totalHeld", Money.toReais(totalCents)));
+    }
+
+    // Corpo: { "userIds": [...], "feePercent"?: 0, "description"? }
+    @PostMapping("/{challengeId}/release")
+    public ResponseEntity<?> release(
+            @PathVariable Long challengeId,
+            @RequestBody Map<String, Object> request,
+            @RequestHeader(value = InternalApiKey.HEADER, required = false) String apiKey) {
+        if (!internalApiKey.matches(apiKey)) {
+            return ResponseEntity.status(401).body(Map.of("error", "Chave interna ausente ou inválida"));
+        }
+        List<String> userIds = stringList(request.get("userIds"));
+        if (userIds.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Lista de usuários vazia"));
+        }
+        double feePercent = request.get("feePercent") instanceof Number n ? n.doubleValue() : 0.0;
+        if (feePercent < 0 || feePercent > 100) {
+            return ResponseEntity.badRequest().body(Map.of("error", "feePercent deve estar entre 0 e 100"));
+        }
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (HoldService.ReleaseResult r : holdService.release(challengeId, userIds, feePercent, (String) request.get("description"))) {
+            results.add(Map.of(
+                "userId", r.userId(),
+                "status", r.status().name(),
+                "refunded", Money.toReais(r.refundedCents()),
+                "fee", Money.toReais(r.feeCents()),
+                "legacyDebit", r.legacyDebit()
+            ));
+        }
+        return ResponseEntity.ok(Map.of("results", results));
+    }
+
+    // Corpo: { "userIds": [...] }
+    @PostMapping("/{challengeId}/capture")
+    public ResponseEntity<?> capture(
+            @PathVariable Long challengeId,
+            @RequestBody Map<String, Object> request,
+            @RequestHeader(value = InternalApiKey.HEADER, required = false) String apiKey) {
+        if (!internalApiKey.matches(apiKey)) {
+            return ResponseEntity.status(401).body(Map.of("error", "Chave interna ausente ou inválida"));
+        }
+        List<String> userIds = stringList(request.get("userIds"));
+        if (userIds.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Lista de usuários vazia"));
+        }
+        return ResponseEntity.ok(Map.of("capturedUserIds", holdService.capture(challengeId, userIds)));
+    }
+
+    // Corpo: { "winnerId"?, "feePercent", "stake", "paidUserIds": [...] }
+    // paidUserIds cobre quem pagou por /debit antes da custódia existir (sem linha em holds)
+    @PostMapping("/{challengeId}/settle")
+    public ResponseEntity<?> settle(
+            @PathVariable Long challengeId,
+            @RequestBody Map<String, Object> request,
+            @RequestHeader(value = InternalApiKey.HEADER, required = false) String apiKey) {
+        if (!internalApiKey.matches(apiKey)) {
+            return ResponseEntity.status(401).body(Map.of("error", "Chave interna ausente ou inválida"));
+        }
+        double feePercent = request.get("feePercent") instanceof Number n ? n.doubleValue() : 0.0;
+        if (feePercent < 0 || feePercent > 100) {
+            return ResponseEntity.badRequest().body(Map.of("error", "feePercent deve estar entre 0 e 100"));
+        }
+        Long stakeCents = Money.toCents(request.get("stake"));
+        Object winnerObj = request.get("winnerId");
+        String winnerId = winnerObj != null && !String.valueOf(winnerObj).isBlank() ? String.valueOf(winnerObj) : null;
+
+        HoldService.SettlementResult result = holdService.settle(challengeId, winnerId, feePercent, stakeCents != null ? stakeCents : 0L,
+                stringList(request.get("paidUserIds")));
+        Map<String, Object> body = new HashMap<>();
+        body.put("status", result.status().name());
+        body.put("pot", Money.toReais(result.potCents()));
+        body.put("fee", Money.toReais(result.feeCents()));
+        body.put("prize", Money.toReais(result.prizeCents()));
+        body.put("winnerId", result.winnerId());
+        return ResponseEntity.ok(body);
+    }
+
+    private static List<String> stringList(Object value) {
+        List<String> list = new ArrayList<>();
+        if (value instanceof Collection<?> items) {
+            for (Object item : items) {
+                if (item != null && !String.valueOf(item).isBlank()) list.add(String.valueOf(item));
+            }
+        }
+        return list;
+    }
+
+    private static Long parseLong(Object value) {
+        if (value instanceof Number n) {
+            return n.longValue();
+        }
+        if (value instanceof String s) {
+            try {
+                return Long.parseLong(s);
+            } catch (NumberFormatException ignored) {}
+        }
+        return null;
+    }
+}
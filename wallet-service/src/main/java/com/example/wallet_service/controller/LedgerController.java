@@ -0,0 +1,109 @@
+package com.example.wallet_service.controller;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.example.wallet_service.config.InternalApiKey;
+import com.example.wallet_service.service.LedgerReconciliation;
+import com.example.wallet_service.service.Money;
+import com.example.wallet_service.service.WalletLedger;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.*;
+
+// Consultas ao ledger: saldo recalculado pelos lançamentos e reconciliação de todas as carteiras.
+// A reconciliação percorre o banco inteiro, por isso exige a chave interna.
+@RestController
+@RequestMapping("/api/wallet/ledger")
+@CrossOrigin(origins = "*")
+public class LedgerController {
+
+    private final WalletLedger walletLedger;
+    private final LedgerReconciliation reconciliation;
+    private final InternalApiKey internalApiKey;
+    private final JdbcTemplate jdbcTemplate;
+
+    public LedgerController(WalletLedger walletLedger, LedgerReconciliation reconciliation,
+                            InternalApiKey internalApiKey, JdbcTemplate jdbcTemplate) {
+        this.walletLedger = walletLedger;
+        this.reconciliation = reconciliation;
+        this.internalApiKey = internalApiKey;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    private String extractUserId(String authHeader) {
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            try {
+                DecodedJWT jwt = JWT.decode(authHeader.substring(7));
+                return jwt.getSubject();
+            } catch (Exception e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    // Saldo gravado x saldo pelo ledger (último snapshot + lançamentos seguintes)
+    @GetMapping("/balance")
+    public ResponseEntity<?> balance(@RequestHeader(value = "Authorization", required = false) String authHeader) {
+        String userId = extractUserId(authHeader);
+        if (userId == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Token não fornecido ou inválido"));
+        }
+        WalletLedger.LedgerBalance ledger = walletLedger.balanceOf(userId);
+        if (ledger == null) {
+            return ResponseEntity.ok(Map.of("balance", 0.0, "ledgerBalance", 0.0, "seqNo", 0L, "snapshotSeqNo", 0L));
+        }
+        Long stored = jdbcTemplate.queryForObject("SELECT balance_cents FROM wallets WHERE user_id = ?", Long.class, userId);
+        return ResponseEntity.ok(Map.of(
+            "balance", Money.toReais(stored != null ? stored : 0L),
+            "ledgerBalance", Money.toReais(ledger.balanceCents()),
+            "seqNo", ledger.seqNo(),
+            "snapshotSeqNo", ledger.snapshotSeqNo()
+        ));
+    }
+
+    // Executa a reconciliação agora e devolve o relatório (também roda agendada: wallet.ledger.reconciliation.cron)
+    @PostMapping("/reconcile")
+    public ResponseEntity<?> reconcile(@RequestHeader(value = InternalApiKey.HEADER, required = false) String apiKey) {
+        if (!internalApiKey.matches(apiKey)) {
+            return ResponseEntity.status(401).body(Map.of("error", "Chave interna ausente ou inválida"));
+        }
+        return ResponseEntity.ok(toBody(reconciliation.reconcile()));
+    }
+
+    // Relatório da última rodada
+    @GetMapping("/reconcile")
+    public ResponseEntity<?> lastReport(@RequestHeader(value = InternalApiKey.HEADER, required = false) String apiKey) {
+        if (!internalApiKey.matches(apiKey)) {
+            return ResponseEntity.status(401).body(Map.of("error", "Chave interna ausente ou inválida"));
+        }
+        LedgerReconciliation.Report report = reconciliation.lastReport();
+        if (report == null) {
+            return ResponseEntity.status(404).body(Map.of("error", "Nenhuma reconciliação executada ainda"));
+        }
+        return ResponseEntity.ok(toBody(report));
+    }
+
+    private static Map<String, Object> toBody(LedgerReconciliation.Report report) {
+        List<Map<String, Object>> samples = new ArrayList<>();
+        for (LedgerReconciliation.Discrepancy d : report.samples()) {
+            samples.add(Map.of(
+                "walletId", d.walletId().toString(),
+                "kind", d.kind().name(),
+                "seqNo", d.seqNo(),
+                "expected", d.expected(),
+                "actual", d.actual()
+            ));
+        }
+        Map<String, Object> body = new HashMap<>();
+        body.put("wallets", report.wallets());
+        body.put("entries", report.entries());
+        body.put("discrepancies", report.discrepancies());
+        body.put("totalDiscrepancies", report.totalDiscrepancies());
+        body.put("samples", samples);
+        body.put("millis", report.millis());
+        return body;
+    }
+}
@@ -2,28 +2,55 @@ package com.example.wallet_service.controller;
 
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.interfaces.DecodedJWT;
-import com.example.wallet_service.entity.Transaction;
-import com.example.wallet_service.entity.Wallet;
-import com.example.wallet_service.repository.TransactionRepository;
-import com.example.wallet_service.repository.WalletRepository;
+import com.example.wallet_service.config.InternalApiKey;
+import com.example.wallet_service.service.IdempotencyService;
+import com.example.wallet_service.service.InsufficientBalanceException;
+import com.example.wallet_service.service.Money;
+import com.example.wallet_service.service.TransactionHistory;
+import com.example.wallet_service.service.WalletBalanceService;
+import com.example.wallet_service.service.WalletCreditService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/wallet")
 @CrossOrigin(origins = "*")
 public class WalletController {
 
-    private final WalletRepository walletRepository;
-    private final TransactionRepository transactionRepository;
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 
-    public WalletController(WalletRepository walletRepository, TransactionRepository transactionRepository) {
-        this.walletRepository = walletRepository;
-        this.transactionRepository = transactionRepository;
+    private final TransactionHistory transactionHistory;
+    private final WalletCreditService creditService;
+    private final WalletBalanceService balanceService;
+    private final IdempotencyService idempotencyService;
+    private final InternalApiKey internalApiKey;
+    private final int maxBatchItems;
+
+    public WalletController(TransactionHistory transactionHistory,
+                            WalletCreditService creditService,
+                            WalletBalanceService balanceService,
+                            IdempotencyService idempotencyService,
+                            InternalApiKey internalApiKey,
+                            @Value("${wallet.credits.max-batch-items:500}") int maxBatchItems) {
+        this.transactionHistory = transactionHistory;
+        this.creditService = creditService;
+        this.balanceService = balanceService;
+        this.idempotencyService = idempotencyService;
+        this.internalApiKey = internalApiKey;
+        this.maxBatchItems = maxBatchItems;
     }
 
     private String extractUserId(String authHeader) {
@@ -39,14 +66,8 @@ public class WalletController {
         return null;
     }
 
-    private Wallet getOrCreateWallet(String userId) {
-        return walletRepository.findByUserId(userId)
-                .orElseGet(() -> {
-                    Wallet wallet = new Wallet(userId);
-                    return walletRepository.save(wallet);
-                });
-    }
-
+    // NOVO: leitura pura pelo cache de saldos (sem consulta no hit); não cria carteira:
+    // usuário sem carteira vê saldo zero até o PUT abaixo (ou o primeiro depósito)
     @GetMapping
     public ResponseEntity<?> getWallet(@RequestHeader(value = "Authorization", required = false) String authHeader) {
         String userId = extractUserId(authHeader);
@@ -54,147 +75,238 @@ public class WalletController {
             return ResponseEntity.status(401).body(Map.of("error", "Token não fornecido ou inválido"));
         }
         
-        Wallet wallet = getOrCreateWallet(userId);
-        return ResponseEntity.ok(Map.of(
-            "balance", wallet.getBalance(),
-            "currency", wallet.getCurrency()
-        ));
+        return ResponseEntity.ok(balanceBody(balanceService.balance(userId)));
     }
 
-    @GetMapping("/transactions")
-    public ResponseEntity<?> getTransactions(@RequestHeader(value = "Authorization", required = false) String authHeader) {
+    // NOVO: criação explícita da carteira, idempotente: 201 na primeira chamada, 200 nas seguintes
+    @PutMapping
+    public ResponseEntity<?> provisionWallet(@RequestHeader(value = "Authorization", required = false) String authHeader) {
         String userId = extractUserId(authHeader);
         if (userId == null) {
             return ResponseEntity.status(401).body(Map.of("error", "Token não fornecido ou inválido"));
         }
         
-        List<Transaction> transactions = transactionRepository.findByUserIdOrderByCreatedAtDesc(userId);
-        
-        List<Map<String, Object>> result = transactions.stream().map(tx -> {
-            Map<String, Object> txMap = new HashMap<>();
-            txMap.put("id", tx.getId().toString());
-            txMap.put("userId", tx.getUserId());
-            txMap.put("type", tx.getType().name());
-            txMap.put("amount", tx.getAmount());
-            txMap.put("balance", tx.getBalanceAfter());
-            txMap.put("description", tx.getDescription());
-            txMap.put("challengeId", tx.getChallengeId());
-            txMap.put("createdAt", tx.getCreatedAt().atZone(java.time.ZoneId.systemDefault()).toInstant().toEpochMilli());
-            return txMap;
-        }).collect(Collectors.toList());
+        boolean created = balanceService.provision(userId);
+        return ResponseEntity.status(created ? 201 : 200).body(balanceBody(balanceService.balance(userId)));
+    }
+
+    private static Map<String, Object> balanceBody(WalletBalanceService.Balance balance) {
+        return Map.of(
+            "balance", Money.toReais(balance.balanceCents()),
+            "currency", balance.currency()
+        );
+    }
+
+    // NOVO: histórico paginado por chave. Corpo continua sendo a lista de lançamentos (mais recentes
+    // primeiro); o cursor da próxima página vem em X-Next-Cursor (ausente na última página).
+    // ?limit= (padrão 50, máx. 200) e ?cursor= (valor de X-Next-Cursor)
+    @GetMapping("/transactions")
+    @CrossOrigin(origins = "*", exposedHeaders = NEXT_CURSOR_HEADER)
+    public ResponseEntity<?> getTransactions(
+            @RequestHeader(value = "Authorization", required = false) String authHeader,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "" + TransactionHistory.DEFAULT_LIMIT) int limit) {
+        String userId = extractUserId(authHeader);
+        if (userId == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Token não fornecido ou inválido"));
+        }
         
-        return ResponseEntity.ok(result);
+        TransactionHistory.Page page;
+        try {
+            page = transactionHistory.page(userId, cursor, limit);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.items());
+    }
+
+    // NOVO: totais por mês (depósitos, débitos, créditos, taxas), mais recentes primeiro
+    @GetMapping("/transactions/monthly")
+    public ResponseEntity<?> getMonthlySummary(
+            @RequestHeader(value = "Authorization", required = false) String authHeader,
+            @RequestParam(value = "months", defaultValue = "12") int months) {
+        String userId = extractUserId(authHeader);
+        if (userId == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Token não fornecido ou inválido"));
+        }
+        return ResponseEntity.ok(transactionHistory.monthly(userId, Math.min(months, 120)));
     }
 
+    // NOVO: extrato CSV escrito direto na resposta, sem montar a lista em memória.
+    // ?from=yyyy-MM&to=yyyy-MM (opcionais, meses inclusivos)
+    @GetMapping(value = "/statement.csv", produces = "text/csv")
+    public ResponseEntity<?> exportStatement(
+            @RequestHeader(value = "Authorization", required = false) String authHeader,
+            @RequestParam(value = "from", required = false) String from,
+            @RequestParam(value = "to", required = false) String to) {
+        String userId = extractUserId(authHeader);
+        if (userId == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Token não fornecido ou inválido"));
+        }
+        LocalDateTime start;
+        LocalDateTime end;
+        try {
+            start = from != null ? YearMonth.parse(from).atDay(1).atStartOfDay() : null;
+            end = to != null ? YearMonth.parse(to).plusMonths(1).atDay(1).atStartOfDay() : null;
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Use o formato yyyy-MM em from/to"));
+        }
+        StreamingResponseBody body = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            transactionHistory.exportCsv(userId, start, end, writer);
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"extrato.csv\"")
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .body(body);
+    }
+
+    // NOVO: Idempotency-Key opcional; repetição com a mesma chave devolve a resposta original
     @PostMapping("/deposit")
-    @Transactional
     public ResponseEntity<?> deposit(
             @RequestBody Map<String, Object> request,
-            @RequestHeader(value = "Authorization", required = false) String authHeader) {
+            @RequestHeader(value = "Authorization", required = false) String authHeader,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
         String userId = extractUserId(authHeader);
         if (userId == null) {
             return ResponseEntity.status(401).body(Map.of("error", "Token não fornecido ou inválido"));
         }
-        
-        Double amount = ((Number) request.get("amount")).doubleValue();
-        if (amount <= 0) {
+        return idempotencyService.execute("deposit:" + userId, idempotencyKey, request,
+                () -> applyDeposit(userId, request));
+    }
+
+    private ResponseEntity<?> applyDeposit(String userId, Map<String, Object> request) {
+        // NOVO: valores em centavos; saldo e lançamento gravados pelo WalletBalanceService (UPDATE atômico)
+        Long amountCents = Money.toCents(request.get("amount"));
+        if (amountCents == null || amountCents <= 0) {
             return ResponseEntity.badRequest().body(Map.of("error", "Valor deve ser maior que zero"));
         }
         
-        Wallet wallet = getOrCreateWallet(userId);
-        Double currentBalance = wallet.getBalance();
-        Double newBalance = currentBalance + amount;
-        wallet.setBalance(newBalance);
-        walletRepository.save(wallet);
-        
-        // Registrar transação
-        Transaction transaction = new Transaction();
-        transaction.setWallet(wallet);
-        transaction.setUserId(userId);
-        transaction.setType(Transaction.TransactionType.WALLET_DEPOSIT);
-        transaction.setAmount(amount);
-        transaction.setBalanceAfter(newBalance);
         // NOVO: usar descrição opcional enviada (ex.: "Reembolso ...")
         String desc = (String) request.getOrDefault("description", "Depósito realizado");
-        transaction.setDescription(desc);
         // NOVO: aceitar challengeId opcional (paridade com /debit)
-        Object challengeIdObj = request.get("challengeId");
-        if (challengeIdObj != null) {
-            if (challengeIdObj instanceof Number) {
-                transaction.setChallengeId(((Number) challengeIdObj).longValue());
-            } else if (challengeIdObj instanceof String) {
-                try {
-                    transaction.setChallengeId(Long.parseLong((String) challengeIdObj));
-                } catch (NumberFormatException ignored) {}
-            }
-        }
-        // createdAt será definido pelo @PrePersist
-        transactionRepository.save(transaction);
+        WalletBalanceService.Movement movement = balanceService.deposit(userId, amountCents, desc,
+                parseChallengeId(request.get("challengeId")));
         
         return ResponseEntity.ok(Map.of(
             "message", "Depósito realizado com sucesso",
-            "amount", amount,
-            "balance", newBalance
+            "amount", Money.toReais(movement.amountCents()),
+            "balance", Money.toReais(movement.balanceCents())
         ));
     }
 
     // Endpoint para debitar saldo (usado pelo challenge-service)
+    // NOVO: um único UPDATE condicional (balance_cents >= valor) em vez de ler, comparar e salvar:
+    // débitos simultâneos na mesma carteira não passam do saldo
+    // NOVO: com Idempotency-Key, um reenvio após timeout devolve o débito original em vez de debitar de novo
     @PostMapping("/debit")
-    @Transactional
     public ResponseEntity<?> debit(
             @RequestBody Map<String, Object> request,
-            @RequestHeader(value = "Authorization", required = false) String authHeader) {
+            @RequestHeader(value = "Authorization", required = false) String authHeader,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
         String userId = extractUserId(authHeader);
         if (userId == null) {
             return ResponseEntity.status(401).body(Map.of("error", "Token não fornecido ou inválido"));
         }
-        
-        Double amount = ((Number) request.get("amount")).doubleValue();
-        if (amount <= 0) {
+        return idempotencyService.execute("debit:" + userId, idempotencyKey, request,
+                () -> applyDebit(userId, request));
+    }
+
+    private ResponseEntity<?> applyDebit(String userId, Map<String, Object> request) {
+        Long amountCents = Money.toCents(request.get("amount"));
+        if (amountCents == null || amountCents <= 0) {
             return ResponseEntity.badRequest().body(Map.of("error", "Valor deve ser maior que zero"));
         }
         
-        Wallet wallet = getOrCreateWallet(userId);
-        Double currentBalance = wallet.getBalance();
-        if (currentBalance < amount) {
+        try {
+            WalletBalanceService.Movement movement = balanceService.debit(userId, amountCents,
+                    (String) request.getOrDefault("description", "Pagamento de desafio"),
+                    parseChallengeId(request.get("challengeId")));
+            return ResponseEntity.ok(Map.of(
+                "message", "Débito realizado com sucesso",
+                "amount", Money.toReais(movement.amountCents()),
+                "balance", Money.toReais(movement.balanceCents())
+            ));
+        } catch (InsufficientBalanceException e) {
             return ResponseEntity.badRequest().body(Map.of(
                 "error", "Saldo insuficiente",
-                "currentBalance", currentBalance,
-                "requiredAmount", amount
+                "currentBalance", Money.toReais(e.getCurrentBalanceCents()),
+                "requiredAmount", Money.toReais(e.getRequiredCents())
             ));
         }
-        
-        Double newBalance = currentBalance - amount;
-        wallet.setBalance(newBalance);
-        walletRepository.save(wallet);
-        
-        // Registrar transação
-        Transaction transaction = new Transaction();
-        transaction.setWallet(wallet);
-        transaction.setUserId(userId);
-        transaction.setType(Transaction.TransactionType.DEBIT);
-        transaction.setAmount(amount);
-        transaction.setBalanceAfter(newBalance);
-        transaction.setDescription((String) request.getOrDefault("description", "Pagamento de desafio"));
-        Object challengeIdObj = request.get("challengeId");
-        if (challengeIdObj != null) {
-            if (challengeIdObj instanceof Number) {
-                transaction.setChallengeId(((Number) challengeIdObj).longValue());
-            } else if (challengeIdObj instanceof String) {
-                try {
-                    transaction.setChallengeId(Long.parseLong((String) challengeIdObj));
-                } catch (NumberFormatException e) {
-                    // Ignora se não for um número válido
-                }
-            }
+    }
+
+    // NOVO: créditos em lote para outros serviços (reembolsos de cancelamento/remoção, prêmios).
+    // Credita carteiras de terceiros, por isso exige a chave interna em vez do JWT do usuário.
+    // Corpo: { "items": [ { "idempotencyKey", "userId", "amount", "description"?, "challengeId"? } ] }
+    // Resposta 200 com um resultado por item (APPLIED, DUPLICATE ou REJECTED), na mesma ordem.
+    // Com Idempotency-Key, o reenvio do lote devolve a resposta original (status APPLIED incluído).
+    @PostMapping("/credits:batch")
+    public ResponseEntity<?> creditBatch(
+            @RequestBody Map<String, Object> request,
+            @RequestHeader(value = InternalApiKey.HEADER, required = false) String apiKey,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        if (!internalApiKey.matches(apiKey)) {
+            return ResponseEntity.status(401).body(Map.of("error", "Chave interna ausente ou inválida"));
+        }
+        return idempotencyService.execute("credits", idempotencyKey, request, () -> applyCreditBatch(request));
+    }
+
+    private ResponseEntity<?> applyCreditBatch(Map<String, Object> request) {
+        if (!(request.get("items") instanceof List<?> rawItems) || rawItems.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Lista de itens vazia"));
+        }
+        if (rawItems.size() > maxBatchItems) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Máximo de " + maxBatchItems + " itens por lote"));
+        }
+
+        List<WalletCreditService.CreditItem> items = new ArrayList<>(rawItems.size());
+        for (Object raw : rawItems) {
+            Map<?, ?> item = raw instanceof Map<?, ?> m ? m : Map.of();
+            items.add(new WalletCreditService.CreditItem(
+                    item.get("idempotencyKey") != null ? String.valueOf(item.get("idempotencyKey")) : null,
+                    item.get("userId") != null ? String.valueOf(item.get("userId")) : null,
+                    Money.toCents(item.get("amount")),
+                    item.get("description") instanceof String d ? d : null,
+                    parseChallengeId(item.get("challengeId"))));
+        }
+
+        List<WalletCreditService.CreditResult> results = creditService.credit(items);
+
+        Map<String, Integer> counts = new HashMap<>();
+        List<Map<String, Object>> body = new ArrayList<>(results.size());
+        for (WalletCreditService.CreditResult result : results) {
+            counts.merge(result.status().name(), 1, Integer::sum);
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("idempotencyKey", result.idempotencyKey());
+            entry.put("userId", result.userId());
+            entry.put("status", result.status().name());
+            if (result.balanceCents() != null) entry.put("balance", Money.toReais(result.balanceCents()));
+            if (result.error() != null) entry.put("error", result.error());
+            body.add(entry);
         }
-        // createdAt será definido pelo @PrePersist
-        transactionRepository.save(transaction);
-        
         return ResponseEntity.ok(Map.of(
-            "message", "Débito realizado com sucesso",
-            "amount", amount,
-            "balance", newBalance
+            "results", body,
+            "applied", counts.getOrDefault("APPLIED", 0),
+            "duplicates", counts.getOrDefault("DUPLICATE", 0),
+            "rejected", counts.getOrDefault("REJECTED", 0)
         ));
     }
+
+    private static Long parseChallengeId(Object challengeIdObj) {
+        if (challengeIdObj instanceof Number) {
+            return ((Number) challengeIdObj).longValue();
+        }
+        if (challengeIdObj instanceof String) {
+            try {
+                return Long.parseLong((String) challengeIdObj);
+            } catch (NumberFormatException ignored) {}
+        }
+        return null;
+    }
 }
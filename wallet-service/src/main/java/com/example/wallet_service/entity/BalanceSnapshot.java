@@ -0,0 +1,40 @@
+package com.example.wallet_service.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Saldo da carteira logo após o lançamento seqNo, gravado a cada N lançamentos
+// (wallet.ledger.snapshot-interval). Saldo pelo ledger = último snapshot + lançamentos posteriores.
+@Entity
+@Immutable
+@Table(name = "balance_snapshots",
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_balance_snapshots_wallet_seq", columnNames = {"wallet_id", "seq_no"})
+    })
+@Getter
+@Setter
+@NoArgsConstructor
+public class BalanceSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "wallet_id", nullable = false)
+    private UUID walletId;
+
+    @Column(name = "seq_no", nullable = false)
+    private Long seqNo;
+
+    @Column(name = "balance_cents", nullable = false)
+    private Long balanceCents;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
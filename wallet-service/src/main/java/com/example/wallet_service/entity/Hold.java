@@ -0,0 +1,56 @@
+package com.example.wallet_service.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Valor apostado em custódia: sai do saldo ao entrar no desafio e só é
+// devolvido (RELEASED) ou capturado na liquidação (CAPTURED). Uma linha por (desafio, usuário).
+@Entity
+@Table(name = "holds",
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_holds_challenge_user", columnNames = {"challenge_id", "user_id"})
+    },
+    indexes = {
+        @Index(name = "idx_holds_user_status", columnList = "user_id, status")
+    })
+@Getter
+@Setter
+@NoArgsConstructor
+public class Hold {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "challenge_id", nullable = false)
+    private Long challengeId;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Column(name = "wallet_id", nullable = false)
+    private UUID walletId;
+
+    @Column(name = "amount_cents", nullable = false)
+    private Long amountCents;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private HoldStatus status;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime settledAt;
+
+    public enum HoldStatus {
+        HELD,
+        CAPTURED,
+        RELEASED
+    }
+}
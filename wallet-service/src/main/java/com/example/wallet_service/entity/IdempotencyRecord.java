@@ -0,0 +1,44 @@
+package com.example.wallet_service.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// Resposta gravada de uma requisição com Idempotency-Key, devolvida de novo a cada repetição
+// até expiresAt. id = SHA-256 de (escopo, chave); requestHash detecta a mesma chave com corpo diferente.
+@Entity
+@Table(name = "idempotency_keys",
+    indexes = {
+        @Index(name = "idx_idempotency_keys_expires", columnList = "expires_at")
+    })
+@Getter
+@Setter
+@NoArgsConstructor
+public class IdempotencyRecord {
+
+    @Id
+    @Column(length = 64)
+    private String id;
+
+    @Column(nullable = false, length = 100)
+    private String scope;
+
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Column(name = "status_code", nullable = false)
+    private Integer statusCode;
+
+    @Lob
+    @Column(name = "response_body")
+    private String responseBody;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,57 @@
+package com.example.wallet_service.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Totais do mês por carteira, atualizados na mesma transação de cada lançamento (WalletStore).
+// deposits = WALLET_DEPOSIT; debits = DEBIT + HOLD; credits = CREDIT + RELEASE + PAYOUT; fees = FEE.
+// Valores em centavos; refMonth no formato yyyy-MM.
+@Entity
+@Table(name = "wallet_monthly_summaries",
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_monthly_summaries_wallet_month", columnNames = {"wallet_id", "ref_month"})
+    },
+    indexes = {
+        @Index(name = "idx_monthly_summaries_user_month", columnList = "user_id, ref_month")
+    })
+@Getter
+@Setter
+@NoArgsConstructor
+public class MonthlySummary {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "wallet_id", nullable = false)
+    private UUID walletId;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Column(name = "ref_month", nullable = false, length = 7)
+    private String refMonth;
+
+    @Column(name = "deposits_cents", nullable = false)
+    private Long depositsCents = 0L;
+
+    @Column(name = "debits_cents", nullable = false)
+    private Long debitsCents = 0L;
+
+    @Column(name = "credits_cents", nullable = false)
+    private Long creditsCents = 0L;
+
+    @Column(name = "fees_cents", nullable = false)
+    private Long feesCents = 0L;
+
+    @Column(name = "entries", nullable = false)
+    private Long entries = 0L;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -4,12 +4,23 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Immutable;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
 
+// NOVO: ledger somente de inclusão (@Immutable: o Hibernate nunca emite UPDATE nestas linhas).
+// seqNo é a posição do lançamento na carteira: 1, 2, 3... sem buracos, atribuída junto com o saldo.
 @Entity
-@Table(name = "transactions")
+@Immutable
+@Table(name = "transactions",
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_transactions_wallet_seq", columnNames = {"wallet_id", "seq_no"})
+    },
+    indexes = {
+        // NOVO: histórico paginado por chave (created_at, id) do usuário
+        @Index(name = "idx_transactions_user_created", columnList = "user_id, created_at, id")
+    })
 @Getter
 @Setter
 @NoArgsConstructor
@@ -26,21 +37,28 @@ public class Transaction {
     @Column(nullable = false)
     private String userId; // ID do usuário para facilitar consultas
     
+    @Column(name = "seq_no", nullable = false)
+    private Long seqNo; // NOVO: sequência do lançamento na carteira
+    
     @Column(nullable = false)
     @Enumerated(EnumType.STRING)
     private TransactionType type;
     
-    @Column(nullable = false)
-    private Double amount;
+    @Column(name = "amount_cents", nullable = false)
+    private Long amountCents; // valor em centavos
     
-    @Column(nullable = false)
-    private Double balanceAfter; // Saldo após a transação
+    @Column(name = "balance_after_cents", nullable = false)
+    private Long balanceAfterCents; // Saldo após a transação (centavos)
     
     @Column(length = 500)
     private String description;
     
     private Long challengeId; // ID do desafio relacionado (se aplicável)
     
+    // NOVO: chave de idempotência dos créditos em lote (reenvio do mesmo item não credita de novo)
+    @Column(unique = true, length = 200)
+    private String idempotencyKey;
+    
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
     
@@ -51,9 +69,26 @@ public class Transaction {
         }
     }
     
+    // NOVO: sign = efeito do lançamento no saldo (+1 entra, -1 sai, 0 não altera)
     public enum TransactionType {
-        WALLET_DEPOSIT,
-        DEBIT
+        WALLET_DEPOSIT(1),
+        DEBIT(-1),
+        CREDIT(1), // NOVO: reembolsos e prêmios creditados por outros serviços
+        HOLD(-1), // NOVO: valor apostado entra em custódia (sai do saldo)
+        RELEASE(1), // NOVO: custódia devolvida ao saldo (menos a taxa, se houver)
+        CAPTURE(0), // NOVO: custódia consumida na liquidação (saldo não muda)
+        PAYOUT(1), // NOVO: prêmio do vencedor
+        FEE(1); // NOVO: taxa de participação lançada na carteira da plataforma
+
+        private final int sign;
+
+        TransactionType(int sign) {
+            this.sign = sign;
+        }
+
+        public int getSign() {
+            return sign;
+        }
     }
 }
 
@@ -21,16 +21,22 @@ public class Wallet {
     @Column(nullable = false, unique = true)
     private String userId; // ID do usuário vindo do JWT
     
-    @Column(nullable = false)
-    private Double balance = 0.0;
+    // Saldo em centavos (valores inteiros: sem erro de arredondamento nas somas)
+    @Column(name = "balance_cents", nullable = false)
+    private Long balanceCents = 0L;
     
     @Column(nullable = false)
     private String currency = "BRL";
     
+    // Sequência do último lançamento da carteira (0 = nenhum); avança no mesmo UPDATE do saldo
+    @Column(name = "last_seq_no", nullable = false)
+    private Long lastSeqNo = 0L;
+    
     public Wallet(String userId) {
         this.userId = userId;
-        this.balance = 0.0;
+        this.balanceCents = 0L;
         this.currency = "BRL";
+        this.lastSeqNo = 0L;
     }
 }
 
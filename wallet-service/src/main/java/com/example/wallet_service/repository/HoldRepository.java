@@ -0,0 +1,13 @@
+package com.example.wallet_service.repository;
+
+import com.example.wallet_service.entity.Hold;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface HoldRepository extends JpaRepository<Hold, UUID> {
+    List<Hold> findByUserIdAndStatusOrderByCreatedAtDesc(String userId, Hold.HoldStatus status);
+}
@@ -0,0 +1,98 @@
+package com.example.wallet_service.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Saldo por usuário em memória (LRU limitado), atualizado por escrita: depósito, débito, crédito
+// e custódia publicam o saldo novo quando a transação confirma (rollback não toca o cache).
+// Cada valor leva a sequência do último lançamento (last_seq_no): confirmações que chegam fora
+// de ordem, ou uma leitura do banco que termina depois de uma escrita, nunca trocam um saldo
+// mais novo por um mais antigo. Carteira inexistente entra como saldo zero na sequência 0.
+@Component
+public class BalanceCache {
+
+    public static final String DEFAULT_CURRENCY = "BRL";
+
+    public record CachedBalance(long balanceCents, long seqNo, String currency) {}
+
+    private final Map<String, CachedBalance> entries;
+    private final Counter hits;
+    private final Counter misses;
+
+    public BalanceCache(MeterRegistry meterRegistry,
+                        @Value("${wallet.balance-cache.size:50000}") int size) {
+        int maxEntries = Math.max(1, size);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedBalance> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.hits = Counter.builder("wallet.balance.cache")
+                .description("Leituras de saldo atendidas pelo cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("wallet.balance.cache")
+                .description("Leituras de saldo que foram ao banco")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("wallet.balance.cache.size", this, BalanceCache::size)
+                .description("Carteiras com saldo em cache")
+                .register(meterRegistry);
+    }
+
+    // null = não está em cache (conta como miss)
+    public CachedBalance get(String userId) {
+        CachedBalance cached;
+        synchronized (entries) {
+            cached = entries.get(userId);
+        }
+        (cached != null ? hits : misses).increment();
+        return cached;
+    }
+
+    // Dentro de uma transação o valor só entra no cache depois do commit
+    public void publish(String userId, long balanceCents, long seqNo) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    put(userId, balanceCents, seqNo, null);
+                }
+            });
+        } else {
+            put(userId, balanceCents, seqNo, null);
+        }
+    }
+
+    // Valor lido do banco (fora de transação de escrita): entra se não houver um mais novo
+    public void load(String userId, long balanceCents, long seqNo, String currency) {
+        put(userId, balanceCents, seqNo, currency);
+    }
+
+    public double size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private void put(String userId, long balanceCents, long seqNo, String currency) {
+        synchronized (entries) {
+            CachedBalance current = entries.get(userId);
+            if (current != null && current.seqNo() >= seqNo) {
+                return;
+            }
+            String resolved = currency != null ? currency
+                    : current != null ? current.currency() : DEFAULT_CURRENCY;
+            entries.put(userId, new CachedBalance(balanceCents, seqNo, resolved));
+        }
+    }
+}
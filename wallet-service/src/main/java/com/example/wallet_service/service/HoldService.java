@@ -0,0 +1,302 @@
+package com.example.wallet_service.service;
+
+import com.example.wallet_service.entity.Transaction.TransactionType;
+import com.example.wallet_service.service.WalletStore.LedgerEntry;
+import com.example.wallet_service.service.WalletStore.LockedWallet;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+// Custódia das apostas: hold tira o valor do saldo e guarda em holds (uma linha por desafio/usuário);
+// release devolve (opcionalmente menos a taxa), capture consome. A liquidação do desafio faz tudo
+// numa única transação: captura as custódias, paga o prêmio (pote - taxa) e lança a taxa na
+// carteira da plataforma. Carteiras sempre travadas antes das custódias (mesma ordem em toda operação).
+@Service
+public class HoldService {
+
+    // Carteira que recebe as taxas de participação
+    public static final String PLATFORM_USER_ID = "__platform__";
+
+    // Valores em centavos
+    public record HoldResult(UUID holdId, long amountCents, long balanceCents, boolean alreadyHeld) {}
+
+    // RELEASED = devolvida agora; ALREADY_RELEASED = devolvida antes (repetição); NO_HOLD = sem custódia a devolver
+    public enum ReleaseStatus { RELEASED, ALREADY_RELEASED, NO_HOLD }
+
+    // legacyDebit: sem linha em holds, mas com /debit registrado para o desafio (pagamento anterior à custódia)
+    public record ReleaseResult(String userId, ReleaseStatus status, long refundedCents, long feeCents, boolean legacyDebit) {}
+
+    public enum SettlementStatus { SETTLED, ALREADY_SETTLED, NOTHING_TO_SETTLE }
+
+    public record SettlementResult(SettlementStatus status, long potCents, long feeCents, long prizeCents, String winnerId) {}
+
+    private record HeldRow(UUID id, String userId, long amountCents) {}
+
+    private final WalletStore walletStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public HoldService(WalletStore walletStore, JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate) {
+        this.walletStore = walletStore;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+    }
+
+    public static String settlementKey(Long challengeId) {
+        return "settle:" + challengeId;
+    }
+
+    // Idempotente por (desafio, usuário): um segundo pedido devolve a custódia existente sem debitar de novo.
+    // Custódia devolvida antes (usuário removido que voltou) é reaproveitada.
+    @Transactional
+    public HoldResult hold(String userId, Long challengeId, long amountCents, String description) {
+        LockedWallet wallet = walletStore.lock(List.of(userId)).get(userId);
+        List<Map<String, Object>> existing = jdbcTemplate.queryForList(
+                "SELECT id, amount_cents, status FROM holds WHERE challenge_id = ? AND user_id = ? FOR UPDATE",
+                challengeId, userId);
+        UUID holdId = null;
+        if (!existing.isEmpty()) {
+            Map<String, Object> row = existing.get(0);
+            holdId = (UUID) row.get("id");
+            String status = String.valueOf(row.get("status"));
+            if ("HELD".equals(status)) {
+                return new HoldResult(holdId, ((Number) row.get("amount_cents")).longValue(), wallet.getBalanceCents(), true);
+            }
+            if ("CAPTURED".equals(status)) {
+                throw new IllegalStateException("Desafio já liquidado");
+            }
+        }
+        if (wallet.getBalanceCents() < amountCents) {
+            throw new InsufficientBalanceException(wallet.getBalanceCents(), amountCents);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        wallet.add(-amountCents);
+        if (holdId == null) {
+            holdId = UUID.randomUUID();
+            jdbcTemplate.update("INSERT INTO holds (id, challenge_id, user_id, wallet_id, amount_cents, status, created_at) " +
+                    "VALUES (?, ?, ?, ?, ?, 'HELD', ?)", holdId, challengeId, userId, wallet.getId(), amountCents, Timestamp.valueOf(now));
+        } else {
+            jdbcTemplate.update("UPDATE holds SET amount_cents = ?, status = 'HELD', created_at = ?, settled_at = NULL WHERE id = ?",
+                    amountCents, Timestamp.valueOf(now), holdId);
+        }
+        Object[] entry = walletStore.entryRow(new LedgerEntry(wallet, TransactionType.HOLD, amountCents,
+                description != null ? description : "Valor em custódia do desafio #" + challengeId, challengeId, null), now);
+        walletStore.updateBalances(List.of(wallet));
+        walletStore.insertEntries(List.<Object[]>of(entry));
+        return new HoldResult(holdId, amountCents, wallet.getBalanceCents(), false);
+    }
+
+    // Devolve a custódia dos usuários, retendo feePercent como taxa (0 = devolução integral)
+    @Transactional
+    public List<ReleaseResult> release(Long challengeId, Collection<String> userIds, double feePercent, String description) {
+        Set<String> users = new LinkedHashSet<>(userIds);
+        Set<String> toLock = new HashSet<>(users);
+        toLock.add(PLATFORM_USER_ID);
+        Map<String, LockedWallet> wallets = walletStore.lock(toLock);
+        Map<String, HeldRow> held = lockHeld(challengeId, users);
+        Set<String> missing = new LinkedHashSet<>(users);
+        missing.removeAll(held.keySet());
+        Map<String, String> otherHolds = holdStatuses(challengeId, missing);
+        missing.removeAll(otherHolds.keySet());
+        Set<String> legacyDebits = debitedUsers(challengeId, missing);
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> entries = new ArrayList<>();
+        List<Object[]> holdUpdates = new ArrayList<>();
+        List<ReleaseResult> results = new ArrayList<>(users.size());
+        long totalFee = 0;
+        for (String userId : users) {
+            HeldRow hold = held.get(userId);
+            if (hold == null) {
+                // capturada (desafio liquidado) não é devolução: fica como NO_HOLD, sem crédito de legado
+                ReleaseStatus status = "RELEASED".equals(otherHolds.get(userId)) ? ReleaseStatus.ALREADY_RELEASED : ReleaseStatus.NO_HOLD;
+                results.add(new ReleaseResult(userId, status, 0, 0, legacyDebits.contains(userId)));
+                continue;
+            }
+            long fee = feeOf(hold.amountCents(), feePercent);
+            long refund = hold.amountCents() - fee;
+            LockedWallet wallet = wallets.get(userId);
+            wallet.add(refund);
+            entries.add(walletStore.entryRow(new LedgerEntry(wallet, TransactionType.RELEASE, refund,
+                    description != null ? description : "Custódia devolvida do desafio #" + challengeId, challengeId, null), now));
+            holdUpdates.add(new Object[] { "RELEASED", Timestamp.valueOf(now), hold.id() });
+            totalFee += fee;
+            results.add(new ReleaseResult(userId, ReleaseStatus.RELEASED, refund, fee, false));
+        }
+        if (totalFee > 0) {
+            LockedWallet platform = wallets.get(PLATFORM_USER_ID);
+            platform.add(totalFee);
+            entries.add(walletStore.entryRow(new LedgerEntry(platform, TransactionType.FEE, totalFee,
+                    "Taxa retida na devolução de custódia do desafio #" + challengeId, challengeId, null), now));
+        }
+        finish(wallets, holdUpdates, entries);
+        return results;
+    }
+
+    // Consome a custódia (o valor não volta ao saldo); devolve os usuários capturados
+    @Transactional
+    public List<String> capture(Long challengeId, Collection<String> userIds) {
+        Map<String, LockedWallet> wallets = walletStore.lock(userIds);
+        Map<String, HeldRow> held = lockHeld(challengeId, new LinkedHashSet<>(userIds));
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> entries = new ArrayList<>();
+        List<Object[]> holdUpdates = new ArrayList<>();
+        for (HeldRow hold : held.values()) {
+            captureRow(hold, wallets.get(hold.userId()), challengeId, now, entries, holdUpdates);
+        }
+        finish(wallets, holdUpdates, entries);
+        return new ArrayList<>(held.keySet());
+    }
+
+    // Liquidação do desafio concluído, tudo ou nada:
+    // - com vencedor: todas as custódias capturadas, vencedor recebe pote - taxa
+    // - sem vencedor: cada um recebe a própria aposta de volta menos a taxa
+    // legacyPaidUserIds: pagantes cujo valor foi debitado antes da custódia existir (sem linha em holds);
+    // entram no pote com stake cada. A chave settle:{desafio} no lançamento da taxa torna a chamada idempotente.
+    @Transactional
+    public SettlementResult settle(Long challengeId, String winnerId, double feePercent, long stakeCents,
+                                   Collection<String> legacyPaidUserIds) {
+        // participantes com custódia (sem lock) só para travar as carteiras antes das custódias
+        Set<String> users = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT user_id FROM holds WHERE challenge_id = ?", String.class, challengeId));
+        Set<String> legacy = new LinkedHashSet<>(legacyPaidUserIds);
+        legacy.removeAll(users);
+        Set<String> toLock = new HashSet<>(users);
+        toLock.addAll(legacy);
+        toLock.add(PLATFORM_USER_ID);
+        if (winnerId != null) toLock.add(winnerId);
+        Map<String, LockedWallet> wallets = walletStore.lock(toLock);
+
+        String key = settlementKey(challengeId);
+        if (!walletStore.findExistingKeys(List.of(key)).isEmpty()) {
+            return new SettlementResult(SettlementStatus.ALREADY_SETTLED, 0, 0, 0, winnerId);
+        }
+        Map<String, HeldRow> held = lockHeld(challengeId, users);
+        // custódias capturadas/devolvidas entre a leitura e o lock não contam como legado
+        long pot = stakeCents * legacy.size();
+        for (HeldRow hold : held.values()) {
+            pot += hold.amountCents();
+        }
+        if (pot <= 0) {
+            return new SettlementResult(SettlementStatus.NOTHING_TO_SETTLE, 0, 0, 0, winnerId);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> entries = new ArrayList<>();
+        List<Object[]> holdUpdates = new ArrayList<>();
+        long fee;
+        long prize;
+        if (winnerId != null) {
+            for (HeldRow hold : held.values()) {
+                captureRow(hold, wallets.get(hold.userId()), challengeId, now, entries, holdUpdates);
+            }
+            fee = feeOf(pot, feePercent);
+            prize = pot - fee;
+            LockedWallet winner = wallets.get(winnerId);
+            winner.add(prize);
+            entries.add(walletStore.entryRow(new LedgerEntry(winner, TransactionType.PAYOUT, prize,
+                    "Prêmio do desafio #" + challengeId, challengeId, null), now));
+        } else {
+            fee = 0;
+            for (HeldRow hold : held.values()) {
+                long userFee = feeOf(hold.amountCents(), feePercent);
+                LockedWallet wallet = wallets.get(hold.userId());
+                wallet.add(hold.amountCents() - userFee);
+                entries.add(walletStore.entryRow(new LedgerEntry(wallet, TransactionType.RELEASE, hold.amountCents() - userFee,
+                        "Desafio #" + challengeId + " encerrado sem vencedor: aposta devolvida", challengeId, null), now));
+                holdUpdates.add(new Object[] { "RELEASED", Timestamp.valueOf(now), hold.id() });
+                fee += userFee;
+            }
+            for (String userId : legacy) {
+                long userFee = feeOf(stakeCents, feePercent);
+                LockedWallet wallet = wallets.get(userId);
+                wallet.add(stakeCents - userFee);
+                entries.add(walletStore.entryRow(new LedgerEntry(wallet, TransactionType.CREDIT, stakeCents - userFee,
+                        "Desafio #" + challengeId + " encerrado sem vencedor: aposta devolvida", challengeId, null), now));
+                fee += userFee;
+            }
+            prize = 0;
+        }
+        // lançamento da taxa sempre gravado (mesmo zerado): é ele que marca o desafio como liquidado
+        LockedWallet platform = wallets.get(PLATFORM_USER_ID);
+        platform.add(fee);
+        entries.add(walletStore.entryRow(new LedgerEntry(platform, TransactionType.FEE, fee,
+                "Taxa de participação do desafio #" + challengeId, challengeId, key), now));
+        finish(wallets, holdUpdates, entries);
+        return new SettlementResult(SettlementStatus.SETTLED, pot, fee, prize, winnerId);
+    }
+
+    private void captureRow(HeldRow hold, LockedWallet wallet, Long challengeId, LocalDateTime now,
+                            List<Object[]> entries, List<Object[]> holdUpdates) {
+        entries.add(walletStore.entryRow(new LedgerEntry(wallet, TransactionType.CAPTURE, hold.amountCents(),
+                "Custódia liquidada do desafio #" + challengeId, challengeId, null), now));
+        holdUpdates.add(new Object[] { "CAPTURED", Timestamp.valueOf(now), hold.id() });
+    }
+
+    private Map<String, HeldRow> lockHeld(Long challengeId, Set<String> userIds) {
+        Map<String, HeldRow> held = new LinkedHashMap<>();
+        if (userIds.isEmpty()) return held;
+        namedJdbcTemplate.query(
+                "SELECT id, user_id, amount_cents FROM holds WHERE challenge_id = :challengeId AND user_id IN (:userIds) " +
+                "AND status = 'HELD' ORDER BY user_id FOR UPDATE",
+                new MapSqlParameterSource("challengeId", challengeId).addValue("userIds", userIds),
+                rs -> {
+                    String userId = rs.getString("user_id");
+                    held.put(userId, new HeldRow(rs.getObject("id", UUID.class), userId, rs.getLong("amount_cents")));
+                });
+        return held;
+    }
+
+    // status das custódias que não estão mais HELD (devolvidas ou capturadas)
+    private Map<String, String> holdStatuses(Long challengeId, Set<String> userIds) {
+        Map<String, String> statuses = new LinkedHashMap<>();
+        if (userIds.isEmpty()) return statuses;
+        namedJdbcTemplate.query(
+                "SELECT user_id, status FROM holds WHERE challenge_id = :challengeId AND user_id IN (:userIds)",
+                new MapSqlParameterSource("challengeId", challengeId).addValue("userIds", userIds),
+                rs -> {
+                    statuses.put(rs.getString("user_id"), rs.getString("status"));
+                });
+        return statuses;
+    }
+
+    // usuários com débito (/debit) do desafio: pagaram antes da custódia existir
+    private Set<String> debitedUsers(Long challengeId, Set<String> userIds) {
+        if (userIds.isEmpty()) return new HashSet<>();
+        return new HashSet<>(namedJdbcTemplate.queryForList(
+                "SELECT DISTINCT user_id FROM transactions WHERE challenge_id = :challengeId AND user_id IN (:userIds) " +
+                "AND type = :type",
+                new MapSqlParameterSource("challengeId", challengeId).addValue("userIds", userIds)
+                        .addValue("type", TransactionType.DEBIT.name()),
+                String.class));
+    }
+
+    private void finish(Map<String, LockedWallet> wallets, List<Object[]> holdUpdates, List<Object[]> entries) {
+        walletStore.updateBalances(wallets.values());
+        if (!holdUpdates.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE holds SET status = ?, settled_at = ? WHERE id = ?", holdUpdates);
+        }
+        walletStore.insertEntries(entries);
+    }
+
+    // Taxa arredondada ao centavo
+    private static long feeOf(long amountCents, double feePercent) {
+        if (feePercent <= 0) return 0;
+        return Math.round(amountCents * feePercent / 100.0);
+    }
+}
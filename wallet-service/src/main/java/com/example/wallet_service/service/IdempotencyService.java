@@ -0,0 +1,211 @@
+package com.example.wallet_service.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Idempotency-Key nas mutações da carteira: a primeira requisição com a chave executa e a
+// resposta (2xx) é gravada em idempotency_keys na MESMA transação da mutação; repetições
+// recebem a resposta gravada (cabeçalho Idempotent-Replayed: true) sem mexer no saldo.
+// - a chave é reservada com INSERT antes da mutação: uma repetição simultânea espera o lock
+//   da linha e, quando a primeira confirma, cai no DuplicateKey e recebe a resposta gravada;
+// - resposta de erro (4xx/5xx) não é gravada: a transação volta e a chave fica livre;
+// - mesma chave com corpo diferente = 422;
+// - chaves expiram após ttl (limpeza periódica); as mais usadas ficam num LRU em memória.
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    public static final int MAX_KEY_LENGTH = 200;
+    private static final int PURGE_BATCH = 1000;
+
+    private record Stored(String requestHash, int statusCode, String body, LocalDateTime expiresAt) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Map<String, Stored> hot;
+
+    public IdempotencyService(JdbcTemplate jdbcTemplate,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${wallet.idempotency.ttl:24h}") Duration ttl,
+                              @Value("${wallet.idempotency.cache-size:10000}") int cacheSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        // corpo com chaves ordenadas: o mesmo pedido gera sempre o mesmo hash
+        this.objectMapper = new ObjectMapper().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+        this.ttl = ttl;
+        int maxEntries = Math.max(1, cacheSize);
+        this.hot = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Stored> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    // scope separa endpoints e usuários (ex.: "debit:" + userId); key null = executa sem idempotência
+    public ResponseEntity<?> execute(String scope, String key, Object request, Supplier<ResponseEntity<?>> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            return ResponseEntity.badRequest().body(Map.of("error",
+                    HEADER + " deve ter entre 1 e " + MAX_KEY_LENGTH + " caracteres"));
+        }
+        String id = sha256(scope + "\n" + key);
+        String requestHash = sha256(toJson(request));
+
+        Stored cached = cached(id);
+        if (cached != null) {
+            return replay(cached, requestHash);
+        }
+        for (int attempt = 0; attempt < 2; attempt++) {
+            try {
+                return executeOnce(id, scope, requestHash, action);
+            } catch (DuplicateKeyException e) {
+                Stored stored = load(id);
+                if (stored == null) {
+                    continue; // removida pela limpeza entre o INSERT e a leitura
+                }
+                if (stored.expiresAt().isBefore(LocalDateTime.now())) {
+                    jdbcTemplate.update("DELETE FROM idempotency_keys WHERE id = ? AND expires_at < ?",
+                            id, Timestamp.valueOf(LocalDateTime.now()));
+                    continue;
+                }
+                remember(id, stored);
+                return replay(stored, requestHash);
+            } catch (PessimisticLockingFailureException e) {
+                return ResponseEntity.status(409).body(Map.of("error",
+                        "Requisição com esta " + HEADER + " ainda em andamento"));
+            }
+        }
+        return ResponseEntity.status(409).body(Map.of("error", "Não foi possível reservar a " + HEADER));
+    }
+
+    private ResponseEntity<?> executeOnce(String id, String scope, String requestHash, Supplier<ResponseEntity<?>> action) {
+        Stored[] saved = new Stored[1];
+        ResponseEntity<?> response = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime expiresAt = now.plus(ttl);
+            jdbcTemplate.update("INSERT INTO idempotency_keys (id, scope, request_hash, status_code, created_at, expires_at) " +
+                            "VALUES (?, ?, ?, 0, ?, ?)",
+                    id, scope, requestHash, Timestamp.valueOf(now), Timestamp.valueOf(expiresAt));
+            ResponseEntity<?> result = action.get();
+            if (!result.getStatusCode().is2xxSuccessful()) {
+                status.setRollbackOnly();
+                return result;
+            }
+            String body = toJson(result.getBody());
+            jdbcTemplate.update("UPDATE idempotency_keys SET status_code = ?, response_body = ? WHERE id = ?",
+                    result.getStatusCode().value(), body, id);
+            saved[0] = new Stored(requestHash, result.getStatusCode().value(), body, expiresAt);
+            return result;
+        });
+        if (saved[0] != null) {
+            remember(id, saved[0]);
+        }
+        return response;
+    }
+
+    private ResponseEntity<?> replay(Stored stored, String requestHash) {
+        if (!stored.requestHash().equals(requestHash)) {
+            return ResponseEntity.status(422).body(Map.of("error",
+                    HEADER + " já usada com outro corpo de requisição"));
+        }
+        Object body;
+        try {
+            body = stored.body() != null ? objectMapper.readValue(stored.body(), Object.class) : null;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Resposta gravada ilegível", e);
+        }
+        return ResponseEntity.status(stored.statusCode()).header(REPLAYED_HEADER, "true").body(body);
+    }
+
+    private Stored cached(String id) {
+        Stored stored;
+        synchronized (hot) {
+            stored = hot.get(id);
+            if (stored != null && stored.expiresAt().isBefore(LocalDateTime.now())) {
+                hot.remove(id);
+                return null;
+            }
+        }
+        return stored;
+    }
+
+    private void remember(String id, Stored stored) {
+        synchronized (hot) {
+            hot.put(id, stored);
+        }
+    }
+
+    private Stored load(String id) {
+        List<Stored> rows = jdbcTemplate.query(
+                "SELECT request_hash, status_code, response_body, expires_at FROM idempotency_keys WHERE id = ?",
+                (rs, i) -> new Stored(rs.getString("request_hash"), rs.getInt("status_code"),
+                        rs.getString("response_body"), rs.getTimestamp("expires_at").toLocalDateTime()),
+                id);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    // Remove as chaves vencidas em lotes (o LRU descarta as dele ao consultar)
+    @Scheduled(fixedDelayString = "${wallet.idempotency.purge-millis:600000}")
+    public void purgeExpired() {
+        try {
+            int removed;
+            int total = 0;
+            do {
+                removed = jdbcTemplate.update("DELETE FROM idempotency_keys WHERE expires_at < ? FETCH FIRST ? ROWS ONLY",
+                        Timestamp.valueOf(LocalDateTime.now()), PURGE_BATCH);
+                total += removed;
+            } while (removed == PURGE_BATCH);
+            if (total > 0) {
+                log.info("{} chaves de idempotência expiradas removidas", total);
+            }
+        } catch (Exception e) {
+            log.error("Falha ao limpar chaves de idempotência: " + e.getMessage(), e);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Corpo não serializável", e);
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.wallet_service.service;
+
+// Saldo menor que o valor pedido (valores em centavos)
+public class InsufficientBalanceException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long currentBalanceCents;
+    private final long requiredCents;
+
+    public InsufficientBalanceException(long currentBalanceCents, long requiredCents) {
+        super("Saldo insuficiente");
+        this.currentBalanceCents = currentBalanceCents;
+        this.requiredCents = requiredCents;
+    }
+
+    public long getCurrentBalanceCents() {
+        return currentBalanceCents;
+    }
+
+    public long getRequiredCents() {
+        return requiredCents;
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.wallet_service.service;
+
+import com.example.wallet_service.entity.Transaction.TransactionType;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Auditoria do ledger: refaz a cadeia de cada carteira e compara com o que está gravado.
+// As carteiras são divididas entre as threads de um ForkJoinPool (cada folha verifica até
+// LEAF_SIZE carteiras, uma consulta por carteira). Só lê; nada é corrigido automaticamente.
+// Cada carteira é verificada até o last_seq_no lido no início: lançamentos novos durante a
+// rodada ficam para a próxima. Resultado na métrica wallet.ledger.discrepancies.
+@Slf4j
+@Service
+public class LedgerReconciliation {
+
+    private static final int LEAF_SIZE = 32;
+    private static final int MAX_SAMPLES = 100;
+
+    public enum Kind {
+        SEQUENCE_GAP,     // sequência fora de 1, 2, 3...
+        BALANCE_AFTER,    // balance_after_cents diferente do saldo acumulado
+        SNAPSHOT,         // snapshot diferente do saldo acumulado naquela sequência
+        WALLET_BALANCE,   // wallets.balance_cents diferente do saldo pelo ledger
+        WALLET_SEQUENCE   // wallets.last_seq_no diferente do último lançamento
+    }
+
+    public record Discrepancy(UUID walletId, Kind kind, long seqNo, long expected, long actual) {}
+
+    public record Report(long wallets, long entries, Map<Kind, Long> discrepancies, List<Discrepancy> samples, long millis) {
+        public long totalDiscrepancies() {
+            return discrepancies.values().stream().mapToLong(Long::longValue).sum();
+        }
+    }
+
+    private record WalletHead(UUID id, long balanceCents, long lastSeqNo) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ForkJoinPool pool;
+    private final Timer duration;
+    private final Map<Kind, AtomicLong> lastDiscrepancies = new EnumMap<>(Kind.class);
+    private final AtomicLong lastWallets = new AtomicLong();
+    private final AtomicLong lastEntries = new AtomicLong();
+    private volatile Report lastReport;
+
+    // parallelism: consultas simultâneas no banco; manter abaixo do pool de conexões (Hikari = 10)
+    public LedgerReconciliation(JdbcTemplate jdbcTemplate,
+                                MeterRegistry meterRegistry,
+                                @Value("${wallet.ledger.reconciliation.parallelism:4}") int parallelism) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+        for (Kind kind : Kind.values()) {
+            AtomicLong value = new AtomicLong();
+            lastDiscrepancies.put(kind, value);
+            Gauge.builder("wallet.ledger.discrepancies", value, AtomicLong::get)
+                    .description("Divergências encontradas na última reconciliação do ledger")
+                    .tag("kind", kind.name())
+                    .register(meterRegistry);
+        }
+        Gauge.builder("wallet.ledger.reconciliation.wallets", lastWallets, AtomicLong::get)
+                .description("Carteiras verificadas na última reconciliação")
+                .register(meterRegistry);
+        Gauge.builder("wallet.ledger.reconciliation.entries", lastEntries, AtomicLong::get)
+                .description("Lançamentos verificados na última reconciliação")
+                .register(meterRegistry);
+        this.duration = Timer.builder("wallet.ledger.reconciliation")
+                .description("Duração da reconciliação completa do ledger")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${wallet.ledger.reconciliation.cron:0 30 3 * * *}")
+    public void scheduled() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            log.error("Falha na reconciliação do ledger: " + e.getMessage(), e);
+        }
+    }
+
+    // Uma rodada por vez (agendada ou pedida pelo endpoint interno)
+    public synchronized Report reconcile() {
+        long begin = System.nanoTime();
+        List<WalletHead> wallets = jdbcTemplate.query("SELECT id, balance_cents, last_seq_no FROM wallets",
+                (rs, i) -> new WalletHead(rs.getObject("id", UUID.class), rs.getLong("balance_cents"), rs.getLong("last_seq_no")));
+        Partial result = pool.invoke(new ChainTask(wallets, 0, wallets.size()));
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+        duration.record(millis, TimeUnit.MILLISECONDS);
+
+        Map<Kind, Long> counts = new EnumMap<>(Kind.class);
+        for (Kind kind : Kind.values()) {
+            counts.put(kind, result.counts[kind.ordinal()]);
+            lastDiscrepancies.get(kind).set(result.counts[kind.ordinal()]);
+        }
+        lastWallets.set(wallets.size());
+        lastEntries.set(result.entries);
+        Report report = new Report(wallets.size(), result.entries, counts, List.copyOf(result.samples), millis);
+        lastReport = report;
+        if (report.totalDiscrepancies() > 0) {
+            log.warn("Reconciliação do ledger: {} divergências em {} carteiras ({} lançamentos, {} ms): {}",
+                    report.totalDiscrepancies(), wallets.size(), result.entries, millis, counts);
+        } else {
+            log.info("Reconciliação do ledger: {} carteiras e {} lançamentos conferidos em {} ms",
+                    wallets.size(), result.entries, millis);
+        }
+        return report;
+    }
+
+    public Report lastReport() {
+        return lastReport;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    // Acumulado de um intervalo de carteiras; combinado na volta do fork
+    private static final class Partial {
+        private final long[] counts = new long[Kind.values().length];
+        private final List<Discrepancy> samples = new ArrayList<>();
+        private long entries;
+
+        private void add(Discrepancy discrepancy) {
+            counts[discrepancy.kind().ordinal()]++;
+            if (samples.size() < MAX_SAMPLES) samples.add(discrepancy);
+        }
+
+        private Partial merge(Partial other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+            for (Discrepancy discrepancy : other.samples) {
+                if (samples.size() >= MAX_SAMPLES) break;
+                samples.add(discrepancy);
+            }
+            entries += other.entries;
+            return this;
+        }
+    }
+
+    private final class ChainTask extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<WalletHead> wallets;
+        private final int from;
+        private final int to;
+
+        private ChainTask(List<WalletHead> wallets, int from, int to) {
+            this.wallets = wallets;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from <= LEAF_SIZE) {
+                Partial partial = new Partial();
+                for (int i = from; i < to; i++) {
+                    verify(wallets.get(i), partial);
+                }
+                return partial;
+            }
+            int middle = (from + to) >>> 1;
+            ChainTask left = new ChainTask(wallets, from, middle);
+            left.fork();
+            Partial right = new ChainTask(wallets, middle, to).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    // Percorre os lançamentos em ordem de sequência acumulando o saldo
+    private void verify(WalletHead wallet, Partial partial) {
+        Map<Long, Long> snapshots = new HashMap<>();
+        jdbcTemplate.query("SELECT seq_no, balance_cents FROM balance_snapshots WHERE wallet_id = ? AND seq_no <= ?",
+                rs -> {
+                    snapshots.put(rs.getLong("seq_no"), rs.getLong("balance_cents"));
+                }, wallet.id(), wallet.lastSeqNo());
+
+        long[] state = new long[2]; // [0] = última sequência, [1] = saldo acumulado
+        jdbcTemplate.query("SELECT seq_no, type, amount_cents, balance_after_cents FROM transactions " +
+                        "WHERE wallet_id = ? AND seq_no <= ? ORDER BY seq_no",
+                rs -> {
+                    long seqNo = rs.getLong("seq_no");
+                    if (seqNo != state[0] + 1) {
+                        partial.add(new Discrepancy(wallet.id(), Kind.SEQUENCE_GAP, seqNo, state[0] + 1, seqNo));
+                    }
+                    state[0] = seqNo;
+                    state[1] += TransactionType.valueOf(rs.getString("type")).getSign() * rs.getLong("amount_cents");
+                    long balanceAfter = rs.getLong("balance_after_cents");
+                    if (balanceAfter != state[1]) {
+                        partial.add(new Discrepancy(wallet.id(), Kind.BALANCE_AFTER, seqNo, state[1], balanceAfter));
+                    }
+                    Long snapshot = snapshots.remove(seqNo);
+                    if (snapshot != null && snapshot != state[1]) {
+                        partial.add(new Discrepancy(wallet.id(), Kind.SNAPSHOT, seqNo, state[1], snapshot));
+                    }
+                    partial.entries++;
+                }, wallet.id(), wallet.lastSeqNo());
+
+        // snapshot sem lançamento correspondente
+        for (Map.Entry<Long, Long> orphan : snapshots.entrySet()) {
+            partial.add(new Discrepancy(wallet.id(), Kind.SNAPSHOT, orphan.getKey(), 0, orphan.getValue()));
+        }
+        if (state[0] != wallet.lastSeqNo()) {
+            partial.add(new Discrepancy(wallet.id(), Kind.WALLET_SEQUENCE, wallet.lastSeqNo(), state[0], wallet.lastSeqNo()));
+        }
+        if (state[1] != wallet.balanceCents()) {
+            partial.add(new Discrepancy(wallet.id(), Kind.WALLET_BALANCE, state[0], state[1], wallet.balanceCents()));
+        }
+    }
+}
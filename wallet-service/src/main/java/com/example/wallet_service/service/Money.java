@@ -0,0 +1,27 @@
+package com.example.wallet_service.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Conversão entre a API (reais com casas decimais) e o armazenamento (centavos em long)
+public final class Money {
+
+    private Money() {
+    }
+
+    // null se o valor não for numérico
+    public static Long toCents(Object value) {
+        if (!(value instanceof Number number)) {
+            return null;
+        }
+        double reais = number.doubleValue();
+        if (Double.isNaN(reais) || Double.isInfinite(reais)) {
+            return null;
+        }
+        return BigDecimal.valueOf(reais).setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValue();
+    }
+
+    public static double toReais(long cents) {
+        return BigDecimal.valueOf(cents, 2).doubleValue();
+    }
+}
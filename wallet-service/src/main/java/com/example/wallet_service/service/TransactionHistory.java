@@ -0,0 +1,166 @@
+package com.example.wallet_service.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Leitura do histórico de lançamentos do usuário sem carregar tudo:
+// - página por chave (created_at, id) decrescente, usando idx_transactions_user_created;
+// - totais por mês lidos de wallet_monthly_summaries;
+// - extrato CSV escrito linha a linha direto na resposta.
+@Service
+public class TransactionHistory {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 200;
+    private static final int EXPORT_FETCH_SIZE = 500;
+
+    private static final String COLUMNS =
+            "SELECT id, user_id, type, amount_cents, balance_after_cents, description, challenge_id, created_at FROM transactions ";
+
+    // nextCursor = null na última página
+    public record Page(List<Map<String, Object>> items, String nextCursor) {}
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TransactionHistory(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // cursor inválido = IllegalArgumentException
+    public Page page(String userId, String cursor, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_LIMIT));
+        List<Row> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = jdbcTemplate.query(COLUMNS + "WHERE user_id = ? ORDER BY created_at DESC, id DESC LIMIT ?",
+                    (rs, i) -> row(rs), userId, size + 1);
+        } else {
+            Cursor after = decode(cursor);
+            rows = jdbcTemplate.query(COLUMNS + "WHERE user_id = ? AND (created_at < ? OR (created_at = ? AND id < ?)) " +
+                            "ORDER BY created_at DESC, id DESC LIMIT ?",
+                    (rs, i) -> row(rs), userId, after.createdAt(), after.createdAt(), after.id(), size + 1);
+        }
+        // uma linha a mais que o pedido indica que há próxima página
+        String next = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            Row last = rows.get(size - 1);
+            next = encode(last.createdAt(), last.id());
+        }
+        List<Map<String, Object>> items = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            items.add(row.body());
+        }
+        return new Page(items, next);
+    }
+
+    // Meses mais recentes primeiro (valores em reais)
+    public List<Map<String, Object>> monthly(String userId, int months) {
+        return jdbcTemplate.query(
+                "SELECT ref_month, deposits_cents, debits_cents, credits_cents, fees_cents, entries " +
+                "FROM wallet_monthly_summaries WHERE user_id = ? ORDER BY ref_month DESC LIMIT ?",
+                (rs, i) -> {
+                    Map<String, Object> month = new LinkedHashMap<>();
+                    month.put("month", rs.getString("ref_month"));
+                    month.put("deposits", Money.toReais(rs.getLong("deposits_cents")));
+                    month.put("debits", Money.toReais(rs.getLong("debits_cents")));
+                    month.put("credits", Money.toReais(rs.getLong("credits_cents")));
+                    month.put("fees", Money.toReais(rs.getLong("fees_cents")));
+                    month.put("entries", rs.getLong("entries"));
+                    return month;
+                }, userId, Math.max(1, months));
+    }
+
+    // Extrato em ordem cronológica; from/to (opcionais) limitam created_at
+    public void exportCsv(String userId, LocalDateTime from, LocalDateTime to, Writer out) {
+        try {
+            out.write("data,tipo,descricao,valor,saldo,desafio\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(COLUMNS + "WHERE user_id = ? AND created_at >= ? AND created_at < ? " +
+                    "ORDER BY created_at, id");
+            ps.setFetchSize(EXPORT_FETCH_SIZE);
+            ps.setString(1, userId);
+            ps.setTimestamp(2, Timestamp.valueOf(from != null ? from : LocalDateTime.of(1970, 1, 1, 0, 0)));
+            ps.setTimestamp(3, Timestamp.valueOf(to != null ? to : LocalDateTime.of(9999, 1, 1, 0, 0)));
+            return ps;
+        }, rs -> {
+            long challengeId = rs.getLong("challenge_id");
+            boolean noChallenge = rs.wasNull();
+            String line = rs.getTimestamp("created_at").toLocalDateTime().withNano(0) + ","
+                    + rs.getString("type") + ","
+                    + csv(rs.getString("description")) + ","
+                    + BigDecimal.valueOf(rs.getLong("amount_cents"), 2).toPlainString() + ","
+                    + BigDecimal.valueOf(rs.getLong("balance_after_cents"), 2).toPlainString() + ","
+                    + (noChallenge ? "" : String.valueOf(challengeId))
+                    + "\n";
+            try {
+                out.write(line);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private record Row(Timestamp createdAt, UUID id, Map<String, Object> body) {}
+
+    private static Row row(ResultSet rs) throws SQLException {
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        UUID id = rs.getObject("id", UUID.class);
+        Map<String, Object> txMap = new LinkedHashMap<>();
+        txMap.put("id", id.toString());
+        txMap.put("userId", rs.getString("user_id"));
+        txMap.put("type", rs.getString("type"));
+        txMap.put("amount", Money.toReais(rs.getLong("amount_cents")));
+        txMap.put("balance", Money.toReais(rs.getLong("balance_after_cents")));
+        txMap.put("description", rs.getString("description"));
+        long challengeId = rs.getLong("challenge_id");
+        txMap.put("challengeId", rs.wasNull() ? null : challengeId);
+        // Timestamp já está no fuso da JVM: getTime() dá o epoch sem conversão por ZoneId
+        txMap.put("createdAt", createdAt.getTime());
+        return new Row(createdAt, id, txMap);
+    }
+
+    private record Cursor(Timestamp createdAt, UUID id) {}
+
+    private static String encode(Timestamp createdAt, UUID id) {
+        String raw = createdAt.toLocalDateTime() + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Cursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            return new Cursor(Timestamp.valueOf(LocalDateTime.parse(raw.substring(0, separator))),
+                    UUID.fromString(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | StringIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+    }
+
+    private static String csv(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) return value;
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
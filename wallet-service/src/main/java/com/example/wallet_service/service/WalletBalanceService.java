@@ -0,0 +1,115 @@
+package com.example.wallet_service.service;
+
+import com.example.wallet_service.entity.Transaction.TransactionType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+// Depósito e débito de uma carteira sem SELECT prévio: o saldo muda num único UPDATE
+// condicional (balance_cents >= valor no próprio WHERE) e o novo saldo volta do mesmo comando
+// (FINAL TABLE do H2). Débitos concorrentes se serializam na linha e nenhum deixa o saldo negativo.
+// O lançamento é gravado na mesma transação, logo em seguida.
+// Leitura de saldo pelo BalanceCache (banco só no miss, sem criar carteira); criação explícita em provision.
+@Service
+public class WalletBalanceService {
+
+    // o mesmo UPDATE reserva a sequência do lançamento (last_seq_no + 1)
+    private static final String DEBIT =
+            "SELECT id, balance_cents, last_seq_no FROM FINAL TABLE (" +
+            "UPDATE wallets SET balance_cents = balance_cents - ?, last_seq_no = last_seq_no + 1 " +
+            "WHERE user_id = ? AND balance_cents >= ?)";
+    private static final String DEPOSIT =
+            "SELECT id, balance_cents, last_seq_no FROM FINAL TABLE (" +
+            "UPDATE wallets SET balance_cents = balance_cents + ?, last_seq_no = last_seq_no + 1 WHERE user_id = ?)";
+
+    // Valores em centavos
+    public record Movement(UUID walletId, long amountCents, long balanceCents) {}
+
+    // Carteira ainda não provisionada = saldo zero em BRL
+    public record Balance(long balanceCents, String currency) {}
+
+    private record Updated(UUID walletId, long balanceCents, long seqNo) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final WalletStore walletStore;
+    private final BalanceCache balanceCache;
+
+    public WalletBalanceService(JdbcTemplate jdbcTemplate, WalletStore walletStore, BalanceCache balanceCache) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.walletStore = walletStore;
+        this.balanceCache = balanceCache;
+    }
+
+    // Sem transação: no hit não há consulta; no miss, um SELECT e o valor entra no cache
+    public Balance balance(String userId) {
+        BalanceCache.CachedBalance cached = balanceCache.get(userId);
+        if (cached == null) {
+            cached = readThrough(userId);
+        }
+        return new Balance(cached.balanceCents(), cached.currency());
+    }
+
+    // Cria a carteira se ainda não existe; chamar de novo não muda nada. true = criada agora
+    @Transactional
+    public boolean provision(String userId) {
+        if (walletStore.createMissing(Set.of(userId)).isEmpty()) {
+            return false;
+        }
+        balanceCache.publish(userId, 0, 0);
+        return true;
+    }
+
+    @Transactional
+    public Movement deposit(String userId, long amountCents, String description, Long challengeId) {
+        Updated updated = update(DEPOSIT, amountCents, userId);
+        if (updated == null) {
+            walletStore.createMissing(Set.of(userId));
+            updated = update(DEPOSIT, amountCents, userId);
+        }
+        record(updated, userId, TransactionType.WALLET_DEPOSIT, amountCents, description, challengeId);
+        return new Movement(updated.walletId(), amountCents, updated.balanceCents());
+    }
+
+    // Nenhuma linha alterada = saldo insuficiente (ou carteira inexistente, criada aqui com saldo zero)
+    @Transactional
+    public Movement debit(String userId, long amountCents, String description, Long challengeId) {
+        Updated updated = update(DEBIT, amountCents, userId, amountCents);
+        if (updated == null) {
+            walletStore.createMissing(Set.of(userId));
+            Long current = jdbcTemplate.queryForObject(
+                    "SELECT balance_cents FROM wallets WHERE user_id = ?", Long.class, userId);
+            throw new InsufficientBalanceException(current != null ? current : 0L, amountCents);
+        }
+        record(updated, userId, TransactionType.DEBIT, amountCents, description, challengeId);
+        return new Movement(updated.walletId(), amountCents, updated.balanceCents());
+    }
+
+    private Updated update(String sql, Object... args) {
+        List<Updated> rows = jdbcTemplate.query(sql,
+                (rs, i) -> new Updated(rs.getObject("id", UUID.class), rs.getLong("balance_cents"), rs.getLong("last_seq_no")), args);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private BalanceCache.CachedBalance readThrough(String userId) {
+        List<BalanceCache.CachedBalance> rows = jdbcTemplate.query(
+                "SELECT balance_cents, last_seq_no, currency FROM wallets WHERE user_id = ?",
+                (rs, i) -> new BalanceCache.CachedBalance(rs.getLong("balance_cents"), rs.getLong("last_seq_no"), rs.getString("currency")),
+                userId);
+        BalanceCache.CachedBalance read = rows.isEmpty()
+                ? new BalanceCache.CachedBalance(0, 0, BalanceCache.DEFAULT_CURRENCY) : rows.get(0);
+        balanceCache.load(userId, read.balanceCents(), read.seqNo(), read.currency());
+        return read;
+    }
+
+    private void record(Updated updated, String userId, TransactionType type, long amountCents,
+                        String description, Long challengeId) {
+        walletStore.insertEntries(List.<Object[]>of(walletStore.entryRow(updated.walletId(), userId, updated.seqNo(), type, amountCents,
+                updated.balanceCents(), description, challengeId, null, LocalDateTime.now())));
+        balanceCache.publish(userId, updated.balanceCents(), updated.seqNo());
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.wallet_service.service;
+
+import com.example.wallet_service.entity.Transaction.TransactionType;
+import com.example.wallet_service.service.WalletStore.LedgerEntry;
+import com.example.wallet_service.service.WalletStore.LockedWallet;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Créditos em lote (reembolsos e prêmios enviados pelo challenge-service) numa única transação:
+// carteiras criadas/travadas de uma vez e UPDATE/INSERT enviados em batch JDBC.
+// Cada item tem uma chave de idempotência gravada na própria transação; item repetido
+// (no mesmo lote ou em reenvio) volta como DUPLICATE sem creditar de novo.
+@Service
+public class WalletCreditService {
+
+    public static final int MAX_KEY_LENGTH = 200;
+
+    public enum Status { APPLIED, DUPLICATE, REJECTED }
+
+    // amountCents: valor em centavos
+    public record CreditItem(String idempotencyKey, String userId, Long amountCents, String description, Long challengeId) {}
+
+    // balanceCents: saldo logo após o crédito (para DUPLICATE, o saldo registrado no crédito original)
+    public record CreditResult(String idempotencyKey, String userId, Status status, Long balanceCents, String error) {}
+
+    private final WalletStore walletStore;
+
+    public WalletCreditService(WalletStore walletStore) {
+        this.walletStore = walletStore;
+    }
+
+    // Resultados na mesma ordem dos itens
+    @Transactional
+    public List<CreditResult> credit(List<CreditItem> items) {
+        CreditResult[] results = new CreditResult[items.size()];
+        List<Integer> pending = new ArrayList<>();
+        Set<String> seenKeys = new HashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            CreditItem item = items.get(i);
+            String error = validate(item);
+            if (error != null) {
+                results[i] = new CreditResult(item.idempotencyKey(), item.userId(), Status.REJECTED, null, error);
+            } else if (!seenKeys.add(item.idempotencyKey())) {
+                results[i] = new CreditResult(item.idempotencyKey(), item.userId(), Status.DUPLICATE, null, null);
+            } else {
+                pending.add(i);
+            }
+        }
+        if (pending.isEmpty()) {
+            return List.of(results);
+        }
+
+        Set<String> userIds = new HashSet<>();
+        for (int i : pending) {
+            userIds.add(items.get(i).userId());
+        }
+        Map<String, LockedWallet> wallets = walletStore.lock(userIds);
+
+        // conferido depois do lock: um reenvio concorrente do mesmo lote espera e vê as chaves gravadas
+        Map<String, Long> existing = walletStore.findExistingKeys(seenKeys);
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> entries = new ArrayList<>(pending.size());
+        for (int i : pending) {
+            CreditItem item = items.get(i);
+            if (existing.containsKey(item.idempotencyKey())) {
+                results[i] = new CreditResult(item.idempotencyKey(), item.userId(), Status.DUPLICATE,
+                        existing.get(item.idempotencyKey()), null);
+                continue;
+            }
+            LockedWallet wallet = wallets.get(item.userId());
+            wallet.add(item.amountCents());
+            String description = item.description() != null ? item.description() : "Crédito recebido";
+            entries.add(walletStore.entryRow(new LedgerEntry(wallet, TransactionType.CREDIT, item.amountCents(),
+                    description, item.challengeId(), item.idempotencyKey()), now));
+            results[i] = new CreditResult(item.idempotencyKey(), item.userId(), Status.APPLIED, wallet.getBalanceCents(), null);
+        }
+
+        walletStore.updateBalances(wallets.values());
+        walletStore.insertEntries(entries);
+        return List.of(results);
+    }
+
+    private static String validate(CreditItem item) {
+        if (item.idempotencyKey() == null || item.idempotencyKey().isBlank()) {
+            return "idempotencyKey obrigatória";
+        }
+        if (item.idempotencyKey().length() > MAX_KEY_LENGTH) {
+            return "idempotencyKey maior que " + MAX_KEY_LENGTH + " caracteres";
+        }
+        if (item.userId() == null || item.userId().isBlank()) {
+            return "userId obrigatório";
+        }
+        if (item.amountCents() == null || item.amountCents() <= 0) {
+            return "Valor deve ser maior que zero";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.wallet_service.service;
+
+import com.example.wallet_service.entity.Transaction.TransactionType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.UUID;
+
+// Saldo calculado pelo ledger: último snapshot até a sequência pedida + lançamentos posteriores.
+// Com snapshot a cada N lançamentos, a soma nunca percorre mais que N linhas.
+@Service
+public class WalletLedger {
+
+    // amount_cents com o sinal do tipo (CASE gerado a partir do enum)
+    static final String SIGNED_AMOUNT = signedAmountSql();
+
+    public record LedgerBalance(long balanceCents, long seqNo, long snapshotSeqNo) {}
+
+    private record Snapshot(long seqNo, long balanceCents) {}
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public WalletLedger(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Saldo após o lançamento upToSeqNo
+    public LedgerBalance balanceAt(UUID walletId, long upToSeqNo) {
+        List<Snapshot> snapshots = jdbcTemplate.query(
+                "SELECT seq_no, balance_cents FROM balance_snapshots WHERE wallet_id = ? AND seq_no <= ? " +
+                "ORDER BY seq_no DESC LIMIT 1",
+                (rs, i) -> new Snapshot(rs.getLong("seq_no"), rs.getLong("balance_cents")), walletId, upToSeqNo);
+        Snapshot base = snapshots.isEmpty() ? new Snapshot(0, 0) : snapshots.get(0);
+        Long tail = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(" + SIGNED_AMOUNT + "), 0) FROM transactions " +
+                "WHERE wallet_id = ? AND seq_no > ? AND seq_no <= ?",
+                Long.class, walletId, base.seqNo(), upToSeqNo);
+        return new LedgerBalance(base.balanceCents() + (tail != null ? tail : 0), upToSeqNo, base.seqNo());
+    }
+
+    // Saldo após o último lançamento da carteira (null se a carteira não existe)
+    public LedgerBalance balanceOf(String userId) {
+        List<Object[]> wallet = jdbcTemplate.query("SELECT id, last_seq_no FROM wallets WHERE user_id = ?",
+                (rs, i) -> new Object[] { rs.getObject("id", UUID.class), rs.getLong("last_seq_no") }, userId);
+        if (wallet.isEmpty()) {
+            return null;
+        }
+        return balanceAt((UUID) wallet.get(0)[0], (Long) wallet.get(0)[1]);
+    }
+
+    private static String signedAmountSql() {
+        StringBuilder sql = new StringBuilder("CASE type");
+        for (TransactionType type : TransactionType.values()) {
+            sql.append(" WHEN '").append(type.name()).append("' THEN ");
+            sql.append(type.getSign() == 0 ? "0" : type.getSign() > 0 ? "amount_cents" : "-amount_cents");
+        }
+        return sql.append(" ELSE 0 END").toString();
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.wallet_service.service;
+
+import com.example.wallet_service.entity.Transaction.TransactionType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+// Acesso JDBC às carteiras usado pelas operações em lote (créditos, custódia):
+// cria as que faltam, trava todas de uma vez e grava saldos e lançamentos em batch.
+// Todo lançamento recebe a próxima sequência da carteira (wallets.last_seq_no) e, a cada
+// snapshot-interval lançamentos, um snapshot do saldo é gravado junto; os totais do mês
+// (wallet_monthly_summaries) são somados no mesmo batch. O saldo novo vai para o BalanceCache no commit.
+// Valores em centavos. Deve ser chamado dentro de uma transação.
+@Component
+public class WalletStore {
+
+    private static final int MAX_DESCRIPTION_LENGTH = 500;
+    private static final String INSERT_ENTRY =
+            "INSERT INTO transactions (id, wallet_id, user_id, seq_no, type, amount_cents, balance_after_cents, description, challenge_id, created_at, idempotency_key) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_SNAPSHOT =
+            "INSERT INTO balance_snapshots (id, wallet_id, seq_no, balance_cents, created_at) VALUES (?, ?, ?, ?, ?)";
+    // soma no mês existente ou cria a linha; a carteira já está travada pelo UPDATE do saldo
+    private static final String MERGE_SUMMARY =
+            "MERGE INTO wallet_monthly_summaries s USING (SELECT CAST(? AS UUID) AS wallet_id, CAST(? AS VARCHAR) AS user_id, " +
+            "CAST(? AS VARCHAR) AS ref_month, CAST(? AS BIGINT) AS dep, CAST(? AS BIGINT) AS deb, CAST(? AS BIGINT) AS cred, " +
+            "CAST(? AS BIGINT) AS fee, CAST(? AS BIGINT) AS cnt, CAST(? AS TIMESTAMP) AS ts) v " +
+            "ON s.wallet_id = v.wallet_id AND s.ref_month = v.ref_month " +
+            "WHEN MATCHED THEN UPDATE SET deposits_cents = s.deposits_cents + v.dep, debits_cents = s.debits_cents + v.deb, " +
+            "credits_cents = s.credits_cents + v.cred, fees_cents = s.fees_cents + v.fee, entries = s.entries + v.cnt, updated_at = v.ts " +
+            "WHEN NOT MATCHED THEN INSERT (id, wallet_id, user_id, ref_month, deposits_cents, debits_cents, credits_cents, fees_cents, entries, updated_at) " +
+            "VALUES (RANDOM_UUID(), v.wallet_id, v.user_id, v.ref_month, v.dep, v.deb, v.cred, v.fee, v.cnt, v.ts)";
+    private static final DateTimeFormatter REF_MONTH = DateTimeFormatter.ofPattern("yyyy-MM");
+    // posições em entryRow usadas para snapshot e totais do mês
+    private static final int ROW_WALLET_ID = 1;
+    private static final int ROW_USER_ID = 2;
+    private static final int ROW_SEQ_NO = 3;
+    private static final int ROW_TYPE = 4;
+    private static final int ROW_AMOUNT = 5;
+    private static final int ROW_BALANCE_AFTER = 6;
+    private static final int ROW_CREATED_AT = 9;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final long snapshotInterval;
+    private final BalanceCache balanceCache;
+
+    public WalletStore(JdbcTemplate jdbcTemplate,
+                       NamedParameterJdbcTemplate namedJdbcTemplate,
+                       BalanceCache balanceCache,
+                       @Value("${wallet.ledger.snapshot-interval:100}") long snapshotInterval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.balanceCache = balanceCache;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    // Carteira travada (SELECT ... FOR UPDATE); saldo e sequência são alterados em memória e gravados por updateBalances
+    public static final class LockedWallet {
+        private final UUID id;
+        private final String userId;
+        private long balanceCents;
+        private long deltaCents;
+        private long seqNo;
+        private boolean seqChanged;
+
+        LockedWallet(UUID id, String userId, long balanceCents, long seqNo) {
+            this.id = id;
+            this.userId = userId;
+            this.balanceCents = balanceCents;
+            this.seqNo = seqNo;
+        }
+
+        public UUID getId() {
+            return id;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public long getBalanceCents() {
+            return balanceCents;
+        }
+
+        public void add(long cents) {
+            balanceCents += cents;
+            deltaCents += cents;
+        }
+
+        private long nextSeq() {
+            seqChanged = true;
+            return ++seqNo;
+        }
+    }
+
+    public record LedgerEntry(LockedWallet wallet, TransactionType type, long amountCents, String description,
+                              Long challengeId, String idempotencyKey) {}
+
+    // Ordem fixa de travamento (user_id): lotes concorrentes com usuários em comum não entram em deadlock
+    public Map<String, LockedWallet> lock(Collection<String> userIds) {
+        Set<String> sorted = new TreeSet<>(userIds);
+        createMissing(sorted);
+        Map<String, LockedWallet> wallets = new HashMap<>();
+        namedJdbcTemplate.query(
+                "SELECT id, user_id, balance_cents, last_seq_no FROM wallets WHERE user_id IN (:userIds) ORDER BY user_id FOR UPDATE",
+                new MapSqlParameterSource("userIds", sorted),
+                rs -> {
+                    String userId = rs.getString("user_id");
+                    wallets.put(userId, new LockedWallet(rs.getObject("id", UUID.class), userId,
+                            rs.getLong("balance_cents"), rs.getLong("last_seq_no")));
+                });
+        return wallets;
+    }
+
+    // Grava a variação (balance_cents + delta) e a última sequência usada: a linha já está travada
+    public void updateBalances(Collection<LockedWallet> wallets) {
+        List<Object[]> updates = new ArrayList<>();
+        for (LockedWallet wallet : wallets) {
+            if (wallet.deltaCents != 0 || wallet.seqChanged) {
+                updates.add(new Object[] { wallet.deltaCents, wallet.seqNo, wallet.id });
+                balanceCache.publish(wallet.userId, wallet.balanceCents, wallet.seqNo);
+                wallet.deltaCents = 0;
+                wallet.seqChanged = false;
+            }
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE wallets SET balance_cents = balance_cents + ?, last_seq_no = ? WHERE id = ?", updates);
+        }
+    }
+
+    // balance_after = saldo atual da carteira em memória: registrar logo depois de cada add(), na ordem dos lançamentos
+    public Object[] entryRow(LedgerEntry entry, LocalDateTime createdAt) {
+        LockedWallet wallet = entry.wallet();
+        return entryRow(wallet.id, wallet.userId, wallet.nextSeq(), entry.type(), entry.amountCents(), wallet.balanceCents,
+                entry.description(), entry.challengeId(), entry.idempotencyKey(), createdAt);
+    }
+
+    public Object[] entryRow(UUID walletId, String userId, long seqNo, TransactionType type, long amountCents,
+                             long balanceAfterCents, String description, Long challengeId, String idempotencyKey,
+                             LocalDateTime createdAt) {
+        String trimmed = description != null && description.length() > MAX_DESCRIPTION_LENGTH
+                ? description.substring(0, MAX_DESCRIPTION_LENGTH) : description;
+        return new Object[] {
+                UUID.randomUUID(), walletId, userId, seqNo, type.name(), amountCents, balanceAfterCents,
+                trimmed, challengeId, Timestamp.valueOf(createdAt), idempotencyKey
+        };
+    }
+
+    public void insertEntries(List<Object[]> rows) {
+        if (rows.isEmpty()) return;
+        if (rows.size() == 1) {
+            jdbcTemplate.update(INSERT_ENTRY, rows.get(0));
+        } else {
+            jdbcTemplate.batchUpdate(INSERT_ENTRY, rows);
+        }
+        List<Object[]> snapshots = new ArrayList<>();
+        for (Object[] row : rows) {
+            if ((Long) row[ROW_SEQ_NO] % snapshotInterval == 0) {
+                snapshots.add(new Object[] {
+                        UUID.randomUUID(), row[ROW_WALLET_ID], row[ROW_SEQ_NO], row[ROW_BALANCE_AFTER], row[ROW_CREATED_AT]
+                });
+            }
+        }
+        if (!snapshots.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SNAPSHOT, snapshots);
+        }
+        rollUpMonths(rows);
+    }
+
+    // [depósitos, débitos, créditos, taxas, lançamentos] por (carteira, mês)
+    private void rollUpMonths(List<Object[]> rows) {
+        Map<String, long[]> totals = new LinkedHashMap<>();
+        Map<String, Object[]> keys = new HashMap<>();
+        for (Object[] row : rows) {
+            Timestamp createdAt = (Timestamp) row[ROW_CREATED_AT];
+            String refMonth = createdAt.toLocalDateTime().format(REF_MONTH);
+            String key = row[ROW_WALLET_ID] + "|" + refMonth;
+            long[] sums = totals.computeIfAbsent(key, k -> new long[5]);
+            keys.putIfAbsent(key, new Object[] { row[ROW_WALLET_ID], row[ROW_USER_ID], refMonth, createdAt });
+            int column = summaryColumn(TransactionType.valueOf((String) row[ROW_TYPE]));
+            if (column >= 0) {
+                sums[column] += (Long) row[ROW_AMOUNT];
+            }
+            sums[4]++;
+        }
+        List<Object[]> merges = new ArrayList<>(totals.size());
+        for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+            Object[] key = keys.get(entry.getKey());
+            long[] sums = entry.getValue();
+            merges.add(new Object[] { key[0], key[1], key[2], sums[0], sums[1], sums[2], sums[3], sums[4], key[3] });
+        }
+        if (merges.size() == 1) {
+            jdbcTemplate.update(MERGE_SUMMARY, merges.get(0));
+        } else {
+            jdbcTemplate.batchUpdate(MERGE_SUMMARY, merges);
+        }
+    }
+
+    // CAPTURE não altera o saldo: conta só como lançamento
+    private static int summaryColumn(TransactionType type) {
+        return switch (type) {
+            case WALLET_DEPOSIT -> 0;
+            case DEBIT, HOLD -> 1;
+            case CREDIT, RELEASE, PAYOUT -> 2;
+            case FEE -> 3;
+            case CAPTURE -> -1;
+        };
+    }
+
+    // Chave -> saldo registrado no lançamento original
+    public Map<String, Long> findExistingKeys(Collection<String> keys) {
+        Map<String, Long> existing = new HashMap<>();
+        if (keys.isEmpty()) return existing;
+        namedJdbcTemplate.query(
+                "SELECT idempotency_key, balance_after_cents FROM transactions WHERE idempotency_key IN (:keys)",
+                new MapSqlParameterSource("keys", keys),
+                rs -> {
+                    existing.put(rs.getString("idempotency_key"), rs.getLong("balance_after_cents"));
+                });
+        return existing;
+    }
+
+    // Cria as carteiras que faltam (saldo zero); criação concorrente da mesma carteira é ignorada.
+    // Devolve as que foram criadas por esta chamada.
+    public Set<String> createMissing(Set<String> userIds) {
+        Set<String> missing = new HashSet<>(userIds);
+        missing.removeAll(namedJdbcTemplate.queryForList(
+                "SELECT user_id FROM wallets WHERE user_id IN (:userIds)",
+                new MapSqlParameterSource("userIds", userIds), String.class));
+        Set<String> created = new HashSet<>();
+        for (String userId : missing) {
+            try {
+                jdbcTemplate.update("INSERT INTO wallets (id, user_id, balance_cents, last_seq_no, currency) VALUES (?, ?, 0, 0, 'BRL')",
+                        UUID.randomUUID(), userId);
+                created.add(userId);
+            } catch (DuplicateKeyException ignored) {
+                // criada por outra requisição entre a consulta e o INSERT
+            }
+        }
+        return created;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.wallet_service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+// Dispara as tarefas ao mesmo tempo (todas esperam a largada) num pool fixo, para os testes de concorrência
+public final class ConcurrentTasks {
+
+    public static final int THREADS = 32;
+
+    private ConcurrentTasks() {
+    }
+
+    // Devolve quantas tarefas falharam (exceção ou tempo esgotado)
+    public static int run(int tasks, IntConsumer task) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < tasks; i++) {
+                int index = i;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    task.accept(index);
+                    return null;
+                }));
+            }
+            start.countDown();
+            int failures = 0;
+            for (Future<?> future : futures) {
+                try {
+                    future.get(2, TimeUnit.MINUTES);
+                } catch (Exception e) {
+                    failures++;
+                }
+            }
+            return failures;
+        } finally {
+            // tarefa presa (tempo esgotado) não deixa threads vivas no contexto de teste compartilhado
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.wallet_service.controller;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.example.wallet_service.ConcurrentTasks;
+import com.example.wallet_service.service.BalanceCache;
+import com.example.wallet_service.service.LedgerReconciliation;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:balancecache;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "spring.jpa.show-sql=false"
+})
+class WalletBalanceCacheTest {
+
+    @Autowired
+    private WalletController walletController;
+
+    @Autowired
+    private BalanceCache balanceCache;
+
+    @Autowired
+    private LedgerReconciliation reconciliation;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${wallet.internal.api-key}")
+    private String internalKey;
+
+    // GET não cria carteira; PUT cria uma vez e repete sem efeito
+    @Test
+    void readDoesNotCreateAndProvisionIsIdempotent() {
+        String userId = "provision-user";
+        String auth = bearer(userId);
+
+        ResponseEntity<?> read = walletController.getWallet(auth);
+        assertEquals(200, read.getStatusCode().value());
+        assertEquals(0.0, ((Map<?, ?>) read.getBody()).get("balance"));
+        assertEquals(0L, count("SELECT COUNT(*) FROM wallets WHERE user_id = ?", userId));
+
+        assertEquals(201, walletController.provisionWallet(auth).getStatusCode().value());
+        assertEquals(200, walletController.provisionWallet(auth).getStatusCode().value());
+        assertEquals(1L, count("SELECT COUNT(*) FROM wallets WHERE user_id = ?", userId));
+    }
+
+    // Depósitos, débitos e créditos em lote concorrentes com leituras no meio:
+    // no fim, o saldo em cache de cada carteira é o mesmo do banco, na mesma sequência
+    @Test
+    void cacheMatchesDatabaseAfterConcurrentMutations() throws Exception {
+        int wallets = 6;
+        int operations = 3_000;
+        for (int w = 0; w < wallets; w++) {
+            String auth = bearer("cache-" + w);
+            walletController.provisionWallet(auth);
+            walletController.deposit(Map.of("amount", 50.0), auth, null);
+        }
+
+        int failures = ConcurrentTasks.run(operations, i -> {
+            String userId = "cache-" + (i % wallets);
+            String auth = bearer(userId);
+            switch (i % 4) {
+                case 0 -> walletController.deposit(Map.of("amount", 1.5), auth, "dep-" + i);
+                case 1 -> walletController.debit(Map.of("amount", 2.75), auth, null);
+                case 2 -> walletController.creditBatch(Map.of("items", List.of(Map.of(
+                        "idempotencyKey", "credit-" + i, "userId", userId, "amount", 0.4))), internalKey, null);
+                default -> walletController.getWallet(auth);
+            }
+        });
+
+        assertEquals(0, failures);
+        for (int w = 0; w < wallets; w++) {
+            String userId = "cache-" + w;
+            BalanceCache.CachedBalance cached = balanceCache.get(userId);
+            assertNotNull(cached);
+            assertEquals(count("SELECT balance_cents FROM wallets WHERE user_id = ?", userId), cached.balanceCents());
+            assertEquals(count("SELECT last_seq_no FROM wallets WHERE user_id = ?", userId), cached.seqNo());
+            assertTrue(cached.balanceCents() >= 0);
+            Map<?, ?> body = (Map<?, ?>) walletController.getWallet(bearer(userId)).getBody();
+            assertEquals(cached.balanceCents() / 100.0, body.get("balance"));
+        }
+        assertEquals(0L, reconciliation.reconcile().totalDiscrepancies());
+    }
+
+    private static String bearer(String userId) {
+        return "Bearer " + JWT.create().withSubject(userId).sign(Algorithm.HMAC256("test-secret"));
+    }
+
+    private long count(String sql, String userId) {
+        Long value = jdbcTemplate.queryForObject(sql, Long.class, userId);
+        return value != null ? value : 0;
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.wallet_service.service;
+
+import com.example.wallet_service.ConcurrentTasks;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:debits;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+        "spring.jpa.show-sql=false"
+})
+class WalletDebitConcurrencyTest {
+
+    @Autowired
+    private WalletBalanceService balanceService;
+
+    @Autowired
+    private LedgerReconciliation reconciliation;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Saldo de 100,00 e 2000 débitos simultâneos de 1,00: exatamente 100 passam e o saldo termina em zero
+    @Test
+    void debitStormNeverOverdraws(TestReporter reporter) throws Exception {
+        String userId = "storm-user";
+        long initialCents = 10_000;
+        int debits = 2_000;
+        balanceService.deposit(userId, initialCents, "Depósito inicial", null);
+
+        AtomicInteger applied = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        AtomicInteger negativeSeen = new AtomicInteger();
+        long begin = System.nanoTime();
+        int failures = ConcurrentTasks.run(debits, i -> {
+            try {
+                WalletBalanceService.Movement movement = balanceService.debit(userId, 100, "Débito " + i, null);
+                applied.incrementAndGet();
+                if (movement.balanceCents() < 0) negativeSeen.incrementAndGet();
+            } catch (InsufficientBalanceException e) {
+                refused.incrementAndGet();
+            }
+        });
+        long elapsedNanos = System.nanoTime() - begin;
+
+        assertEquals(0, failures);
+        assertEquals(100, applied.get());
+        assertEquals(debits - 100, refused.get());
+        assertEquals(0, negativeSeen.get());
+        assertEquals(0L, balance(userId));
+        assertEquals(100L, count("SELECT COUNT(*) FROM transactions WHERE user_id = ? AND type = 'DEBIT'", userId));
+        assertEquals(initialCents, count("SELECT COALESCE(SUM(amount_cents), 0) FROM transactions WHERE user_id = ? AND type = 'DEBIT'", userId));
+        assertEquals(0L, count("SELECT COUNT(*) FROM transactions WHERE user_id = ? AND balance_after_cents < 0", userId));
+        assertEquals(101L, count("SELECT last_seq_no FROM wallets WHERE user_id = ?", userId));
+        assertEquals(initialCents, count("SELECT SUM(debits_cents) FROM wallet_monthly_summaries WHERE user_id = ?", userId));
+        assertEquals(101L, count("SELECT SUM(entries) FROM wallet_monthly_summaries WHERE user_id = ?", userId));
+        reportThroughput(reporter, "débitos concorrentes", debits, elapsedNanos);
+    }
+
+    // Depósitos e débitos misturados em várias carteiras: saldo final = depósitos - débitos aplicados
+    @Test
+    void mixedDepositsAndDebitsKeepLedgerConsistent(TestReporter reporter) throws Exception {
+        int wallets = 8;
+        int operations = 4_000;
+        for (int w = 0; w < wallets; w++) {
+            balanceService.deposit("mixed-" + w, 5_000, "Depósito inicial", null);
+        }
+
+        long begin = System.nanoTime();
+        int failures = ConcurrentTasks.run(operations, i -> {
+            String userId = "mixed-" + (i % wallets);
+            try {
+                if (i % 3 == 0) {
+                    balanceService.deposit(userId, 150, "Depósito " + i, null);
+                } else {
+                    balanceService.debit(userId, 275, "Débito " + i, null);
+                }
+            } catch (InsufficientBalanceException ignored) {
+                // recusado sem lançamento
+            }
+        });
+        long elapsedNanos = System.nanoTime() - begin;
+
+        assertEquals(0, failures);
+        for (int w = 0; w < wallets; w++) {
+            String userId = "mixed-" + w;
+            long deposits = count("SELECT COALESCE(SUM(amount_cents), 0) FROM transactions WHERE user_id = ? AND type = 'WALLET_DEPOSIT'", userId);
+            long debited = count("SELECT COALESCE(SUM(amount_cents), 0) FROM transactions WHERE user_id = ? AND type = 'DEBIT'", userId);
+            assertEquals(deposits - debited, balance(userId));
+            assertTrue(balance(userId) >= 0);
+        }
+        assertEquals(0L, reconciliation.reconcile().totalDiscrepancies());
+        reportThroughput(reporter, "depósitos e débitos", operations, elapsedNanos);
+    }
+
+    // Vazão vai para o relatório do JUnit (report entry), não para a saída padrão
+    private static void reportThroughput(TestReporter reporter, String name, int operations, long elapsedNanos) {
+        long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        reporter.publishEntry(Map.of(
+                name + ".operacoes", String.valueOf(operations),
+                name + ".ms", String.valueOf(millis),
+                name + ".op/s", String.format(Locale.ROOT, "%.0f", operations * 1000.0 / millis)));
+    }
+
+    private long balance(String userId) {
+        Long value = jdbcTemplate.queryForObject("SELECT balance_cents FROM wallets WHERE user_id = ?", Long.class, userId);
+        return value != null ? value : 0;
+    }
+
+    private long count(String sql, String userId) {
+        Long value = jdbcTemplate.queryForObject(sql, Long.class, userId);
+        return value != null ? value : 0;
+    }
+}